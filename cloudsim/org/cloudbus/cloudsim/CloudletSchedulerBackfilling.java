@@ -0,0 +1,547 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.lists.ResCloudletList;
+
+/**
+ * CloudletSchedulerBackfilling is a space-shared scheduler that lets waiting cloudlets start ahead
+ * of earlier ones when they fit on the idle PEs, as long as they don't delay the earlier ones.
+ * Cloudlets are served in order of arrival, and their run times are estimated from their remaining
+ * length and the current MIPS share of the VM.
+ * <p>
+ * With the {@link #EASY} policy only the first cloudlet that can't start is given a reservation, so
+ * a cloudlet may start ahead of it if it doesn't delay that reservation. With the
+ * {@link #CONSERVATIVE} policy every waiting cloudlet is given a reservation in turn, so a cloudlet
+ * may only start ahead of others if it delays none of them. Reservations are recomputed at each
+ * update from a {@link ReservationProfile}, which takes into account cloudlets that finish or are
+ * paused or canceled before their estimated time.
+ * <p>
+ * The scheduler also records the time cloudlets spend waiting and the share of the PEs of the VM
+ * kept busy, so that they can be reported per VM.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class CloudletSchedulerBackfilling extends CloudletSchedulerSpaceShared {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The EASY backfilling policy, which only protects the first waiting cloudlet. */
+	public static final int EASY = 0;
+
+	/** The conservative backfilling policy, which protects every waiting cloudlet. */
+	public static final int CONSERVATIVE = 1;
+
+	/** The backfilling policy. */
+	private final int policy;
+
+	/** The time at which each waiting cloudlet joined the waiting list. */
+	private final Map<ResCloudlet, Double> queuedSince;
+
+	/** The total time cloudlets spent in the waiting list before starting. */
+	private double totalWaitingTime;
+
+	/** The number of cloudlets started from the waiting list. */
+	private int startedCloudlets;
+
+	/** The number of cloudlets started ahead of an earlier waiting cloudlet. */
+	private int backfilledCloudlets;
+
+	/** The PE-seconds used by running cloudlets. */
+	private double busyPeTime;
+
+	/** The PE-seconds available to the scheduler. */
+	private double totalPeTime;
+
+	/** The reservations made at {@link #profileTime}, or <tt>null</tt> to recompute them. */
+	private transient ReservationProfile profile;
+
+	/** The time of the reservations. */
+	private double profileTime;
+
+	/** The MIPS of each PE when the reservations were made. */
+	private double profileCapacity;
+
+	/** The number of PEs when the reservations were made. */
+	private int profileCpus;
+
+	/** The time until which some PE stays free, according to the reservations. */
+	private double freeUntil;
+
+	/** The number of waiting cloudlets, from the head of the list, visited for the reservations. */
+	private int visited;
+
+	/** The number of waiting cloudlets, from the head of the list, found unable to start now. */
+	private int screened;
+
+	/** Whether a visited cloudlet is still waiting. */
+	private boolean blocked;
+
+	/** Whether a visited cloudlet was given a reservation. */
+	private boolean reserved;
+
+	/**
+	 * Creates a new CloudletSchedulerBackfilling object. This method must be invoked before
+	 * starting the actual simulation.
+	 *
+	 * @param policy the backfilling policy, {@link #EASY} or {@link #CONSERVATIVE}
+	 * @throws IllegalArgumentException if the policy is unknown
+	 * @pre $none
+	 * @post $none
+	 */
+	public CloudletSchedulerBackfilling(int policy) {
+		super();
+		if (policy != EASY && policy != CONSERVATIVE) {
+			throw new IllegalArgumentException("Unknown backfilling policy: " + policy);
+		}
+		this.policy = policy;
+		queuedSince = new HashMap<ResCloudlet, Double>();
+	}
+
+	/**
+	 * Updates the processing of cloudlets running under management of this scheduler, then starts
+	 * the waiting cloudlets allowed by the backfilling policy.
+	 *
+	 * @param currentTime current simulation time
+	 * @param mipsShare array with MIPS share of each processor available to the scheduler
+	 * @return time predicted completion time of the earliest finishing cloudlet, or 0 if there is
+	 *         no next events
+	 * @pre currentTime >= 0
+	 * @post $none
+	 */
+	@Override
+	public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+		boolean started = getCurrentMipsShare() != null;
+		setCurrentMipsShare(mipsShare);
+		double timeSpan = currentTime - getPreviousTime();
+		double capacity = updateCapacity(mipsShare);
+
+		if (started) {
+			busyPeTime += usedPes * timeSpan;
+			totalPeTime += currentCpus * timeSpan;
+		}
+
+		for (ResCloudlet rcl : getCloudletExecList()) {
+			rcl.updateCloudletFinishedSoFar((long) (capacity * timeSpan * rcl.getNumberOfPes() * Consts.MILLION));
+		}
+
+		// no more cloudlets in this scheduler
+		if (getCloudletExecList().size() == 0 && getCloudletWaitingList().size() == 0) {
+			setPreviousTime(currentTime);
+			return 0.0;
+		}
+
+		List<ResCloudlet> toRemove = new ArrayList<ResCloudlet>();
+		for (ResCloudlet rcl : getCloudletExecList()) {
+			// finished anyway, rounding issue...
+			if (rcl.getRemainingCloudletLength() == 0) {
+				toRemove.add(rcl);
+				cloudletFinish(rcl);
+			}
+		}
+		for (ResCloudlet rcl : toRemove) {
+			getCloudletExecList().remove(rcl);
+		}
+		if (!toRemove.isEmpty()) {
+			profile = null;
+		}
+
+		startCloudlets(currentTime, capacity);
+
+		// estimate finish time of cloudlets in the execution queue
+		double nextEvent = Double.MAX_VALUE;
+		for (ResCloudlet rcl : getCloudletExecList()) {
+			double estimatedFinishTime = currentTime + getEstimatedRunTime(rcl, capacity);
+			if (estimatedFinishTime - currentTime < CloudSim.getMinTimeBetweenEvents()) {
+				estimatedFinishTime = currentTime + CloudSim.getMinTimeBetweenEvents();
+			}
+			if (estimatedFinishTime < nextEvent) {
+				nextEvent = estimatedFinishTime;
+			}
+		}
+		setPreviousTime(currentTime);
+		return nextEvent;
+	}
+
+	/**
+	 * Receives a cloudlet to be executed in the VM managed by this scheduler. The cloudlet joins
+	 * the waiting list and starts at once only if the backfilling policy allows it.
+	 *
+	 * @param cloudlet the submited cloudlet
+	 * @param fileTransferTime time required to move the required files from the SAN to the VM
+	 * @return expected finish time of this cloudlet, or 0 if it is in the waiting queue
+	 * @pre cloudlet != null
+	 * @post $none
+	 */
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet, double fileTransferTime) {
+		ResCloudlet rcl = new ResCloudlet(cloudlet);
+		enqueue(rcl);
+
+		double capacity = updateCapacity(getCurrentMipsShare());
+		startCloudlets(CloudSim.clock(), capacity);
+		if (rcl.getCloudletStatus() != Cloudlet.INEXEC) {
+			return 0.0;
+		}
+
+		// use the current capacity to estimate the extra amount of
+		// time to file transferring. It must be added to the cloudlet length
+		double extraSize = capacity * fileTransferTime;
+		long length = cloudlet.getCloudletLength();
+		length += extraSize;
+		cloudlet.setCloudletLength(length);
+		return cloudlet.getCloudletLength() / capacity;
+	}
+
+	/**
+	 * Resumes execution of a paused cloudlet. The cloudlet joins the end of the waiting list and
+	 * starts at once only if the backfilling policy allows it.
+	 *
+	 * @param cloudletId ID of the cloudlet being resumed
+	 * @return expected finish time of the cloudlet if it started, or 0 otherwise
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public double cloudletResume(int cloudletId) {
+		ResCloudlet rcl = ResCloudletList.getById(getCloudletPausedList(), cloudletId);
+		if (rcl == null) {
+			// not found in the paused list: either it is in in the queue, executing or not exist
+			return 0.0;
+		}
+		getCloudletPausedList().remove(rcl);
+
+		long size = rcl.getRemainingCloudletLength();
+		size *= rcl.getNumberOfPes();
+		rcl.getCloudlet().setCloudletLength(size);
+		enqueue(rcl);
+
+		double capacity = updateCapacity(getCurrentMipsShare());
+		startCloudlets(CloudSim.clock(), capacity);
+		if (rcl.getCloudletStatus() != Cloudlet.INEXEC) {
+			return 0.0;
+		}
+		return CloudSim.clock() + getEstimatedRunTime(rcl, capacity);
+	}
+
+	/**
+	 * Cancels execution of a cloudlet, releasing its PEs if it was running.
+	 *
+	 * @param cloudletId ID of the cloudlet being cancealed
+	 * @return the canceled cloudlet, $null if not found
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet cloudletCancel(int cloudletId) {
+		ResCloudlet running = ResCloudletList.getById(getCloudletExecList(), cloudletId);
+		ResCloudlet waiting = ResCloudletList.getById(getCloudletWaitingList(), cloudletId);
+		Cloudlet cloudlet = super.cloudletCancel(cloudletId);
+		release(running, waiting);
+		return cloudlet;
+	}
+
+	/**
+	 * Pauses execution of a cloudlet, releasing its PEs if it was running.
+	 *
+	 * @param cloudletId ID of the cloudlet being paused
+	 * @return $true if cloudlet paused, $false otherwise
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public boolean cloudletPause(int cloudletId) {
+		ResCloudlet running = ResCloudletList.getById(getCloudletExecList(), cloudletId);
+		ResCloudlet waiting = ResCloudletList.getById(getCloudletWaitingList(), cloudletId);
+		boolean paused = super.cloudletPause(cloudletId);
+		release(running, waiting);
+		return paused;
+	}
+
+	/**
+	 * Removes the first running cloudlet for migration and drops the reservations, which still
+	 * account for its PEs.
+	 *
+	 * @return the migrated cloudlet
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet migrateCloudlet() {
+		Cloudlet cloudlet = super.migrateCloudlet();
+		profile = null;
+		return cloudlet;
+	}
+
+	/**
+	 * Gets the backfilling policy.
+	 *
+	 * @return {@link #EASY} or {@link #CONSERVATIVE}
+	 */
+	public int getPolicy() {
+		return policy;
+	}
+
+	/**
+	 * Gets the total time cloudlets spent in the waiting list before starting. A cloudlet resumed
+	 * after a pause counts again for its new wait.
+	 *
+	 * @return the total waiting time
+	 */
+	public double getTotalWaitingTime() {
+		return totalWaitingTime;
+	}
+
+	/**
+	 * Gets the average time cloudlets spent in the waiting list before starting.
+	 *
+	 * @return the average waiting time, or 0 if no cloudlet started
+	 */
+	public double getAverageWaitingTime() {
+		return startedCloudlets == 0 ? 0.0 : totalWaitingTime / startedCloudlets;
+	}
+
+	/**
+	 * Gets the number of cloudlets started from the waiting list.
+	 *
+	 * @return the number of started cloudlets
+	 */
+	public int getStartedCloudlets() {
+		return startedCloudlets;
+	}
+
+	/**
+	 * Gets the number of cloudlets started ahead of an earlier waiting cloudlet.
+	 *
+	 * @return the number of backfilled cloudlets
+	 */
+	public int getBackfilledCloudlets() {
+		return backfilledCloudlets;
+	}
+
+	/**
+	 * Gets the share of the PEs of the VM kept busy by cloudlets since the first update.
+	 *
+	 * @return the utilization, between 0 and 1
+	 */
+	public double getUtilization() {
+		return totalPeTime == 0.0 ? 0.0 : busyPeTime / totalPeTime;
+	}
+
+	/**
+	 * Starts the waiting cloudlets allowed by the backfilling policy. Cloudlets are visited in order
+	 * of arrival; each one starts if it fits on the idle PEs until its estimated finish time without
+	 * overlapping the reservations made so far, and otherwise is given a reservation at its
+	 * earliest possible start, for the first such cloudlet only under the {@link #EASY} policy.
+	 * <p>
+	 * Visiting stops once no remaining cloudlet can start now, and the reservations are kept, so
+	 * that a cloudlet submitted or resumed at the same time only visits the cloudlets after the
+	 * last one visited. They are recomputed when time advances, a cloudlet leaves the scheduler
+	 * or the MIPS share changes.
+	 *
+	 * @param currentTime the current simulation time
+	 * @param capacity the MIPS of each PE
+	 * @pre currentTime >= 0
+	 * @post $none
+	 */
+	protected void startCloudlets(double currentTime, double capacity) {
+		if (currentCpus == 0 || capacity <= 0.0) {
+			profile = null;
+			return;
+		}
+		if (profile == null || currentTime != profileTime || capacity != profileCapacity
+				|| currentCpus != profileCpus) {
+			profile = new ReservationProfile(currentCpus);
+			for (ResCloudlet rcl : getCloudletExecList()) {
+				profile.reserve(currentTime, currentTime + getEstimatedRunTime(rcl, capacity), rcl.getNumberOfPes());
+			}
+			profileTime = currentTime;
+			profileCapacity = capacity;
+			profileCpus = currentCpus;
+			freeUntil = profile.getFreeUntil(currentTime, 1);
+			visited = 0;
+			screened = 0;
+			blocked = false;
+			reserved = false;
+		}
+
+		List<ResCloudlet> waitingList = getCloudletWaitingList();
+		int candidate;
+		while ((candidate = findCandidate(currentTime, capacity)) >= 0) {
+			if (policy == EASY && reserved) {
+				// the cloudlets before the candidate neither start nor get a reservation
+				visited = candidate;
+			}
+			List<ResCloudlet> batch = new ArrayList<ResCloudlet>(waitingList.subList(visited, candidate + 1));
+			for (ResCloudlet rcl : batch) {
+				visit(rcl, currentTime, capacity);
+			}
+		}
+	}
+
+	/**
+	 * Finds the first waiting cloudlet not yet visited that may start now, i.e. that needs no more
+	 * PEs than are idle and no more time than some PE stays free. Cloudlets found unable to start
+	 * are not examined again until the reservations change.
+	 *
+	 * @param currentTime the current simulation time
+	 * @param capacity the MIPS of each PE
+	 * @return its position in the waiting list, or -1 if there is none
+	 */
+	private int findCandidate(double currentTime, double capacity) {
+		List<ResCloudlet> waitingList = getCloudletWaitingList();
+		int freePes = currentCpus - usedPes;
+		screened = Math.max(screened, visited);
+		if (freePes <= 0 || screened >= waitingList.size()) {
+			return -1;
+		}
+		for (Iterator<ResCloudlet> it = waitingList.listIterator(screened); it.hasNext(); screened++) {
+			ResCloudlet rcl = it.next();
+			int pes = rcl.getNumberOfPes();
+			if (pes <= freePes && pes <= currentCpus
+					&& currentTime + getEstimatedRunTime(rcl, capacity) <= freeUntil) {
+				return screened;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Starts a waiting cloudlet if it fits now, and otherwise gives it a reservation if the policy
+	 * requires one.
+	 *
+	 * @param rcl the next waiting cloudlet not yet visited
+	 * @param currentTime the current simulation time
+	 * @param capacity the MIPS of each PE
+	 */
+	private void visit(ResCloudlet rcl, double currentTime, double capacity) {
+		int pes = rcl.getNumberOfPes();
+		if (pes > currentCpus) {
+			// can never run on this VM
+			visited++;
+			return;
+		}
+
+		double runTime = getEstimatedRunTime(rcl, capacity);
+		double start;
+		if (pes <= currentCpus - usedPes && profile.fits(currentTime, currentTime + runTime, pes)) {
+			start = currentTime;
+			start(rcl, currentTime, blocked);
+		} else {
+			visited++;
+			blocked = true;
+			if (policy == EASY && reserved) {
+				return;
+			}
+			start = profile.findEarliestStart(currentTime, runTime, pes);
+			reserved = true;
+		}
+		profile.reserve(start, start + runTime, pes);
+		if (start < freeUntil) {
+			// fewer cloudlets may start now: screen the remaining ones again
+			freeUntil = profile.getFreeUntil(currentTime, 1);
+			screened = visited;
+		}
+	}
+
+	/**
+	 * Estimates the time a cloudlet needs to finish at the given MIPS per PE.
+	 *
+	 * @param rcl the cloudlet
+	 * @param capacity the MIPS of each PE
+	 * @return the estimated run time
+	 */
+	protected double getEstimatedRunTime(ResCloudlet rcl, double capacity) {
+		return rcl.getRemainingCloudletLength() / (capacity * rcl.getNumberOfPes());
+	}
+
+	/**
+	 * Adds a cloudlet to the end of the waiting list.
+	 *
+	 * @param rcl the cloudlet
+	 */
+	private void enqueue(ResCloudlet rcl) {
+		rcl.setCloudletStatus(Cloudlet.QUEUED);
+		getCloudletWaitingList().add(rcl);
+		queuedSince.put(rcl, CloudSim.clock());
+	}
+
+	/**
+	 * Moves a waiting cloudlet to the exec list.
+	 *
+	 * @param rcl the cloudlet
+	 * @param currentTime the current simulation time
+	 * @param backfilled whether an earlier waiting cloudlet remains waiting
+	 */
+	private void start(ResCloudlet rcl, double currentTime, boolean backfilled) {
+		getCloudletWaitingList().remove(rcl);
+		rcl.setCloudletStatus(Cloudlet.INEXEC);
+		for (int k = 0; k < rcl.getNumberOfPes(); k++) {
+			rcl.setMachineAndPeId(0, k);
+		}
+		getCloudletExecList().add(rcl);
+		usedPes += rcl.getNumberOfPes();
+
+		Double since = queuedSince.remove(rcl);
+		if (since != null) {
+			totalWaitingTime += currentTime - since;
+		}
+		startedCloudlets++;
+		if (backfilled) {
+			backfilledCloudlets++;
+		}
+	}
+
+	/**
+	 * Releases the PEs of a cloudlet removed from the exec list without finishing, forgets a
+	 * cloudlet removed from the waiting list and drops the reservations.
+	 *
+	 * @param running the cloudlet that was in the exec list, or <tt>null</tt>
+	 * @param waiting the cloudlet that was in the waiting list, or <tt>null</tt>
+	 */
+	private void release(ResCloudlet running, ResCloudlet waiting) {
+		profile = null;
+		if (running != null && running.getCloudletStatus() != Cloudlet.SUCCESS
+				&& !getCloudletExecList().contains(running)) {
+			usedPes -= running.getNumberOfPes();
+		}
+		if (waiting != null && !getCloudletWaitingList().contains(waiting)) {
+			queuedSince.remove(waiting);
+		}
+	}
+
+	/**
+	 * Counts the PEs with a MIPS share and gets the average MIPS of each.
+	 *
+	 * @param mipsShare the MIPS share of each PE, or <tt>null</tt> before the first update
+	 * @return the MIPS of each PE, or 0 if there is none
+	 */
+	private double updateCapacity(List<Double> mipsShare) {
+		double capacity = 0.0;
+		int cpus = 0;
+		if (mipsShare != null) {
+			for (Double mips : mipsShare) {
+				capacity += mips;
+				if (mips > 0) {
+					cpus++;
+				}
+			}
+		}
+		currentCpus = cpus;
+		return cpus == 0 ? 0.0 : capacity / cpus;
+	}
+
+}
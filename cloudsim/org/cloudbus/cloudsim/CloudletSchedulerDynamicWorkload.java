@@ -23,6 +23,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class CloudletSchedulerDynamicWorkload extends CloudletSchedulerTimeShared {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The mips. */
 	private double mips;
 
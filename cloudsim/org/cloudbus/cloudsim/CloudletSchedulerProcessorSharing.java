@@ -0,0 +1,652 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * CloudletSchedulerProcessorSharing implements the time-shared policy of
+ * {@link CloudletSchedulerTimeShared}, where every running cloudlet gets the same share of the VM
+ * capacity per PE, with a virtual time instead of per-cloudlet progress.
+ * <p>
+ * The virtual time is the length, in MI, that a cloudlet using one PE has executed since the
+ * scheduler was created. It advances with the capacity per PE, so all running cloudlets progress
+ * together by advancing one number. Each running cloudlet keeps the virtual time at which its
+ * remaining length drops below one MI, when {@link CloudletSchedulerTimeShared} considers it
+ * finished, in a binary min-heap. An update takes constant time plus O(log n) per finished
+ * cloudlet, instead of O(n), and submitting, pausing, resuming or cancelling a cloudlet takes
+ * O(log n).
+ * <p>
+ * Progress is not truncated to whole instructions at every update, so finish times may differ
+ * from {@link CloudletSchedulerTimeShared} by a fraction of an MI of work. When cloudlets with
+ * different numbers of PEs run together, the next event is the estimated finish of the cloudlet
+ * first to fall below one MI, which may be slightly later than the earliest estimate.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see CloudletSchedulerTimeShared
+ */
+public class CloudletSchedulerProcessorSharing extends CloudletScheduler {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The initial capacity of the heap. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The virtual time of the last update, in MI per PE. */
+	private double virtualTime;
+
+	/** The running cloudlets, ordered by the virtual time at which they finish. */
+	private Entry[] heap;
+
+	/** The number of running cloudlets. */
+	private int size;
+
+	/** The running cloudlets by id, in the order they started running. */
+	private final Map<Integer, Entry> running;
+
+	/** The paused cloudlets by id. */
+	private final Map<Integer, Entry> paused;
+
+	/** The finished cloudlets not yet returned. */
+	private final ArrayDeque<ResCloudlet> finished;
+
+	/** The number of PEs requested by the running cloudlets. */
+	private int pesInUse;
+
+	/** The number of cloudlets that started running, used to keep their order. */
+	private long sequence;
+
+	/** The current cp us. */
+	protected int currentCPUs;
+
+	/**
+	 * Creates a new CloudletSchedulerProcessorSharing object. This method must be invoked before
+	 * starting the actual simulation.
+	 *
+	 * @pre $none
+	 * @post $none
+	 */
+	public CloudletSchedulerProcessorSharing() {
+		super();
+		heap = new Entry[INITIAL_CAPACITY];
+		running = new LinkedHashMap<Integer, Entry>();
+		paused = new HashMap<Integer, Entry>();
+		finished = new ArrayDeque<ResCloudlet>();
+		currentCPUs = 0;
+	}
+
+	/**
+	 * Updates the processing of cloudlets running under management of this scheduler.
+	 *
+	 * @param currentTime current simulation time
+	 * @param mipsShare array with MIPS share of each processor available to the scheduler
+	 * @return time predicted completion time of the earliest finishing cloudlet, or 0 if there is
+	 *         no next events
+	 * @pre currentTime >= 0
+	 * @post $none
+	 */
+	@Override
+	public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+		setCurrentMipsShare(mipsShare);
+		double timeSpam = currentTime - getPreviousTime();
+
+		if (size == 0) {
+			setPreviousTime(currentTime);
+			return 0.0;
+		}
+
+		double capacity = getCapacity(mipsShare);
+		virtualTime += capacity * timeSpam;
+
+		// check finished cloudlets, finishing them in the order they started running
+		List<Entry> toFinish = new ArrayList<Entry>();
+		while (size > 0 && heap[0].threshold < virtualTime) {
+			toFinish.add(heap[0]);
+			removeAt(0);
+		}
+		if (toFinish.size() > 1) {
+			Collections.sort(toFinish, SEQUENCE_ORDER);
+		}
+		for (Entry entry : toFinish) {
+			stop(entry);
+			cloudletFinish(entry.rcl);
+		}
+
+		if (size == 0) {
+			setPreviousTime(currentTime);
+			return Double.MAX_VALUE;
+		}
+
+		// estimate finish time of the first cloudlet to finish
+		capacity = getCapacity(mipsShare);
+		Entry first = heap[0];
+		double estimatedFinishTime = currentTime
+				+ (getRemainingLength(first) / (capacity * first.rcl.getNumberOfPes()));
+		if (estimatedFinishTime - currentTime < CloudSim.getMinTimeBetweenEvents()) {
+			estimatedFinishTime = currentTime + CloudSim.getMinTimeBetweenEvents();
+		}
+
+		setPreviousTime(currentTime);
+		return estimatedFinishTime;
+	}
+
+	/**
+	 * Gets the capacity per PE, i.e. the MIPS of the VM shared by the PEs in use.
+	 *
+	 * @param mipsShare the mips share
+	 * @return the capacity
+	 */
+	protected double getCapacity(List<Double> mipsShare) {
+		double capacity = 0.0;
+		int cpus = 0;
+		for (Double mips : mipsShare) {
+			capacity += mips;
+			if (mips > 0.0) {
+				cpus++;
+			}
+		}
+		currentCPUs = cpus;
+
+		if (pesInUse > currentCPUs) {
+			capacity /= pesInUse;
+		} else {
+			capacity /= currentCPUs;
+		}
+		return capacity;
+	}
+
+	/**
+	 * Cancels execution of a cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet being cancealed
+	 * @return the canceled cloudlet, $null if not found
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet cloudletCancel(int cloudletId) {
+		// First, looks in the finished queue
+		Iterator<ResCloudlet> iter = finished.iterator();
+		while (iter.hasNext()) {
+			ResCloudlet rcl = iter.next();
+			if (rcl.getCloudletId() == cloudletId) {
+				iter.remove();
+				return rcl.getCloudlet();
+			}
+		}
+
+		// Then searches the running cloudlets
+		Entry entry = running.get(cloudletId);
+		if (entry != null) {
+			removeAt(entry.index);
+			stop(entry);
+			if (entry.rcl.getRemainingCloudletLength() == 0) {
+				cloudletFinish(entry.rcl);
+			} else {
+				entry.rcl.setCloudletStatus(Cloudlet.CANCELED);
+			}
+			return entry.rcl.getCloudlet();
+		}
+
+		// Now, looks in the paused cloudlets
+		entry = paused.remove(cloudletId);
+		if (entry != null) {
+			entry.rcl.setCloudletStatus(Cloudlet.CANCELED);
+			return entry.rcl.getCloudlet();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Pauses execution of a cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet being paused
+	 * @return $true if cloudlet paused, $false otherwise
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public boolean cloudletPause(int cloudletId) {
+		Entry entry = running.get(cloudletId);
+		if (entry == null) {
+			return false;
+		}
+
+		// stop the cloudlet and keep its remaining length per PE
+		removeAt(entry.index);
+		double remaining = entry.finishTime - virtualTime;
+		stop(entry);
+		if (entry.rcl.getRemainingCloudletLength() == 0) {
+			cloudletFinish(entry.rcl);
+		} else {
+			entry.rcl.setCloudletStatus(Cloudlet.PAUSED);
+			entry.finishTime = remaining;
+			paused.put(cloudletId, entry);
+		}
+		return true;
+	}
+
+	/**
+	 * Processes a finished cloudlet.
+	 *
+	 * @param rcl finished cloudlet
+	 * @pre rgl != $null
+	 * @post $none
+	 */
+	@Override
+	public void cloudletFinish(ResCloudlet rcl) {
+		rcl.setCloudletStatus(Cloudlet.SUCCESS);
+		rcl.finalizeCloudlet();
+		finished.add(rcl);
+	}
+
+	/**
+	 * Resumes execution of a paused cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet being resumed
+	 * @return expected finish time of the cloudlet, 0.0 if queued
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public double cloudletResume(int cloudletId) {
+		Entry entry = paused.remove(cloudletId);
+		if (entry == null) {
+			return 0.0;
+		}
+
+		entry.rcl.setCloudletStatus(Cloudlet.INEXEC);
+		start(entry, entry.finishTime);
+
+		// calculate the expected time for cloudlet completion
+		double remainingLength = entry.rcl.getRemainingCloudletLength();
+		return CloudSim.clock()
+				+ (remainingLength / (getCapacity(getCurrentMipsShare()) * entry.rcl.getNumberOfPes()));
+	}
+
+	/**
+	 * Receives an cloudlet to be executed in the VM managed by this scheduler.
+	 *
+	 * @param cloudlet the submited cloudlet
+	 * @param fileTransferTime time required to move the required files from the SAN to the VM
+	 * @return expected finish time of this cloudlet
+	 * @pre gl != null
+	 * @post $none
+	 */
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet, double fileTransferTime) {
+		ResCloudlet rcl = new ResCloudlet(cloudlet);
+		rcl.setCloudletStatus(Cloudlet.INEXEC);
+		for (int i = 0; i < cloudlet.getNumberOfPes(); i++) {
+			rcl.setMachineAndPeId(0, i);
+		}
+
+		// use the current capacity, with this cloudlet running, to estimate the extra amount of
+		// time to file transferring. It must be added to the cloudlet length
+		pesInUse += rcl.getNumberOfPes();
+		double extraSize = getCapacity(getCurrentMipsShare()) * fileTransferTime;
+		pesInUse -= rcl.getNumberOfPes();
+		long length = (long) (cloudlet.getCloudletLength() + extraSize);
+		cloudlet.setCloudletLength(length);
+
+		// the total length is spread over the PEs of the cloudlet
+		start(new Entry(rcl), (double) cloudlet.getCloudletTotalLength() / rcl.getNumberOfPes());
+
+		return cloudlet.getCloudletLength() / getCapacity(getCurrentMipsShare());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#cloudletSubmit(cloudsim.Cloudlet)
+	 */
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet) {
+		return cloudletSubmit(cloudlet, 0.0);
+	}
+
+	/**
+	 * Gets the status of a cloudlet.
+	 *
+	 * @param cloudletId ID of the cloudlet
+	 * @return status of the cloudlet, -1 if cloudlet not found
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public int getCloudletStatus(int cloudletId) {
+		Entry entry = running.get(cloudletId);
+		if (entry == null) {
+			entry = paused.get(cloudletId);
+		}
+		return entry == null ? -1 : entry.rcl.getCloudletStatus();
+	}
+
+	/**
+	 * Get utilization created by all cloudlets.
+	 *
+	 * @param time the time
+	 * @return total utilization
+	 */
+	@Override
+	public double getTotalUtilizationOfCpu(double time) {
+		double totalUtilization = 0;
+		for (Entry entry : running.values()) {
+			totalUtilization += entry.rcl.getCloudlet().getUtilizationOfCpu(time);
+		}
+		return totalUtilization;
+	}
+
+	/**
+	 * Informs about completion of some cloudlet in the VM managed by this scheduler.
+	 *
+	 * @return $true if there is at least one finished cloudlet; $false otherwise
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public boolean isFinishedCloudlets() {
+		return !finished.isEmpty();
+	}
+
+	/**
+	 * Returns the next cloudlet in the finished list, $null if this list is empty.
+	 *
+	 * @return a finished cloudlet
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet getNextFinishedCloudlet() {
+		ResCloudlet rcl = finished.poll();
+		return rcl == null ? null : rcl.getCloudlet();
+	}
+
+	/**
+	 * Returns the number of cloudlets runnning in the virtual machine.
+	 *
+	 * @return number of cloudlets runnning
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public int runningCloudlets() {
+		return size;
+	}
+
+	/**
+	 * Returns one cloudlet to migrate to another vm, the one running for the longest time.
+	 *
+	 * @return one running cloudlet
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public Cloudlet migrateCloudlet() {
+		Entry entry = running.values().iterator().next();
+		removeAt(entry.index);
+		stop(entry);
+		entry.rcl.finalizeCloudlet();
+		return entry.rcl.getCloudlet();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#getCurrentRequestedMips()
+	 */
+	@Override
+	public List<Double> getCurrentRequestedMips() {
+		List<Double> mipsShare = new ArrayList<Double>();
+		return mipsShare;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#getTotalCurrentAvailableMipsForCloudlet(cloudsim.ResCloudlet,
+	 * java.util.List)
+	 */
+	@Override
+	public double getTotalCurrentAvailableMipsForCloudlet(ResCloudlet rcl, List<Double> mipsShare) {
+		return getCapacity(getCurrentMipsShare());
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#getTotalCurrentAllocatedMipsForCloudlet(cloudsim.ResCloudlet,
+	 * double)
+	 */
+	@Override
+	public double getTotalCurrentAllocatedMipsForCloudlet(ResCloudlet rcl, double time) {
+		return 0.0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.CloudletScheduler#getTotalCurrentRequestedMipsForCloudlet(cloudsim.ResCloudlet,
+	 * double)
+	 */
+	@Override
+	public double getTotalCurrentRequestedMipsForCloudlet(ResCloudlet rcl, double time) {
+		return 0.0;
+	}
+
+	@Override
+	public double getCurrentRequestedUtilizationOfRam() {
+		double ram = 0;
+		for (Entry entry : running.values()) {
+			ram += entry.rcl.getCloudlet().getUtilizationOfRam(CloudSim.clock());
+		}
+		return ram;
+	}
+
+	@Override
+	public double getCurrentRequestedUtilizationOfBw() {
+		double bw = 0;
+		for (Entry entry : running.values()) {
+			bw += entry.rcl.getCloudlet().getUtilizationOfBw(CloudSim.clock());
+		}
+		return bw;
+	}
+
+	/**
+	 * Starts running a cloudlet from the current virtual time.
+	 *
+	 * @param entry the cloudlet
+	 * @param remaining its remaining length per PE, in MI
+	 */
+	private void start(Entry entry, double remaining) {
+		int pes = entry.rcl.getNumberOfPes();
+		entry.startTime = virtualTime;
+		entry.finishTime = virtualTime + remaining;
+		// CloudletSchedulerTimeShared finishes a cloudlet once less than one MI is left
+		entry.threshold = entry.finishTime - 1.0 / pes;
+		entry.sequence = sequence++;
+		running.put(entry.rcl.getCloudletId(), entry);
+		pesInUse += pes;
+
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, 2 * size);
+		}
+		heap[size] = entry;
+		entry.index = size;
+		siftUp(size++);
+	}
+
+	/**
+	 * Stops running a cloudlet already removed from the heap, recording the length it executed.
+	 *
+	 * @param entry the cloudlet
+	 */
+	private void stop(Entry entry) {
+		running.remove(entry.rcl.getCloudletId());
+		pesInUse -= entry.rcl.getNumberOfPes();
+		double executed = (virtualTime - entry.startTime) * entry.rcl.getNumberOfPes();
+		entry.rcl.updateCloudletFinishedSoFar((long) (executed * Consts.MILLION));
+		entry.startTime = virtualTime;
+	}
+
+	/**
+	 * Gets the remaining length of a running cloudlet, as {@link ResCloudlet#getRemainingCloudletLength()}
+	 * would after an update of {@link CloudletSchedulerTimeShared}.
+	 *
+	 * @param entry the cloudlet
+	 * @return the remaining length, in MI of all its PEs
+	 */
+	private long getRemainingLength(Entry entry) {
+		double remaining = (entry.finishTime - virtualTime) * entry.rcl.getNumberOfPes();
+		return remaining < 0 ? 0 : (long) Math.floor(remaining);
+	}
+
+	/**
+	 * Removes the cloudlet at the given position of the heap.
+	 *
+	 * @param position the position
+	 */
+	private void removeAt(int position) {
+		size--;
+		if (position == size) {
+			heap[size] = null;
+			return;
+		}
+
+		Entry removed = heap[position];
+		heap[position] = heap[size];
+		heap[position].index = position;
+		heap[size] = null;
+		if (compare(heap[position], removed) < 0) {
+			siftUp(position);
+		} else {
+			siftDown(position);
+		}
+	}
+
+	/**
+	 * Moves the cloudlet at the given position up until its parent does not finish later.
+	 *
+	 * @param position the position
+	 */
+	private void siftUp(int position) {
+		Entry entry = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (compare(heap[parent], entry) <= 0) {
+				break;
+			}
+			heap[position] = heap[parent];
+			heap[position].index = position;
+			position = parent;
+		}
+		heap[position] = entry;
+		entry.index = position;
+	}
+
+	/**
+	 * Moves the cloudlet at the given position down until no child finishes earlier.
+	 *
+	 * @param position the position
+	 */
+	private void siftDown(int position) {
+		Entry entry = heap[position];
+		int half = size >>> 1;
+		while (position < half) {
+			int child = 2 * position + 1;
+			if (child + 1 < size && compare(heap[child + 1], heap[child]) < 0) {
+				child++;
+			}
+			if (compare(entry, heap[child]) <= 0) {
+				break;
+			}
+			heap[position] = heap[child];
+			heap[position].index = position;
+			position = child;
+		}
+		heap[position] = entry;
+		entry.index = position;
+	}
+
+	/**
+	 * Compares two running cloudlets by the virtual time at which they finish, then by the order in
+	 * which they started running.
+	 *
+	 * @param a a cloudlet
+	 * @param b another cloudlet
+	 * @return a negative number, zero or a positive number if a finishes first, with b or last
+	 */
+	private static int compare(Entry a, Entry b) {
+		int byThreshold = Double.compare(a.threshold, b.threshold);
+		return byThreshold != 0 ? byThreshold : (a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1));
+	}
+
+	/** Orders cloudlets by the order in which they started running. */
+	private static final Comparator<Entry> SEQUENCE_ORDER = new SequenceOrder();
+
+	/**
+	 * Orders cloudlets by the order in which they started running.
+	 */
+	private static class SequenceOrder implements Comparator<Entry>, Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public int compare(Entry a, Entry b) {
+			return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+		}
+	}
+
+	/**
+	 * A running or paused cloudlet.
+	 */
+	private static class Entry implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The cloudlet. */
+		private final ResCloudlet rcl;
+
+		/** The virtual time up to which the executed length of the cloudlet was recorded. */
+		private double startTime;
+
+		/**
+		 * The virtual time at which the cloudlet finishes while it runs, or its remaining length
+		 * per PE while it is paused.
+		 */
+		private double finishTime;
+
+		/** The virtual time after which less than one MI of the cloudlet is left. */
+		private double threshold;
+
+		/** The order in which the cloudlet started running. */
+		private long sequence;
+
+		/** The position of the cloudlet in the heap. */
+		private int index;
+
+		/**
+		 * Creates an entry for a cloudlet.
+		 *
+		 * @param rcl the cloudlet
+		 */
+		Entry(ResCloudlet rcl) {
+			this.rcl = rcl;
+		}
+	}
+
+}
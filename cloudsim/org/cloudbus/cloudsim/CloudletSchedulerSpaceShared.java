@@ -12,13 +12,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.lists.IndexedResCloudletList;
+import org.cloudbus.cloudsim.lists.ResCloudletList;
 
 /**
  * CloudletSchedulerSpaceShared implements a policy of scheduling performed by a virtual machine. It
  * consider that there will be only one cloudlet per VM. Other cloudlets will be in a waiting list.
  * We consider that file transfer from cloudlets waiting happens before cloudlet execution. I.e.,
  * even though cloudlets must wait for CPU, data transfer happens as soon as cloudlets are
- * submitted.
+ * submitted. Its lists are {@link IndexedResCloudletList}s, so cloudlets are found by id and moved
+ * between lists in constant time.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -26,6 +29,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The cloudlet waiting list. */
 	private List<? extends ResCloudlet> cloudletWaitingList;
 
@@ -53,10 +58,10 @@ public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 	 */
 	public CloudletSchedulerSpaceShared() {
 		super();
-		cloudletWaitingList = new ArrayList<ResCloudlet>();
-		cloudletExecList = new ArrayList<ResCloudlet>();
-		cloudletPausedList = new ArrayList<ResCloudlet>();
-		cloudletFinishedList = new ArrayList<ResCloudlet>();
+		cloudletWaitingList = new IndexedResCloudletList<ResCloudlet>();
+		cloudletExecList = new IndexedResCloudletList<ResCloudlet>();
+		cloudletPausedList = new IndexedResCloudletList<ResCloudlet>();
+		cloudletFinishedList = new IndexedResCloudletList<ResCloudlet>();
 		usedPes = 0;
 		currentCpus = 0;
 	}
@@ -109,7 +114,9 @@ public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 				finished++;
 			}
 		}
-		getCloudletExecList().removeAll(toRemove);
+		for (ResCloudlet rcl : toRemove) {
+			getCloudletExecList().remove(rcl);
+		}
 
 		// for each finished cloudlet, add a new one from the waiting list
 		if (!getCloudletWaitingList().isEmpty()) {
@@ -127,7 +134,9 @@ public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 						break;
 					}
 				}
-				getCloudletWaitingList().removeAll(toRemove);
+				for (ResCloudlet rcl : toRemove) {
+					getCloudletWaitingList().remove(rcl);
+				}
 			}
 		}
 
@@ -158,41 +167,37 @@ public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 	@Override
 	public Cloudlet cloudletCancel(int cloudletId) {
 		// First, looks in the finished queue
-		for (ResCloudlet rcl : getCloudletFinishedList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				getCloudletFinishedList().remove(rcl);
-				return rcl.getCloudlet();
-			}
+		ResCloudlet rcl = ResCloudletList.getById(getCloudletFinishedList(), cloudletId);
+		if (rcl != null) {
+			getCloudletFinishedList().remove(rcl);
+			return rcl.getCloudlet();
 		}
 
 		// Then searches in the exec list
-		for (ResCloudlet rcl : getCloudletExecList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				getCloudletExecList().remove(rcl);
-				if (rcl.getRemainingCloudletLength() == 0) {
-					cloudletFinish(rcl);
-				} else {
-					rcl.setCloudletStatus(Cloudlet.CANCELED);
-				}
-				return rcl.getCloudlet();
+		rcl = ResCloudletList.getById(getCloudletExecList(), cloudletId);
+		if (rcl != null) {
+			getCloudletExecList().remove(rcl);
+			if (rcl.getRemainingCloudletLength() == 0) {
+				cloudletFinish(rcl);
+			} else {
+				rcl.setCloudletStatus(Cloudlet.CANCELED);
 			}
+			return rcl.getCloudlet();
 		}
 
 		// Now, looks in the paused queue
-		for (ResCloudlet rcl : getCloudletPausedList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				getCloudletPausedList().remove(rcl);
-				return rcl.getCloudlet();
-			}
+		rcl = ResCloudletList.getById(getCloudletPausedList(), cloudletId);
+		if (rcl != null) {
+			getCloudletPausedList().remove(rcl);
+			return rcl.getCloudlet();
 		}
 
 		// Finally, looks in the waiting list
-		for (ResCloudlet rcl : getCloudletWaitingList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				rcl.setCloudletStatus(Cloudlet.CANCELED);
-				getCloudletWaitingList().remove(rcl);
-				return rcl.getCloudlet();
-			}
+		rcl = ResCloudletList.getById(getCloudletWaitingList(), cloudletId);
+		if (rcl != null) {
+			rcl.setCloudletStatus(Cloudlet.CANCELED);
+			getCloudletWaitingList().remove(rcl);
+			return rcl.getCloudlet();
 		}
 
 		return null;
@@ -209,45 +214,17 @@ public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 	 */
 	@Override
 	public boolean cloudletPause(int cloudletId) {
-		boolean found = false;
-		int position = 0;
-
-		// first, looks for the cloudlet in the exec list
-		for (ResCloudlet rcl : getCloudletExecList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				found = true;
-				break;
-			}
-			position++;
+		// first, looks for the cloudlet in the exec list, then in the waiting list
+		List<ResCloudlet> list = getCloudletExecList();
+		ResCloudlet rgl = ResCloudletList.getById(list, cloudletId);
+		if (rgl == null) {
+			list = getCloudletWaitingList();
+			rgl = ResCloudletList.getById(list, cloudletId);
 		}
 
-		if (found) {
+		if (rgl != null) {
 			// moves to the paused list
-			ResCloudlet rgl = getCloudletExecList().remove(position);
-			if (rgl.getRemainingCloudletLength() == 0) {
-				cloudletFinish(rgl);
-			} else {
-				rgl.setCloudletStatus(Cloudlet.PAUSED);
-				getCloudletPausedList().add(rgl);
-			}
-			return true;
-
-		}
-
-		// now, look for the cloudlet in the waiting list
-		position = 0;
-		found = false;
-		for (ResCloudlet rcl : getCloudletWaitingList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				found = true;
-				break;
-			}
-			position++;
-		}
-
-		if (found) {
-			// moves to the paused list
-			ResCloudlet rgl = getCloudletWaitingList().remove(position);
+			list.remove(rgl);
 			if (rgl.getRemainingCloudletLength() == 0) {
 				cloudletFinish(rgl);
 			} else {
@@ -286,20 +263,11 @@ public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 	 */
 	@Override
 	public double cloudletResume(int cloudletId) {
-		boolean found = false;
-		int position = 0;
-
 		// look for the cloudlet in the paused list
-		for (ResCloudlet rcl : getCloudletPausedList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				found = true;
-				break;
-			}
-			position++;
-		}
+		ResCloudlet rcl = ResCloudletList.getById(getCloudletPausedList(), cloudletId);
 
-		if (found) {
-			ResCloudlet rcl = getCloudletPausedList().remove(position);
+		if (rcl != null) {
+			getCloudletPausedList().remove(rcl);
 
 			// it can go to the exec list
 			if ((currentCpus - usedPes) >= rcl.getNumberOfPes()) {
@@ -418,25 +386,14 @@ public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 	 */
 	@Override
 	public int getCloudletStatus(int cloudletId) {
-		for (ResCloudlet rcl : getCloudletExecList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				return rcl.getCloudletStatus();
-			}
-		}
-
-		for (ResCloudlet rcl : getCloudletPausedList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				return rcl.getCloudletStatus();
-			}
+		ResCloudlet rcl = ResCloudletList.getById(getCloudletExecList(), cloudletId);
+		if (rcl == null) {
+			rcl = ResCloudletList.getById(getCloudletPausedList(), cloudletId);
 		}
-
-		for (ResCloudlet rcl : getCloudletWaitingList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				return rcl.getCloudletStatus();
-			}
+		if (rcl == null) {
+			rcl = ResCloudletList.getById(getCloudletWaitingList(), cloudletId);
 		}
-
-		return -1;
+		return rcl == null ? -1 : rcl.getCloudletStatus();
 	}
 
 	/**
@@ -11,10 +11,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.lists.IndexedResCloudletList;
+import org.cloudbus.cloudsim.lists.ResCloudletList;
 
 /**
  * CloudletSchedulerTimeShared implements a policy of scheduling performed by a virtual machine.
- * Cloudlets execute time-shared in VM.
+ * Cloudlets execute time-shared in VM. Its lists are {@link IndexedResCloudletList}s, so cloudlets
+ * are found by id and moved between lists in constant time.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -22,6 +25,8 @@ import org.cloudbus.cloudsim.core.CloudSim;
  */
 public class CloudletSchedulerTimeShared extends CloudletScheduler {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The cloudlet exec list. */
 	private List<? extends ResCloudlet> cloudletExecList;
 
@@ -43,9 +48,9 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 	 */
 	public CloudletSchedulerTimeShared() {
 		super();
-		cloudletExecList = new ArrayList<ResCloudlet>();
-		cloudletPausedList = new ArrayList<ResCloudlet>();
-		cloudletFinishedList = new ArrayList<ResCloudlet>();
+		cloudletExecList = new IndexedResCloudletList<ResCloudlet>();
+		cloudletPausedList = new IndexedResCloudletList<ResCloudlet>();
+		cloudletFinishedList = new IndexedResCloudletList<ResCloudlet>();
 		currentCPUs = 0;
 	}
 
@@ -84,7 +89,9 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 				continue;
 			}
 		}
-		getCloudletExecList().removeAll(toRemove);
+		for (ResCloudlet rcl : toRemove) {
+			getCloudletExecList().remove(rcl);
+		}
 
 		// estimate finish time of cloudlets
 		for (ResCloudlet rcl : getCloudletExecList()) {
@@ -143,35 +150,17 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 	 */
 	@Override
 	public Cloudlet cloudletCancel(int cloudletId) {
-		boolean found = false;
-		int position = 0;
-
 		// First, looks in the finished queue
-		found = false;
-		for (ResCloudlet rcl : getCloudletFinishedList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				found = true;
-				break;
-			}
-			position++;
-		}
-
-		if (found) {
-			return getCloudletFinishedList().remove(position).getCloudlet();
+		ResCloudlet rcl = ResCloudletList.getById(getCloudletFinishedList(), cloudletId);
+		if (rcl != null) {
+			getCloudletFinishedList().remove(rcl);
+			return rcl.getCloudlet();
 		}
 
 		// Then searches in the exec list
-		position=0;
-		for (ResCloudlet rcl : getCloudletExecList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				found = true;
-				break;
-			}
-			position++;
-		}
-
-		if (found) {
-			ResCloudlet rcl = getCloudletExecList().remove(position);
+		rcl = ResCloudletList.getById(getCloudletExecList(), cloudletId);
+		if (rcl != null) {
+			getCloudletExecList().remove(rcl);
 			if (rcl.getRemainingCloudletLength() == 0) {
 				cloudletFinish(rcl);
 			} else {
@@ -181,19 +170,11 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 		}
 
 		// Now, looks in the paused queue
-		found = false;
-		position=0;
-		for (ResCloudlet rcl : getCloudletPausedList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				found = true;
-				rcl.setCloudletStatus(Cloudlet.CANCELED);
-				break;
-			}
-			position++;
-		}
-
-		if (found) {
-			return getCloudletPausedList().remove(position).getCloudlet();
+		rcl = ResCloudletList.getById(getCloudletPausedList(), cloudletId);
+		if (rcl != null) {
+			rcl.setCloudletStatus(Cloudlet.CANCELED);
+			getCloudletPausedList().remove(rcl);
+			return rcl.getCloudlet();
 		}
 
 		return null;
@@ -209,20 +190,11 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 	 */
 	@Override
 	public boolean cloudletPause(int cloudletId) {
-		boolean found = false;
-		int position = 0;
+		ResCloudlet rcl = ResCloudletList.getById(getCloudletExecList(), cloudletId);
 
-		for (ResCloudlet rcl : getCloudletExecList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				found = true;
-				break;
-			}
-			position++;
-		}
-
-		if (found) {
+		if (rcl != null) {
 			// remove cloudlet from the exec list and put it in the paused list
-			ResCloudlet rcl = getCloudletExecList().remove(position);
+			getCloudletExecList().remove(rcl);
 			if (rcl.getRemainingCloudletLength() == 0) {
 				cloudletFinish(rcl);
 			} else {
@@ -258,22 +230,12 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 	 */
 	@Override
 	public double cloudletResume(int cloudletId) {
-		boolean found = false;
-		int position = 0;
-
 		// look for the cloudlet in the paused list
-		for (ResCloudlet rcl : getCloudletPausedList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				found = true;
-				break;
-			}
-			position++;
-		}
+		ResCloudlet rgl = ResCloudletList.getById(getCloudletPausedList(), cloudletId);
 
-		if (found) {
-			ResCloudlet rgl = getCloudletPausedList().remove(position);
+		if (rgl != null) {
 			rgl.setCloudletStatus(Cloudlet.INEXEC);
-			getCloudletExecList().add(rgl);
+			ResCloudletList.move(getCloudletPausedList(), getCloudletExecList(), rgl);
 
 			// calculate the expected time for cloudlet completion
 			// first: how many PEs do we have?
@@ -335,17 +297,11 @@ public class CloudletSchedulerTimeShared extends CloudletScheduler {
 	 */
 	@Override
 	public int getCloudletStatus(int cloudletId) {
-		for (ResCloudlet rcl : getCloudletExecList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				return rcl.getCloudletStatus();
-			}
-		}
-		for (ResCloudlet rcl : getCloudletPausedList()) {
-			if (rcl.getCloudletId() == cloudletId) {
-				return rcl.getCloudletStatus();
-			}
+		ResCloudlet rcl = ResCloudletList.getById(getCloudletExecList(), cloudletId);
+		if (rcl == null) {
+			rcl = ResCloudletList.getById(getCloudletPausedList(), cloudletId);
 		}
-		return -1;
+		return rcl == null ? -1 : rcl.getCloudletStatus();
 	}
 
 	/**
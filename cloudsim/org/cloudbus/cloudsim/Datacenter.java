@@ -8,15 +8,21 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.Simulation;
 
 /**
  * Datacenter class is a CloudResource whose hostList are virtualized. It deals with processing of
@@ -31,6 +37,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class Datacenter extends SimEntity {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The characteristics. */
 	private DatacenterCharacteristics characteristics;
 
@@ -52,6 +60,21 @@ public class Datacenter extends SimEntity {
 	/** The scheduling interval. */
 	private double schedulingInterval;
 
+	/**
+	 * The VMs ordered by the expected completion of their next cloudlet, or <tt>null</tt> if every
+	 * host is updated at each event.
+	 */
+	private VmCompletionIndex completionIndex;
+
+	/** The position of each host in the host list, to visit updated VMs in host order. */
+	private Map<Host, Integer> hostPositions;
+
+	/** The number of update tasks per thread of the host update pool, to balance the load. */
+	private static final int UPDATE_TASKS_PER_THREAD = 4;
+
+	/** The pool on which hosts are updated, or <tt>null</tt> to update them serially. */
+	private transient ForkJoinPool hostUpdatePool;
+
 	/**
 	 * Allocates a new PowerDatacenter object.
 	 * 
@@ -87,8 +110,13 @@ public class Datacenter extends SimEntity {
 		setVmList(new ArrayList<Vm>());
 		setSchedulingInterval(schedulingInterval);
 
+		boolean linearHosts = true;
 		for (Host host : getCharacteristics().getHostList()) {
 			host.setDatacenter(this);
+			linearHosts &= !overridesVmsProcessing(host);
+		}
+		if (linearHosts) {
+			setCompletionIndex(new VmCompletionIndex());
 		}
 
 		// If this resource doesn't have any PEs then no useful at all
@@ -393,13 +421,8 @@ public class Datacenter extends SimEntity {
 			return;
 		}
 
-		int[] array = new int[3];
-		array[0] = getId();
-		array[1] = cloudletId;
-		array[2] = status;
-
 		int tag = CloudSimTags.CLOUDLET_STATUS;
-		sendNow(userId, tag, array);
+		sendAck(userId, 0, tag, cloudletId, status);
 	}
 
 	/**
@@ -428,19 +451,23 @@ public class Datacenter extends SimEntity {
 	protected void processVmCreate(SimEvent ev, boolean ack) {
 		Vm vm = (Vm) ev.getData();
 
+		if (isCompletionIndexed()) {
+			if (vm.getCloudletScheduler() instanceof CloudletSchedulerDynamicWorkload) {
+				// progress is no longer linear between events: update every host from now on
+				setCompletionIndex(null);
+			} else {
+				// the allocation may change the MIPS share of the VMs on any host
+				for (Vm active : getCompletionIndex().getActiveVms()) {
+					updateVmProcessing(active);
+				}
+			}
+		}
+
 		boolean result = getVmAllocationPolicy().allocateHostForVm(vm);
 
 		if (ack) {
-			int[] data = new int[3];
-			data[0] = getId();
-			data[1] = vm.getId();
-
-			if (result) {
-				data[2] = CloudSimTags.TRUE;
-			} else {
-				data[2] = CloudSimTags.FALSE;
-			}
-			send(vm.getUserId(), CloudSim.getMinTimeBetweenEvents(), CloudSimTags.VM_CREATE_ACK, data);
+			sendAck(vm.getUserId(), CloudSim.getMinTimeBetweenEvents(), CloudSimTags.VM_CREATE_ACK, vm.getId(),
+					result ? CloudSimTags.TRUE : CloudSimTags.FALSE);
 		}
 
 		if (result) {
@@ -450,8 +477,12 @@ public class Datacenter extends SimEntity {
 				vm.setBeingInstantiated(false);
 			}
 
-			vm.updateVmProcessing(CloudSim.clock(), getVmAllocationPolicy().getHost(vm).getVmScheduler()
-					.getAllocatedMipsForVm(vm));
+			if (isCompletionIndexed()) {
+				prepareVmUpdate(vm.getHost());
+			} else {
+				vm.updateVmProcessing(CloudSim.clock(), getVmAllocationPolicy().getHost(vm).getVmScheduler()
+						.getAllocatedMipsForVm(vm));
+			}
 		}
 
 	}
@@ -468,15 +499,18 @@ public class Datacenter extends SimEntity {
 	 */
 	protected void processVmDestroy(SimEvent ev, boolean ack) {
 		Vm vm = (Vm) ev.getData();
+		Host host = vm.getHost();
+		if (isCompletionIndexed() && host != null) {
+			prepareVmUpdate(host);
+			getCompletionIndex().remove(vm);
+		}
 		getVmAllocationPolicy().deallocateHostForVm(vm);
+		if (isCompletionIndexed() && host != null) {
+			prepareVmUpdate(host);
+		}
 
 		if (ack) {
-			int[] data = new int[3];
-			data[0] = getId();
-			data[1] = vm.getId();
-			data[2] = CloudSimTags.TRUE;
-
-			sendNow(vm.getUserId(), CloudSimTags.VM_DESTROY_ACK, data);
+			sendAck(vm.getUserId(), 0, CloudSimTags.VM_DESTROY_ACK, vm.getId(), CloudSimTags.TRUE);
 		}
 
 		getVmList().remove(vm);
@@ -501,6 +535,13 @@ public class Datacenter extends SimEntity {
 
 		Vm vm = (Vm) migrate.get("vm");
 		Host host = (Host) migrate.get("host");
+		Host source = vm.getHost();
+		if (isCompletionIndexed()) {
+			if (source != null) {
+				prepareVmUpdate(source);
+			}
+			prepareVmUpdate(host);
+		}
 
 		getVmAllocationPolicy().deallocateHostForVm(vm);
 		host.removeMigratingInVm(vm);
@@ -509,18 +550,16 @@ public class Datacenter extends SimEntity {
 			Log.printLine("[Datacenter.processVmMigrate] VM allocation to the destination host failed");
 			System.exit(0);
 		}
+		if (isCompletionIndexed()) {
+			if (source != null) {
+				prepareVmUpdate(source);
+			}
+			prepareVmUpdate(host);
+		}
 
 		if (ack) {
-			int[] data = new int[3];
-			data[0] = getId();
-			data[1] = vm.getId();
-
-			if (result) {
-				data[2] = CloudSimTags.TRUE;
-			} else {
-				data[2] = CloudSimTags.FALSE;
-			}
-			sendNow(ev.getSource(), CloudSimTags.VM_CREATE_ACK, data);
+			sendAck(ev.getSource(), 0, CloudSimTags.VM_CREATE_ACK, vm.getId(),
+					result ? CloudSimTags.TRUE : CloudSimTags.FALSE);
 		}
 
 		Log.formatLine(
@@ -617,8 +656,9 @@ public class Datacenter extends SimEntity {
 		int destId = array[4];
 
 		// get the cloudlet
-		Cloudlet cl = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId)
-				.getCloudletScheduler().cloudletCancel(cloudletId);
+		Vm sourceVm = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId);
+		prepareVmUpdate(sourceVm);
+		Cloudlet cl = sourceVm.getCloudletScheduler().cloudletCancel(cloudletId);
 
 		boolean failed = false;
 		if (cl == null) {// cloudlet doesn't exist
@@ -626,11 +666,7 @@ public class Datacenter extends SimEntity {
 		} else {
 			// has the cloudlet already finished?
 			if (cl.getCloudletStatus() == Cloudlet.SUCCESS) {// if yes, send it back to user
-				int[] data = new int[3];
-				data[0] = getId();
-				data[1] = cloudletId;
-				data[2] = 0;
-				sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_SUBMIT_ACK, data);
+				sendAck(cl.getUserId(), 0, CloudSimTags.CLOUDLET_SUBMIT_ACK, cloudletId, 0);
 				sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
 			}
 
@@ -645,6 +681,7 @@ public class Datacenter extends SimEntity {
 				} else {
 					// time to transfer the files
 					double fileTransferTime = predictFileTransferTime(cl.getRequiredFiles());
+					prepareVmUpdate(vm);
 					vm.getCloudletScheduler().cloudletSubmit(cl, fileTransferTime);
 				}
 			} else {// the cloudlet will migrate from one resource to another
@@ -655,15 +692,7 @@ public class Datacenter extends SimEntity {
 		}
 
 		if (type == CloudSimTags.CLOUDLET_MOVE_ACK) {// send ACK if requested
-			int[] data = new int[3];
-			data[0] = getId();
-			data[1] = cloudletId;
-			if (failed) {
-				data[2] = 0;
-			} else {
-				data[2] = 1;
-			}
-			sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_SUBMIT_ACK, data);
+			sendAck(cl.getUserId(), 0, CloudSimTags.CLOUDLET_SUBMIT_ACK, cloudletId, failed ? 0 : 1);
 		}
 	}
 
@@ -696,14 +725,9 @@ public class Datacenter extends SimEntity {
 				// Hence, this might cause CloudSim to be hanged since waiting
 				// for this Cloudlet back.
 				if (ack) {
-					int[] data = new int[3];
-					data[0] = getId();
-					data[1] = cl.getCloudletId();
-					data[2] = CloudSimTags.FALSE;
-
 					// unique tag = operation tag
 					int tag = CloudSimTags.CLOUDLET_SUBMIT_ACK;
-					sendNow(cl.getUserId(), tag, data);
+					sendAck(cl.getUserId(), 0, tag, cl.getCloudletId(), CloudSimTags.FALSE);
 				}
 
 				sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
@@ -723,24 +747,20 @@ public class Datacenter extends SimEntity {
 
 			Host host = getVmAllocationPolicy().getHost(vmId, userId);
 			Vm vm = host.getVm(vmId, userId);
+			prepareVmUpdate(vm);
 			CloudletScheduler scheduler = vm.getCloudletScheduler();
 			double estimatedFinishTime = scheduler.cloudletSubmit(cl, fileTransferTime);
 
-			// if this cloudlet is in the exec queue
+			// if this cloudlet is in the exec queue; the scheduler has already added the file
+			// transfer to its length, so the estimate includes it
 			if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
-				estimatedFinishTime += fileTransferTime;
 				send(getId(), estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT);
 			}
 
 			if (ack) {
-				int[] data = new int[3];
-				data[0] = getId();
-				data[1] = cl.getCloudletId();
-				data[2] = CloudSimTags.TRUE;
-
 				// unique tag = operation tag
 				int tag = CloudSimTags.CLOUDLET_SUBMIT_ACK;
-				sendNow(cl.getUserId(), tag, data);
+				sendAck(cl.getUserId(), 0, tag, cl.getCloudletId(), CloudSimTags.TRUE);
 			}
 		} catch (ClassCastException c) {
 			Log.printLine(getName() + ".processCloudletSubmit(): " + "ClassCastException error.");
@@ -788,8 +808,9 @@ public class Datacenter extends SimEntity {
 	 * @post $none
 	 */
 	protected void processCloudletResume(int cloudletId, int userId, int vmId, boolean ack) {
-		double eventTime = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId)
-				.getCloudletScheduler().cloudletResume(cloudletId);
+		Vm vm = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId);
+		prepareVmUpdate(vm);
+		double eventTime = vm.getCloudletScheduler().cloudletResume(cloudletId);
 
 		boolean status = false;
 		if (eventTime > 0.0) { // if this cloudlet is in the exec queue
@@ -800,15 +821,8 @@ public class Datacenter extends SimEntity {
 		}
 
 		if (ack) {
-			int[] data = new int[3];
-			data[0] = getId();
-			data[1] = cloudletId;
-			if (status) {
-				data[2] = CloudSimTags.TRUE;
-			} else {
-				data[2] = CloudSimTags.FALSE;
-			}
-			sendNow(userId, CloudSimTags.CLOUDLET_RESUME_ACK, data);
+			sendAck(userId, 0, CloudSimTags.CLOUDLET_RESUME_ACK, cloudletId,
+					status ? CloudSimTags.TRUE : CloudSimTags.FALSE);
 		}
 	}
 
@@ -823,19 +837,13 @@ public class Datacenter extends SimEntity {
 	 * @post $none
 	 */
 	protected void processCloudletPause(int cloudletId, int userId, int vmId, boolean ack) {
-		boolean status = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId)
-				.getCloudletScheduler().cloudletPause(cloudletId);
+		Vm vm = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId);
+		prepareVmUpdate(vm);
+		boolean status = vm.getCloudletScheduler().cloudletPause(cloudletId);
 
 		if (ack) {
-			int[] data = new int[3];
-			data[0] = getId();
-			data[1] = cloudletId;
-			if (status) {
-				data[2] = CloudSimTags.TRUE;
-			} else {
-				data[2] = CloudSimTags.FALSE;
-			}
-			sendNow(userId, CloudSimTags.CLOUDLET_PAUSE_ACK, data);
+			sendAck(userId, 0, CloudSimTags.CLOUDLET_PAUSE_ACK, cloudletId,
+					status ? CloudSimTags.TRUE : CloudSimTags.FALSE);
 		}
 	}
 
@@ -849,8 +857,9 @@ public class Datacenter extends SimEntity {
 	 * @post $none
 	 */
 	protected void processCloudletCancel(int cloudletId, int userId, int vmId) {
-		Cloudlet cl = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId)
-				.getCloudletScheduler().cloudletCancel(cloudletId);
+		Vm vm = getVmAllocationPolicy().getHost(vmId, userId).getVm(vmId,userId);
+		prepareVmUpdate(vm);
+		Cloudlet cl = vm.getCloudletScheduler().cloudletCancel(cloudletId);
 		sendNow(userId, CloudSimTags.CLOUDLET_CANCEL, cl);
 	}
 
@@ -858,25 +867,38 @@ public class Datacenter extends SimEntity {
 	 * Updates processing of each cloudlet running in this PowerDatacenter. It is necessary because
 	 * Hosts and VirtualMachines are simple objects, not entities. So, they don't receive events and
 	 * updating cloudlets inside them must be called from the outside.
+	 * <p>
+	 * When the completion index is in use, only the VMs that changed since the last update or are
+	 * expected to finish a cloudlet by now are updated; the expected times of the other VMs are
+	 * still valid and the next event is taken from the top of the index. The hosts or VMs are
+	 * updated in parallel if a host update pool is set.
 	 * 
 	 * @pre $none
 	 * @post $none
+	 * @see #isCompletionIndexEnabled()
+	 * @see #setHostUpdatePool(ForkJoinPool)
 	 */
 	protected void updateCloudletProcessing() {
 		// if some time passed since last processing
 		// R: for term is to allow loop at simulation start. Otherwise, one initial
 		// simulation step is skipped and schedulers are not properly initialized
 		if (CloudSim.clock() < 0.111 || CloudSim.clock() > getLastProcessTime() + CloudSim.getMinTimeBetweenEvents()) {
-			List<? extends Host> list = getVmAllocationPolicy().getHostList();
 			double smallerTime = Double.MAX_VALUE;
-			// for each host...
-			for (int i = 0; i < list.size(); i++) {
-				Host host = list.get(i);
-				// inform VMs to update processing
-				double time = host.updateVmsProcessing(CloudSim.clock());
-				// what time do we expect that the next cloudlet will finish?
-				if (time < smallerTime) {
-					smallerTime = time;
+			if (isCompletionIndexed()) {
+				List<Vm> due = getCompletionIndex().pollDue(CloudSim.clock());
+				double[] times = updateAll(due);
+				for (int i = 0; i < due.size(); i++) {
+					getCompletionIndex().update(due.get(i), times[i]);
+				}
+				smallerTime = getCompletionIndex().getNextCompletionTime();
+			} else {
+				// inform VMs of each host to update processing
+				double[] times = updateHostsProcessing(getVmAllocationPolicy().getHostList());
+				for (double time : times) {
+					// what time do we expect that the next cloudlet will finish?
+					if (time < smallerTime) {
+						smallerTime = time;
+					}
 				}
 			}
 			// gurantees a minimal interval before scheduling the event
@@ -898,6 +920,21 @@ public class Datacenter extends SimEntity {
 	 * @post $none
 	 */
 	protected void checkCloudletCompletion() {
+		if (isCompletionIndexed()) {
+			// only the VMs updated since the last check may have finished cloudlets
+			List<Vm> updated = getCompletionIndex().pollUpdated();
+			sortByPlacement(updated);
+			for (Vm vm : updated) {
+				while (vm.getCloudletScheduler().isFinishedCloudlets()) {
+					Cloudlet cl = vm.getCloudletScheduler().getNextFinishedCloudlet();
+					if (cl != null) {
+						sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
+					}
+				}
+			}
+			return;
+		}
+
 		List<? extends Host> list = getVmAllocationPolicy().getHostList();
 		for (int i = 0; i < list.size(); i++) {
 			Host host = list.get(i);
@@ -912,6 +949,228 @@ public class Datacenter extends SimEntity {
 		}
 	}
 
+	/**
+	 * Brings the processing of a VM up to the current time and marks it as changed, so that its
+	 * expected completion time is recomputed at the next update. Must be called before the
+	 * cloudlets of the VM are changed when the completion index is in use; does nothing otherwise.
+	 * 
+	 * @param vm the VM about to change
+	 * @pre vm != null
+	 * @post $none
+	 */
+	protected void prepareVmUpdate(Vm vm) {
+		if (isCompletionIndexed()) {
+			updateVmProcessing(vm);
+			getCompletionIndex().markChanged(vm);
+		}
+	}
+
+	/**
+	 * Prepares every VM on a host for an update, e.g. before and after the MIPS shares of the host
+	 * are reallocated.
+	 * 
+	 * @param host the host
+	 * @pre host != null
+	 * @post $none
+	 * @see #prepareVmUpdate(Vm)
+	 */
+	protected void prepareVmUpdate(Host host) {
+		for (Vm vm : host.getVmList()) {
+			prepareVmUpdate(vm);
+		}
+	}
+
+	/**
+	 * Updates the processing of a single VM and records its new expected completion time.
+	 * 
+	 * @param vm the VM
+	 */
+	private void updateVmProcessing(Vm vm) {
+		getCompletionIndex().update(vm, update(vm, CloudSim.clock()));
+	}
+
+	/**
+	 * Updates the processing of the VMs of each host, in parallel if a host update pool is set.
+	 * 
+	 * @param hosts the hosts
+	 * @return the time returned by {@link Host#updateVmsProcessing(double)} for each host, in the
+	 *         order of the hosts
+	 * @pre hosts != null
+	 * @post $none
+	 * @see #setHostUpdatePool(ForkJoinPool)
+	 */
+	protected double[] updateHostsProcessing(List<? extends Host> hosts) {
+		return updateAll(hosts);
+	}
+
+	/**
+	 * Updates hosts or VMs, splitting them among the threads of the host update pool if it is in
+	 * use.
+	 * 
+	 * @param targets the hosts or VMs
+	 * @return the time returned by the update of each host or VM, in order
+	 */
+	private double[] updateAll(List<?> targets) {
+		double now = CloudSim.clock();
+		double[] times = new double[targets.size()];
+		if (!isHostUpdateParallel() || times.length < 2) {
+			for (int i = 0; i < times.length; i++) {
+				times[i] = update(targets.get(i), now);
+			}
+			return times;
+		}
+		ForkJoinPool pool = getHostUpdatePool();
+		int grain = Math.max(1, times.length / (UPDATE_TASKS_PER_THREAD * pool.getParallelism()));
+		pool.invoke(new UpdateTask(targets.toArray(), times, 0, times.length, grain, now, CloudSim
+				.getSimulation().getContext()));
+		return times;
+	}
+
+	/**
+	 * Updates the processing of the VMs of a host, or of a single VM.
+	 * 
+	 * @param target the host or VM
+	 * @param currentTime the current simulation time
+	 * @return the time at which the next cloudlet of the host or VM is expected to finish
+	 */
+	private static double update(Object target, double currentTime) {
+		if (target instanceof Host) {
+			return ((Host) target).updateVmsProcessing(currentTime);
+		}
+		Vm vm = (Vm) target;
+		Host host = vm.getHost();
+		if (host == null) {
+			return 0.0;
+		}
+		return vm.updateVmProcessing(currentTime, host.getVmScheduler().getAllocatedMipsForVm(vm));
+	}
+
+	/**
+	 * Sorts VMs in the order of the hosts they are on, and of their position on the host, which is
+	 * the order in which the hosts are scanned without the completion index.
+	 * 
+	 * @param vms the VMs
+	 */
+	private void sortByPlacement(List<Vm> vms) {
+		if (vms.size() < 2) {
+			return;
+		}
+		if (hostPositions == null) {
+			hostPositions = new HashMap<Host, Integer>();
+			List<? extends Host> list = getVmAllocationPolicy().getHostList();
+			for (int i = 0; i < list.size(); i++) {
+				hostPositions.put(list.get(i), i);
+			}
+		}
+		Collections.sort(vms, new Comparator<Vm>() {
+
+			@Override
+			public int compare(Vm a, Vm b) {
+				int byHost = Integer.valueOf(hostPosition(a)).compareTo(hostPosition(b));
+				if (byHost != 0 || a.getHost() == null) {
+					return byHost;
+				}
+				return Integer.valueOf(a.getHost().getVmList().indexOf(a)).compareTo(
+						a.getHost().getVmList().indexOf(b));
+			}
+		});
+	}
+
+	/**
+	 * Gets the position of the host of a VM in the host list.
+	 * 
+	 * @param vm the VM
+	 * @return the position, or the size of the list if the VM is on no known host
+	 */
+	private int hostPosition(Vm vm) {
+		Integer position = vm.getHost() == null ? null : hostPositions.get(vm.getHost());
+		return position == null ? hostPositions.size() : position;
+	}
+
+	/**
+	 * Checks whether a host overrides {@link Host#updateVmsProcessing(double)}, in which case its
+	 * VMs can't be updated individually.
+	 * 
+	 * @param host the host
+	 * @return true if the method is overridden
+	 */
+	private static boolean overridesVmsProcessing(Host host) {
+		try {
+			return host.getClass().getMethod("updateVmsProcessing", double.class).getDeclaringClass() != Host.class;
+		} catch (NoSuchMethodException e) {
+			return true;
+		}
+	}
+
+	/**
+	 * Checks whether this datacenter updates only the VMs that changed or are due, through a
+	 * {@link VmCompletionIndex}, instead of every host at each event. The index assumes that
+	 * cloudlets progress linearly between events; it is dropped when a host overrides
+	 * {@link Host#updateVmsProcessing(double)} or a VM uses a
+	 * {@link CloudletSchedulerDynamicWorkload}. Subclasses that update hosts or change cloudlets
+	 * outside the methods of this class should return false.
+	 * 
+	 * @return true if the completion index may be used
+	 */
+	protected boolean isCompletionIndexEnabled() {
+		return true;
+	}
+
+	/**
+	 * Sets the pool on which the hosts of this datacenter are updated at each event. Hosts are
+	 * independent, so each thread of the pool updates a share of the hosts, or of the VMs due when
+	 * the completion index is in use. The expected completion times are reduced in host order and
+	 * finished cloudlets are still returned by {@link #checkCloudletCompletion()} in host order, so
+	 * the simulation is the same as with a serial update.
+	 * <p>
+	 * Hosts, VMs and cloudlet schedulers must not share mutable state, e.g. a stateful
+	 * {@link UtilizationModel} used by cloudlets of different hosts, and log lines printed while
+	 * updating hosts may interleave. Hosts are updated serially when no pool is set, which is the
+	 * default, or when {@link #isParallelHostUpdateSupported()} returns false.
+	 * 
+	 * @param hostUpdatePool the pool, or <tt>null</tt> to update hosts serially
+	 */
+	public void setHostUpdatePool(ForkJoinPool hostUpdatePool) {
+		this.hostUpdatePool = hostUpdatePool;
+	}
+
+	/**
+	 * Gets the pool on which the hosts of this datacenter are updated.
+	 * 
+	 * @return the pool, or <tt>null</tt> if hosts are updated serially
+	 */
+	public ForkJoinPool getHostUpdatePool() {
+		return hostUpdatePool;
+	}
+
+	/**
+	 * Checks whether the hosts of this datacenter may be updated in parallel. Subclasses whose
+	 * hosts send events or share state while being updated should return false.
+	 * 
+	 * @return true if a host update pool may be used
+	 */
+	protected boolean isParallelHostUpdateSupported() {
+		return true;
+	}
+
+	/**
+	 * Checks whether hosts are updated in parallel.
+	 * 
+	 * @return true if a host update pool is set and supported
+	 */
+	protected boolean isHostUpdateParallel() {
+		return getHostUpdatePool() != null && isParallelHostUpdateSupported();
+	}
+
+	/**
+	 * Checks whether the completion index is in use.
+	 * 
+	 * @return true if it is enabled and no host or VM ruled it out
+	 */
+	private boolean isCompletionIndexed() {
+		return getCompletionIndex() != null && isCompletionIndexEnabled();
+	}
+
 	/**
 	 * Adds a file into the resource's storage before the experiment starts. If the file is a master
 	 * file, then it will be registered to the RC when the experiment begins.
@@ -1167,6 +1426,24 @@ public class Datacenter extends SimEntity {
 		return schedulingInterval;
 	}
 
+	/**
+	 * Gets the completion index.
+	 * 
+	 * @return the completion index, or <tt>null</tt> if every host is updated at each event
+	 */
+	protected VmCompletionIndex getCompletionIndex() {
+		return completionIndex;
+	}
+
+	/**
+	 * Sets the completion index.
+	 * 
+	 * @param completionIndex the new completion index
+	 */
+	protected void setCompletionIndex(VmCompletionIndex completionIndex) {
+		this.completionIndex = completionIndex;
+	}
+
 	/**
 	 * Sets the scheduling interval.
 	 * 
@@ -1176,4 +1453,83 @@ public class Datacenter extends SimEntity {
 		this.schedulingInterval = schedulingInterval;
 	}
 
+	/**
+	 * A task that updates a range of hosts or VMs, splitting it in halves down to a grain. The time
+	 * returned by each update is stored at the position of its host or VM, so that the times are
+	 * reduced in the same order as in a serial update.
+	 */
+	private static class UpdateTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The hosts or VMs. */
+		private final Object[] targets;
+
+		/** The time returned by the update of each host or VM. */
+		private final double[] times;
+
+		/** The first position of the range. */
+		private final int from;
+
+		/** The position after the range. */
+		private final int to;
+
+		/** The largest range updated without splitting. */
+		private final int grain;
+
+		/** The current simulation time. */
+		private final double currentTime;
+
+		/** The context of the datacenter, in which the updates run. */
+		private final Simulation.Context context;
+
+		/**
+		 * Creates a task.
+		 * 
+		 * @param targets the hosts or VMs
+		 * @param times the time returned by the update of each host or VM
+		 * @param from the first position of the range
+		 * @param to the position after the range
+		 * @param grain the largest range updated without splitting
+		 * @param currentTime the current simulation time
+		 * @param context the context of the datacenter
+		 */
+		UpdateTask(Object[] targets, double[] times, int from, int to, int grain, double currentTime,
+				Simulation.Context context) {
+			this.targets = targets;
+			this.times = times;
+			this.from = from;
+			this.to = to;
+			this.grain = grain;
+			this.currentTime = currentTime;
+			this.context = context;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > grain) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new UpdateTask(targets, times, from, middle, grain, currentTime, context), new UpdateTask(
+						targets, times, middle, to, grain, currentTime, context));
+				return;
+			}
+			try {
+				context.call(new Callable<Void>() {
+
+					@Override
+					public Void call() {
+						for (int i = from; i < to; i++) {
+							times[i] = update(targets[i], currentTime);
+						}
+						return null;
+					}
+				});
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
 }
@@ -11,9 +11,14 @@ package org.cloudbus.cloudsim;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.cloudbus.cloudsim.core.CloudSim;
+
 /**
  * The Log class used for performing loggin of the simulation process. It provides the ability to
  * substitute the output stream by any OutputStream subclass.
+ * <p>
+ * The output and the disable flag are kept in the {@link org.cloudbus.cloudsim.core.Simulation}
+ * context bound to the calling thread, so concurrent simulations can log independently.
  * 
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 2.0
@@ -23,12 +28,6 @@ public class Log {
 	/** The Constant LINE_SEPARATOR. */
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
-	/** The output. */
-	private static OutputStream output;
-
-	/** The disable output flag. */
-	private static boolean disabled;
-
 	/**
 	 * Prints the message.
 	 * 
@@ -116,7 +115,7 @@ public class Log {
 	 * @param _output the new output
 	 */
 	public static void setOutput(OutputStream _output) {
-		output = _output;
+		CloudSim.getSimulation().setLogOutput(_output);
 	}
 
 	/**
@@ -125,8 +124,10 @@ public class Log {
 	 * @return the output
 	 */
 	public static OutputStream getOutput() {
+		OutputStream output = CloudSim.getSimulation().getLogOutput();
 		if (output == null) {
-			setOutput(System.out);
+			output = System.out;
+			setOutput(output);
 		}
 		return output;
 	}
@@ -137,7 +138,7 @@ public class Log {
 	 * @param _disabled the new disabled
 	 */
 	public static void setDisabled(boolean _disabled) {
-		disabled = _disabled;
+		CloudSim.getSimulation().setLogDisabled(_disabled);
 	}
 
 	/**
@@ -146,7 +147,7 @@ public class Log {
 	 * @return true, if is disable
 	 */
 	public static boolean isDisabled() {
-		return disabled;
+		return CloudSim.getSimulation().isLogDisabled();
 	}
 
 	/**
@@ -9,10 +9,12 @@
 package org.cloudbus.cloudsim;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
@@ -29,6 +31,9 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * Nevertheless, each CloudSim entity must be mapped to one (and only one) BRITE node to allow
  * proper work of the network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p>
+ * The topology is kept in the {@link org.cloudbus.cloudsim.core.Simulation} context bound to the
+ * calling thread, so concurrent simulations on separate threads have independent topologies.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -36,17 +41,128 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  */
 public class NetworkTopology {
 
-	protected static int nextIdx = 0;
+	/**
+	 * The network topology state of a simulation.
+	 * 
+	 * @see org.cloudbus.cloudsim.core.Simulation#getNetworkTopology()
+	 */
+	public static final class Topology implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private int nextIdx = 0;
+
+		private boolean networkEnabled = false;
+
+		private DelayMatrix_Float delayMatrix = null;
 
-	private static boolean networkEnabled = false;
+		private double[][] bwMatrix = null;
+
+		private TopologicalGraph graph = null;
+
+		private Map<Integer, Integer> map = null;
+	}
+
+	/**
+	 * Gets the topology of the simulation bound to the calling thread.
+	 * 
+	 * @return the topology
+	 */
+	private static Topology topology() {
+		return CloudSim.getSimulation().getNetworkTopology();
+	}
 
-	protected static DelayMatrix_Float delayMatrix = null;
+	/**
+	 * Gets the index the next node added to the topology gets. Replaces the former protected
+	 * static field <tt>nextIdx</tt>.
+	 * 
+	 * @return the next node index
+	 */
+	protected static int getNextIdx() {
+		return topology().nextIdx;
+	}
 
-	protected static double[][] bwMatrix = null;
+	/**
+	 * Sets the index the next node added to the topology gets.
+	 * 
+	 * @param nextIdx the next node index
+	 */
+	protected static void setNextIdx(int nextIdx) {
+		topology().nextIdx = nextIdx;
+	}
 
-	protected static TopologicalGraph graph = null;
+	/**
+	 * Gets the delay matrix. Replaces the former protected static field <tt>delayMatrix</tt>.
+	 * 
+	 * @return the delay matrix, or $null if the topology has not been built
+	 */
+	protected static DelayMatrix_Float getDelayMatrix() {
+		return topology().delayMatrix;
+	}
 
-	protected static Map<Integer, Integer> map = null;
+	/**
+	 * Sets the delay matrix.
+	 * 
+	 * @param delayMatrix the delay matrix
+	 */
+	protected static void setDelayMatrix(DelayMatrix_Float delayMatrix) {
+		topology().delayMatrix = delayMatrix;
+	}
+
+	/**
+	 * Gets the bandwidth matrix. Replaces the former protected static field <tt>bwMatrix</tt>.
+	 * 
+	 * @return the bandwidth matrix, or $null if the topology has not been built
+	 */
+	protected static double[][] getBwMatrix() {
+		return topology().bwMatrix;
+	}
+
+	/**
+	 * Sets the bandwidth matrix.
+	 * 
+	 * @param bwMatrix the bandwidth matrix
+	 */
+	protected static void setBwMatrix(double[][] bwMatrix) {
+		topology().bwMatrix = bwMatrix;
+	}
+
+	/**
+	 * Gets the topological graph. Replaces the former protected static field <tt>graph</tt>.
+	 * 
+	 * @return the graph, or $null if the topology has not been built
+	 */
+	protected static TopologicalGraph getGraph() {
+		return topology().graph;
+	}
+
+	/**
+	 * Sets the topological graph.
+	 * 
+	 * @param graph the graph
+	 */
+	protected static void setGraph(TopologicalGraph graph) {
+		topology().graph = graph;
+	}
+
+	/**
+	 * Gets the mapping of CloudSim entity ids to BRITE node ids. Replaces the former protected
+	 * static field <tt>map</tt>.
+	 * 
+	 * @return the mapping, or $null if the topology has not been built
+	 */
+	protected static Map<Integer, Integer> getMap() {
+		return topology().map;
+	}
+
+	/**
+	 * Sets the mapping of CloudSim entity ids to BRITE node ids.
+	 * 
+	 * @param map the mapping
+	 */
+	protected static void setMap(Map<Integer, Integer> map) {
+		topology().map = map;
+	}
 
 	/**
 	 * Creates the network topology if file exists and if file can be succesfully parsed. File is
@@ -61,11 +177,12 @@ public class NetworkTopology {
 
 		// try to find the file
 		GraphReaderBrite reader = new GraphReaderBrite();
+		Topology topology = topology();
 
 		try {
-			graph = reader.readGraphFile(fileName);
-			map = new HashMap<Integer, Integer>();
-			generateMatrices();
+			topology.graph = reader.readGraphFile(fileName);
+			topology.map = new HashMap<Integer, Integer>();
+			generateMatrices(topology);
 		} catch (IOException e) {
 			// problem with the file. Does not simulate network
 			Log.printLine("Problem in processing BRITE file. Network simulation is disabled. Error: "
@@ -76,15 +193,17 @@ public class NetworkTopology {
 
 	/**
 	 * Generates the matrices used internally to set latency and bandwidth between elements
+	 * 
+	 * @param topology the topology
 	 */
-	private static void generateMatrices() {
+	private static void generateMatrices(Topology topology) {
 		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
+		topology.delayMatrix = new DelayMatrix_Float(topology.graph, false);
 
 		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
+		topology.bwMatrix = createBwMatrix(topology.graph, false);
 
-		networkEnabled = true;
+		topology.networkEnabled = true;
 	}
 
 	/**
@@ -99,32 +218,34 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void addLink(int srcId, int destId, double bw, double lat) {
+		Topology topology = topology();
 
-		if (graph == null) {
-			graph = new TopologicalGraph();
+		if (topology.graph == null) {
+			topology.graph = new TopologicalGraph();
 		}
 
-		if (map == null) {
-			map = new HashMap<Integer, Integer>();
+		if (topology.map == null) {
+			topology.map = new HashMap<Integer, Integer>();
 		}
 
 		// maybe add the nodes
-		if (!map.containsKey(srcId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(srcId, nextIdx);
-			nextIdx++;
+		if (!topology.map.containsKey(srcId)) {
+			topology.graph.addNode(new TopologicalNode(topology.nextIdx));
+			topology.map.put(srcId, topology.nextIdx);
+			topology.nextIdx++;
 		}
 
-		if (!map.containsKey(destId)) {
-			graph.addNode(new TopologicalNode(nextIdx));
-			map.put(destId, nextIdx);
-			nextIdx++;
+		if (!topology.map.containsKey(destId)) {
+			topology.graph.addNode(new TopologicalNode(topology.nextIdx));
+			topology.map.put(destId, topology.nextIdx);
+			topology.nextIdx++;
 		}
 
 		// generate a new link
-		graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
+		topology.graph.addLink(new TopologicalLink(topology.map.get(srcId), topology.map.get(destId),
+				(float) lat, (float) bw));
 
-		generateMatrices();
+		generateMatrices(topology);
 
 	}
 
@@ -171,7 +292,9 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void mapNode(int cloudSimEntityID, int briteID) {
-		if (networkEnabled) {
+		Topology topology = topology();
+		if (topology.networkEnabled) {
+			Map<Integer, Integer> map = topology.map;
 			try {
 				// this CloudSim entity was already mapped?
 				if (!map.containsKey(cloudSimEntityID)) {
@@ -199,9 +322,10 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static void unmapNode(int cloudSimEntityID) {
-		if (networkEnabled) {
+		Topology topology = topology();
+		if (topology.networkEnabled) {
 			try {
-				map.remove(cloudSimEntityID);
+				topology.map.remove(cloudSimEntityID);
 			} catch (Exception e) {
 				Log.printLine("Error in network unmapping. CloudSim node: " + cloudSimEntityID);
 			}
@@ -219,10 +343,11 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static double getDelay(int srcID, int destID) {
-		if (networkEnabled) {
+		Topology topology = topology();
+		if (topology.networkEnabled) {
 			try {
 				// add the network latency
-				double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				double delay = topology.delayMatrix.getDelay(topology.map.get(srcID), topology.map.get(destID));
 
 				return delay;
 			} catch (Exception e) {
@@ -242,7 +367,7 @@ public class NetworkTopology {
 	 * @post $none
 	 */
 	public static boolean isNetworkEnabled() {
-		return networkEnabled;
+		return topology().networkEnabled;
 	}
 
 }
@@ -0,0 +1,414 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * ReservationProfile keeps the PEs of a VM reserved over time by running and queued cloudlets, and
+ * finds when a cloudlet needing some PEs for some time can start without exceeding the PEs of the
+ * VM. It is used by {@link CloudletSchedulerBackfilling}.
+ * <p>
+ * The reservations are kept in an interval tree: a treap ordered by start time, each node holding
+ * the latest end time of its subtree, so the reservations overlapping a time window are found
+ * without visiting the ones that end before it or start after it. Checking whether a cloudlet fits
+ * in a window therefore takes O(log n + k) time for k overlapping reservations. Searches that scan
+ * forward in time instead walk the steps of the number of reserved PEs, kept sorted by time as
+ * reservations are added, in O(log n + s) time for s steps scanned.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class ReservationProfile {
+
+	/** Orders usage changes by time, releases first. */
+	private static final Comparator<double[]> STEP_ORDER = new Comparator<double[]>() {
+
+		@Override
+		public int compare(double[] a, double[] b) {
+			int byTime = Double.compare(a[0], b[0]);
+			return byTime != 0 ? byTime : Double.compare(a[1], b[1]);
+		}
+	};
+
+	/** The initial capacity of the step arrays. */
+	private static final int INITIAL_STEPS = 16;
+
+	/** The number of PEs of the VM. */
+	private final int capacity;
+
+	/** The root of the tree, or <tt>null</tt> if there are no reservations. */
+	private Node root;
+
+	/** The number of reservations, also used to derive the priority of new nodes. */
+	private int size;
+
+	/** The times at which the number of reserved PEs changes, in increasing order. */
+	private double[] stepTimes;
+
+	/** The number of PEs reserved from the time at the same position until the next one. */
+	private int[] stepUsage;
+
+	/** The number of steps. */
+	private int steps;
+
+	/**
+	 * Creates an empty profile.
+	 *
+	 * @param capacity the number of PEs of the VM
+	 * @pre capacity >= 0
+	 * @post $none
+	 */
+	public ReservationProfile(int capacity) {
+		this.capacity = capacity;
+		stepTimes = new double[INITIAL_STEPS];
+		stepUsage = new int[INITIAL_STEPS];
+	}
+
+	/**
+	 * Reserves PEs over a time window.
+	 *
+	 * @param start the start of the window
+	 * @param end the end of the window, exclusive
+	 * @param pes the number of PEs
+	 * @pre start <= end
+	 * @pre pes > 0
+	 * @post $none
+	 */
+	public void reserve(double start, double end, int pes) {
+		root = insert(root, new Node(start, end, pes, priority(size++)));
+		if (start < end) {
+			int first = addStep(start);
+			int last = addStep(end);
+			for (int i = first; i < last; i++) {
+				stepUsage[i] += pes;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether some PEs are free over a whole time window.
+	 *
+	 * @param start the start of the window
+	 * @param end the end of the window, exclusive
+	 * @param pes the number of PEs
+	 * @return true if the PEs can be reserved over the window
+	 * @pre start <= end
+	 * @post $none
+	 */
+	public boolean fits(double start, double end, int pes) {
+		if (pes > capacity) {
+			return false;
+		}
+		List<Node> overlapping = new ArrayList<Node>();
+		collect(root, start, end, overlapping);
+		int used = 0;
+		for (Node node : overlapping) {
+			used += node.pes;
+		}
+		if (used + pes <= capacity) {
+			// fits even if all overlapping reservations were simultaneous
+			return true;
+		}
+		return getPeakUsage(overlapping, start) + pes <= capacity;
+	}
+
+	/**
+	 * Finds the earliest time at or after the given one when some PEs are free for a given
+	 * duration.
+	 *
+	 * @param from the earliest possible start
+	 * @param duration the duration
+	 * @param pes the number of PEs
+	 * @return the earliest start, or {@link Double#MAX_VALUE} if the VM has fewer PEs
+	 * @pre duration >= 0
+	 * @post $result >= from
+	 */
+	public double findEarliestStart(double from, double duration, int pes) {
+		if (pes > capacity) {
+			return Double.MAX_VALUE;
+		}
+
+		// walks the steps, restarting the window after each step above the limit
+		int limit = capacity - pes;
+		int i = getStepAt(from);
+		boolean free = i < 0 || stepUsage[i] <= limit;
+		double candidate = from;
+		for (i++; i < steps; i++) {
+			if (free && stepTimes[i] >= candidate + duration) {
+				return candidate;
+			}
+			if (stepUsage[i] > limit) {
+				free = false;
+			} else if (!free) {
+				free = true;
+				candidate = stepTimes[i];
+			}
+		}
+		return candidate;
+	}
+
+	/**
+	 * Gets the time until which some PEs stay free from the given time on.
+	 *
+	 * @param from the start of the window
+	 * @param pes the number of PEs
+	 * @return the first time at or after from when fewer PEs are free, or
+	 *         {@link Double#MAX_VALUE} if they stay free
+	 * @pre $none
+	 * @post $result >= from
+	 */
+	public double getFreeUntil(double from, int pes) {
+		if (pes > capacity) {
+			return from;
+		}
+		int limit = capacity - pes;
+		int i = getStepAt(from);
+		if (i >= 0 && stepUsage[i] > limit) {
+			return from;
+		}
+		for (i++; i < steps; i++) {
+			if (stepUsage[i] > limit) {
+				return stepTimes[i];
+			}
+		}
+		return Double.MAX_VALUE;
+	}
+
+	/**
+	 * Gets the number of reservations.
+	 *
+	 * @return the number of reservations
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the largest number of PEs reserved at once within a window.
+	 *
+	 * @param overlapping the reservations overlapping the window
+	 * @param start the start of the window
+	 * @return the peak usage
+	 */
+	private static int getPeakUsage(List<Node> overlapping, double start) {
+		int used = 0;
+		int peak = 0;
+		for (double[] step : getSteps(overlapping, start)) {
+			used += (int) step[1];
+			peak = Math.max(peak, used);
+		}
+		return peak;
+	}
+
+	/**
+	 * Gets the changes of the number of reserved PEs as (time, change) pairs sorted by time, the
+	 * PEs released at a time coming before the ones reserved at that time.
+	 *
+	 * @param reservations the reservations
+	 * @param from the time before which reservations are clipped
+	 * @return the changes
+	 */
+	private static double[][] getSteps(List<Node> reservations, double from) {
+		double[][] steps = new double[2 * reservations.size()][];
+		int i = 0;
+		for (Node node : reservations) {
+			steps[i++] = new double[] { Math.max(node.start, from), node.pes };
+			steps[i++] = new double[] { node.end, -node.pes };
+		}
+		Arrays.sort(steps, STEP_ORDER);
+		return steps;
+	}
+
+	/**
+	 * Gets the step in effect at a time.
+	 *
+	 * @param time the time
+	 * @return the position of the last step starting at or before the time, or -1 if there is none
+	 */
+	private int getStepAt(double time) {
+		int i = Arrays.binarySearch(stepTimes, 0, steps, time);
+		return i >= 0 ? i : -i - 2;
+	}
+
+	/**
+	 * Adds a step at a time, with the number of reserved PEs in effect at that time.
+	 *
+	 * @param time the time
+	 * @return the position of the step
+	 */
+	private int addStep(double time) {
+		int i = Arrays.binarySearch(stepTimes, 0, steps, time);
+		if (i >= 0) {
+			return i;
+		}
+		i = -i - 1;
+		if (steps == stepTimes.length) {
+			stepTimes = Arrays.copyOf(stepTimes, 2 * steps);
+			stepUsage = Arrays.copyOf(stepUsage, 2 * steps);
+		}
+		System.arraycopy(stepTimes, i, stepTimes, i + 1, steps - i);
+		System.arraycopy(stepUsage, i, stepUsage, i + 1, steps - i);
+		stepTimes[i] = time;
+		stepUsage[i] = i > 0 ? stepUsage[i - 1] : 0;
+		steps++;
+		return i;
+	}
+
+	/**
+	 * Adds to a list the reservations of a subtree that overlap a window.
+	 *
+	 * @param node the root of the subtree
+	 * @param start the start of the window
+	 * @param end the end of the window, exclusive
+	 * @param result the list
+	 */
+	private static void collect(Node node, double start, double end, List<Node> result) {
+		while (node != null && node.maxEnd > start) {
+			collect(node.left, start, end, result);
+			if (node.start >= end) {
+				// the right subtree starts even later
+				return;
+			}
+			if (node.end > start && node.end > node.start) {
+				result.add(node);
+			}
+			node = node.right;
+		}
+	}
+
+	/**
+	 * Inserts a node in a subtree.
+	 *
+	 * @param node the root of the subtree
+	 * @param added the node to insert
+	 * @return the new root of the subtree
+	 */
+	private static Node insert(Node node, Node added) {
+		if (node == null) {
+			return added;
+		}
+		if (added.start < node.start) {
+			node.left = insert(node.left, added);
+			if (node.left.priority > node.priority) {
+				node = rotateRight(node);
+			}
+		} else {
+			node.right = insert(node.right, added);
+			if (node.right.priority > node.priority) {
+				node = rotateLeft(node);
+			}
+		}
+		node.updateMaxEnd();
+		return node;
+	}
+
+	/**
+	 * Rotates a subtree to the right.
+	 *
+	 * @param node the root of the subtree
+	 * @return the new root
+	 */
+	private static Node rotateRight(Node node) {
+		Node left = node.left;
+		node.left = left.right;
+		left.right = node;
+		node.updateMaxEnd();
+		left.updateMaxEnd();
+		return left;
+	}
+
+	/**
+	 * Rotates a subtree to the left.
+	 *
+	 * @param node the root of the subtree
+	 * @return the new root
+	 */
+	private static Node rotateLeft(Node node) {
+		Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		node.updateMaxEnd();
+		right.updateMaxEnd();
+		return right;
+	}
+
+	/**
+	 * Derives a pseudo-random priority from a sequence number, so that the tree stays balanced and
+	 * simulations stay reproducible.
+	 *
+	 * @param sequence the sequence number
+	 * @return the priority
+	 */
+	private static int priority(int sequence) {
+		int h = sequence * 0x9E3779B9;
+		h ^= h >>> 15;
+		h *= 0x85EBCA6B;
+		return h ^ (h >>> 13);
+	}
+
+	/**
+	 * A reservation of PEs over a time window.
+	 */
+	private static class Node {
+
+		/** The start of the window. */
+		private final double start;
+
+		/** The end of the window, exclusive. */
+		private final double end;
+
+		/** The number of PEs. */
+		private final int pes;
+
+		/** The treap priority. */
+		private final int priority;
+
+		/** The latest end in the subtree of this node. */
+		private double maxEnd;
+
+		/** The left child. */
+		private Node left;
+
+		/** The right child. */
+		private Node right;
+
+		/**
+		 * Creates a node.
+		 *
+		 * @param start the start of the window
+		 * @param end the end of the window
+		 * @param pes the number of PEs
+		 * @param priority the treap priority
+		 */
+		Node(double start, double end, int pes, int priority) {
+			this.start = start;
+			this.end = end;
+			this.pes = pes;
+			this.priority = priority;
+			maxEnd = end;
+		}
+
+		/**
+		 * Recomputes the latest end of the subtree from the children.
+		 */
+		void updateMaxEnd() {
+			maxEnd = end;
+			if (left != null && left.maxEnd > maxEnd) {
+				maxEnd = left.maxEnd;
+			}
+			if (right != null && right.maxEnd > maxEnd) {
+				maxEnd = right.maxEnd;
+			}
+		}
+	}
+
+}
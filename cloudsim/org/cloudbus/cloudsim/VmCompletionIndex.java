@@ -0,0 +1,283 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * VmCompletionIndex keeps the VMs of a {@link Datacenter} in an indexed binary min-heap ordered by
+ * the time at which the next cloudlet of each VM is expected to finish, as returned by
+ * {@link Vm#updateVmProcessing(double, List)}. Alongside the heap it tracks the VMs whose expected
+ * time is out of date because their cloudlets or their MIPS share changed.
+ * <p>
+ * A datacenter using the index only updates, at each event, the VMs that are due or changed and
+ * finds its next event at the top of the heap, so the cost of an event grows with the number of
+ * such VMs rather than with the number of VMs it hosts. This relies on cloudlets progressing
+ * linearly between events, so that the expected time of an unchanged VM stays valid.
+ * <p>
+ * Inserting, updating and removing a VM take O(log n) time; finding the next completion time takes
+ * constant time.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see Datacenter#isCompletionIndexEnabled()
+ */
+public class VmCompletionIndex implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The initial capacity of the heap. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The heap of VMs, ordered by {@link #times}. */
+	private Vm[] heap;
+
+	/** The expected completion time of the VM at the same position of {@link #heap}. */
+	private double[] times;
+
+	/** The number of VMs in the heap. */
+	private int size;
+
+	/** The position of each VM in the heap. */
+	private final Map<Vm, Integer> positions;
+
+	/** The VMs whose expected completion time must be recomputed. */
+	private final Set<Vm> changed;
+
+	/** The VMs updated since the last check for finished cloudlets. */
+	private final Set<Vm> updated;
+
+	/**
+	 * Creates an empty index.
+	 */
+	public VmCompletionIndex() {
+		heap = new Vm[INITIAL_CAPACITY];
+		times = new double[INITIAL_CAPACITY];
+		positions = new HashMap<Vm, Integer>();
+		changed = new LinkedHashSet<Vm>();
+		updated = new LinkedHashSet<Vm>();
+	}
+
+	/**
+	 * Records the expected completion time of a VM just updated. A VM without cloudlets to finish,
+	 * i.e. with a time of zero or {@link Double#MAX_VALUE}, leaves the heap.
+	 *
+	 * @param vm the VM
+	 * @param time the time returned by {@link Vm#updateVmProcessing(double, List)}
+	 * @pre vm != null
+	 * @post $none
+	 */
+	public void update(Vm vm, double time) {
+		changed.remove(vm);
+		updated.add(vm);
+
+		Integer position = positions.get(vm);
+		if (time <= 0.0 || time == Double.MAX_VALUE) {
+			if (position != null) {
+				removeAt(position);
+			}
+			return;
+		}
+
+		if (position == null) {
+			if (size == heap.length) {
+				heap = Arrays.copyOf(heap, 2 * size);
+				times = Arrays.copyOf(times, 2 * size);
+			}
+			heap[size] = vm;
+			times[size] = time;
+			positions.put(vm, size);
+			siftUp(size++);
+		} else {
+			double previous = times[position];
+			times[position] = time;
+			if (time < previous) {
+				siftUp(position);
+			} else {
+				siftDown(position);
+			}
+		}
+	}
+
+	/**
+	 * Marks a VM whose cloudlets or MIPS share changed, so that it is updated at the next call to
+	 * {@link #pollDue(double)}.
+	 *
+	 * @param vm the VM
+	 * @pre vm != null
+	 * @post $none
+	 */
+	public void markChanged(Vm vm) {
+		changed.add(vm);
+	}
+
+	/**
+	 * Removes a VM from the index, e.g. when it is destroyed.
+	 *
+	 * @param vm the VM
+	 * @pre vm != null
+	 * @post $none
+	 */
+	public void remove(Vm vm) {
+		Integer position = positions.get(vm);
+		if (position != null) {
+			removeAt(position);
+		}
+		changed.remove(vm);
+		updated.remove(vm);
+	}
+
+	/**
+	 * Gets the earliest expected completion time of the VMs in the heap.
+	 *
+	 * @return the earliest time, or {@link Double#MAX_VALUE} if no VM has cloudlets to finish
+	 */
+	public double getNextCompletionTime() {
+		return size == 0 ? Double.MAX_VALUE : times[0];
+	}
+
+	/**
+	 * Removes and returns the VMs that must be updated at the given time: the changed VMs and the
+	 * VMs expected to finish a cloudlet by then. Each VM returned must be given its new time through
+	 * {@link #update(Vm, double)}.
+	 *
+	 * @param time the current simulation time
+	 * @return the VMs to update, changed VMs first
+	 */
+	public List<Vm> pollDue(double time) {
+		Set<Vm> due = new LinkedHashSet<Vm>(changed);
+		changed.clear();
+		while (size > 0 && times[0] <= time) {
+			due.add(heap[0]);
+			removeAt(0);
+		}
+		return new ArrayList<Vm>(due);
+	}
+
+	/**
+	 * Removes and returns the VMs updated since the last call, which are the only ones that may
+	 * hold newly finished cloudlets.
+	 *
+	 * @return the updated VMs
+	 */
+	public List<Vm> pollUpdated() {
+		List<Vm> result = new ArrayList<Vm>(updated);
+		updated.clear();
+		return result;
+	}
+
+	/**
+	 * Gets the VMs expected to finish a cloudlet or waiting to be updated, i.e. the VMs whose
+	 * progress depends on their MIPS share.
+	 *
+	 * @return the active VMs
+	 */
+	public List<Vm> getActiveVms() {
+		Set<Vm> active = new LinkedHashSet<Vm>(changed);
+		for (int i = 0; i < size; i++) {
+			active.add(heap[i]);
+		}
+		return new ArrayList<Vm>(active);
+	}
+
+	/**
+	 * Removes the VM at the given position of the heap.
+	 *
+	 * @param position the position
+	 */
+	private void removeAt(int position) {
+		positions.remove(heap[position]);
+		size--;
+		if (position == size) {
+			heap[size] = null;
+			return;
+		}
+
+		double removed = times[position];
+		move(size, position);
+		heap[size] = null;
+		if (times[position] < removed) {
+			siftUp(position);
+		} else {
+			siftDown(position);
+		}
+	}
+
+	/**
+	 * Moves the VM at the given position up until its parent is not later.
+	 *
+	 * @param position the position
+	 */
+	private void siftUp(int position) {
+		Vm vm = heap[position];
+		double time = times[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (times[parent] <= time) {
+				break;
+			}
+			move(parent, position);
+			position = parent;
+		}
+		place(vm, time, position);
+	}
+
+	/**
+	 * Moves the VM at the given position down until no child is earlier.
+	 *
+	 * @param position the position
+	 */
+	private void siftDown(int position) {
+		Vm vm = heap[position];
+		double time = times[position];
+		int half = size >>> 1;
+		while (position < half) {
+			int child = 2 * position + 1;
+			if (child + 1 < size && times[child + 1] < times[child]) {
+				child++;
+			}
+			if (time <= times[child]) {
+				break;
+			}
+			move(child, position);
+			position = child;
+		}
+		place(vm, time, position);
+	}
+
+	/**
+	 * Copies the VM at one position of the heap to another.
+	 *
+	 * @param from the position of the VM
+	 * @param to its new position
+	 */
+	private void move(int from, int to) {
+		place(heap[from], times[from], to);
+	}
+
+	/**
+	 * Stores a VM at a position of the heap.
+	 *
+	 * @param vm the VM
+	 * @param time its expected completion time
+	 * @param position the position
+	 */
+	private void place(Vm vm, double time, int position) {
+		heap[position] = vm;
+		times[position] = time;
+		positions.put(vm, position);
+	}
+
+}
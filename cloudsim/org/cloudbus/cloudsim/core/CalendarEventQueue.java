@@ -0,0 +1,532 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@link EventQueue} implemented as a calendar queue (R. Brown, "Calendar queues: a fast O(1)
+ * priority queue implementation for the simulation event set problem", CACM 31(10), 1988).
+ * <p>
+ * Events are hashed by time into an array of buckets ("days"), each bucket covering an interval of
+ * <tt>width</tt> simulated time units. Every bucket is a list sorted by time and serial, so events
+ * with the same time always share a bucket and keep their insertion order. The number of buckets
+ * doubles when the queue holds more than two events per bucket and halves when it holds less than
+ * one event per two buckets; on every resize the bucket width is re-estimated from the spacing of
+ * the earliest events. With a well estimated width, insertion and removal of the first event take
+ * amortised constant time.
+ * <p>
+ * {@link #iterator()} works on a sorted snapshot of the queue and therefore costs O(n log n). It is
+ * only meant for rare full scans; {@link CloudSim#cancel} and {@link CloudSim#cancelAll} go through
+ * the (source, tag) index of {@link FutureQueue} instead.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see EventQueue
+ */
+public class CalendarEventQueue implements EventQueue {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The minimal number of buckets. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The number of earliest events used to estimate the bucket width. */
+	private static final int SAMPLE_SIZE = 25;
+
+	/**
+	 * The buckets. Each bucket is a singly linked list sorted by time and serial. The buckets are
+	 * serialised as a flat sequence of events.
+	 */
+	private transient Node[] heads;
+
+	/** The last node of each bucket, used to append in constant time. */
+	private transient Node[] tails;
+
+	/** The time interval covered by a bucket. */
+	private double width;
+
+	/** The virtual bucket of the first event. No event in the queue has a smaller virtual bucket. */
+	private long currentBucket;
+
+	/** The number of events in the queue. */
+	private int size;
+
+	/**
+	 * Creates a new calendar queue with a bucket width of 1.0 simulated time unit. The width is
+	 * adapted to the observed event spacing as the queue grows.
+	 */
+	public CalendarEventQueue() {
+		this(1.0);
+	}
+
+	/**
+	 * Creates a new calendar queue.
+	 *
+	 * @param initialWidth the initial time interval covered by a bucket
+	 */
+	public CalendarEventQueue(double initialWidth) {
+		if (initialWidth <= 0 || Double.isInfinite(initialWidth) || Double.isNaN(initialWidth)) {
+			throw new IllegalArgumentException("The bucket width should be positive, but is:" + initialWidth);
+		}
+		width = initialWidth;
+		heads = new Node[MIN_BUCKETS];
+		tails = new Node[MIN_BUCKETS];
+	}
+
+	@Override
+	public void add(SimEvent event) {
+		Node node = new Node(event, virtualBucket(event.eventTime()));
+		if (size == 0 || node.bucket < currentBucket) {
+			currentBucket = node.bucket;
+		}
+		insert(heads, tails, node);
+		size++;
+
+		if (size > 2 * heads.length) {
+			resize(heads.length * 2);
+		}
+	}
+
+	@Override
+	public SimEvent first() {
+		int b = findFirstBucket();
+		return b < 0 ? null : heads[b].event;
+	}
+
+	@Override
+	public SimEvent pollFirst() {
+		SimEvent event = pollFirstInternal();
+		if (event != null) {
+			shrinkIfNeeded();
+		}
+		return event;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Events with the same time share a bucket and are adjacent in it, so the whole batch is unlinked
+	 * from the head of a single bucket.
+	 */
+	@Override
+	public int pollFirstBatch(List<SimEvent> batch) {
+		int b = findFirstBucket();
+		if (b < 0) {
+			return 0;
+		}
+		double time = heads[b].event.eventTime();
+		int count = 0;
+		Node head = heads[b];
+		while (head != null && head.event.eventTime() == time) {
+			unlink(b, null, head);
+			batch.add(head.event);
+			count++;
+			head = heads[b];
+		}
+		size -= count;
+		shrinkIfNeeded();
+		return count;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		long bucket = virtualBucket(event.eventTime());
+		int b = index(bucket, heads.length);
+		Node previous = null;
+		for (Node node = heads[b]; node != null; previous = node, node = node.next) {
+			if (node.event == event) {
+				unlink(b, previous, node);
+				size--;
+				shrinkIfNeeded();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		List<SimEvent> snapshot = new ArrayList<SimEvent>(size);
+		for (Node head : heads) {
+			for (Node node = head; node != null; node = node.next) {
+				snapshot.add(node.event);
+			}
+		}
+		// the sort is stable and events with equal keys share a bucket, so their order is kept
+		Collections.sort(snapshot, ORDER);
+		return new SnapshotIterator(snapshot);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		heads = new Node[MIN_BUCKETS];
+		tails = new Node[MIN_BUCKETS];
+		size = 0;
+		currentBucket = 0;
+	}
+
+	/**
+	 * Gets the time interval currently covered by a bucket.
+	 *
+	 * @return the bucket width
+	 */
+	public double getWidth() {
+		return width;
+	}
+
+	/**
+	 * Gets the current number of buckets.
+	 *
+	 * @return the number of buckets
+	 */
+	public int getNumberOfBuckets() {
+		return heads.length;
+	}
+
+	/**
+	 * Writes the queue: its width, current bucket and size, then the number of buckets and the
+	 * events bucket by bucket.
+	 * 
+	 * @param out the output stream
+	 * @throws IOException if the stream can't be written
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(heads.length);
+		for (Node head : heads) {
+			for (Node node = head; node != null; node = node.next) {
+				out.writeObject(node.event);
+			}
+		}
+	}
+
+	/**
+	 * Reads a queue written by {@link #writeObject(ObjectOutputStream)}. Re-inserting the events
+	 * bucket by bucket keeps the order of the events with equal keys.
+	 * 
+	 * @param in the input stream
+	 * @throws IOException if the stream can't be read
+	 * @throws ClassNotFoundException if the class of a serialised object can't be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int length = in.readInt();
+		heads = new Node[length];
+		tails = new Node[length];
+		for (int i = 0; i < size; i++) {
+			SimEvent event = (SimEvent) in.readObject();
+			insert(heads, tails, new Node(event, virtualBucket(event.eventTime())));
+		}
+	}
+
+	/**
+	 * Finds the bucket holding the first event and moves {@link #currentBucket} to it.
+	 *
+	 * @return the bucket index, or -1 if the queue is empty
+	 */
+	private int findFirstBucket() {
+		if (size == 0) {
+			return -1;
+		}
+
+		int n = heads.length;
+		for (int i = 0; i < n; i++) {
+			long bucket = currentBucket + i;
+			int b = index(bucket, n);
+			Node head = heads[b];
+			if (head != null && head.bucket == bucket) {
+				currentBucket = bucket;
+				return b;
+			}
+		}
+
+		// nothing within a whole year: fall back to a direct search over the bucket heads
+		int first = -1;
+		for (int b = 0; b < n; b++) {
+			Node head = heads[b];
+			if (head != null && (first < 0 || precedes(head.event, heads[first].event))) {
+				first = b;
+			}
+		}
+		currentBucket = heads[first].bucket;
+		return first;
+	}
+
+	/**
+	 * Removes the first event without resizing the calendar.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	private SimEvent pollFirstInternal() {
+		int b = findFirstBucket();
+		if (b < 0) {
+			return null;
+		}
+		Node head = heads[b];
+		unlink(b, null, head);
+		size--;
+		return head.event;
+	}
+
+	/**
+	 * Halves the number of buckets when the queue became sparse.
+	 */
+	private void shrinkIfNeeded() {
+		if (heads.length > MIN_BUCKETS && size < heads.length / 2) {
+			resize(heads.length / 2);
+		}
+	}
+
+	/**
+	 * Rebuilds the calendar with a new number of buckets and a bucket width estimated from the
+	 * earliest events.
+	 *
+	 * @param newLength the new number of buckets
+	 */
+	private void resize(int newLength) {
+		int samples = Math.min(SAMPLE_SIZE, size);
+		SimEvent[] earliest = new SimEvent[samples];
+		for (int i = 0; i < samples; i++) {
+			earliest[i] = pollFirstInternal();
+		}
+		size += samples;
+
+		width = estimateWidth(earliest);
+
+		Node[] oldHeads = heads;
+		Node[] newHeads = new Node[newLength];
+		Node[] newTails = new Node[newLength];
+
+		// the earliest events go in first so that they stay ahead of any event with an equal key
+		for (SimEvent event : earliest) {
+			insert(newHeads, newTails, new Node(event, virtualBucket(event.eventTime())));
+		}
+		for (Node head : oldHeads) {
+			Node node = head;
+			while (node != null) {
+				Node next = node.next;
+				node.next = null;
+				node.bucket = virtualBucket(node.event.eventTime());
+				insert(newHeads, newTails, node);
+				node = next;
+			}
+		}
+
+		heads = newHeads;
+		tails = newTails;
+		currentBucket = samples > 0 ? virtualBucket(earliest[0].eventTime()) : 0;
+	}
+
+	/**
+	 * Estimates a bucket width of about three times the average spacing between the given events,
+	 * ignoring gaps larger than twice the overall average.
+	 *
+	 * @param earliest the earliest events, in queue order
+	 * @return the new bucket width
+	 */
+	private double estimateWidth(SimEvent[] earliest) {
+		if (earliest.length < 2) {
+			return width;
+		}
+
+		double first = earliest[0].eventTime();
+		double last = earliest[earliest.length - 1].eventTime();
+		double average = (last - first) / (earliest.length - 1);
+		if (average <= 0 || Double.isInfinite(average)) {
+			return width;
+		}
+
+		double sum = 0;
+		int count = 0;
+		for (int i = 1; i < earliest.length; i++) {
+			double gap = earliest[i].eventTime() - earliest[i - 1].eventTime();
+			if (gap <= 2 * average) {
+				sum += gap;
+				count++;
+			}
+		}
+
+		double newWidth = count > 0 && sum > 0 ? 3 * sum / count : 3 * average;
+		return Double.isInfinite(newWidth) ? width : newWidth;
+	}
+
+	/**
+	 * Inserts a node after all the nodes of its bucket that do not come after it.
+	 *
+	 * @param heads the bucket heads
+	 * @param tails the bucket tails
+	 * @param node the node
+	 */
+	private static void insert(Node[] heads, Node[] tails, Node node) {
+		int b = index(node.bucket, heads.length);
+		Node tail = tails[b];
+		if (tail == null) {
+			heads[b] = node;
+			tails[b] = node;
+			return;
+		}
+		if (!precedes(node.event, tail.event)) {
+			tail.next = node;
+			tails[b] = node;
+			return;
+		}
+
+		Node previous = null;
+		Node current = heads[b];
+		while (!precedes(node.event, current.event)) {
+			previous = current;
+			current = current.next;
+		}
+		node.next = current;
+		if (previous == null) {
+			heads[b] = node;
+		} else {
+			previous.next = node;
+		}
+	}
+
+	/**
+	 * Unlinks a node from a bucket.
+	 *
+	 * @param b the bucket index
+	 * @param previous the node before <tt>node</tt>, or <tt>null</tt> if it is the head
+	 * @param node the node
+	 */
+	private void unlink(int b, Node previous, Node node) {
+		if (previous == null) {
+			heads[b] = node.next;
+		} else {
+			previous.next = node.next;
+		}
+		if (tails[b] == node) {
+			tails[b] = previous;
+		}
+		node.next = null;
+	}
+
+	/**
+	 * Gets the virtual bucket of a given time, i.e. the number of bucket widths elapsed since 0.
+	 *
+	 * @param time the time
+	 * @return the virtual bucket
+	 */
+	private long virtualBucket(double time) {
+		return (long) Math.floor(time / width);
+	}
+
+	/**
+	 * Maps a virtual bucket to a bucket index.
+	 *
+	 * @param bucket the virtual bucket
+	 * @param length the number of buckets
+	 * @return the bucket index
+	 */
+	private static int index(long bucket, int length) {
+		return (int) Math.floorMod(bucket, (long) length);
+	}
+
+	/**
+	 * Checks whether an event has to be served strictly before another one.
+	 *
+	 * @param a an event
+	 * @param b another event
+	 * @return true, if <tt>a</tt> has a smaller time, or the same time and comes first in
+	 *         {@link SimEvent#compareTo(SimEvent)} order
+	 */
+	private static boolean precedes(SimEvent a, SimEvent b) {
+		double ta = a.eventTime();
+		double tb = b.eventTime();
+		return ta < tb || (ta == tb && a.compareTo(b) < 0);
+	}
+
+	/** Orders events as {@link SimEvent#compareTo(SimEvent)} does. */
+	private static final Comparator<SimEvent> ORDER = new Comparator<SimEvent>() {
+
+		@Override
+		public int compare(SimEvent a, SimEvent b) {
+			return precedes(a, b) ? -1 : precedes(b, a) ? 1 : 0;
+		}
+	};
+
+	/**
+	 * A node of a bucket list.
+	 */
+	private static final class Node {
+
+		/** The event. */
+		private final SimEvent event;
+
+		/** The virtual bucket of the event for the current width. */
+		private long bucket;
+
+		/** The next node of the bucket. */
+		private Node next;
+
+		private Node(SimEvent event, long bucket) {
+			this.event = event;
+			this.bucket = bucket;
+		}
+	}
+
+	/**
+	 * An iterator over a sorted snapshot of the queue, which removes events from the queue itself.
+	 */
+	private final class SnapshotIterator implements Iterator<SimEvent> {
+
+		/** The snapshot. */
+		private final List<SimEvent> snapshot;
+
+		/** The index of the next event. */
+		private int next;
+
+		/** Whether the last returned event can be removed. */
+		private boolean canRemove;
+
+		private SnapshotIterator(List<SimEvent> snapshot) {
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < snapshot.size();
+		}
+
+		@Override
+		public SimEvent next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			canRemove = true;
+			return snapshot.get(next++);
+		}
+
+		@Override
+		public void remove() {
+			if (!canRemove) {
+				throw new IllegalStateException();
+			}
+			canRemove = false;
+			CalendarEventQueue.this.remove(snapshot.get(next - 1));
+		}
+	}
+
+}
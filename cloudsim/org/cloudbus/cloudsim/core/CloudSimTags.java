@@ -265,6 +265,11 @@ public class CloudSimTags {
 
 	public static final int NextCycle = BASE + 48;
 
+	/**
+	 * Denotes the arrival of a workflow submitted to a broker ahead of time
+	 */
+	public static final int WORKFLOW_ARRIVAL = BASE + 49;
+
 	/** Private Constructor */
 	private CloudSimTags() {
 		throw new UnsupportedOperationException("CloudSim Tags cannot be instantiated");
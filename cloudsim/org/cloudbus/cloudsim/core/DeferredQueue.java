@@ -8,27 +8,33 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
+ * This class implements the deferred event queue used by {@link Simulation}. The events are
+ * partitioned by destination entity, each partition being a linked list sorted by event time, so an
+ * entity looking for its next event only visits its own events.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
  * @see SimEvent
  */
-public class DeferredQueue {
+public class DeferredQueue implements Serializable {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	private static final long serialVersionUID = 1L;
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The events of each destination entity, indexed by entity id. */
+	private final List<LinkedList<SimEvent>> lists = new ArrayList<LinkedList<SimEvent>>();
+
+	/** The total number of events. */
+	private int size;
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
@@ -37,12 +43,14 @@ public class DeferredQueue {
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
+		LinkedList<SimEvent> list = getOrCreateList(newEvent.getDestination());
+		size++;
+
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
 		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
+		if (list.isEmpty() || eventTime >= list.getLast().eventTime()) {
 			list.add(newEvent);
-			maxTime = eventTime;
 			return;
 		}
 
@@ -61,12 +69,111 @@ public class DeferredQueue {
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
+	 * Returns an iterator to the events in the queue. Events are grouped by destination and sorted
+	 * by time within each destination.
 	 * 
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		List<SimEvent> all = new ArrayList<SimEvent>(size);
+		for (LinkedList<SimEvent> list : lists) {
+			if (list != null) {
+				all.addAll(list);
+			}
+		}
+		return Collections.unmodifiableList(all).iterator();
+	}
+
+	/**
+	 * Returns an iterator to the events sent to a given entity, in temporal order. Removing an
+	 * event through the iterator removes it from the queue.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator(int destination) {
+		if (destination < 0 || destination >= lists.size() || lists.get(destination) == null) {
+			return Collections.<SimEvent> emptyList().iterator();
+		}
+		final Iterator<SimEvent> iterator = lists.get(destination).iterator();
+		return new Iterator<SimEvent>() {
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				return iterator.next();
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				size--;
+			}
+		};
+	}
+
+	/**
+	 * Returns the first event sent to a given entity without removing it.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @return the first event, or <tt>null</tt> if there is none
+	 */
+	public SimEvent first(int destination) {
+		if (destination < 0 || destination >= lists.size() || lists.get(destination) == null) {
+			return null;
+		}
+		return lists.get(destination).peekFirst();
+	}
+
+	/**
+	 * Removes and returns the first event sent to a given entity.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @return the first event, or <tt>null</tt> if there is none
+	 */
+	public SimEvent pollFirst(int destination) {
+		SimEvent event = first(destination);
+		if (event != null) {
+			lists.get(destination).removeFirst();
+			size--;
+		}
+		return event;
+	}
+
+	/**
+	 * Removes all the events sent to a given entity and appends them to a list in time order.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @param events the list the events are appended to
+	 * @return the number of events removed
+	 */
+	public int pollAll(int destination, List<SimEvent> events) {
+		if (destination < 0 || destination >= lists.size() || lists.get(destination) == null) {
+			return 0;
+		}
+		LinkedList<SimEvent> list = lists.get(destination);
+		int count = list.size();
+		events.addAll(list);
+		list.clear();
+		size -= count;
+		return count;
+	}
+
+	/**
+	 * Returns the number of events sent to a given entity.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @return the number of events
+	 */
+	public int size(int destination) {
+		if (destination < 0 || destination >= lists.size() || lists.get(destination) == null) {
+			return 0;
+		}
+		return lists.get(destination).size();
 	}
 
 	/**
@@ -75,14 +182,36 @@ public class DeferredQueue {
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		lists.clear();
+		size = 0;
+	}
+
+	/**
+	 * Gets the list of events of a destination, creating it if needed.
+	 * 
+	 * @param destination the id of the destination entity
+	 * @return the list
+	 */
+	private LinkedList<SimEvent> getOrCreateList(int destination) {
+		if (destination < 0) {
+			throw new IllegalArgumentException("Attempt to defer an event to a null entity detected.");
+		}
+		while (lists.size() <= destination) {
+			lists.add(null);
+		}
+		LinkedList<SimEvent> list = lists.get(destination);
+		if (list == null) {
+			list = new LinkedList<SimEvent>();
+			lists.set(destination, list);
+		}
+		return list;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Copies the data of the events that cross from one logical process to another, so that the
+ * entities of two processes, which run on different threads, never share a mutable object. The
+ * receiver gets a snapshot of the data as it was when the event was sent, as a message sent over a
+ * network would be, and the sender keeps its own object.
+ * <p>
+ * Immutable values are passed as they are, arrays of primitives are cloned and any other data is
+ * deep-copied through serialisation. Entities reached from the data are not copied: the copy
+ * refers to the same entity objects, which only their own process runs.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see Simulation#setLogicalProcess(int, int)
+ */
+final class EventDataCopier {
+
+	/** The simulation whose entities the copies refer to. */
+	private final Simulation simulation;
+
+	/**
+	 * Creates a copier for the events of a simulation.
+	 *
+	 * @param simulation the simulation
+	 */
+	EventDataCopier(Simulation simulation) {
+		this.simulation = simulation;
+	}
+
+	/**
+	 * Gives an event sent to another logical process its own copy of the data. Acknowledgement
+	 * arrays borrowed from the event pool are not copied: their ownership passes to the receiver
+	 * with the event, which hands them back to its own pool.
+	 *
+	 * @param e the event
+	 * @throws IllegalStateException if the data can't be copied
+	 */
+	void copyData(SimEvent e) {
+		if (!e.hasPooledData()) {
+			e.setData(copy(e.getData(), e));
+		}
+	}
+
+	/**
+	 * Copies the data of an event.
+	 *
+	 * @param data the data
+	 * @param e the event carrying it, for the error message
+	 * @return the data itself if it is immutable, otherwise a copy
+	 * @throws IllegalStateException if the data is neither immutable nor serialisable
+	 */
+	private Object copy(Object data, SimEvent e) {
+		if (data == null || data instanceof String || data instanceof Boolean || data instanceof Character
+				|| data instanceof Enum<?> || data instanceof SimEntity || isBoxedNumber(data)) {
+			return data;
+		}
+		if (data instanceof int[]) {
+			return ((int[]) data).clone();
+		}
+		if (data instanceof long[]) {
+			return ((long[]) data).clone();
+		}
+		if (data instanceof double[]) {
+			return ((double[]) data).clone();
+		}
+		if (!(data instanceof Serializable)) {
+			throw new IllegalStateException("The data of event " + e.getTag() + " from entity #" + e.getSource()
+					+ " to entity #" + e.getDestination() + " can't be sent to another logical process: "
+					+ data.getClass().getName() + " is not serializable.");
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new EntityReplacingOutputStream(bytes);
+			out.writeObject(data);
+			out.close();
+			ObjectInputStream in = new EntityResolvingInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			return in.readObject();
+		} catch (IOException ex) {
+			throw new IllegalStateException("The data of event " + e.getTag() + " from entity #" + e.getSource()
+					+ " to entity #" + e.getDestination() + " can't be copied to another logical process.", ex);
+		} catch (ClassNotFoundException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Checks whether a value is one of the immutable boxed numbers of <tt>java.lang</tt>.
+	 *
+	 * @param data the value
+	 * @return true, if it is a boxed number
+	 */
+	private static boolean isBoxedNumber(Object data) {
+		return data instanceof Integer || data instanceof Long || data instanceof Double || data instanceof Float
+				|| data instanceof Short || data instanceof Byte;
+	}
+
+	/**
+	 * The reference to an entity written in place of the entity.
+	 */
+	private static final class EntityReference implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		/** The entity id. */
+		private final int id;
+
+		EntityReference(int id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * Writes a reference in place of every entity.
+	 */
+	private static final class EntityReplacingOutputStream extends ObjectOutputStream {
+
+		EntityReplacingOutputStream(ByteArrayOutputStream out) throws IOException {
+			super(out);
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object obj) {
+			return obj instanceof SimEntity ? new EntityReference(((SimEntity) obj).getId()) : obj;
+		}
+	}
+
+	/**
+	 * Reads the entity of the simulation back in place of every reference.
+	 */
+	private final class EntityResolvingInputStream extends ObjectInputStream {
+
+		EntityResolvingInputStream(ByteArrayInputStream in) throws IOException {
+			super(in);
+			enableResolveObject(true);
+		}
+
+		@Override
+		protected Object resolveObject(Object obj) {
+			return obj instanceof EntityReference ? simulation.getEntity(((EntityReference) obj).id) : obj;
+		}
+	}
+
+}
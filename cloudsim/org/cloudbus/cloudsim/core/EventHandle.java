@@ -0,0 +1,94 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+
+/**
+ * A handle to an event sent with {@link Simulation#sendCancellable(int, int, double, int, Object)}.
+ * It cancels that event directly, without searching the future event queue. Once the event has
+ * been delivered or cancelled the handle becomes inert, even if the event object itself is reused
+ * by event pooling.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see SimEntity#scheduleCancellable(int, double, int, Object)
+ */
+public final class EventHandle implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The simulation the event was sent in. */
+	private final Simulation simulation;
+
+	/** The event. */
+	private final SimEvent event;
+
+	/** The serial the event had when it was queued. */
+	private final long serial;
+
+	/** The time at which the event should occur. */
+	private final double time;
+
+	/** The tag of the event. */
+	private final int tag;
+
+	EventHandle(Simulation simulation, SimEvent event) {
+		this.simulation = simulation;
+		this.event = event;
+		serial = event.getSerial();
+		time = event.eventTime();
+		tag = event.getTag();
+	}
+
+	/**
+	 * Checks whether the event is still waiting in the future event queue.
+	 *
+	 * @return true, if the event has neither been delivered nor cancelled
+	 */
+	public boolean isPending() {
+		return event.queued && event.getSerial() == serial;
+	}
+
+	/**
+	 * Removes the event from the future event queue.
+	 *
+	 * @return true, if the event was pending and has been cancelled; false otherwise
+	 */
+	public boolean cancel() {
+		return simulation.cancel(this);
+	}
+
+	/**
+	 * Gets the time at which the event should occur.
+	 *
+	 * @return the event time
+	 */
+	public double getTime() {
+		return time;
+	}
+
+	/**
+	 * Gets the tag of the event.
+	 *
+	 * @return the tag
+	 */
+	public int getTag() {
+		return tag;
+	}
+
+	/**
+	 * Gets the event, for the kernel.
+	 *
+	 * @return the event
+	 */
+	SimEvent getEvent() {
+		return event;
+	}
+
+}
@@ -0,0 +1,91 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The storage engine behind {@link FutureQueue}. Implementations keep events ordered by
+ * {@link SimEvent#compareTo(SimEvent)}, i.e. by {@link SimEvent#eventTime()} and, for events with
+ * the same time, by their serial number (preceded, in parallel runs, by the position of the send in
+ * the sequential execution order). Events that compare equal on all keys must be returned in the
+ * order in which they were added, which is the tie-break the {@link java.util.TreeSet} based queue
+ * has always provided.
+ * <p>
+ * Serial numbers are assigned by {@link FutureQueue} before an event reaches the engine, so
+ * implementations only have to honour the ordering.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see FutureQueue
+ * @see TreeEventQueue
+ * @see CalendarEventQueue
+ */
+public interface EventQueue extends Serializable {
+
+	/**
+	 * Adds an event to the queue.
+	 *
+	 * @param event the event
+	 */
+	void add(SimEvent event);
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent first();
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 *
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent pollFirst();
+
+	/**
+	 * Removes the first event of the queue and all the following events with the same time, and
+	 * appends them to a list in queue order.
+	 *
+	 * @param batch the list the events are appended to
+	 * @return the number of events removed, 0 if the queue is empty
+	 */
+	int pollFirstBatch(List<SimEvent> batch);
+
+	/**
+	 * Removes an event from the queue.
+	 *
+	 * @param event the event
+	 * @return true, if the event was in the queue
+	 */
+	boolean remove(SimEvent event);
+
+	/**
+	 * Returns an iterator over the events in queue order. The iterator must support
+	 * {@link Iterator#remove()}.
+	 *
+	 * @return the iterator
+	 */
+	Iterator<SimEvent> iterator();
+
+	/**
+	 * Returns the number of events in the queue.
+	 *
+	 * @return the size
+	 */
+	int size();
+
+	/**
+	 * Removes all events from the queue.
+	 */
+	void clear();
+
+}
@@ -8,28 +8,71 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
+ * This class implements the future event queue used by {@link Simulation}. The events are stored
+ * in an {@link EventQueue}; by default a {@link TreeEventQueue}, which uses a
+ * {@link java.util.TreeSet}. A {@link CalendarEventQueue} can be selected through
+ * {@link CloudSim#init(int, java.util.Calendar, boolean, EventQueue)} for simulations with a very
+ * large number of pending events.
+ * <p>
+ * Pending events are also indexed by source entity and tag, so that cancelling the events sent by
+ * one entity only visits that entity's events instead of scanning the whole queue.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
- * @see java.util.TreeSet
+ * @see EventQueue
  */
-public class FutureQueue {
+public class FutureQueue implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
-	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+	/** The storage engine. */
+	private final EventQueue queue;
 
 	/** The serial. */
 	private long serial = 0;
 
+	/**
+	 * The (source, tag) index: for each source entity id, the most recently added pending event of
+	 * each tag. Events with the same source and tag are chained through
+	 * {@link SimEvent#indexNext}. It is not serialised but rebuilt from the queue.
+	 */
+	private transient List<Map<Integer, SimEvent>> index = new ArrayList<Map<Integer, SimEvent>>();
+
+	/**
+	 * Creates a future queue backed by a {@link TreeEventQueue}.
+	 */
+	public FutureQueue() {
+		this(new TreeEventQueue());
+	}
+
+	/**
+	 * Creates a future queue backed by a given engine.
+	 * 
+	 * @param queue the storage engine; it must be empty
+	 */
+	public FutureQueue(EventQueue queue) {
+		if (queue == null) {
+			throw new IllegalArgumentException("The event queue can't be null.");
+		}
+		this.queue = queue;
+	}
+
 	/**
 	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
 	 * the events in the queue.
@@ -38,17 +81,22 @@ public class FutureQueue {
 	 */
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
+		queue.add(newEvent);
+		addToIndex(newEvent);
 	}
 
 	/**
-	 * Add a new event to the head of the queue.
+	 * Add a new event to the head of the queue. The event precedes the events with the same time
+	 * that were not added to the head; it still gets a serial of its own, which orders it among the
+	 * other head events and tells it apart from earlier uses of the same event object.
 	 * 
 	 * @param newEvent The event to be put in the queue.
 	 */
 	public void addEventFirst(SimEvent newEvent) {
-		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
+		newEvent.setSerial(serial++);
+		newEvent.setSentFirst(true);
+		queue.add(newEvent);
+		addToIndex(newEvent);
 	}
 
 	/**
@@ -57,7 +105,66 @@ public class FutureQueue {
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
+		final Iterator<SimEvent> iterator = queue.iterator();
+		return new Iterator<SimEvent>() {
+
+			private SimEvent last;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				last = iterator.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				removeFromIndex(last);
+			}
+		};
+	}
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 * 
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent first() {
+		return queue.first();
+	}
+
+	/**
+	 * Removes and returns the first event of the queue.
+	 * 
+	 * @return the first event, or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent pollFirst() {
+		SimEvent first = queue.pollFirst();
+		if (first != null) {
+			removeFromIndex(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Removes the first event of the queue and all the following events with the same time, and
+	 * appends them to a list in queue order. The batch is taken from the storage engine in a single
+	 * operation.
+	 * 
+	 * @param batch the list the events are appended to
+	 * @return the number of events removed, 0 if the queue is empty
+	 */
+	public int pollFirstBatch(List<SimEvent> batch) {
+		int count = queue.pollFirstBatch(batch);
+		for (int i = batch.size() - count; i < batch.size(); i++) {
+			removeFromIndex(batch.get(i));
+		}
+		return count;
 	}
 
 	/**
@@ -66,7 +173,7 @@ public class FutureQueue {
 	 * @return the size
 	 */
 	public int size() {
-		return sortedSet.size();
+		return queue.size();
 	}
 
 	/**
@@ -76,7 +183,11 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
+		if (!event.queued || !queue.remove(event)) {
+			return false;
+		}
+		removeFromIndex(event);
+		return true;
 	}
 
 	/**
@@ -86,14 +197,215 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= remove(event);
+		}
+		return changed;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		sortedSet.clear();
+		Iterator<SimEvent> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			event.queued = false;
+			event.indexPrev = null;
+			event.indexNext = null;
+		}
+		queue.clear();
+		index.clear();
+	}
+
+	/**
+	 * Removes the first event, in queue order, sent by a given entity and matching a predicate.
+	 * 
+	 * @param src the id of the entity that sent the event
+	 * @param p the event selection predicate
+	 * @return the removed event, or <tt>null</tt> if no pending event matches
+	 */
+	public SimEvent removeFirst(int src, Predicate p) {
+		SimEvent first = null;
+		for (SimEvent event : match(src, p)) {
+			if (first == null || event.compareTo(first) < 0) {
+				first = event;
+			}
+		}
+		if (first != null) {
+			remove(first);
+		}
+		return first;
+	}
+
+	/**
+	 * Removes all the events sent by a given entity and matching a predicate.
+	 * 
+	 * @param src the id of the entity that sent the events
+	 * @param p the event selection predicate
+	 * @return the removed events, in no particular order and each only once
+	 */
+	public List<SimEvent> removeAll(int src, Predicate p) {
+		List<SimEvent> matched = match(src, p);
+		List<SimEvent> removed = Collections.emptyList();
+		for (SimEvent event : matched) {
+			if (remove(event)) {
+				removed = append(removed, event);
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Collects the pending events sent by a given entity and matching a predicate. Only the
+	 * entity's chains of the predicate's tags are visited when the predicate is a
+	 * {@link PredicateType}, and only the entity's chains otherwise.
+	 * 
+	 * @param src the id of the entity that sent the events
+	 * @param p the event selection predicate
+	 * @return the matching events, each only once
+	 */
+	private List<SimEvent> match(int src, Predicate p) {
+		List<SimEvent> matched = Collections.emptyList();
+		if (src < 0) {
+			// events of unregistered sources are not indexed
+			Iterator<SimEvent> iterator = queue.iterator();
+			while (iterator.hasNext()) {
+				SimEvent event = iterator.next();
+				if (event.getSource() == src && p.match(event)) {
+					matched = append(matched, event);
+				}
+			}
+			return matched;
+		}
+
+		Map<Integer, SimEvent> tags = src < index.size() ? index.get(src) : null;
+		if (tags == null || tags.isEmpty()) {
+			return matched;
+		}
+
+		if (p instanceof PredicateType) {
+			int[] predicateTags = ((PredicateType) p).getTags();
+			for (int i = 0; i < predicateTags.length; i++) {
+				int tag = predicateTags[i];
+				if (contains(predicateTags, i, tag)) {
+					continue; // the chain of a repeated tag has been visited already
+				}
+				for (SimEvent event = tags.get(tag); event != null; event = event.indexNext) {
+					if (p.match(event)) {
+						matched = append(matched, event);
+					}
+				}
+			}
+		} else {
+			for (SimEvent head : tags.values()) {
+				for (SimEvent event = head; event != null; event = event.indexNext) {
+					if (p.match(event)) {
+						matched = append(matched, event);
+					}
+				}
+			}
+		}
+		return matched;
+	}
+
+	/**
+	 * Checks whether a tag occurs among the first elements of an array.
+	 * 
+	 * @param tags the tags
+	 * @param length the number of elements to look at
+	 * @param tag the tag
+	 * @return true, if one of the first <tt>length</tt> tags equals <tt>tag</tt>
+	 */
+	private static boolean contains(int[] tags, int length, int tag) {
+		for (int i = 0; i < length; i++) {
+			if (tags[i] == tag) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<SimEvent> append(List<SimEvent> list, SimEvent event) {
+		if (list.isEmpty()) {
+			list = new ArrayList<SimEvent>();
+		}
+		list.add(event);
+		return list;
+	}
+
+	/**
+	 * Restores a serialised queue and rebuilds its (source, tag) index.
+	 * 
+	 * @param in the input stream
+	 * @throws IOException if the stream can't be read
+	 * @throws ClassNotFoundException if the class of a serialised object can't be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		index = new ArrayList<Map<Integer, SimEvent>>();
+		Iterator<SimEvent> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			addToIndex(iterator.next());
+		}
+	}
+
+	/**
+	 * Adds a newly queued event to the head of its (source, tag) chain.
+	 * 
+	 * @param event the event
+	 */
+	private void addToIndex(SimEvent event) {
+		event.queued = true;
+		int src = event.getSource();
+		if (src < 0) {
+			return;
+		}
+
+		while (index.size() <= src) {
+			index.add(null);
+		}
+		Map<Integer, SimEvent> tags = index.get(src);
+		if (tags == null) {
+			tags = new HashMap<Integer, SimEvent>();
+			index.set(src, tags);
+		}
+
+		SimEvent head = tags.put(event.getTag(), event);
+		event.indexPrev = null;
+		event.indexNext = head;
+		if (head != null) {
+			head.indexPrev = event;
+		}
+	}
+
+	/**
+	 * Unlinks an event that left the queue from its (source, tag) chain.
+	 * 
+	 * @param event the event
+	 */
+	private void removeFromIndex(SimEvent event) {
+		event.queued = false;
+		int src = event.getSource();
+		if (src < 0) {
+			return;
+		}
+
+		SimEvent prev = event.indexPrev;
+		SimEvent next = event.indexNext;
+		if (next != null) {
+			next.indexPrev = prev;
+		}
+		if (prev != null) {
+			prev.indexNext = next;
+		} else if (next != null) {
+			index.get(src).put(event.getTag(), next);
+		} else {
+			index.get(src).remove(event.getTag());
+		}
+		event.indexPrev = null;
+		event.indexNext = null;
 	}
 
 }
\ No newline at end of file
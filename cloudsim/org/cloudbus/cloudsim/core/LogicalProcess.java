@@ -0,0 +1,375 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * A logical process of a {@link Simulation}: a group of entities together with the kernel state
+ * that serves them, i.e. a clock, the future and deferred event queues, the wait predicates, the
+ * entities to run on the next tick and the event pools.
+ * <p>
+ * A sequential simulation has a single logical process. A parallel simulation has one per
+ * partition of the entities; each one is only ever touched by the thread that is currently
+ * advancing it, and the events it sends to the other processes wait in an outbox until the
+ * simulation hands them over between two synchronisation windows. Those events carry their own
+ * copy of the data (see {@link EventDataCopier}), so no mutable object is shared between two
+ * processes.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see Simulation#setLogicalProcess(int, int)
+ */
+final class LogicalProcess implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The maximal number of idle events and acknowledgement arrays kept for reuse. */
+	private static final int MAX_POOL_SIZE = 1 << 16;
+
+	/** The simulation. */
+	private final Simulation simulation;
+
+	/** The index of this process in the simulation. */
+	final int index;
+
+	/** The future event queue. */
+	final FutureQueue future;
+
+	/** The deferred event queue. */
+	final DeferredQueue deferred = new DeferredQueue();
+
+	/** The wait predicates of the entities of this process. */
+	final Map<Integer, Predicate> waitPredicates = new HashMap<Integer, Predicate>();
+
+	/** The clock of this process. */
+	double clock;
+
+	/**
+	 * The index of the clock tick being run among the ticks at the current clock, or <tt>-2</tt>
+	 * while the entities are started and <tt>-1</tt> until the first tick. Only used in parallel
+	 * runs.
+	 */
+	int round = -2;
+
+	/** The id of the entity being run, or <tt>-1</tt> when the kernel itself sends. */
+	int runner = -1;
+
+	/** The number of events processed. */
+	long numProcessedEvents;
+
+	/**
+	 * The smallest delay of the events sent to each process, indexed by process, or <tt>null</tt>
+	 * when the simulation runs sequentially.
+	 */
+	double[] lookahead;
+
+	/** The copier of the data sent to other processes, or <tt>null</tt> in sequential runs. */
+	transient EventDataCopier dataCopier;
+
+	/** The events sent to other processes since the last hand-over. */
+	final List<SimEvent> outbox = new ArrayList<SimEvent>();
+
+	/** The list reused to take the events with the same time from the future queue. */
+	private transient List<SimEvent> batch = new ArrayList<SimEvent>();
+
+	/** The idle events available for reuse. Pools are not serialised. */
+	private transient ArrayDeque<SimEvent> eventPool = new ArrayDeque<SimEvent>();
+
+	/** The idle acknowledgement arrays available for reuse. */
+	private transient ArrayDeque<int[]> ackPool = new ArrayDeque<int[]>();
+
+	/**
+	 * The ids of the entities that received an event or were released from holding since the last
+	 * tick. Only these entities are run on the next tick.
+	 */
+	private int[] readyIds = new int[16];
+
+	/** The number of valid entries in {@link #readyIds}. */
+	private int readyCount;
+
+	/** The ids already present in {@link #readyIds}. */
+	private final BitSet readySet = new BitSet();
+
+	/**
+	 * Creates a logical process.
+	 *
+	 * @param simulation the simulation
+	 * @param index the index of the process
+	 * @param eventQueue the storage engine of the future event queue
+	 */
+	LogicalProcess(Simulation simulation, int index, EventQueue eventQueue) {
+		this.simulation = simulation;
+		this.index = index;
+		future = new FutureQueue(eventQueue);
+	}
+
+	/**
+	 * Restores a serialised process with empty event pools.
+	 *
+	 * @param in the input stream
+	 * @throws IOException if the stream can't be read
+	 * @throws ClassNotFoundException if the class of a serialised object can't be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		batch = new ArrayList<SimEvent>();
+		eventPool = new ArrayDeque<SimEvent>();
+		ackPool = new ArrayDeque<int[]>();
+	}
+
+	/**
+	 * Queues an event sent from this process. In parallel runs, the position of the send in the
+	 * sequential execution order is recorded, and an event for another process goes to the outbox
+	 * with a copy of its data.
+	 *
+	 * @param e the event
+	 * @param first whether the event has priority over the events with the same time
+	 * @throws IllegalStateException if the event would reach another process sooner than the
+	 *             lookahead between the two processes
+	 */
+	void submit(SimEvent e, boolean first) {
+		if (lookahead == null) {
+			if (first) {
+				future.addEventFirst(e);
+			} else {
+				future.addEvent(e);
+			}
+			return;
+		}
+
+		e.setSendOrder(first, clock, round, runner);
+		int target = e.getType() == SimEvent.SEND ? simulation.getLogicalProcess(e.getDestination()) : index;
+		if (target == index) {
+			future.addEvent(e);
+			return;
+		}
+		if (e.eventTime() < clock + lookahead[target]) {
+			throw new IllegalStateException("Event " + e.getTag() + " from entity #" + e.getSource()
+					+ " to entity #" + e.getDestination() + " is delivered sooner than the lookahead of "
+					+ lookahead[target] + " between logical processes " + index + " and " + target + ".");
+		}
+		dataCopier.copyData(e);
+		outbox.add(e);
+	}
+
+	/**
+	 * Gets the time of the next event of this process.
+	 *
+	 * @return the time, or {@link Double#POSITIVE_INFINITY} if there is no future event
+	 */
+	double nextEventTime() {
+		SimEvent first = future.first();
+		return first == null ? Double.POSITIVE_INFINITY : first.eventTime();
+	}
+
+	/**
+	 * Runs the entities made ready by the previous tick, in id order as if all were scanned.
+	 */
+	void runReady() {
+		int readySize = readyCount;
+		Arrays.sort(readyIds, 0, readySize);
+		for (int i = 0; i < readySize; i++) {
+			int id = readyIds[i];
+			readySet.clear(id);
+			SimEntity ent = simulation.getEntity(id);
+			if (ent.getState() == SimEntity.RUNNABLE) {
+				runner = id;
+				ent.run();
+			}
+		}
+		runner = -1;
+		readyCount -= readySize;
+		System.arraycopy(readyIds, readySize, readyIds, 0, readyCount);
+	}
+
+	/**
+	 * Processes the first future event and all the following ones with the same time, taken from
+	 * the future queue in a single operation.
+	 */
+	void processNextEvents() {
+		future.pollFirstBatch(batch);
+		SimEvent first = batch.get(0);
+		// the events sent at this clock are served by the tick after the one of their sender
+		round = first.getSendTime() == first.eventTime() ? Math.max(0, first.getSendRound() + 1) : 0;
+		try {
+			for (int i = 0; i < batch.size(); i++) {
+				processEvent(batch.get(i));
+			}
+		} finally {
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Schedules an entity to be run on the next clock tick. Entities that are not marked stay idle,
+	 * so the cost of a tick depends on the number of active entities only.
+	 *
+	 * @param id the entity id
+	 */
+	void markReady(int id) {
+		if (readySet.get(id)) {
+			return;
+		}
+		readySet.set(id);
+		if (readyCount == readyIds.length) {
+			readyIds = Arrays.copyOf(readyIds, readyCount * 2);
+		}
+		readyIds[readyCount++] = id;
+	}
+
+	/**
+	 * Processes an event.
+	 *
+	 * @param e the e
+	 */
+	private void processEvent(SimEvent e) {
+		int dest, src;
+		SimEntity dest_ent;
+		// Update the system's clock
+		if (e.eventTime() < clock) {
+			throw new IllegalArgumentException("Past event detected.");
+		}
+		clock = e.eventTime();
+		numProcessedEvents++;
+
+		// Ok now process it
+		switch (e.getType()) {
+			case SimEvent.ENULL:
+				throw new IllegalArgumentException("Event has a null type.");
+
+			case SimEvent.CREATE:
+				SimEntity newe = (SimEntity) e.getData();
+				simulation.addEntityDynamically(newe);
+				recycle(e);
+				break;
+
+			case SimEvent.SEND:
+				// Check for matching wait
+				dest = e.getDestination();
+				if (dest < 0) {
+					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+				} else {
+					int tag = e.getTag();
+					dest_ent = simulation.getEntity(dest);
+					markReady(dest);
+					if (dest_ent.getState() == SimEntity.WAITING) {
+						Integer destObj = Integer.valueOf(dest);
+						Predicate p = waitPredicates.get(destObj);
+						if ((p == null) || (tag == 9999) || (p.match(e))) {
+							dest_ent.setEventBuffer(simulation.isEventPooling() ? e : (SimEvent) e.clone());
+							dest_ent.setState(SimEntity.RUNNABLE);
+							waitPredicates.remove(destObj);
+						} else {
+							deferred.addEvent(e);
+						}
+					} else {
+						deferred.addEvent(e);
+					}
+				}
+				break;
+
+			case SimEvent.HOLD_DONE:
+				src = e.getSource();
+				if (src < 0) {
+					throw new IllegalArgumentException("Null entity holding.");
+				} else {
+					simulation.getEntity(src).setState(SimEntity.RUNNABLE);
+					markReady(src);
+				}
+				recycle(e);
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	//
+	// Event pooling
+	//
+
+	/**
+	 * Gets an event, reusing an idle one if event pooling is enabled.
+	 *
+	 * @param evtype the internal event type
+	 * @param time the time at which event should occur
+	 * @param src the id of entity who scheduled the event
+	 * @param dest the id of entity the event will be sent to
+	 * @param tag the user defined type of the event
+	 * @param data the data the event is carrying
+	 * @return the event
+	 */
+	SimEvent newEvent(int evtype, double time, int src, int dest, int tag, Object data) {
+		SimEvent e = simulation.isEventPooling() ? eventPool.pollLast() : null;
+		if (e == null) {
+			return new SimEvent(evtype, time, src, dest, tag, data);
+		}
+		e.reset(evtype, time, src, dest, tag, data);
+		return e;
+	}
+
+	/**
+	 * Gets an acknowledgement array <tt>{sender, id, value}</tt>, reusing an idle one if event
+	 * pooling is enabled.
+	 *
+	 * @param sender the id of the entity sending the acknowledgement
+	 * @param id the id of the acknowledged object
+	 * @param value the acknowledged value
+	 * @return the array
+	 */
+	int[] newAckData(int sender, int id, int value) {
+		int[] data = simulation.isEventPooling() ? ackPool.pollLast() : null;
+		if (data == null) {
+			data = new int[3];
+		}
+		data[0] = sender;
+		data[1] = id;
+		data[2] = value;
+		return data;
+	}
+
+	/**
+	 * Hands a processed event back to the pool. Does nothing unless event pooling is enabled.
+	 *
+	 * @param e the event
+	 */
+	void recycle(SimEvent e) {
+		if (!simulation.isEventPooling()) {
+			return;
+		}
+		if (e.isRecycled()) {
+			throw new IllegalStateException("Event recycled twice: it was retained and processed again.");
+		}
+
+		if (simulation.isEventPoolingDebug()) {
+			e.markRecycled();
+			return;
+		}
+
+		if (e.hasPooledData() && ackPool.size() < MAX_POOL_SIZE) {
+			ackPool.addLast((int[]) e.getData());
+		}
+		e.markRecycled();
+		if (eventPool.size() < MAX_POOL_SIZE) {
+			eventPool.addLast(e);
+		}
+	}
+
+}
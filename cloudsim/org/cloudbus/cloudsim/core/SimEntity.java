@@ -8,6 +8,10 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.NetworkTopology;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
@@ -24,11 +28,15 @@ import org.cloudbus.cloudsim.core.predicates.Predicate;
  * finishes. If you want to save data in log files this is the method in which the corresponding
  * code would be placed.
  * </ul>
+ * An entity belongs to the {@link Simulation} bound to the thread that creates it and sends all
+ * its events through that simulation.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  */
-public abstract class SimEntity implements Cloneable {
+public abstract class SimEntity implements Cloneable, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** The name. */
 	private String name;
@@ -39,9 +47,21 @@ public abstract class SimEntity implements Cloneable {
 	/** The buffer for selected incoming events. */
 	private SimEvent evbuf;
 
+	/**
+	 * Whether the events waiting for this entity are handed over all at once to
+	 * {@link #processEvents(List)}.
+	 */
+	private boolean batchProcessing;
+
+	/** The list reused to hand over the events in batch processing mode. */
+	private transient List<SimEvent> batch;
+
 	/** The entity's current state. */
 	private int state;
 
+	/** The simulation this entity belongs to. */
+	private final Simulation simulation;
+
 	/**
 	 * Creates a new entity.
 	 * 
@@ -54,7 +74,8 @@ public abstract class SimEntity implements Cloneable {
 		this.name = name;
 		id = -1;
 		state = RUNNABLE;
-		CloudSim.addEntity(this);
+		simulation = CloudSim.getSimulation();
+		simulation.addEntity(this);
 	}
 
 	/**
@@ -66,6 +87,15 @@ public abstract class SimEntity implements Cloneable {
 		return name;
 	}
 
+	/**
+	 * Get the simulation this entity belongs to, i.e. the one bound to the thread that created it.
+	 * 
+	 * @return the simulation
+	 */
+	public Simulation getSimulation() {
+		return simulation;
+	}
+
 	/**
 	 * Get the unique id number assigned to this entity.
 	 * 
@@ -87,10 +117,27 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.send(id, dest, delay, tag, data);
+		simulation.send(id, dest, delay, tag, data);
+	}
+
+	/**
+	 * Send an event to another entity by id number, with data, and keep a handle to cancel it. This
+	 * is cheaper than {@link #cancelEvent(Predicate)} for timers that are frequently rescheduled.
+	 * 
+	 * @param dest The unique id number of the destination entity
+	 * @param delay How long from the current simulation time the event should be sent
+	 * @param tag An user-defined number representing the type of event.
+	 * @param data The data to be sent with the event.
+	 * @return the cancellation handle, or <tt>null</tt> if the simulation is not running
+	 */
+	public EventHandle scheduleCancellable(int dest, double delay, int tag, Object data) {
+		if (!simulation.running()) {
+			return null;
+		}
+		return simulation.sendCancellable(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -115,7 +162,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(String dest, double delay, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), delay, tag, data);
+		schedule(simulation.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -162,7 +209,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleNow(String dest, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), 0, tag, data);
+		schedule(simulation.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -186,10 +233,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.sendFirst(id, dest, delay, tag, data);
+		simulation.sendFirst(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -214,7 +261,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(String dest, double delay, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), delay, tag, data);
+		scheduleFirst(simulation.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -261,7 +308,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirstNow(String dest, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), 0, tag, data);
+		scheduleFirst(simulation.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -284,10 +331,10 @@ public abstract class SimEntity implements Cloneable {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Negative delay supplied.");
 		}
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.pause(id, delay);
+		simulation.pause(id, delay);
 	}
 
 	/**
@@ -297,7 +344,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of matching events
 	 */
 	public int numEventsWaiting(Predicate p) {
-		return CloudSim.waiting(id, p);
+		return simulation.waiting(id, p);
 	}
 
 	/**
@@ -306,7 +353,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of events
 	 */
 	public int numEventsWaiting() {
-		return CloudSim.waiting(id, CloudSim.SIM_ANY);
+		return simulation.waiting(id, CloudSim.SIM_ANY);
 	}
 
 	/**
@@ -316,25 +363,25 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent selectEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
 
-		return CloudSim.select(id, p);
+		return simulation.select(id, p);
 	}
 
 	/**
 	 * Cancel the first event matching a predicate waiting in the entity's future queue.
 	 * 
 	 * @param p The event selection predicate
-	 * @return The number of events cancelled (0 or 1)
+	 * @return the cancelled event, or <tt>null</tt> if no event matches
 	 */
 	public SimEvent cancelEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
 
-		return CloudSim.cancel(id, p);
+		return simulation.cancel(id, p);
 	}
 
 	/**
@@ -345,13 +392,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent getNextEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
-		if (numEventsWaiting(p) > 0) {
-			return selectEvent(p);
-		}
-		return null;
+		return selectEvent(p);
 	}
 
 	/**
@@ -361,11 +405,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @param p The predicate to match
 	 */
 	public void waitForEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
 
-		CloudSim.wait(id, p);
+		simulation.wait(id, p);
 		state = WAITING;
 	}
 
@@ -393,6 +437,25 @@ public abstract class SimEntity implements Cloneable {
 	 */
 	public abstract void processEvent(SimEvent ev);
 
+	/**
+	 * This method is invoked by the {@link Simulation} class instead of
+	 * {@link #processEvent(SimEvent)} when batch processing is enabled. The list holds the event
+	 * that woke the entity up, if any, followed by all its deferred events in time order; events
+	 * received at the same time therefore arrive together, e.g. a burst of cloudlet submissions. By
+	 * default the events are processed one by one.
+	 * <p>
+	 * Neither the list nor, when event pooling is enabled, the events may be retained after this
+	 * method returns.
+	 * 
+	 * @param events the events to be processed by the entity
+	 * @see #setBatchProcessing(boolean)
+	 */
+	public void processEvents(List<SimEvent> events) {
+		for (SimEvent ev : events) {
+			processEvent(ev);
+		}
+	}
+
 	/**
 	 * This method is invoked by the {@link Simulation} before the simulation finishes. If you want
 	 * to save data in log files this is the method in which the corresponding code would be placed.
@@ -400,10 +463,16 @@ public abstract class SimEntity implements Cloneable {
 	public abstract void shutdownEntity();
 
 	public void run() {
+		if (batchProcessing) {
+			runBatch();
+			return;
+		}
+
 		SimEvent ev = evbuf != null ? evbuf : getNextEvent();
 
 		while (ev != null) {
 			processEvent(ev);
+			simulation.recycle(ev);
 			if (state != RUNNABLE) {
 				break;
 			}
@@ -414,6 +483,34 @@ public abstract class SimEntity implements Cloneable {
 		evbuf = null;
 	}
 
+	/**
+	 * Hands the buffered event and all the deferred events over to {@link #processEvents(List)}.
+	 */
+	private void runBatch() {
+		if (batch == null) {
+			batch = new ArrayList<SimEvent>();
+		}
+		if (evbuf != null) {
+			batch.add(evbuf);
+			evbuf = null;
+		}
+		if (simulation.running()) {
+			simulation.selectAll(id, batch);
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		try {
+			processEvents(batch);
+		} finally {
+			for (SimEvent ev : batch) {
+				simulation.recycle(ev);
+			}
+			batch.clear();
+		}
+	}
+
 	/**
 	 * Get a clone of the entity. This is used when independent replications have been specified as
 	 * an output analysis method. Clones or backups of the entities are made in the beginning of the
@@ -428,6 +525,7 @@ public abstract class SimEntity implements Cloneable {
 		SimEntity copy = (SimEntity) super.clone();
 		copy.setName(name);
 		copy.setEventBuffer(null);
+		copy.batch = null;
 		return copy;
 	}
 
@@ -452,6 +550,27 @@ public abstract class SimEntity implements Cloneable {
 		return state;
 	}
 
+	/**
+	 * Sets whether the events waiting for this entity are handed over all at once to
+	 * {@link #processEvents(List)} rather than one by one to {@link #processEvent(SimEvent)}. An
+	 * entity that inspects its deferred queue while processing an event, e.g. with
+	 * {@link CloudSim#findFirstDeferred}, should keep the default.
+	 * 
+	 * @param batchProcessing true to enable batch processing
+	 */
+	protected void setBatchProcessing(boolean batchProcessing) {
+		this.batchProcessing = batchProcessing;
+	}
+
+	/**
+	 * Checks whether the events are handed over all at once to {@link #processEvents(List)}.
+	 * 
+	 * @return true, if batch processing is enabled
+	 */
+	protected boolean isBatchProcessing() {
+		return batchProcessing;
+	}
+
 	/**
 	 * Gets the event buffer.
 	 * 
@@ -544,6 +663,46 @@ public abstract class SimEntity implements Cloneable {
 		schedule(entityId, delay, cloudSimTag, data);
 	}
 
+	/**
+	 * Sends an acknowledgement <tt>int[] {getId(), id, value}</tt> to another entity, with the
+	 * same delay rules as {@link #send(int, double, int, Object)}. When event pooling is enabled
+	 * the array is taken from, and returned to, the simulation's pool, so the receiver must not
+	 * retain it beyond {@link #processEvent(SimEvent)}.
+	 * 
+	 * @param entityId the id number of the destination entity
+	 * @param delay how long from the current simulation time the event should be sent. If delay is
+	 *            a negative number, then it will be changed to 0
+	 * @param cloudSimTag an user-defined number representing the type of an event/message
+	 * @param id the id of the acknowledged object
+	 * @param value the acknowledged value
+	 * @pre entityID > 0
+	 * @pre delay >= 0.0
+	 * @post $none
+	 */
+	protected void sendAck(int entityId, double delay, int cloudSimTag, int id, int value) {
+		if (entityId < 0) {
+			return;
+		}
+
+		if (delay < 0) {
+			delay = 0;
+		}
+
+		if (Double.isInfinite(delay)) {
+			throw new IllegalArgumentException("The specified delay is infinite value");
+		}
+
+		int srcId = getId();
+		if (entityId != srcId) {// does not delay self messages
+			delay += getNetworkDelay(srcId, entityId);
+		}
+
+		if (!simulation.running()) {
+			return;
+		}
+		simulation.send(srcId, entityId, delay, cloudSimTag, simulation.newAckData(srcId, id, value), true);
+	}
+
 	/**
 	 * Sends an event/message to another entity by <tt>delaying</tt> the simulation time from the
 	 * current time, with a tag representing the event type.
@@ -575,7 +734,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @post $none
 	 */
 	protected void send(String entityName, double delay, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), delay, cloudSimTag, data);
+		send(simulation.getEntityId(entityName), delay, cloudSimTag, data);
 	}
 
 	/**
@@ -643,7 +802,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @post $none
 	 */
 	protected void sendNow(String entityName, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), 0, cloudSimTag, data);
+		send(simulation.getEntityId(entityName), 0, cloudSimTag, data);
 	}
 
 	/**
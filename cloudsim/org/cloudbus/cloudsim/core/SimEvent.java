@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.io.Serializable;
+
 /**
  * This class represents a simulation event which is passed between the entities in the simulation.
  * 
@@ -15,13 +17,15 @@ package org.cloudbus.cloudsim.core;
  * @see Simulation
  * @see SimEntity
  */
-public class SimEvent implements Cloneable, Comparable<SimEvent> {
+public class SimEvent implements Cloneable, Comparable<SimEvent>, Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/** internal event type **/
-	private final int etype;
+	private int etype;
 
 	/** time at which event should occur **/
-	private final double time;
+	private double time;
 
 	/** time that the event was removed from the queue for service **/
 	private double endWaitingTime;
@@ -33,13 +37,42 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	private int entDst;
 
 	/** the user defined type of the event **/
-	private final int tag;
+	private int tag;
 
 	/** any data the event is carrying **/
-	private final Object data;
+	private Object data;
 
 	private long serial = -1;
 
+	/** whether the event has been handed back to the event pool of its simulation **/
+	private boolean recycled;
+
+	/** whether {@link #data} is an acknowledgement array borrowed from the event pool **/
+	private boolean pooledData;
+
+	/** whether the event is pending in a future queue; maintained by {@link FutureQueue} **/
+	boolean queued;
+
+	/** neighbours in the (source, tag) index of the future queue; maintained by {@link FutureQueue} **/
+	transient SimEvent indexPrev;
+
+	transient SimEvent indexNext;
+
+	/**
+	 * The position of the send in the sequential execution order, used by the parallel kernel to
+	 * order events with the same time exactly as the sequential kernel does: whether the event was
+	 * sent first, the clock, the clock tick and the running entity at the time of the send. The
+	 * sequential kernel only sets whether the event was sent first and relies on the serial for the
+	 * rest.
+	 **/
+	private boolean sentFirst;
+
+	private double sendTime;
+
+	private int sendRound;
+
+	private int sender;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -82,10 +115,154 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		data = null;
 	}
 
+	/**
+	 * Re-initialises a recycled event so that it can be sent again.
+	 * 
+	 * @param evtype the internal event type
+	 * @param time the time at which event should occur
+	 * @param src the id of entity who scheduled the event
+	 * @param dest the id of entity the event will be sent to
+	 * @param tag the user defined type of the event
+	 * @param edata the data the event is carrying
+	 */
+	void reset(int evtype, double time, int src, int dest, int tag, Object edata) {
+		etype = evtype;
+		this.time = time;
+		endWaitingTime = -1.0;
+		entSrc = src;
+		entDst = dest;
+		this.tag = tag;
+		data = edata;
+		serial = -1;
+		recycled = false;
+		pooledData = false;
+		sentFirst = false;
+		sendTime = 0;
+		sendRound = 0;
+		sender = 0;
+	}
+
+	/**
+	 * Records the position of the send in the sequential execution order. Only used by the
+	 * parallel kernel.
+	 * 
+	 * @param sentFirst whether the event was sent with priority in the queue
+	 * @param sendTime the clock of the sender
+	 * @param sendRound the number of clock ticks already run at that clock
+	 * @param sender the id of the entity that was running, or <tt>-1</tt> for the kernel
+	 */
+	void setSendOrder(boolean sentFirst, double sendTime, int sendRound, int sender) {
+		this.sentFirst = sentFirst;
+		this.sendTime = sendTime;
+		this.sendRound = sendRound;
+		this.sender = sender;
+	}
+
+	/**
+	 * Sets whether the event has priority over the events with the same time that do not.
+	 * 
+	 * @param sentFirst the flag
+	 */
+	void setSentFirst(boolean sentFirst) {
+		this.sentFirst = sentFirst;
+	}
+
+	/**
+	 * Checks whether the event has priority over the events with the same time that do not.
+	 * 
+	 * @return true, if the event was sent first
+	 */
+	boolean isSentFirst() {
+		return sentFirst;
+	}
+
+	/**
+	 * Marks the event as handed back to the event pool. Any later access to the event, through a
+	 * reference retained after {@link SimEntity#processEvent(SimEvent)} returned, fails.
+	 */
+	void markRecycled() {
+		recycled = true;
+		data = null;
+	}
+
+	/**
+	 * Checks whether the event has been handed back to the event pool.
+	 * 
+	 * @return true, if recycled
+	 */
+	boolean isRecycled() {
+		return recycled;
+	}
+
+	/**
+	 * Replaces the data the event is carrying.
+	 * 
+	 * @param data the data
+	 */
+	void setData(Object data) {
+		this.data = data;
+	}
+
+	/**
+	 * Sets whether the data of the event is an array borrowed from the event pool.
+	 * 
+	 * @param pooledData the flag
+	 */
+	void setPooledData(boolean pooledData) {
+		this.pooledData = pooledData;
+	}
+
+	/**
+	 * Checks whether the data of the event is an array borrowed from the event pool.
+	 * 
+	 * @return true, if the data is pooled
+	 */
+	boolean hasPooledData() {
+		return pooledData;
+	}
+
+	/**
+	 * Fails if the event has been recycled.
+	 */
+	private void checkNotRecycled() {
+		if (recycled) {
+			throw new IllegalStateException("Access to a recycled event. Events must not be retained after "
+					+ "SimEntity.processEvent() returns when event pooling is enabled.");
+		}
+	}
+
 	protected void setSerial(long serial) {
 		this.serial = serial;
 	}
 
+	/**
+	 * Gets the clock of the sender, as recorded by {@link #setSendOrder(boolean, double, int, int)}.
+	 * 
+	 * @return the send time
+	 */
+	double getSendTime() {
+		return sendTime;
+	}
+
+	/**
+	 * Gets the clock tick of the sender, as recorded by
+	 * {@link #setSendOrder(boolean, double, int, int)}.
+	 * 
+	 * @return the send round
+	 */
+	int getSendRound() {
+		return sendRound;
+	}
+
+	/**
+	 * Gets the serial number used to order events with the same time.
+	 * 
+	 * @return the serial
+	 */
+	long getSerial() {
+		return serial;
+	}
+
 	/**
 	 * Used to set the time at which this event finished waiting in the event
 	 * 
@@ -107,6 +284,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return
 	 */
 	public int getType() {
+		checkNotRecycled();
 		return etype;
 	}
 
@@ -123,6 +301,14 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 			return -1;
 		} else if (time > event.time) {
 			return 1;
+		} else if (sentFirst != event.sentFirst) {
+			return sentFirst ? -1 : 1;
+		} else if (sendTime != event.sendTime) {
+			return sendTime < event.sendTime ? -1 : 1;
+		} else if (sendRound != event.sendRound) {
+			return sendRound < event.sendRound ? -1 : 1;
+		} else if (sender != event.sender) {
+			return sender < event.sender ? -1 : 1;
 		} else if (serial < event.serial) {
 			return -1;
 		} else if (this == event) {
@@ -138,6 +324,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return the id number
 	 */
 	public int getDestination() {
+		checkNotRecycled();
 		return entDst;
 	}
 
@@ -147,6 +334,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return the id number
 	 */
 	public int getSource() {
+		checkNotRecycled();
 		return entSrc;
 	}
 
@@ -156,6 +344,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return The simulation time
 	 */
 	public double eventTime() {
+		checkNotRecycled();
 		return time;
 	}
 
@@ -174,6 +363,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return The tag
 	 */
 	public int type() {
+		checkNotRecycled();
 		return tag;
 	}
 
@@ -183,6 +373,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return the id number
 	 */
 	public int scheduledBy() {
+		checkNotRecycled();
 		return entSrc;
 	}
 
@@ -192,6 +383,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return The tag
 	 */
 	public int getTag() {
+		checkNotRecycled();
 		return tag;
 	}
 
@@ -201,6 +393,7 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 	 * @return A reference to the data
 	 */
 	public Object getData() {
+		checkNotRecycled();
 		return data;
 	}
 
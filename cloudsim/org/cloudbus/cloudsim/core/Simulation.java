@@ -0,0 +1,1824 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.NetworkTopology;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * A simulation context. It owns all the state of a simulation run: the clock, the entities, the
+ * future and deferred event queues, the wait predicates, the Cloud Information Service, the network
+ * topology and the log settings.
+ * <p>
+ * The static methods of {@link CloudSim} are a facade over the context bound to the calling thread
+ * (see {@link CloudSim#getSimulation()}), so existing simulations keep working unchanged, while
+ * independent simulations can run concurrently on separate threads. An entity is bound to the
+ * context that was current when it was created and always sends its events through it.
+ * <p>
+ * A context can be reused: {@link #init(int, Calendar, boolean)} resets the kernel state but keeps
+ * the network topology and the log settings, as the former static implementation did.
+ * <p>
+ * The clock and the event queues belong to {@link LogicalProcess logical processes}. A simulation
+ * has one unless its entities are split with {@link #setLogicalProcess(int, int)}, in which case
+ * the processes are advanced in parallel.
+ * <p>
+ * A sequential simulation can be saved to a checkpoint file between two clock ticks, see
+ * {@link #checkpointSimulation(double, String)}, and resumed later, possibly in another JVM, with
+ * {@link #restoreCheckpoint(String)}. The checkpoint holds the whole context, entities included,
+ * so every object reachable from an entity or an event has to be serializable. Static state, such
+ * as the {@link org.cloudbus.cloudsim.Log} settings, is not saved.
+ * 
+ * @author Rodrigo N. Calheiros
+ * @author Anton Beloglazov
+ * @since CloudSim Toolkit 1.0
+ * @see CloudSim
+ */
+public class Simulation implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The Constant CLOUDSIM_VERSION_STRING. */
+	private static final String CLOUDSIM_VERSION_STRING = "3.0";
+
+	/** The first record of a checkpoint file. */
+	private static final String CHECKPOINT_HEADER = "CloudSim checkpoint " + CLOUDSIM_VERSION_STRING;
+
+	/** The id of CIS entity. */
+	private int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	@SuppressWarnings("unused")
+	private int shutdownId = -1;
+
+	/** The CIS object. */
+	private CloudInformationService cis = null;
+
+	/** The Constant NOT_FOUND. */
+	private static final int NOT_FOUND = -1;
+
+	/** The trace flag. */
+	@SuppressWarnings("unused")
+	private boolean traceFlag = false;
+
+	/** The calendar. */
+	private Calendar calendar = null;
+
+	/** The termination time. */
+	private double terminateAt = -1;
+
+	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
+	private double minTimeBetweenEvents = 0.1;
+
+	/** The network topology of this simulation. */
+	private final NetworkTopology.Topology networkTopology = new NetworkTopology.Topology();
+
+	/** The log output of this simulation, or <tt>null</tt> if not set yet. Not checkpointed. */
+	private transient OutputStream logOutput;
+
+	/** The disable log output flag of this simulation. */
+	private boolean logDisabled;
+	
+	/**
+	 * Initialises all the common attributes.
+	 * 
+	 * @param _calendar the _calendar
+	 * @param _traceFlag the _trace flag
+	 * @param numUser number of users
+	 * @param eventQueue the storage engine of the future event queue
+	 * @throws Exception This happens when creating this entity before initialising CloudSim package
+	 *             or this entity name is <tt>null</tt> or empty
+	 * @pre $none
+	 * @post $none
+	 */
+	private void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser,
+			EventQueue eventQueue) throws Exception {
+		initialize(eventQueue);
+		// NOTE: the order for the below 3 lines are important
+		traceFlag = _traceFlag;
+
+		// Set the current Wall clock time as the starting time of
+		// simulation
+		if (_calendar == null) {
+			calendar = Calendar.getInstance();
+		} else {
+			calendar = _calendar;
+		}
+
+		// creates a CloudSimShutdown object
+		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
+		shutdownId = shutdown.getId();
+	}
+
+	/**
+	 * Initialises CloudSim parameters. This method should be called before creating any entities.
+	 * <p>
+	 * Inside this method, it will create the following CloudSim entities:
+	 * <ul>
+	 * <li>CloudInformationService.
+	 * <li>CloudSimShutdown
+	 * </ul>
+	 * <p>
+	 * 
+	 * @param numUser the number of User Entities created. This parameters indicates that
+	 *            {@link gridsim.CloudSimShutdown} first waits for all user entities's
+	 *            END_OF_SIMULATION signal before issuing terminate signal to other entities
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @see gridsim.CloudSimShutdown
+	 * @see CloudInformationService.CloudInformationService
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag) {
+		init(numUser, cal, traceFlag, new TreeEventQueue());
+	}
+
+	/**
+	 * Initialises CloudSim parameters using a given storage engine for the future event queue. This
+	 * method should be called before creating any entities.
+	 * <p>
+	 * The default engine, {@link TreeEventQueue}, pays O(log n) for every event sent. Simulations
+	 * that keep millions of events pending can use a {@link CalendarEventQueue} instead, whose
+	 * insertion and removal costs are amortised O(1). Both engines deliver events in the same
+	 * order.
+	 * 
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param eventQueue an empty engine to store the future events
+	 * @see #init(int, Calendar, boolean)
+	 * @pre numUser >= 0
+	 * @pre eventQueue != null
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, EventQueue eventQueue) {
+		// entities created from now on on this thread belong to this simulation
+		CloudSim.setSimulation(this);
+		try {
+			initCommonVariable(cal, traceFlag, numUser, eventQueue);
+
+			// create a GIS object
+			cis = new CloudInformationService("CloudInformationService");
+
+			// set all the above entity IDs
+			cisId = cis.getId();
+		} catch (IllegalArgumentException s) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(s.getMessage());
+		} catch (Exception e) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(e.getMessage());
+		}
+	}
+
+	/**
+	 * Initialises CloudSim parameters. This method should be called before creating any entities.
+	 * <p>
+	 * Inside this method, it will create the following CloudSim entities:
+	 * <ul>
+	 * <li>CloudInformationService.
+	 * <li>CloudSimShutdown
+	 * </ul>
+	 * <p>
+	 * 
+	 * @param numUser the number of User Entities created. This parameters indicates that
+	 *            {@link gridsim.CloudSimShutdown} first waits for all user entities's
+	 *            END_OF_SIMULATION signal before issuing terminate signal to other entities
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param periodBetweenEvents - the minimal period between events. Events within shorter periods
+	 * after the last event are discarded.
+	 * @see gridsim.CloudSimShutdown
+	 * @see CloudInformationService.CloudInformationService
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
+	    if (periodBetweenEvents <= 0) {
+		throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
+	    }
+	    
+	    init(numUser, cal, traceFlag);
+	    minTimeBetweenEvents = periodBetweenEvents;
+	}
+	
+	
+	
+	/**
+	 * Starts the execution of CloudSim simulation. It waits for complete execution of all entities,
+	 * i.e. until all entities threads reach non-RUNNABLE state or there are no more events in the
+	 * future event queue.
+	 * <p>
+	 * <b>Note</b>: This method should be called after all the entities have been setup and added.
+	 * 
+	 * @return the double
+	 * @throws NullPointerException This happens when creating this entity before initialising
+	 *             CloudSim package or this entity name is <tt>null</tt> or empty.
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean)
+	 * @pre $none
+	 * @post $none
+	 */
+	public double startSimulation() throws NullPointerException {
+		CloudSim.setSimulation(this);
+		Log.printLine("Starting CloudSim version " + CLOUDSIM_VERSION_STRING);
+		try {
+			double clock = run();
+
+			// reset all the simulation variables
+			cisId = -1;
+			shutdownId = -1;
+			cis = null;
+			calendar = null;
+			traceFlag = false;
+
+			return clock;
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+			throw new NullPointerException("CloudSim.startCloudSimulation() :"
+					+ " Error - you haven't initialized CloudSim.");
+		}
+	}
+
+	/**
+	 * Stops Cloud Simulation (based on {@link Simulation#runStop()}). This should be only called if
+	 * any of the user defined entities <b>explicitly</b> want to terminate simulation during
+	 * execution.
+	 * 
+	 * @throws NullPointerException This happens when creating this entity before initialising
+	 *             CloudSim package or this entity name is <tt>null</tt> or empty
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean)
+	 * @see Simulation#runStop()
+	 * @pre $none
+	 * @post $none
+	 */
+	public void stopSimulation() throws NullPointerException {
+		try {
+			runStop();
+		} catch (IllegalArgumentException e) {
+			throw new NullPointerException("CloudSim.stopCloudSimulation() : "
+					+ "Error - can't stop Cloud Simulation.");
+		}
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation.
+	 * 
+	 * @return true, if successful; false otherwise.
+	 */
+	public boolean terminateSimulation() {
+		running = false;
+		printMessage("Simulation: Reached termination time.");
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation at a given time.
+	 * 
+	 * @param time the time at which the simulation has to be terminated
+	 * @return true, if successful otherwise.
+	 */
+	public boolean terminateSimulation(double time) {
+		if (time <= clock()) {
+			return false;
+		} else {
+			terminateAt = time;
+		}
+		return true;
+	}
+
+	
+	/**
+	 * Returns the minimum time between events. Events within shorter periods after the last event are discarded. 
+	 * @return the minimum time between events.
+	 */
+	public double getMinTimeBetweenEvents() {
+	    return minTimeBetweenEvents;
+	}
+
+	/**
+	 * Gets a new copy of initial simulation Calendar.
+	 * 
+	 * @return a new copy of Calendar object or if CloudSim hasn't been initialized
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean, String[], String[], String)
+	 * @see gridsim.CloudSim#init(int, Calendar, boolean)
+	 * @pre $none
+	 * @post $none
+	 */
+	public Calendar getSimulationCalendar() {
+		// make a new copy
+		Calendar clone = calendar;
+		if (calendar != null) {
+			clone = (Calendar) calendar.clone();
+		}
+
+		return clone;
+	}
+
+	/**
+	 * Gets the entity ID of <tt>CloudInformationService</tt>.
+	 * 
+	 * @return the Entity ID or if it is not found
+	 * @pre $none
+	 * @post $result >= -1
+	 */
+	public int getCloudInfoServiceEntityId() {
+		return cisId;
+	}
+
+	/**
+	 * Sends a request to Cloud Information Service (GIS) entity to get the list of all Cloud
+	 * hostList.
+	 * 
+	 * @return A List containing CloudResource ID (as an Integer object) or if a CIS entity hasn't
+	 *         been created before
+	 * @pre $none
+	 * @post $none
+	 */
+	public List<Integer> getCloudResourceList() {
+		if (cis == null) {
+			return null;
+		}
+
+		return cis.getList();
+	}
+
+	// ======== SIMULATION METHODS ===============//
+
+	/** The entities. */
+	private List<SimEntity> entities;
+
+	/**
+	 * The logical processes that own the clock and the event queues. A sequential simulation has a
+	 * single one.
+	 */
+	private LogicalProcess[] processes;
+
+	/** The logical process of each entity, indexed by entity id. Entities not listed belong to 0. */
+	private int[] entityProcess = new int[0];
+
+	/** Flag for checking if the logical processes are advanced in parallel. */
+	private boolean parallel;
+
+	/** The number of threads of a parallel run, or 0 for one per available processor. */
+	private int parallelism = 0;
+
+	/** The logical process advanced by each thread of a parallel run. */
+	private transient ThreadLocal<LogicalProcess> boundProcess = new ThreadLocal<LogicalProcess>();
+
+	/** Whether the future events are stored in a {@link CalendarEventQueue}. */
+	private boolean calendarEngine;
+
+	/** Flag for checking if the simulation is running. */
+	private boolean running;
+
+	/** The entities by name. */
+	private Map<String, SimEntity> entitiesByName;
+
+	/** The paused. */
+	private boolean paused = false;
+
+	/** The pause at. */
+	private long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	private boolean abruptTerminate = false;
+
+	/** The time after which a checkpoint is written, or <tt>-1</tt> if none is scheduled. */
+	private double checkpointAt = -1;
+
+	/** The name of the file the scheduled checkpoint is written to. */
+	private String checkpointFile;
+
+	/** The number of events processed by the last simulation, once it has finished. */
+	private long numProcessedEvents;
+
+	/** Flag for recycling events once they have been processed. */
+	private boolean eventPooling = false;
+
+	/** Flag for detecting events retained after being recycled, instead of reusing them. */
+	private boolean eventPoolingDebug = false;
+
+	/**
+	 * Initialise the simulation for stand alone simulations. This function should be called at the
+	 * start of the simulation.
+	 */
+	protected void initialize() {
+		initialize(new TreeEventQueue());
+	}
+
+	/**
+	 * Initialise the simulation for stand alone simulations, storing the future events in a given
+	 * engine. This function should be called at the start of the simulation.
+	 *
+	 * @param eventQueue the storage engine of the future event queue
+	 */
+	protected void initialize(EventQueue eventQueue) {
+		Log.printLine("Initialising...");
+		entities = new ArrayList<SimEntity>();
+		entitiesByName = new LinkedHashMap<String, SimEntity>();
+		processes = new LogicalProcess[] { new LogicalProcess(this, 0, eventQueue) };
+		entityProcess = new int[0];
+		parallel = false;
+		calendarEngine = eventQueue instanceof CalendarEventQueue;
+		numProcessedEvents = 0;
+		running = false;
+	}
+
+	/**
+	 * Gets the logical process whose entity is running on the calling thread.
+	 *
+	 * @return the logical process
+	 */
+	private LogicalProcess process() {
+		if (!parallel) {
+			return processes[0];
+		}
+		LogicalProcess bound = boundProcess.get();
+		return bound != null ? bound : processes[0];
+	}
+
+	/**
+	 * Gets the logical process that owns an entity.
+	 *
+	 * @param id the entity id
+	 * @return the logical process
+	 */
+	private LogicalProcess processOf(int id) {
+		return parallel ? processes[getLogicalProcess(id)] : processes[0];
+	}
+
+	// Public access methods
+
+	/**
+	 * Get the current simulation time. In a parallel run, this is the clock of the logical process
+	 * of the entity being run, or the latest clock of all the processes outside the entities.
+	 *
+	 * @return the simulation time
+	 */
+	public double clock() {
+		if (processes == null) {
+			return 0;
+		}
+		if (parallel && boundProcess.get() == null) {
+			double latest = 0;
+			for (LogicalProcess lp : processes) {
+				latest = Math.max(latest, lp.clock);
+			}
+			return latest;
+		}
+		return process().clock;
+	}
+
+	/**
+	 * Get the current number of entities in the simulation.
+	 *
+	 * @return The number of entities
+	 */
+	public int getNumEntities() {
+		return entities.size();
+	}
+
+	/**
+	 * Get the number of events processed since the simulation was initialised. The count is kept
+	 * after the simulation finishes, until the next initialisation.
+	 *
+	 * @return The number of processed events
+	 */
+	public long getNumProcessedEvents() {
+		if (processes == null) {
+			return numProcessedEvents;
+		}
+		long count = 0;
+		for (LogicalProcess lp : processes) {
+			count += lp.numProcessedEvents;
+		}
+		return count;
+	}
+
+	/**
+	 * Get the entity with a given id.
+	 *
+	 * @param id the entity's unique id number
+	 * @return The entity, or if it could not be found
+	 */
+	public SimEntity getEntity(int id) {
+		return entities.get(id);
+	}
+
+	/**
+	 * Get the entity with a given name.
+	 *
+	 * @param name The entity's name
+	 * @return The entity
+	 */
+	public SimEntity getEntity(String name) {
+		return entitiesByName.get(name);
+	}
+
+	/**
+	 * Get the id of an entity with a given name.
+	 *
+	 * @param name The entity's name
+	 * @return The entity's unique id number
+	 */
+	public int getEntityId(String name) {
+		SimEntity obj = entitiesByName.get(name);
+		if (obj == null) {
+			return NOT_FOUND;
+		} else {
+			return obj.getId();
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 *
+	 * @param entityID the entity ID
+	 * @return the Entity name or if this object does not have one
+	 * @pre entityID > 0
+	 * @post $none
+	 */
+	public String getEntityName(int entityID) {
+		try {
+			return getEntity(entityID).getName();
+		} catch (IllegalArgumentException e) {
+			return null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 *
+	 * @param entityID the entity ID
+	 * @return the Entity name or if this object does not have one
+	 * @pre entityID > 0
+	 * @post $none
+	 */
+	public String getEntityName(Integer entityID) {
+		if (entityID != null) {
+			return getEntityName(entityID.intValue());
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a list of entities created for the simulation.
+	 *
+	 * @return the entity iterator
+	 */
+	public List<SimEntity> getEntityList() {
+		// create a new list to prevent the user from changing
+		// the list of entities used by Simulation
+		List<SimEntity> list = new LinkedList<SimEntity>();
+		list.addAll(entities);
+		return list;
+	}
+
+	// Parallel execution
+
+	/**
+	 * Assigns an entity to a logical process. When entities are assigned to more than one logical
+	 * process, {@link #run()} advances the processes concurrently with a conservative
+	 * synchronisation protocol, and delivers every event in the same order as the sequential
+	 * kernel.
+	 * <p>
+	 * The lookahead between two processes is the smallest network delay
+	 * ({@link NetworkTopology#getDelay(int, int)}) between their entities, i.e. the delay that
+	 * {@link SimEntity#send(int, double, int, Object)} adds to the events they exchange. A process
+	 * runs ahead of the others in windows bounded by the earliest time an event from another
+	 * process can reach it; when no process can do so, the processes holding the earliest events
+	 * run that clock tick together. Partitions connected by zero-delay links therefore only overlap
+	 * the entities that are active at the same time, as in the power-aware data centres that share a
+	 * scheduling interval.
+	 * <p>
+	 * Entities of different processes must only interact through events, and an event sent to
+	 * another process must not arrive sooner than the lookahead, otherwise an
+	 * {@link IllegalStateException} is thrown. Such an event carries a copy of its data taken when
+	 * it is sent, so the data must be serialisable, and changes either side makes to it later are
+	 * not seen by the other side: an entity reads the outcome from the event that returns it, e.g.
+	 * the cloudlet of {@link CloudSimTags#CLOUDLET_RETURN}. {@link #cancel(int, Predicate)},
+	 * {@link #cancelAll(int, Predicate)} and cancellation handles only reach the events held by the
+	 * process of the calling entity, entities cannot be created while the simulation runs, and log
+	 * lines of different processes may interleave.
+	 *
+	 * @param entityId the entity id
+	 * @param process the index of the logical process, from 0
+	 * @pre process >= 0
+	 */
+	public void setLogicalProcess(int entityId, int process) {
+		if (process < 0) {
+			throw new IllegalArgumentException("The logical process should not be negative, but is:" + process);
+		}
+		if (running) {
+			throw new IllegalStateException("Entities can't change logical process while the simulation runs.");
+		}
+		if (entityProcess.length <= entityId) {
+			entityProcess = Arrays.copyOf(entityProcess, Math.max(entityId + 1, entityProcess.length * 2));
+		}
+		entityProcess[entityId] = process;
+	}
+
+	/**
+	 * Gets the logical process of an entity.
+	 *
+	 * @param entityId the entity id
+	 * @return the index of the logical process
+	 */
+	public int getLogicalProcess(int entityId) {
+		return entityId < entityProcess.length ? entityProcess[entityId] : 0;
+	}
+
+	/**
+	 * Sets the number of threads used to advance the logical processes of a parallel run.
+	 *
+	 * @param parallelism the number of threads, or 0 for one per available processor
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 0) {
+			throw new IllegalArgumentException("The parallelism should not be negative, but is:" + parallelism);
+		}
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Gets the number of threads used to advance the logical processes of a parallel run.
+	 *
+	 * @return the number of threads, or 0 for one per available processor
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Gets the context of the calling thread in this simulation, i.e. the simulation and, in a
+	 * parallel run, the logical process of the running entity. An entity can use it to spread its
+	 * own work over other threads, which then see the same clock as the entity.
+	 *
+	 * @return the context
+	 */
+	public Context getContext() {
+		return new Context(this, boundProcess.get());
+	}
+
+	/**
+	 * The context in which a thread runs the code of an entity: a simulation and, in a parallel
+	 * run, a logical process. The work run in a context must not send or cancel events, which are
+	 * only delivered in order from the thread of the entity.
+	 */
+	public static final class Context {
+
+		/** The simulation. */
+		private final Simulation simulation;
+
+		/** The logical process, or <tt>null</tt> outside a parallel run. */
+		private final LogicalProcess process;
+
+		/**
+		 * Creates a context.
+		 *
+		 * @param simulation the simulation
+		 * @param process the logical process, or <tt>null</tt>
+		 */
+		private Context(Simulation simulation, LogicalProcess process) {
+			this.simulation = simulation;
+			this.process = process;
+		}
+
+		/**
+		 * Runs a task on the calling thread in this context, then restores the context of the
+		 * thread.
+		 *
+		 * @param <T> the type of the result
+		 * @param task the task
+		 * @return the result of the task
+		 * @throws Exception if the task fails
+		 */
+		public <T> T call(Callable<T> task) throws Exception {
+			Simulation previousSimulation = CloudSim.getBoundSimulation();
+			LogicalProcess previousProcess = simulation.boundProcess.get();
+			CloudSim.setSimulation(simulation);
+			setProcess(process);
+			try {
+				return task.call();
+			} finally {
+				setProcess(previousProcess);
+				CloudSim.setSimulation(previousSimulation);
+			}
+		}
+
+		/**
+		 * Binds a logical process of the simulation to the calling thread.
+		 *
+		 * @param lp the logical process, or <tt>null</tt> to unbind it
+		 */
+		private void setProcess(LogicalProcess lp) {
+			if (lp == null) {
+				simulation.boundProcess.remove();
+			} else {
+				simulation.boundProcess.set(lp);
+			}
+		}
+	}
+
+	// Public update methods
+
+	/**
+	 * Add a new entity to the simulation. This is present for compatibility with existing
+	 * simulations since entities are automatically added to the simulation upon instantiation.
+	 *
+	 * @param e The new entity
+	 */
+	public void addEntity(SimEntity e) {
+		SimEvent evt;
+		if (running) {
+			if (parallel) {
+				throw new IllegalStateException("Entities can't be added to a simulation running in parallel.");
+			}
+			// Post an event to make this entity
+			LogicalProcess lp = processes[0];
+			evt = lp.newEvent(SimEvent.CREATE, lp.clock, 1, 0, 0, e);
+			lp.submit(evt, false);
+		}
+		if (e.getId() == -1) { // Only add once!
+			int id = entities.size();
+			e.setId(id);
+			entities.add(e);
+			entitiesByName.put(e.getName(), e);
+		}
+	}
+
+	/**
+	 * Internal method used to add a new entity to the simulation when the simulation is running. It
+	 * should <b>not</b> be called from user simulations.
+	 *
+	 * @param e The new entity
+	 */
+	protected void addEntityDynamically(SimEntity e) {
+		if (e == null) {
+			throw new IllegalArgumentException("Adding null entity.");
+		} else {
+			printMessage("Adding: " + e.getName());
+		}
+		e.startEntity();
+		processOf(e.getId()).markReady(e.getId());
+	}
+
+	/**
+	 * Internal method used to run one tick of the simulation. This method should <b>not</b> be
+	 * called in simulations.
+	 *
+	 * @return true, if successful otherwise
+	 */
+	public boolean runClockTick() {
+		if (parallel) {
+			throw new IllegalStateException("A simulation running in parallel can't be run tick by tick.");
+		}
+		LogicalProcess lp = processes[0];
+		boolean queue_empty;
+
+		lp.runReady();
+
+		// all the events up to the checkpoint time have been processed and the entities have reacted
+		if (checkpointAt >= 0 && (lp.future.size() == 0 || lp.future.first().eventTime() > checkpointAt)) {
+			writeScheduledCheckpoint();
+		}
+
+		// If there are more future events then deal with them
+		if (lp.future.size() > 0) {
+			queue_empty = false;
+			lp.processNextEvents();
+		} else {
+			queue_empty = true;
+			running = false;
+			printMessage("Simulation: No more future events");
+		}
+
+		return queue_empty;
+	}
+
+	/**
+	 * Internal method used to stop the simulation. This method should <b>not</b> be used directly.
+	 */
+	public void runStop() {
+		printMessage("Simulation completed.");
+	}
+
+	/**
+	 * Used to hold an entity for some time.
+	 *
+	 * @param src the src
+	 * @param delay the delay
+	 */
+	public void hold(int src, long delay) {
+		LogicalProcess lp = process();
+		SimEvent e = lp.newEvent(SimEvent.HOLD_DONE, lp.clock + delay, src, -1, -1, null);
+		lp.submit(e, false);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to pause an entity for some time.
+	 *
+	 * @param src the src
+	 * @param delay the delay
+	 */
+	public void pause(int src, double delay) {
+		LogicalProcess lp = process();
+		SimEvent e = lp.newEvent(SimEvent.HOLD_DONE, lp.clock + delay, src, -1, -1, null);
+		lp.submit(e, false);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to send an event from one entity to another.
+	 *
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public void send(int src, int dest, double delay, int tag, Object data) {
+		send(src, dest, delay, tag, data, false);
+	}
+
+	/**
+	 * Used to send an event from one entity to another, flagging whether the data is an
+	 * acknowledgement array obtained from {@link #newAckData(int, int, int)}.
+	 *
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 * @param pooledData whether the data returns to the pool with the event
+	 */
+	void send(int src, int dest, double delay, int tag, Object data, boolean pooledData) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		LogicalProcess lp = process();
+		SimEvent e = lp.newEvent(SimEvent.SEND, lp.clock + delay, src, dest, tag, data);
+		e.setPooledData(pooledData);
+		lp.submit(e, false);
+	}
+
+	/**
+	 * Used to send an event from one entity to another, returning a handle that cancels it without
+	 * searching the future event queue. In a parallel run, the destination must belong to the
+	 * logical process of the sender.
+	 *
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 * @return the cancellation handle
+	 */
+	public EventHandle sendCancellable(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		LogicalProcess lp = process();
+		if (parallel && getLogicalProcess(dest) != lp.index) {
+			throw new IllegalArgumentException("Cancellable events can't be sent to another logical process.");
+		}
+		SimEvent e = lp.newEvent(SimEvent.SEND, lp.clock + delay, src, dest, tag, data);
+		lp.submit(e, false);
+		return new EventHandle(this, e);
+	}
+
+	/**
+	 * Used to send an event from one entity to another, with priority in the queue.
+	 *
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public void sendFirst(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		LogicalProcess lp = process();
+		SimEvent e = lp.newEvent(SimEvent.SEND, lp.clock + delay, src, dest, tag, data);
+		lp.submit(e, true);
+	}
+
+	/**
+	 * Sets an entity's state to be waiting. The predicate used to wait for an event is now passed
+	 * to Sim_system. Only events that satisfy the predicate will be passed to the entity. This is
+	 * done to avoid unnecessary context switches.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 */
+	public void wait(int src, Predicate p) {
+		entities.get(src).setState(SimEntity.WAITING);
+		if (p != CloudSim.SIM_ANY) {
+			// If a predicate has been used store it in order to check it
+			processOf(src).waitPredicates.put(src, p);
+		}
+	}
+
+	/**
+	 * Checks if events for a specific entity are present in the deferred event queue.
+	 *
+	 * @param d the d
+	 * @param p the p
+	 * @return the int
+	 */
+	public int waiting(int d, Predicate p) {
+		DeferredQueue deferred = processOf(d).deferred;
+		if (p == CloudSim.SIM_ANY) {
+			return deferred.size(d);
+		}
+		int count = 0;
+		SimEvent event;
+		Iterator<SimEvent> iterator = deferred.iterator(d);
+		while (iterator.hasNext()) {
+			event = iterator.next();
+			if (p.match(event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Selects an event matching a predicate.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event, or <tt>null</tt> if no deferred event matches
+	 */
+	public SimEvent select(int src, Predicate p) {
+		DeferredQueue deferred = processOf(src).deferred;
+		if (p == CloudSim.SIM_ANY) {
+			return deferred.pollFirst(src);
+		}
+		SimEvent ev;
+		Iterator<SimEvent> iterator = deferred.iterator(src);
+		while (iterator.hasNext()) {
+			ev = iterator.next();
+			if (p.match(ev)) {
+				iterator.remove();
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Selects all the deferred events of an entity, in the order in which {@link #select} would
+	 * return them one by one.
+	 *
+	 * @param src the id of the entity
+	 * @param events the list the events are appended to
+	 * @return the number of events selected
+	 */
+	public int selectAll(int src, List<SimEvent> events) {
+		return processOf(src).deferred.pollAll(src, events);
+	}
+
+	/**
+	 * Find first deferred event matching a predicate.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event, or <tt>null</tt> if no deferred event matches
+	 */
+	public SimEvent findFirstDeferred(int src, Predicate p) {
+		DeferredQueue deferred = processOf(src).deferred;
+		if (p == CloudSim.SIM_ANY) {
+			return deferred.first(src);
+		}
+		SimEvent ev;
+		Iterator<SimEvent> iterator = deferred.iterator(src);
+		while (iterator.hasNext()) {
+			ev = iterator.next();
+			if (p.match(ev)) {
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes an event from the event queue. Only the events sent by <tt>src</tt> are visited.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 * @return the cancelled event, or <tt>null</tt> if no event matches
+	 */
+	public SimEvent cancel(int src, Predicate p) {
+		return process().future.removeFirst(src, p);
+	}
+
+	/**
+	 * Removes all events that match a given predicate from the future event queue returns true if
+	 * at least one event has been cancelled; false otherwise.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 * @return true, if successful
+	 */
+	public boolean cancelAll(int src, Predicate p) {
+		LogicalProcess lp = process();
+		List<SimEvent> cancelled = lp.future.removeAll(src, p);
+		for (SimEvent ev : cancelled) {
+			lp.recycle(ev);
+		}
+		return !cancelled.isEmpty();
+	}
+
+	/**
+	 * Removes the event of a handle from the event queue.
+	 *
+	 * @param handle the handle returned when the event was sent
+	 * @return true, if the event was pending and has been cancelled; false otherwise
+	 */
+	public boolean cancel(EventHandle handle) {
+		if (!handle.isPending()) {
+			return false;
+		}
+		LogicalProcess lp = process();
+		SimEvent ev = handle.getEvent();
+		if (!lp.future.remove(ev)) {
+			return false;
+		}
+		lp.recycle(ev);
+		return true;
+	}
+
+	//
+	// Event pooling
+	//
+
+	/**
+	 * Enables or disables event pooling. When enabled, events are recycled once the destination
+	 * entity's {@link SimEntity#processEvent(SimEvent)} returns (or, for internal events, once the
+	 * kernel has handled them) and reused by later sends, and acknowledgement arrays sent with
+	 * {@link SimEntity#sendAck(int, double, int, int, int)} are reused as well. Entities must then
+	 * not retain events, or acknowledgement arrays, beyond <tt>processEvent</tt>.
+	 *
+	 * @param eventPooling true to enable event pooling
+	 */
+	public void setEventPooling(boolean eventPooling) {
+		this.eventPooling = eventPooling;
+	}
+
+	/**
+	 * Checks if event pooling is enabled.
+	 *
+	 * @return true, if enabled
+	 */
+	public boolean isEventPooling() {
+		return eventPooling;
+	}
+
+	/**
+	 * Enables or disables the retained-reference guard of event pooling. When enabled, recycled
+	 * events are poisoned instead of reused, so that any access through a retained reference throws
+	 * an {@link IllegalStateException}. This mode allocates as much as the unpooled one and is meant
+	 * for testing entities before turning pooling on.
+	 *
+	 * @param eventPoolingDebug true to enable the guard
+	 */
+	public void setEventPoolingDebug(boolean eventPoolingDebug) {
+		this.eventPoolingDebug = eventPoolingDebug;
+	}
+
+	/**
+	 * Checks if the retained-reference guard of event pooling is enabled.
+	 *
+	 * @return true, if enabled
+	 */
+	public boolean isEventPoolingDebug() {
+		return eventPoolingDebug;
+	}
+
+	/**
+	 * Gets an acknowledgement array <tt>{sender, id, value}</tt>, reusing an idle one if event
+	 * pooling is enabled.
+	 *
+	 * @param sender the id of the entity sending the acknowledgement
+	 * @param id the id of the acknowledged object
+	 * @param value the acknowledged value
+	 * @return the array
+	 */
+	int[] newAckData(int sender, int id, int value) {
+		return process().newAckData(sender, id, value);
+	}
+
+	/**
+	 * Hands a processed event back to the pool. Does nothing unless event pooling is enabled.
+	 *
+	 * @param e the event
+	 */
+	void recycle(SimEvent e) {
+		process().recycle(e);
+	}
+
+	//
+	// Private internal methods
+	//
+
+	/**
+	 * Internal method used to start the simulation. This method should <b>not</b> be used by user
+	 * simulations.
+	 */
+	public void runStart() {
+		running = true;
+		int numProcesses = 1;
+		for (SimEntity ent : entities) {
+			numProcesses = Math.max(numProcesses, getLogicalProcess(ent.getId()) + 1);
+		}
+		if (numProcesses > 1) {
+			if (checkpointAt >= 0) {
+				throw new IllegalStateException("A simulation running in parallel can't be checkpointed.");
+			}
+			partition(numProcesses);
+		}
+
+		// Start all the entities
+		for (SimEntity ent : entities) {
+			LogicalProcess lp = processOf(ent.getId());
+			boundProcess.set(lp);
+			lp.runner = ent.getId();
+			ent.startEntity();
+			lp.runner = -1;
+			lp.markReady(ent.getId());
+		}
+		boundProcess.remove();
+		for (LogicalProcess lp : processes) {
+			lp.round = -1;
+		}
+
+		printMessage("Entities started.");
+	}
+
+	/**
+	 * Splits the kernel state into one logical process per partition of the entities, and derives
+	 * the lookahead between every two processes from the network topology.
+	 *
+	 * @param numProcesses the number of logical processes
+	 */
+	private void partition(int numProcesses) {
+		LogicalProcess first = processes[0];
+		processes = new LogicalProcess[numProcesses];
+		processes[0] = first;
+		for (int i = 1; i < numProcesses; i++) {
+			processes[i] = new LogicalProcess(this, i, calendarEngine ? new CalendarEventQueue() : new TreeEventQueue());
+		}
+
+		double[][] lookahead = new double[numProcesses][numProcesses];
+		for (double[] row : lookahead) {
+			Arrays.fill(row, Double.POSITIVE_INFINITY);
+		}
+		boolean networkEnabled = NetworkTopology.isNetworkEnabled();
+		for (SimEntity src : entities) {
+			int from = getLogicalProcess(src.getId());
+			for (SimEntity dest : entities) {
+				int to = getLogicalProcess(dest.getId());
+				if (from != to) {
+					double delay = networkEnabled ? NetworkTopology.getDelay(src.getId(), dest.getId()) : 0;
+					lookahead[from][to] = Math.min(lookahead[from][to], delay);
+				}
+			}
+		}
+		EventDataCopier dataCopier = new EventDataCopier(this);
+		for (int i = 0; i < numProcesses; i++) {
+			processes[i].lookahead = lookahead[i];
+			processes[i].dataCopier = dataCopier;
+		}
+		parallel = true;
+
+		// events sent before the simulation started are older than any other
+		List<SimEvent> moved = new ArrayList<SimEvent>();
+		Iterator<SimEvent> iterator = first.future.iterator();
+		while (iterator.hasNext()) {
+			SimEvent ev = iterator.next();
+			ev.setSendOrder(ev.isSentFirst(), 0, -3, -1);
+			if (ev.getType() == SimEvent.SEND && getLogicalProcess(ev.getDestination()) != 0) {
+				iterator.remove();
+				moved.add(ev);
+			}
+		}
+		for (SimEvent ev : moved) {
+			dataCopier.copyData(ev);
+			processes[getLogicalProcess(ev.getDestination())].future.addEvent(ev);
+		}
+	}
+
+	/**
+	 * Check if the simulation is still running. This method should be used by entities to check if
+	 * they should continue executing.
+	 *
+	 * @return if the simulation is still running, otherwise
+	 */
+	public boolean running() {
+		return running;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation.
+	 *
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation() {
+		paused = true;
+		return paused;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation at a given time.
+	 *
+	 * @param time the time at which the simulation has to be paused
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation(long time) {
+		if (time <= clock()) {
+			return false;
+		} else {
+			pauseAt = time;
+		}
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to resume the simulation that has previously been paused.
+	 *
+	 * @return if the simulation has been restarted or or otherwise.
+	 */
+	public boolean resumeSimulation() {
+		paused = false;
+
+		if (pauseAt <= clock()) {
+			pauseAt = -1;
+		}
+
+		return !paused;
+	}
+
+	/**
+	 * Start the simulation running. This should be called after all the entities have been setup
+	 * and added, and their ports linked.
+	 *
+	 * @return the double last clock value
+	 */
+	public double run() {
+		CloudSim.setSimulation(this);
+		if (!running) {
+			runStart();
+		}
+		if (parallel) {
+			runParallel();
+		} else {
+			runSequential();
+		}
+
+		double clock = clock();
+
+		finishSimulation();
+		runStop();
+
+		return clock;
+	}
+
+	/**
+	 * Runs the single logical process of a sequential simulation tick by tick.
+	 */
+	private void runSequential() {
+		LogicalProcess lp = processes[0];
+		while (true) {
+			if (runClockTick() || abruptTerminate) {
+				break;
+			}
+
+			// this block allows termination of simulation at a specific time
+			if (terminateAt > 0.0 && lp.clock >= terminateAt) {
+				terminateSimulation();
+				lp.clock = terminateAt;
+				break;
+			}
+
+			if (pauseAt != -1
+					&& ((lp.future.size() > 0 && lp.clock <= pauseAt && pauseAt <= lp.future.first().eventTime()) || lp.future
+							.size() == 0 && pauseAt <= lp.clock)) {
+				pauseSimulation();
+				lp.clock = pauseAt;
+			}
+
+			waitWhilePaused();
+		}
+	}
+
+	/**
+	 * Runs the logical processes of a parallel simulation. Each iteration hands the events
+	 * exchanged by the processes over to their destinations, then either lets every process that
+	 * can no longer receive an earlier event advance up to its safe horizon, or, if none can, runs
+	 * the clock tick of the earliest events in all the processes that hold one.
+	 */
+	private void runParallel() {
+		int numProcesses = processes.length;
+		int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, numProcesses));
+		try {
+			// the first tick runs the entities started by runStart
+			List<Callable<Void>> steps = new ArrayList<Callable<Void>>();
+			for (LogicalProcess lp : processes) {
+				steps.add(step(lp, Double.NEGATIVE_INFINITY, false));
+			}
+			invoke(executor, steps);
+
+			double[] next = new double[numProcesses];
+			while (true) {
+				handOver();
+				if (abruptTerminate) {
+					break;
+				}
+
+				double earliest = Double.POSITIVE_INFINITY;
+				for (int i = 0; i < numProcesses; i++) {
+					next[i] = processes[i].nextEventTime();
+					earliest = Math.min(earliest, next[i]);
+				}
+				if (earliest == Double.POSITIVE_INFINITY) {
+					running = false;
+					printMessage("Simulation: No more future events");
+					break;
+				}
+
+				// this block allows termination of simulation at a specific time: as in the
+				// sequential kernel, the events of the last tick are delivered but not processed
+				if (terminateAt > 0.0 && earliest >= terminateAt) {
+					steps.clear();
+					for (int i = 0; i < numProcesses; i++) {
+						if (next[i] == earliest) {
+							steps.add(deliver(processes[i]));
+						}
+					}
+					invoke(executor, steps);
+					terminateSimulation();
+					for (LogicalProcess lp : processes) {
+						lp.clock = terminateAt;
+					}
+					break;
+				}
+
+				if (pauseAt != -1 && pauseAt <= earliest) {
+					pauseSimulation();
+					for (LogicalProcess lp : processes) {
+						lp.clock = Math.max(lp.clock, pauseAt);
+					}
+				}
+				waitWhilePaused();
+
+				double[] horizon = safeHorizons(next);
+				steps.clear();
+				for (int i = 0; i < numProcesses; i++) {
+					if (next[i] < horizon[i]) {
+						steps.add(step(processes[i], horizon[i], true));
+					}
+				}
+				if (steps.isEmpty()) {
+					for (int i = 0; i < numProcesses; i++) {
+						if (next[i] == earliest) {
+							steps.add(step(processes[i], Double.POSITIVE_INFINITY, false));
+						}
+					}
+				}
+				invoke(executor, steps);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Computes, for every logical process, the earliest time an event from another process can
+	 * reach it. A process can receive an event no sooner than the earliest event any other process
+	 * may still process plus the lookahead between the two, and that earliest event is itself
+	 * bounded by the events the process holds and by what it may receive, hence a shortest path
+	 * over the lookahead graph.
+	 *
+	 * @param next the time of the next event of each process
+	 * @return the safe horizon of each process, bounded by the termination and pause times
+	 */
+	private double[] safeHorizons(double[] next) {
+		int numProcesses = processes.length;
+		double[] earliest = next.clone();
+		boolean[] settled = new boolean[numProcesses];
+		for (int k = 0; k < numProcesses; k++) {
+			int u = -1;
+			for (int i = 0; i < numProcesses; i++) {
+				if (!settled[i] && (u == -1 || earliest[i] < earliest[u])) {
+					u = i;
+				}
+			}
+			if (earliest[u] == Double.POSITIVE_INFINITY) {
+				break;
+			}
+			settled[u] = true;
+			double[] lookahead = processes[u].lookahead;
+			for (int v = 0; v < numProcesses; v++) {
+				if (!settled[v]) {
+					earliest[v] = Math.min(earliest[v], earliest[u] + lookahead[v]);
+				}
+			}
+		}
+
+		double[] horizon = new double[numProcesses];
+		for (int q = 0; q < numProcesses; q++) {
+			horizon[q] = Double.POSITIVE_INFINITY;
+			for (int p = 0; p < numProcesses; p++) {
+				if (p != q) {
+					horizon[q] = Math.min(horizon[q], earliest[p] + processes[p].lookahead[q]);
+				}
+			}
+			if (terminateAt > 0.0) {
+				horizon[q] = Math.min(horizon[q], terminateAt);
+			}
+			if (pauseAt != -1) {
+				horizon[q] = Math.min(horizon[q], pauseAt);
+			}
+		}
+		return horizon;
+	}
+
+	/**
+	 * Hands the events sent between logical processes over to their destinations.
+	 */
+	private void handOver() {
+		for (LogicalProcess lp : processes) {
+			for (SimEvent ev : lp.outbox) {
+				processes[getLogicalProcess(ev.getDestination())].future.addEvent(ev);
+			}
+			lp.outbox.clear();
+		}
+	}
+
+	/**
+	 * Creates a task that advances a logical process. The entities made ready by the last tick are
+	 * run first, then the clock ticks of the events earlier than the horizon, or of the next event
+	 * only if the horizon is not a window.
+	 *
+	 * @param lp the logical process
+	 * @param horizon the time of the first event not to process
+	 * @param window whether all the events earlier than the horizon are processed
+	 * @return the task
+	 */
+	private Callable<Void> step(final LogicalProcess lp, final double horizon, final boolean window) {
+		return new Callable<Void>() {
+
+			@Override
+			public Void call() {
+				bind(lp);
+				try {
+					lp.runReady();
+					while (lp.nextEventTime() < horizon) {
+						lp.processNextEvents();
+						lp.runReady();
+						if (!window) {
+							break;
+						}
+					}
+				} finally {
+					boundProcess.remove();
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Creates a task that delivers the next events of a logical process without running the
+	 * entities.
+	 *
+	 * @param lp the logical process
+	 * @return the task
+	 */
+	private Callable<Void> deliver(final LogicalProcess lp) {
+		return new Callable<Void>() {
+
+			@Override
+			public Void call() {
+				bind(lp);
+				try {
+					lp.processNextEvents();
+				} finally {
+					boundProcess.remove();
+				}
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Binds this simulation and one of its logical processes to the calling thread.
+	 *
+	 * @param lp the logical process
+	 */
+	private void bind(LogicalProcess lp) {
+		CloudSim.setSimulation(this);
+		boundProcess.set(lp);
+	}
+
+	/**
+	 * Runs tasks on the executor and waits for all of them. A single task runs on the calling
+	 * thread.
+	 *
+	 * @param executor the executor
+	 * @param tasks the tasks
+	 */
+	private void invoke(ExecutorService executor, List<Callable<Void>> tasks) {
+		try {
+			if (tasks.size() == 1) {
+				tasks.get(0).call();
+				return;
+			}
+			for (Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running the logical processes.", e);
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Writes the checkpoint scheduled by {@link #checkpointSimulation(double, String)}. The
+	 * checkpoint itself carries no schedule, so a restored simulation does not write it again.
+	 */
+	private void writeScheduledCheckpoint() {
+		String fileName = checkpointFile;
+		checkpointAt = -1;
+		checkpointFile = null;
+		try {
+			saveCheckpoint(fileName);
+		} catch (IOException e) {
+			throw new IllegalStateException("Can't write the checkpoint " + fileName + ": " + e.getMessage(), e);
+		}
+		printMessage("Simulation: Checkpoint written to " + fileName + " at " + clock() + ".");
+	}
+
+	/**
+	 * Sleeps while the simulation is paused.
+	 */
+	private void waitWhilePaused() {
+		while (paused) {
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Internal method that allows the entities to terminate. This method should <b>not</b> be used
+	 * in user simulations.
+	 */
+	public void finishSimulation() {
+		// Allow all entities to exit their body method
+		if (!abruptTerminate) {
+			for (SimEntity ent : entities) {
+				if (ent.getState() != SimEntity.FINISHED) {
+					boundProcess.set(processOf(ent.getId()));
+					ent.run();
+				}
+			}
+			boundProcess.remove();
+		}
+
+		for (SimEntity ent : entities) {
+			ent.shutdownEntity();
+		}
+
+		// reset all the simulation variables
+		// Private data members
+		numProcessedEvents = getNumProcessedEvents();
+		entities = null;
+		entitiesByName = null;
+		processes = null;
+		entityProcess = new int[0];
+		parallel = false;
+		running = false;
+
+		paused = false;
+		pauseAt = -1;
+		abruptTerminate = false;
+	}
+
+	/**
+	 * Abruptally terminate.
+	 */
+	public void abruptallyTerminate() {
+		abruptTerminate = true;
+	}
+
+	/**
+	 * Prints a message about the progress of the simulation.
+	 *
+	 * @param message the message
+	 */
+	private void printMessage(String message) {
+		Log.printLine(message);
+	}
+
+	/**
+	 * Schedules a checkpoint of the simulation. The checkpoint is written by the simulation thread
+	 * as soon as all the events up to the given time have been processed, after which the run
+	 * carries on. Only sequential simulations can be checkpointed.
+	 *
+	 * @param time the simulation time the checkpoint is taken at
+	 * @param fileName the name of the file the checkpoint is written to
+	 * @return true, if successful; false if the time has already passed
+	 * @see #restoreCheckpoint(String)
+	 */
+	public boolean checkpointSimulation(double time, String fileName) {
+		if (fileName == null) {
+			throw new IllegalArgumentException("The checkpoint file name can't be null.");
+		}
+		if (parallel) {
+			throw new IllegalStateException("A simulation running in parallel can't be checkpointed.");
+		}
+		if (time < clock()) {
+			return false;
+		}
+		checkpointAt = time;
+		checkpointFile = fileName;
+		return true;
+	}
+
+	/**
+	 * Writes the whole state of the simulation to a gzip compressed file: the clock, the future
+	 * and deferred events, the wait predicates and the entities together with all the objects they
+	 * reference, e.g. hosts, VMs and cloudlets. It has to be called between two clock ticks, i.e.
+	 * before the simulation is started, once it is paused, or through
+	 * {@link #checkpointSimulation(double, String)}.
+	 *
+	 * @param fileName the name of the file
+	 * @throws IOException if the file can't be written or an object of the simulation is not
+	 *             serializable
+	 */
+	public void saveCheckpoint(String fileName) throws IOException {
+		if (parallel) {
+			throw new IllegalStateException("A simulation running in parallel can't be checkpointed.");
+		}
+		ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(
+				new FileOutputStream(fileName))));
+		try {
+			out.writeUTF(CHECKPOINT_HEADER);
+			out.writeObject(this);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads a simulation from a checkpoint written by {@link #saveCheckpoint(String)}. The restored
+	 * simulation carries on from the checkpoint when {@link #startSimulation()} is called; its
+	 * entities can be looked up by name beforehand to change their settings. Checkpoints are only
+	 * readable by the same version of the simulation classes.
+	 *
+	 * @param fileName the name of the file
+	 * @return the restored simulation
+	 * @throws IOException if the file can't be read or is not a checkpoint
+	 * @throws ClassNotFoundException if the class of a saved object can't be found
+	 */
+	public static Simulation restoreCheckpoint(String fileName) throws IOException, ClassNotFoundException {
+		ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(
+				new FileInputStream(fileName))));
+		try {
+			if (!CHECKPOINT_HEADER.equals(in.readUTF())) {
+				throw new IOException(fileName + " is not a CloudSim checkpoint.");
+			}
+			return (Simulation) in.readObject();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Restores a serialised simulation.
+	 *
+	 * @param in the input stream
+	 * @throws IOException if the stream can't be read
+	 * @throws ClassNotFoundException if the class of a serialised object can't be found
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		boundProcess = new ThreadLocal<LogicalProcess>();
+	}
+
+	/**
+	 * Checks if is paused.
+	 *
+	 * @return true, if is paused
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * Gets the network topology of this simulation.
+	 *
+	 * @return the network topology
+	 */
+	public NetworkTopology.Topology getNetworkTopology() {
+		return networkTopology;
+	}
+
+	/**
+	 * Gets the log output of this simulation.
+	 *
+	 * @return the log output, or <tt>null</tt> if it has not been set
+	 */
+	public OutputStream getLogOutput() {
+		return logOutput;
+	}
+
+	/**
+	 * Sets the log output of this simulation.
+	 *
+	 * @param logOutput the new log output
+	 */
+	public void setLogOutput(OutputStream logOutput) {
+		this.logOutput = logOutput;
+	}
+
+	/**
+	 * Checks if the log output of this simulation is disabled.
+	 *
+	 * @return true, if disabled
+	 */
+	public boolean isLogDisabled() {
+		return logDisabled;
+	}
+
+	/**
+	 * Sets the disable log output flag of this simulation.
+	 *
+	 * @param logDisabled the new flag
+	 */
+	public void setLogDisabled(boolean logDisabled) {
+		this.logDisabled = logDisabled;
+	}
+
+}
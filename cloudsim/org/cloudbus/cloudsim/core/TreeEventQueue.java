@@ -0,0 +1,82 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * An {@link EventQueue} that stores the events in a {@link TreeSet}. Insertion and removal of the
+ * first event cost O(log n). This is the default engine of {@link FutureQueue}.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see EventQueue
+ * @see java.util.TreeSet
+ */
+public class TreeEventQueue implements EventQueue {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The sorted set. */
+	private final TreeSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+
+	@Override
+	public void add(SimEvent event) {
+		sortedSet.add(event);
+	}
+
+	@Override
+	public SimEvent first() {
+		return sortedSet.isEmpty() ? null : sortedSet.first();
+	}
+
+	@Override
+	public SimEvent pollFirst() {
+		return sortedSet.pollFirst();
+	}
+
+	@Override
+	public int pollFirstBatch(List<SimEvent> batch) {
+		SimEvent first = sortedSet.pollFirst();
+		if (first == null) {
+			return 0;
+		}
+		batch.add(first);
+		int count = 1;
+		SimEvent next = sortedSet.isEmpty() ? null : sortedSet.first();
+		while (next != null && next.eventTime() == first.eventTime()) {
+			batch.add(sortedSet.pollFirst());
+			count++;
+			next = sortedSet.isEmpty() ? null : sortedSet.first();
+		}
+		return count;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		return sortedSet.remove(event);
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return sortedSet.iterator();
+	}
+
+	@Override
+	public int size() {
+		return sortedSet.size();
+	}
+
+	@Override
+	public void clear() {
+		sortedSet.clear();
+	}
+
+}
@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.core.predicates;
 
+import java.io.Serializable;
+
 import org.cloudbus.cloudsim.core.SimEvent;
 
 /**
@@ -23,7 +25,9 @@ import org.cloudbus.cloudsim.core.SimEvent;
  * @see PredicateNone
  * @see Simulation
  */
-public abstract class Predicate {
+public abstract class Predicate implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * The match function which must be overridden when writing a new predicate. The function is
@@ -18,6 +18,8 @@ import java.util.Random;
  */
 public class LomaxDistribution extends ParetoDistr implements ContinuousDistribution {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The shift. */
 	private final double shift;
 
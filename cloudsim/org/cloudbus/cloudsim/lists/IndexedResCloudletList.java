@@ -0,0 +1,561 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.lists;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractSequentialList;
+import java.util.ConcurrentModificationException;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.ResCloudlet;
+
+/**
+ * IndexedResCloudletList is a doubly linked list of ResCloudlets that also indexes them by
+ * cloudlet id, for the cloudlet schedulers that move cloudlets between their waiting, exec, paused
+ * and finished lists.
+ * <p>
+ * Appending, finding a cloudlet by id and removing a given cloudlet take constant time, so
+ * {@link ResCloudletList#move(java.util.List, java.util.List, ResCloudlet)} does too. The index is
+ * an open-addressing table keyed by the primitive cloudlet id; it always refers to the first
+ * cloudlet of the list with a given id, as a linear search would find. Positional access walks the
+ * list, as in {@link java.util.LinkedList}.
+ *
+ * @param <T> the type of the ResCloudlets
+ * @since CloudSim Toolkit 3.0
+ * @see ResCloudletList#getById(java.util.List, int)
+ */
+public class IndexedResCloudletList<T extends ResCloudlet> extends AbstractSequentialList<T> implements
+		Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The initial capacity of the index; a power of two. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The first node, or <tt>null</tt> if the list is empty. */
+	private transient Node<T> head;
+
+	/** The last node, or <tt>null</tt> if the list is empty. */
+	private transient Node<T> tail;
+
+	/** The number of cloudlets in the list. */
+	private transient int size;
+
+	/** The cloudlet ids of the index slots. */
+	private transient int[] keys;
+
+	/** The indexed node of each slot, or <tt>null</tt> for a free slot. */
+	private transient Node<T>[] slots;
+
+	/** The number of indexed nodes; less than {@link #size} if some cloudlets share an id. */
+	private transient int indexed;
+
+	/**
+	 * Creates an empty list.
+	 */
+	public IndexedResCloudletList() {
+		init();
+	}
+
+	/**
+	 * Gets the first cloudlet with the given id.
+	 *
+	 * @param cloudletId the cloudlet id
+	 * @return the cloudlet, or <tt>null</tt> if it is not in the list
+	 */
+	public T getById(int cloudletId) {
+		Node<T> node = lookup(cloudletId);
+		return node == null ? null : node.value;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean add(T rcl) {
+		linkBefore(rcl, null);
+		return true;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return find(o) != null;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		Node<T> node = find(o);
+		if (node == null) {
+			return false;
+		}
+		unlink(node);
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		init();
+		modCount++;
+	}
+
+	@Override
+	public ListIterator<T> listIterator(int index) {
+		if (index < 0 || index > size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return new Itr(index);
+	}
+
+	/**
+	 * Finds the node of the given cloudlet.
+	 *
+	 * @param o the cloudlet
+	 * @return its node, or <tt>null</tt> if it is not in the list
+	 */
+	private Node<T> find(Object o) {
+		if (!(o instanceof ResCloudlet)) {
+			return null;
+		}
+		Node<T> node = lookup(((ResCloudlet) o).getCloudletId());
+		if (node == null || node.value == o) {
+			return node;
+		}
+		// another cloudlet with the same id comes first
+		for (node = node.next; node != null; node = node.next) {
+			if (node.value == o) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Inserts a cloudlet before a node.
+	 *
+	 * @param rcl the cloudlet
+	 * @param successor the node, or <tt>null</tt> to append the cloudlet
+	 */
+	private void linkBefore(T rcl, Node<T> successor) {
+		if (rcl == null) {
+			throw new NullPointerException("The list can't hold null cloudlets");
+		}
+		Node<T> node = new Node<T>(rcl);
+		Node<T> predecessor = successor == null ? tail : successor.previous;
+		node.previous = predecessor;
+		node.next = successor;
+		if (predecessor == null) {
+			head = node;
+		} else {
+			predecessor.next = node;
+		}
+		if (successor == null) {
+			tail = node;
+		} else {
+			successor.previous = node;
+		}
+		size++;
+		modCount++;
+		index(node);
+	}
+
+	/**
+	 * Removes a node from the list.
+	 *
+	 * @param node the node
+	 */
+	private void unlink(Node<T> node) {
+		if (node.previous == null) {
+			head = node.next;
+		} else {
+			node.previous.next = node.next;
+		}
+		if (node.next == null) {
+			tail = node.previous;
+		} else {
+			node.next.previous = node.previous;
+		}
+		size--;
+		modCount++;
+		unindex(node);
+	}
+
+	/**
+	 * Indexes a node just linked, unless an earlier node has the same id.
+	 *
+	 * @param node the node
+	 */
+	private void index(Node<T> node) {
+		int id = node.value.getCloudletId();
+		Node<T> current = lookup(id);
+		if (current == null) {
+			put(id, node);
+		} else if (node.next != null && precedes(node, current)) {
+			// inserted in the middle, before the indexed node
+			put(id, node);
+		}
+	}
+
+	/**
+	 * Removes a node just unlinked from the index, indexing the next node with the same id if any.
+	 *
+	 * @param node the node
+	 */
+	private void unindex(Node<T> node) {
+		int id = node.value.getCloudletId();
+		if (lookup(id) != node) {
+			return;
+		}
+		if (indexed < size + 1) {
+			// some cloudlets share an id: the next one after the removed node takes its place
+			for (Node<T> other = node.next; other != null; other = other.next) {
+				if (other.value.getCloudletId() == id) {
+					put(id, other);
+					return;
+				}
+			}
+		}
+		delete(id);
+	}
+
+	/**
+	 * Checks whether a node comes before another.
+	 *
+	 * @param a a node
+	 * @param b another node
+	 * @return true if a is before b
+	 */
+	private boolean precedes(Node<T> a, Node<T> b) {
+		for (Node<T> node = a.next; node != null; node = node.next) {
+			if (node == b) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Resets the list to empty.
+	 */
+	private void init() {
+		head = null;
+		tail = null;
+		size = 0;
+		keys = new int[INITIAL_CAPACITY];
+		slots = newSlots(INITIAL_CAPACITY);
+		indexed = 0;
+	}
+
+	/**
+	 * Gets the indexed node of a cloudlet id.
+	 *
+	 * @param id the cloudlet id
+	 * @return the node, or <tt>null</tt> if no cloudlet has that id
+	 */
+	private Node<T> lookup(int id) {
+		int mask = slots.length - 1;
+		for (int i = hash(id) & mask; slots[i] != null; i = (i + 1) & mask) {
+			if (keys[i] == id) {
+				return slots[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Indexes a node under a cloudlet id, replacing the node indexed under it if any.
+	 *
+	 * @param id the cloudlet id
+	 * @param node the node
+	 */
+	private void put(int id, Node<T> node) {
+		int mask = slots.length - 1;
+		int i = hash(id) & mask;
+		while (slots[i] != null) {
+			if (keys[i] == id) {
+				slots[i] = node;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = id;
+		slots[i] = node;
+		if (++indexed > slots.length / 2) {
+			resize(2 * slots.length);
+		}
+	}
+
+	/**
+	 * Removes a cloudlet id from the index, shifting back the entries that probed past its slot.
+	 *
+	 * @param id the cloudlet id
+	 */
+	private void delete(int id) {
+		int mask = slots.length - 1;
+		int i = hash(id) & mask;
+		while (slots[i] != null && keys[i] != id) {
+			i = (i + 1) & mask;
+		}
+		if (slots[i] == null) {
+			return;
+		}
+		indexed--;
+
+		int free = i;
+		for (int j = (free + 1) & mask; slots[j] != null; j = (j + 1) & mask) {
+			int home = hash(keys[j]) & mask;
+			// move the entry back if its home slot is not between the free slot and itself
+			if (((j - home) & mask) >= ((j - free) & mask)) {
+				keys[free] = keys[j];
+				slots[free] = slots[j];
+				free = j;
+			}
+		}
+		slots[free] = null;
+	}
+
+	/**
+	 * Creates an empty array of index slots.
+	 *
+	 * @param capacity the number of slots
+	 * @return the slots
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> Node<T>[] newSlots(int capacity) {
+		return (Node<T>[]) new Node<?>[capacity];
+	}
+
+	/**
+	 * Rebuilds the index with the given capacity.
+	 *
+	 * @param capacity the new capacity, a power of two
+	 */
+	private void resize(int capacity) {
+		int[] oldKeys = keys;
+		Node<T>[] oldSlots = slots;
+		keys = new int[capacity];
+		slots = newSlots(capacity);
+		int mask = capacity - 1;
+		for (int k = 0; k < oldSlots.length; k++) {
+			if (oldSlots[k] != null) {
+				int i = hash(oldKeys[k]) & mask;
+				while (slots[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[k];
+				slots[i] = oldSlots[k];
+			}
+		}
+	}
+
+	/**
+	 * Spreads the bits of a cloudlet id, which are usually consecutive.
+	 *
+	 * @param id the cloudlet id
+	 * @return the hash
+	 */
+	private static int hash(int id) {
+		int h = id * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Writes the cloudlets in order; the links and the index are rebuilt when read.
+	 *
+	 * @param out the stream
+	 * @throws IOException if the stream fails
+	 */
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size);
+		for (Node<T> node = head; node != null; node = node.next) {
+			out.writeObject(node.value);
+		}
+	}
+
+	/**
+	 * Reads the cloudlets written by {@link #writeObject(ObjectOutputStream)}.
+	 *
+	 * @param in the stream
+	 * @throws IOException if the stream fails
+	 * @throws ClassNotFoundException if a cloudlet class can't be found
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		init();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			add((T) in.readObject());
+		}
+	}
+
+	/**
+	 * A node of the list.
+	 *
+	 * @param <T> the type of the ResCloudlets
+	 */
+	private static class Node<T> {
+
+		/** The cloudlet. */
+		private T value;
+
+		/** The previous node. */
+		private Node<T> previous;
+
+		/** The next node. */
+		private Node<T> next;
+
+		/**
+		 * Creates a node.
+		 *
+		 * @param value the cloudlet
+		 */
+		Node(T value) {
+			this.value = value;
+		}
+	}
+
+	/**
+	 * A list iterator over the nodes.
+	 */
+	private class Itr implements ListIterator<T> {
+
+		/** The node returned by {@link #next()}, or <tt>null</tt> at the end. */
+		private Node<T> next;
+
+		/** The index of {@link #next}. */
+		private int nextIndex;
+
+		/** The node last returned, or <tt>null</tt> if it was removed or none was returned. */
+		private Node<T> lastReturned;
+
+		/** The modification count the iterator expects. */
+		private int expectedModCount = modCount;
+
+		/**
+		 * Creates an iterator starting at the given index.
+		 *
+		 * @param index the index of the first cloudlet returned by {@link #next()}
+		 */
+		Itr(int index) {
+			if (index < size / 2) {
+				next = head;
+				for (nextIndex = 0; nextIndex < index; nextIndex++) {
+					next = next.next;
+				}
+			} else {
+				next = null;
+				nextIndex = size;
+				while (nextIndex > index) {
+					next = next == null ? tail : next.previous;
+					nextIndex--;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextIndex < size;
+		}
+
+		@Override
+		public T next() {
+			checkForComodification();
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			lastReturned = next;
+			next = next.next;
+			nextIndex++;
+			return lastReturned.value;
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return nextIndex > 0;
+		}
+
+		@Override
+		public T previous() {
+			checkForComodification();
+			if (!hasPrevious()) {
+				throw new NoSuchElementException();
+			}
+			next = next == null ? tail : next.previous;
+			lastReturned = next;
+			nextIndex--;
+			return lastReturned.value;
+		}
+
+		@Override
+		public int nextIndex() {
+			return nextIndex;
+		}
+
+		@Override
+		public int previousIndex() {
+			return nextIndex - 1;
+		}
+
+		@Override
+		public void remove() {
+			checkForComodification();
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			if (next == lastReturned) {
+				next = lastReturned.next;
+			} else {
+				nextIndex--;
+			}
+			unlink(lastReturned);
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
+
+		@Override
+		public void set(T rcl) {
+			checkForComodification();
+			if (lastReturned == null) {
+				throw new IllegalStateException();
+			}
+			if (rcl == null) {
+				throw new NullPointerException("The list can't hold null cloudlets");
+			}
+			unindex(lastReturned);
+			lastReturned.value = rcl;
+			index(lastReturned);
+		}
+
+		@Override
+		public void add(T rcl) {
+			checkForComodification();
+			linkBefore(rcl, next);
+			nextIndex++;
+			lastReturned = null;
+			expectedModCount = modCount;
+		}
+
+		/**
+		 * Fails if the list was changed other than through this iterator.
+		 */
+		private void checkForComodification() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+		}
+	}
+
+}
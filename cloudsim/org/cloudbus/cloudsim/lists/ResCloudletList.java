@@ -22,7 +22,8 @@ public class ResCloudletList {
 
 	/**
 	 * Returns a given Cloudlet. This method needs a combination of Cloudlet Id and User Id because
-	 * each Cloud Users might have exactly same Cloudlet Ids.
+	 * each Cloud Users might have exactly same Cloudlet Ids. Takes constant time on an
+	 * {@link IndexedResCloudletList}.
 	 * 
 	 * @param cloudletId a Cloudlet Id
 	 * @param userId an User Id
@@ -38,6 +39,12 @@ public class ResCloudletList {
 			List<T> list,
 			int cloudletId,
 			int userId) {
+		if (list instanceof IndexedResCloudletList<?>) {
+			ResCloudlet rcl = ((IndexedResCloudletList<T>) list).getById(cloudletId);
+			if (rcl == null || rcl.getUserId() == userId) {
+				return rcl;
+			}
+		}
 		for (T rcl : list) {
 			if (rcl.getCloudletId() == cloudletId && rcl.getUserId() == userId) {
 				return rcl;
@@ -46,6 +53,29 @@ public class ResCloudletList {
 		return null;
 	}
 
+	/**
+	 * Returns the first Cloudlet with the given id. The cloudlet schedulers look cloudlets up by id
+	 * only, as all the cloudlets of a VM belong to the user of the VM. Takes constant time on an
+	 * {@link IndexedResCloudletList}.
+	 * 
+	 * @param list the list
+	 * @param cloudletId a Cloudlet Id
+	 * @return the Cloudlet, or <tt>null</tt> if it is not in the list
+	 * @pre cloudletId >= 0
+	 * @post $none
+	 */
+	public static <T extends ResCloudlet> T getById(List<T> list, int cloudletId) {
+		if (list instanceof IndexedResCloudletList<?>) {
+			return ((IndexedResCloudletList<T>) list).getById(cloudletId);
+		}
+		for (T rcl : list) {
+			if (rcl.getCloudletId() == cloudletId) {
+				return rcl;
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Finds the index of a Cloudlet inside the list. This method needs a combination of Cloudlet Id
 	 * and User Id because each Cloud User might have exactly the same Cloudlet Id.
@@ -71,7 +101,8 @@ public class ResCloudletList {
 	}
 
 	/**
-	 * Move a ResCloudlet object from this linked-list into a specified one.
+	 * Move a ResCloudlet object from this linked-list into a specified one. Takes constant time
+	 * between {@link IndexedResCloudletList}s.
 	 * 
 	 * @param listFrom the list from
 	 * @param listTo the list to
@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.network;
 
+import java.io.Serializable;
 import java.util.Iterator;
 
 /**
@@ -16,7 +17,9 @@ import java.util.Iterator;
  * @author Thomas Hohnstein
  * @since CloudSim Toolkit 1.0
  */
-public class DelayMatrix_Float {
+public class DelayMatrix_Float implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * matrix holding delay information between any two nodes
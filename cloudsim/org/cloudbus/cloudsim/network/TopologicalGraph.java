@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.network;
 
+import java.io.Serializable;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -20,7 +21,9 @@ import java.util.List;
  * @author Thomas Hohnstein
  * @since CloudSim Toolkit 1.0
  */
-public class TopologicalGraph {
+public class TopologicalGraph implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	private List<TopologicalLink> linkList = null;
 
@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.network;
 
+import java.io.Serializable;
+
 /**
  * Just represents an topological network node retrieves its information from an
  * topological-generated file (eg. topology-generator)
@@ -15,7 +17,9 @@ package org.cloudbus.cloudsim.network;
  * @author Thomas Hohnstein
  * @since CloudSim Toolkit 1.0
  */
-public class TopologicalNode {
+public class TopologicalNode implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	/**
 	 * its the nodes-ID inside this network
@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.network.datacenter;
 
+import java.io.Serializable;
+
 /**
  * HostPacket represents the packet that travels through the virtual network with a Host. It
  * contains information about cloudlets which are communicating
@@ -21,7 +23,9 @@ package org.cloudbus.cloudsim.network.datacenter;
  * @author Saurabh Kumar Garg
  * @since CloudSim Toolkit 1.0
  */
-public class HostPacket {
+public class HostPacket implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	public HostPacket(
 			int sender,
@@ -45,6 +45,8 @@ import org.cloudbus.cloudsim.core.SimEvent;
  */
 public class NetworkDatacenter extends Datacenter {
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Allocates a new NetworkDatacenter object.
 	 * 
@@ -158,14 +160,9 @@ public class NetworkDatacenter extends Datacenter {
 				// Hence, this might cause CloudSim to be hanged since waiting
 				// for this Cloudlet back.
 				if (ack) {
-					int[] data = new int[3];
-					data[0] = getId();
-					data[1] = cl.getCloudletId();
-					data[2] = CloudSimTags.FALSE;
-
 					// unique tag = operation tag
 					int tag = CloudSimTags.CLOUDLET_SUBMIT_ACK;
-					sendNow(cl.getUserId(), tag, data);
+					sendAck(cl.getUserId(), 0, tag, cl.getCloudletId(), CloudSimTags.FALSE);
 				}
 
 				sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
@@ -198,14 +195,9 @@ public class NetworkDatacenter extends Datacenter {
 			}
 
 			if (ack) {
-				int[] data = new int[3];
-				data[0] = getId();
-				data[1] = cl.getCloudletId();
-				data[2] = CloudSimTags.TRUE;
-
 				// unique tag = operation tag
 				int tag = CloudSimTags.CLOUDLET_SUBMIT_ACK;
-				sendNow(cl.getUserId(), tag, data);
+				sendAck(cl.getUserId(), 0, tag, cl.getCloudletId(), CloudSimTags.TRUE);
 			}
 		} catch (ClassCastException c) {
 			Log.printLine(getName() + ".processCloudletSubmit(): " + "ClassCastException error.");
@@ -218,4 +210,26 @@ public class NetworkDatacenter extends Datacenter {
 		checkCloudletCompletion();
 	}
 
+	/**
+	 * Network hosts exchange packets whenever they are updated, so every host is updated at each
+	 * event.
+	 * 
+	 * @return false
+	 */
+	@Override
+	protected boolean isCompletionIndexEnabled() {
+		return false;
+	}
+
+	/**
+	 * Network hosts send packets while they are updated, so they are updated serially to keep the
+	 * events in order.
+	 * 
+	 * @return false
+	 */
+	@Override
+	protected boolean isParallelHostUpdateSupported() {
+		return false;
+	}
+
 }
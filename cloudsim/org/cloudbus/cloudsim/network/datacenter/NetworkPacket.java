@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.network.datacenter;
 
+import java.io.Serializable;
+
 /**
  * NewtorkPacket represents the packet which travel from one server to another. Each packet contains
  * ids of the sender VM and receiver VM, time at which it is send and received, type and virtual ids
@@ -22,7 +24,9 @@ package org.cloudbus.cloudsim.network.datacenter;
  * @author Saurabh Kumar Garg
  * @since CloudSim Toolkit 1.0
  */
-public class NetworkPacket {
+public class NetworkPacket implements Serializable {
+
+	private static final long serialVersionUID = 1L;
 
 	public NetworkPacket(int id, HostPacket pkt2, int vmid, int cloudletid) {
 		pkt = pkt2;
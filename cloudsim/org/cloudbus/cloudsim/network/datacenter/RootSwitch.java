@@ -32,6 +32,8 @@ import org.cloudbus.cloudsim.core.predicates.PredicateType;
  */
 public class RootSwitch extends Switch {
 
+	private static final long serialVersionUID = 1L;
+
 	/**
 	 * Constructor for Root Switch We have to specify switches that are connected to its downlink
 	 * ports, and corresponding bandwidths
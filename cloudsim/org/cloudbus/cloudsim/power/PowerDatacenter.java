@@ -38,6 +38,8 @@ import org.cloudbus.cloudsim.core.predicates.PredicateType;
  */
 public class PowerDatacenter extends Datacenter {
 
+	private static final long serialVersionUID = 1L;
+
 	/** The power. */
 	private double power;
 
@@ -162,9 +164,12 @@ public class PowerDatacenter extends Datacenter {
 	}
 
 	/**
-	 * Update cloudet processing without scheduling future events.
+	 * Update cloudet processing without scheduling future events. If a host update pool is set,
+	 * the hosts are updated in parallel first; the next completion time, the utilization log and the
+	 * energy are then combined in host order, so they don't depend on the number of threads.
 	 * 
 	 * @return the double
+	 * @see #setHostUpdatePool(java.util.concurrent.ForkJoinPool)
 	 */
 	protected double updateCloudetProcessingWithoutSchedulingFutureEventsForce() {
 		double currentTime = CloudSim.clock();
@@ -175,10 +180,15 @@ public class PowerDatacenter extends Datacenter {
 		Log.printLine("\n\n--------------------------------------------------------------\n\n");
 		Log.formatLine("New resource usage for the time frame starting at %.2f:", currentTime);
 
-		for (PowerHost host : this.<PowerHost> getHostList()) {
+		List<PowerHost> hostList = this.<PowerHost> getHostList();
+		// update the hosts in parallel beforehand if a pool is set
+		double[] times = isHostUpdateParallel() ? updateHostsProcessing(hostList) : null;
+		for (int i = 0; i < hostList.size(); i++) {
+			PowerHost host = hostList.get(i);
 			Log.printLine();
 
-			double time = host.updateVmsProcessing(currentTime); // inform VMs to update processing
+			// inform VMs to update processing
+			double time = times != null ? times[i] : host.updateVmsProcessing(currentTime);
 			if (time < minTime) {
 				minTime = time;
 			}
@@ -270,6 +280,17 @@ public class PowerDatacenter extends Datacenter {
 		setCloudletSubmitted(CloudSim.clock());
 	}
 
+	/**
+	 * Power-aware hosts record their utilization at every update, so every host is updated at each
+	 * event.
+	 * 
+	 * @return false
+	 */
+	@Override
+	protected boolean isCompletionIndexEnabled() {
+		return false;
+	}
+
 	/**
 	 * Gets the power.
 	 * 
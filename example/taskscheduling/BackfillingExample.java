@@ -0,0 +1,97 @@
+package taskscheduling;
+
+import java.util.*;
+
+import org.cloudbus.cloudsim.*;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+
+/**
+ * Runs one batch of rigid parallel jobs on multi-PE VMs under EASY and conservative backfilling,
+ * and reports per VM the average wait, the jobs started ahead of an earlier one and the share of
+ * the PEs kept busy.
+ */
+public class BackfillingExample {
+
+    private static final int VMS = 2;
+    private static final int VM_PES = 4;
+    private static final int PE_MIPS = 1000;
+    private static final int JOBS = 60;
+    private static final int[] JOB_PES = {1, 1, 2, 4}; // mostly narrow jobs, some as wide as a VM
+    private static final long SEED = 42;
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-13s %-4s %8s %11s %10s %12s %12s%n", "Policy", "VM", "Started", "Backfilled",
+                "Avg wait", "Utilisation", "Last finish");
+        report("EASY", run(CloudletSchedulerBackfilling.EASY));
+        report("CONSERVATIVE", run(CloudletSchedulerBackfilling.CONSERVATIVE));
+    }
+
+    // Runs the batch with the given backfilling policy
+    private static DatacenterBroker run(int policy) throws Exception {
+        Log.disable();
+        CloudSim.init(1, Calendar.getInstance(), false);
+        createDatacenter("Backfilling_Datacenter");
+
+        DatacenterBroker broker = new DatacenterBroker("Broker_" + policy);
+        List<Vm> vms = new ArrayList<>();
+        for (int id = 0; id < VMS; id++) {
+            vms.add(new Vm(id, broker.getId(), PE_MIPS, VM_PES, 512, 1000, 10000, "Xen",
+                    new CloudletSchedulerBackfilling(policy)));
+        }
+        broker.submitVmList(vms);
+        broker.submitCloudletList(createJobs(broker.getId()));
+
+        CloudSim.startSimulation();
+        CloudSim.stopSimulation();
+        return broker;
+    }
+
+    // The same seeded batch for every policy; a job runs for 10 to 200 s on its PEs
+    private static List<Cloudlet> createJobs(int brokerId) {
+        Random random = new Random(SEED);
+        UtilizationModel utilizationModel = new UtilizationModelFull();
+        List<Cloudlet> jobs = new ArrayList<>();
+        for (int id = 0; id < JOBS; id++) {
+            int pes = JOB_PES[random.nextInt(JOB_PES.length)];
+            long runtime = 10 + random.nextInt(191);
+            Cloudlet job = new Cloudlet(id, runtime * PE_MIPS * pes, pes, 300, 300, utilizationModel,
+                    utilizationModel, utilizationModel);
+            job.setUserId(brokerId);
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    private static void report(String policy, DatacenterBroker broker) {
+        Map<Integer, Double> lastFinish = new HashMap<>();
+        for (Cloudlet job : broker.getCloudletReceivedList()) {
+            lastFinish.merge(job.getVmId(), job.getFinishTime(), Math::max);
+        }
+        for (Vm vm : broker.getVmList()) {
+            CloudletSchedulerBackfilling scheduler = (CloudletSchedulerBackfilling) vm.getCloudletScheduler();
+            System.out.printf("%-13s %-4d %8d %11d %10.2f %11.1f%% %12.2f%n", policy, vm.getId(),
+                    scheduler.getStartedCloudlets(), scheduler.getBackfilledCloudlets(),
+                    scheduler.getAverageWaitingTime(), 100 * scheduler.getUtilization(),
+                    lastFinish.getOrDefault(vm.getId(), 0.0));
+        }
+    }
+
+    // One host with a PE for every PE of the VMs
+    private static Datacenter createDatacenter(String name) throws Exception {
+        List<Pe> peList = new ArrayList<>();
+        for (int id = 0; id < VMS * VM_PES; id++) {
+            peList.add(new Pe(id, new PeProvisionerSimple(PE_MIPS)));
+        }
+        List<Host> hostList = new ArrayList<>();
+        hostList.add(new Host(0, new RamProvisionerSimple(20480), new BwProvisionerSimple(100000), 1000000, peList,
+                new VmSchedulerTimeShared(peList)));
+
+        DatacenterCharacteristics characteristics = new DatacenterCharacteristics("x86", "Linux", "Xen", hostList,
+                10.0, 3.0, 0.05, 0.001, 0.0);
+        return new Datacenter(name, characteristics, new VmAllocationPolicySimple(hostList), new LinkedList<Storage>(),
+                0);
+    }
+}
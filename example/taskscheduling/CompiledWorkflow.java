@@ -0,0 +1,445 @@
+package taskscheduling;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A workflow compiled into a columnar binary file and read back through a read-only memory map.
+ * <p>
+ * The file holds the job runtimes as a {@code double} column, the child and parent ids in
+ * compressed rows, and the {@code uses} entries with interned file names. Opening it costs a
+ * header read; {@link Job} objects are only built when {@link #getJobs()} is indexed. All reads
+ * use absolute offsets, so one instance, and the page cache behind it, is shared by every thread.
+ * <p>
+ * Layout, big-endian: a header, the {@code double} and {@code long} columns, the {@code int}
+ * columns, then the bytes of the interned strings, each sized by the header counts.
+ */
+public final class CompiledWorkflow {
+
+    private static final int MAGIC = 0x44415843; // "DAXC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+
+    private final ByteBuffer data;
+    private final long length; // of the compiled file when mapped
+    private final long modified;
+    private final long sourceLength;
+    private final long sourceModified;
+    private final int jobCount;
+    private final int childCount;
+    private final int parentCount;
+    private final int usesCount;
+    private final int stringCount;
+
+    // Offsets of the columns in the file
+    private final int runtimes;
+    private final int usesSizes;
+    private final int ids;
+    private final int levels;
+    private final int names;
+    private final int childStart;
+    private final int children;
+    private final int parentStart;
+    private final int parents;
+    private final int usesStart;
+    private final int usesFiles;
+    private final int usesTypes;
+    private final int usesLinks;
+    private final int stringStart;
+    private final int stringBytes;
+
+    private final AtomicReferenceArray<String> strings;
+
+    private CompiledWorkflow(ByteBuffer data, long length, long modified) throws IOException {
+        this.data = data;
+        this.length = length;
+        this.modified = modified;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a compiled workflow");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new IOException("Unsupported compiled workflow version: " + data.getInt(4));
+        }
+        sourceLength = data.getLong(8);
+        sourceModified = data.getLong(16);
+        jobCount = data.getInt(24);
+        childCount = data.getInt(28);
+        parentCount = data.getInt(32);
+        usesCount = data.getInt(36);
+        stringCount = data.getInt(40);
+
+        runtimes = HEADER_SIZE;
+        usesSizes = runtimes + 8 * jobCount;
+        ids = usesSizes + 8 * usesCount;
+        levels = ids + 4 * jobCount;
+        names = levels + 4 * jobCount;
+        childStart = names + 4 * jobCount;
+        children = childStart + 4 * (jobCount + 1);
+        parentStart = children + 4 * childCount;
+        parents = parentStart + 4 * (jobCount + 1);
+        usesStart = parents + 4 * parentCount;
+        usesFiles = usesStart + 4 * (jobCount + 1);
+        usesTypes = usesFiles + 4 * usesCount;
+        usesLinks = usesTypes + 4 * usesCount;
+        stringStart = usesLinks + 4 * usesCount;
+        stringBytes = stringStart + 4 * (stringCount + 1);
+        if ((long) stringBytes + data.getInt(stringStart + 4 * stringCount) != data.capacity()) {
+            throw new IOException("Truncated compiled workflow");
+        }
+
+        strings = new AtomicReferenceArray<>(stringCount);
+    }
+
+    /**
+     * Maps a compiled workflow file.
+     *
+     * @throws IOException if the file can't be read or is not a compiled workflow
+     */
+    public static CompiledWorkflow open(File file) throws IOException {
+        long modified = file.lastModified();
+        try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel channel = in.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Compiled workflow too large to map: " + file);
+            }
+            // The mapping stays valid once the channel is closed
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CompiledWorkflow(data, channel.size(), modified);
+        }
+    }
+
+    /**
+     * Whether the file still has the length and modification time it had when this was mapped
+     * from it, so a compiled file written again since is mapped again.
+     */
+    public boolean isCurrent(File file) {
+        return file.length() == length && file.lastModified() == modified;
+    }
+
+    /**
+     * Writes parsed jobs to a compiled workflow file.
+     *
+     * @param sourceLength the length of the workflow file the jobs were parsed from
+     * @param sourceModified its modification time, so a stale compiled file can be detected
+     */
+    public static void compile(List<Job> jobs, File file, long sourceLength, long sourceModified)
+            throws IOException {
+        compile(new JobSource(jobs), file, sourceLength, sourceModified);
+    }
+
+    /**
+     * The jobs to compile, read one column at a time, so a workflow can be compiled without a
+     * {@link Job} object per job.
+     */
+    interface Source {
+        int size();
+
+        int getId(int index);
+
+        String getName(int index);
+
+        double getRuntime(int index);
+
+        int getLevel(int index);
+
+        int getChildCount(int index);
+
+        int getChildId(int index, int k);
+
+        int getParentCount(int index);
+
+        int getParentId(int index, int k);
+
+        int getUsesCount(int index);
+
+        Uses getUses(int index, int k);
+    }
+
+    static void compile(Source jobs, File file, long sourceLength, long sourceModified) throws IOException {
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> stringList = new ArrayList<>();
+        int n = jobs.size();
+        int childCount = 0;
+        int parentCount = 0;
+        int usesCount = 0;
+        for (int i = 0; i < n; i++) {
+            childCount += jobs.getChildCount(i);
+            parentCount += jobs.getParentCount(i);
+            usesCount += jobs.getUsesCount(i);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceModified);
+            out.writeInt(n);
+            out.writeInt(childCount);
+            out.writeInt(parentCount);
+            out.writeInt(usesCount);
+            out.writeInt(0); // string count, patched below
+            out.writeInt(0);
+
+            for (int i = 0; i < n; i++) {
+                out.writeDouble(jobs.getRuntime(i));
+            }
+            for (int i = 0; i < n; i++) {
+                for (int k = 0; k < jobs.getUsesCount(i); k++) {
+                    out.writeLong(jobs.getUses(i, k).getSize());
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(jobs.getId(i));
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(jobs.getLevel(i));
+            }
+            for (int i = 0; i < n; i++) {
+                out.writeInt(intern(jobs.getName(i), stringIds, stringList));
+            }
+            writeRows(out, jobs, true);
+            writeRows(out, jobs, false);
+
+            int offset = 0;
+            out.writeInt(offset);
+            for (int i = 0; i < n; i++) {
+                offset += jobs.getUsesCount(i);
+                out.writeInt(offset);
+            }
+            for (int i = 0; i < n; i++) {
+                for (int k = 0; k < jobs.getUsesCount(i); k++) {
+                    out.writeInt(intern(jobs.getUses(i, k).getFile(), stringIds, stringList));
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                for (int k = 0; k < jobs.getUsesCount(i); k++) {
+                    out.writeInt(intern(jobs.getUses(i, k).getType(), stringIds, stringList));
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                for (int k = 0; k < jobs.getUsesCount(i); k++) {
+                    out.writeInt(intern(jobs.getUses(i, k).getLink(), stringIds, stringList));
+                }
+            }
+
+            offset = 0;
+            out.writeInt(offset);
+            for (byte[] bytes : stringList) {
+                offset += bytes.length;
+                out.writeInt(offset);
+            }
+            for (byte[] bytes : stringList) {
+                out.write(bytes);
+            }
+        }
+
+        // The strings are interned while the columns are written, so their count is only known
+        // at the end; patching it in place avoids holding the columns in memory
+        try (RandomAccessFile patch = new RandomAccessFile(file, "rw")) {
+            patch.seek(40);
+            patch.writeInt(stringList.size());
+        }
+    }
+
+    // Whether the file starts like a compiled workflow
+    public static boolean isCompiled(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return file.length() >= HEADER_SIZE && in.readInt() == MAGIC;
+        }
+    }
+
+    // Writes the child (or parent) ids of every job as row offsets followed by the ids
+    private static void writeRows(DataOutputStream out, Source jobs, boolean children) throws IOException {
+        int n = jobs.size();
+        int offset = 0;
+        out.writeInt(offset);
+        for (int i = 0; i < n; i++) {
+            offset += children ? jobs.getChildCount(i) : jobs.getParentCount(i);
+            out.writeInt(offset);
+        }
+        for (int i = 0; i < n; i++) {
+            int count = children ? jobs.getChildCount(i) : jobs.getParentCount(i);
+            for (int k = 0; k < count; k++) {
+                out.writeInt(children ? jobs.getChildId(i, k) : jobs.getParentId(i, k));
+            }
+        }
+    }
+
+    // String id, or -1 for null
+    private static int intern(String value, Map<String, Integer> stringIds, List<byte[]> stringList) {
+        if (value == null) {
+            return -1;
+        }
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = stringList.size();
+            stringIds.put(value, id);
+            stringList.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    public long getSourceLength() {
+        return sourceLength;
+    }
+
+    public long getSourceModified() {
+        return sourceModified;
+    }
+
+    public int size() {
+        return jobCount;
+    }
+
+    public int getId(int index) {
+        return data.getInt(ids + 4 * index);
+    }
+
+    public double getRuntime(int index) {
+        return data.getDouble(runtimes + 8 * index);
+    }
+
+    public int getLevel(int index) {
+        return data.getInt(levels + 4 * index);
+    }
+
+    // Builds the job at a position, with its uses and dependencies
+    public Job getJob(int index) {
+        Job job = WorkflowParser.newJob(getId(index), string(data.getInt(names + 4 * index)), getRuntime(index),
+                getLevel(index));
+
+        int from = data.getInt(usesStart + 4 * index);
+        int to = data.getInt(usesStart + 4 * (index + 1));
+        for (int u = from; u < to; u++) {
+            job.addUses(new Uses(string(data.getInt(usesFiles + 4 * u)), string(data.getInt(usesTypes + 4 * u)),
+                    string(data.getInt(usesLinks + 4 * u)), data.getLong(usesSizes + 8 * u)));
+        }
+        for (int e = data.getInt(childStart + 4 * index); e < data.getInt(childStart + 4 * (index + 1)); e++) {
+            job.addChildId(data.getInt(children + 4 * e));
+        }
+        for (int e = data.getInt(parentStart + 4 * index); e < data.getInt(parentStart + 4 * (index + 1)); e++) {
+            job.addParentId(data.getInt(parents + 4 * e));
+        }
+        return job;
+    }
+
+    /**
+     * Returns the jobs as a list that builds each job the first time it is read. Every call
+     * returns a new list, so runs sharing this workflow never share job objects.
+     */
+    public List<Job> getJobs() {
+        return new AbstractList<Job>() {
+            private final Job[] jobs = new Job[jobCount];
+
+            @Override
+            public Job get(int index) {
+                if (jobs[index] == null) {
+                    jobs[index] = getJob(index);
+                }
+                return jobs[index];
+            }
+
+            @Override
+            public int size() {
+                return jobCount;
+            }
+        };
+    }
+
+    private String string(int id) {
+        if (id < 0) {
+            return null;
+        }
+        String value = strings.get(id);
+        if (value == null) {
+            int from = data.getInt(stringStart + 4 * id);
+            int to = data.getInt(stringStart + 4 * (id + 1));
+            byte[] bytes = new byte[to - from];
+            ByteBuffer view = data.duplicate();
+            view.position(stringBytes + from);
+            view.get(bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+            strings.compareAndSet(id, null, value);
+        }
+        return value;
+    }
+
+    // Parsed jobs as a compile source
+    private static final class JobSource implements Source {
+        private final List<Job> jobs;
+
+        JobSource(List<Job> jobs) {
+            this.jobs = jobs;
+        }
+
+        @Override
+        public int size() {
+            return jobs.size();
+        }
+
+        @Override
+        public int getId(int index) {
+            return jobs.get(index).getId();
+        }
+
+        @Override
+        public String getName(int index) {
+            return jobs.get(index).getName();
+        }
+
+        @Override
+        public double getRuntime(int index) {
+            return jobs.get(index).getRuntime();
+        }
+
+        @Override
+        public int getLevel(int index) {
+            return jobs.get(index).getLevel();
+        }
+
+        @Override
+        public int getChildCount(int index) {
+            return jobs.get(index).getChildIds().size();
+        }
+
+        @Override
+        public int getChildId(int index, int k) {
+            return jobs.get(index).getChildIds().get(k);
+        }
+
+        @Override
+        public int getParentCount(int index) {
+            return jobs.get(index).getParentIds().size();
+        }
+
+        @Override
+        public int getParentId(int index, int k) {
+            return jobs.get(index).getParentIds().get(k);
+        }
+
+        @Override
+        public int getUsesCount(int index) {
+            return jobs.get(index).getUsesList().size();
+        }
+
+        @Override
+        public Uses getUses(int index, int k) {
+            return jobs.get(index).getUsesList().get(k);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package taskscheduling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Declares the experiment matrix: every combination of workflow, scheduling algorithm,
+ * VM MIPS mix, scheduling interval, dispatch mode and placement becomes one {@link Cell}. The
+ * locality-aware placement only applies to the algorithms scheduled by a {@link PriorityPolicy}.
+ */
+public class ExperimentGrid {
+
+    private final List<String> workflows = new ArrayList<>();
+    private final List<MyBroker.SchedulingAlgorithm> algorithms = new ArrayList<>();
+    private final List<int[]> vmMipsMixes = new ArrayList<>();
+    private final List<Double> scheduleIntervals = new ArrayList<>();
+    private final List<MyBroker.DispatchMode> dispatchModes = new ArrayList<>();
+    private final List<Boolean> localityAwareness = new ArrayList<>();
+
+    public ExperimentGrid addWorkflow(String workflow) {
+        workflows.add(workflow);
+        return this;
+    }
+
+    public ExperimentGrid addAlgorithm(MyBroker.SchedulingAlgorithm algorithm) {
+        algorithms.add(algorithm);
+        return this;
+    }
+
+    // One VM type per entry; SimpleExample.createVMs creates 4 replicas of each type
+    public ExperimentGrid addVmMips(int... mips) {
+        vmMipsMixes.add(mips.clone());
+        return this;
+    }
+
+    public ExperimentGrid addScheduleInterval(double interval) {
+        scheduleIntervals.add(interval);
+        return this;
+    }
+
+    public ExperimentGrid addDispatchMode(MyBroker.DispatchMode mode) {
+        dispatchModes.add(mode);
+        return this;
+    }
+
+    public ExperimentGrid addLocalityAware(boolean localityAware) {
+        localityAwareness.add(localityAware);
+        return this;
+    }
+
+    // Expands the grid in declaration order; missing dimensions fall back to the SimpleExample defaults
+    public List<Cell> cells() {
+        if (workflows.isEmpty() || algorithms.isEmpty()) {
+            throw new IllegalStateException("The grid needs at least one workflow and one algorithm.");
+        }
+        List<int[]> mixes = vmMipsMixes.isEmpty()
+                ? Collections.singletonList(SimpleExample.DEFAULT_VM_MIPS) : vmMipsMixes;
+        List<Double> intervals = scheduleIntervals.isEmpty()
+                ? Collections.singletonList(MyBroker.SCHEDULE_INTERVAL) : scheduleIntervals;
+        List<MyBroker.DispatchMode> modes = dispatchModes.isEmpty()
+                ? Collections.singletonList(MyBroker.DispatchMode.PERIODIC) : dispatchModes;
+        List<Boolean> placements = localityAwareness.isEmpty()
+                ? Collections.singletonList(false) : localityAwareness;
+
+        List<Cell> cells = new ArrayList<>();
+        for (String workflow : workflows) {
+            for (MyBroker.SchedulingAlgorithm algorithm : algorithms) {
+                boolean placesByPriority = algorithm.newPolicy() instanceof PriorityPolicy;
+                for (int[] mips : mixes) {
+                    for (double interval : intervals) {
+                        for (MyBroker.DispatchMode mode : modes) {
+                            for (boolean localityAware : placements) {
+                                if (localityAware && !placesByPriority) {
+                                    continue; // the plan fixes the placement
+                                }
+                                cells.add(new Cell(workflow, algorithm, mips, interval, mode, localityAware));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return cells;
+    }
+
+    public static class Cell {
+        private final String workflow;
+        private final MyBroker.SchedulingAlgorithm algorithm;
+        private final int[] vmMips;
+        private final double scheduleInterval;
+        private final MyBroker.DispatchMode dispatchMode;
+        private final boolean localityAware;
+
+        public Cell(String workflow, MyBroker.SchedulingAlgorithm algorithm, int[] vmMips, double scheduleInterval) {
+            this(workflow, algorithm, vmMips, scheduleInterval, MyBroker.DispatchMode.PERIODIC);
+        }
+
+        public Cell(String workflow, MyBroker.SchedulingAlgorithm algorithm, int[] vmMips, double scheduleInterval,
+                    MyBroker.DispatchMode dispatchMode) {
+            this(workflow, algorithm, vmMips, scheduleInterval, dispatchMode, false);
+        }
+
+        public Cell(String workflow, MyBroker.SchedulingAlgorithm algorithm, int[] vmMips, double scheduleInterval,
+                    MyBroker.DispatchMode dispatchMode, boolean localityAware) {
+            this.workflow = workflow;
+            this.algorithm = algorithm;
+            this.vmMips = vmMips.clone();
+            this.scheduleInterval = scheduleInterval;
+            this.dispatchMode = dispatchMode;
+            this.localityAware = localityAware;
+        }
+
+        public String getWorkflow() {
+            return workflow;
+        }
+
+        public MyBroker.SchedulingAlgorithm getAlgorithm() {
+            return algorithm;
+        }
+
+        public int[] getVmMips() {
+            return vmMips.clone();
+        }
+
+        public double getScheduleInterval() {
+            return scheduleInterval;
+        }
+
+        public MyBroker.DispatchMode getDispatchMode() {
+            return dispatchMode;
+        }
+
+        public boolean isLocalityAware() {
+            return localityAware;
+        }
+
+        @Override
+        public String toString() {
+            String placement = localityAware ? " locality-aware" : "";
+            if (dispatchMode == MyBroker.DispatchMode.EVENT_DRIVEN) {
+                return workflow + " " + algorithm + " " + Arrays.toString(vmMips) + " event-driven" + placement;
+            }
+            return workflow + " " + algorithm + " " + Arrays.toString(vmMips) + " every " + scheduleInterval + placement;
+        }
+    }
+}
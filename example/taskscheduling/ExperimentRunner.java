@@ -0,0 +1,195 @@
+package taskscheduling;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * Runs every cell of an {@link ExperimentGrid} as an independent simulation and collects
+ * makespan, processed events and wall-clock time per cell.
+ * <p>
+ * Cells run in parallel on a thread pool. Each worker thread owns its own CloudSim simulation
+ * context (see {@link CloudSim#getSimulation()}), so concurrent cells never share kernel state.
+ */
+public class ExperimentRunner {
+
+    private final int threads;
+    private final boolean quiet;
+
+    public ExperimentRunner(int threads, boolean quiet) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one worker thread is needed: " + threads);
+        }
+        this.threads = threads;
+        this.quiet = quiet;
+    }
+
+    // Results are returned in the order of grid.cells(), whatever order the cells finish in
+    public List<Result> run(ExperimentGrid grid) throws InterruptedException {
+        List<ExperimentGrid.Cell> cells = grid.cells();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, cells.size()));
+        try {
+            List<Future<Result>> futures = new ArrayList<>();
+            for (ExperimentGrid.Cell cell : cells) {
+                futures.add(pool.submit(() -> runCell(cell)));
+            }
+
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < cells.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(Result.failed(cells.get(i), e.getCause()));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private Result runCell(ExperimentGrid.Cell cell) throws Exception {
+        long realStartTime = System.nanoTime();
+
+        // Log settings belong to this thread's simulation context
+        if (quiet) {
+            Log.disable();
+        } else {
+            Log.enable();
+        }
+        CloudSim.init(1, Calendar.getInstance(), false);
+        SimpleExample.createDatacenter("My_Datacenter");
+
+        MyBroker broker = new MyBroker("Broker_" + cell.getAlgorithm().name(), cell.getAlgorithm(),
+                cell.getScheduleInterval(), cell.getDispatchMode());
+        broker.submitVmList(SimpleExample.createVMs(broker.getId(), cell.getVmMips()));
+
+        List<Job> jobs = WorkflowParser.parseWorkflow(cell.getWorkflow());
+        List<Cloudlet> cloudlets = SimpleExample.createCloudlets(jobs, broker.getId());
+        broker.setJobDependencies(broker.extractJobDependencies(jobs));
+        broker.setWorkflowAnalytics(WorkflowAnalytics.forWorkflow(cell.getWorkflow(), jobs));
+        broker.setStorageTransferRate(SimpleExample.STORAGE_TRANSFER_RATE);
+        if (broker.getPolicy() instanceof PriorityPolicy) {
+            ((PriorityPolicy) broker.getPolicy()).setLocalityAware(cell.isLocalityAware());
+        }
+        broker.submitCloudletList(cloudlets);
+
+        CloudSim.startSimulation();
+
+        double wallSeconds = (System.nanoTime() - realStartTime) / 1e9;
+        return new Result(cell, broker.getMakespan(), broker.getCompletedJobCount(), jobs.size(),
+                CloudSim.getNumProcessedEvents(), wallSeconds, null);
+    }
+
+    public static void printTable(List<Result> results) {
+        System.out.printf("%-32s %-5s %-18s %9s %-12s %-8s %12s %11s %10s %9s%n",
+                "Workflow", "Alg", "VM MIPS", "Interval", "Dispatch", "Locality", "Makespan", "Jobs", "Events", "Wall(s)");
+        for (Result result : results) {
+            ExperimentGrid.Cell cell = result.getCell();
+            if (result.getError() != null) {
+                System.out.printf("%-32s %-5s %-18s %9.1f %-12s %-8s FAILED: %s%n", cell.getWorkflow(),
+                        cell.getAlgorithm(), Arrays.toString(cell.getVmMips()), cell.getScheduleInterval(),
+                        cell.getDispatchMode(), cell.isLocalityAware() ? "yes" : "no", result.getError());
+                continue;
+            }
+            System.out.printf("%-32s %-5s %-18s %9.1f %-12s %-8s %12.2f %5d/%-5d %10d %9.2f%n", cell.getWorkflow(),
+                    cell.getAlgorithm(), Arrays.toString(cell.getVmMips()), cell.getScheduleInterval(),
+                    cell.getDispatchMode(), cell.isLocalityAware() ? "yes" : "no", result.getMakespan(), result.getCompletedJobs(), result.getTotalJobs(), result.getEvents(),
+                    result.getWallSeconds());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        if (args.length > 1) {
+            // Workflows are compiled into this directory once and memory-mapped by later runs
+            WorkflowParser.setCacheDirectory(new File(args[1]));
+        }
+
+        ExperimentGrid grid = new ExperimentGrid()
+                .addWorkflow("resources/CyberShake_500_1.xml")
+                .addWorkflow("resources/LIGO_500_1.xml")
+                .addWorkflow("resources/Montage_500_1.xml")
+                .addVmMips(SimpleExample.DEFAULT_VM_MIPS)
+                .addVmMips(1200, 1200, 1200)
+                .addScheduleInterval(MyBroker.SCHEDULE_INTERVAL)
+                .addDispatchMode(MyBroker.DispatchMode.PERIODIC)
+                .addDispatchMode(MyBroker.DispatchMode.EVENT_DRIVEN)
+                .addLocalityAware(false)
+                .addLocalityAware(true);
+        for (MyBroker.SchedulingAlgorithm algorithm : MyBroker.SchedulingAlgorithm.values()) {
+            grid.addAlgorithm(algorithm);
+        }
+
+        long realStartTime = System.nanoTime();
+        List<Result> results = new ExperimentRunner(threads, true).run(grid);
+        double executionTime = (System.nanoTime() - realStartTime) / 1e9;
+
+        printTable(results);
+        System.out.printf("*** Completed %d cells on %d threads in %.2f seconds. ***%n", results.size(), threads,
+                executionTime);
+    }
+
+    public static class Result {
+        private final ExperimentGrid.Cell cell;
+        private final double makespan;
+        private final int completedJobs;
+        private final int totalJobs;
+        private final long events;
+        private final double wallSeconds;
+        private final String error;
+
+        public Result(ExperimentGrid.Cell cell, double makespan, int completedJobs, int totalJobs, long events,
+                      double wallSeconds, String error) {
+            this.cell = cell;
+            this.makespan = makespan;
+            this.completedJobs = completedJobs;
+            this.totalJobs = totalJobs;
+            this.events = events;
+            this.wallSeconds = wallSeconds;
+            this.error = error;
+        }
+
+        static Result failed(ExperimentGrid.Cell cell, Throwable cause) {
+            return new Result(cell, Double.NaN, 0, 0, 0, Double.NaN, String.valueOf(cause));
+        }
+
+        public ExperimentGrid.Cell getCell() {
+            return cell;
+        }
+
+        public double getMakespan() {
+            return makespan;
+        }
+
+        public int getCompletedJobs() {
+            return completedJobs;
+        }
+
+        public int getTotalJobs() {
+            return totalJobs;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public double getWallSeconds() {
+            return wallSeconds;
+        }
+
+        public String getError() {
+            return error;
+        }
+    }
+}
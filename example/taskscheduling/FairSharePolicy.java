@@ -0,0 +1,177 @@
+package taskscheduling;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.cloudbus.cloudsim.Vm;
+
+/**
+ * Multiplexes the workflows of a {@link MultiWorkflowBroker} over the shared VMs. Each workflow
+ * keeps its own ready tasks, ordered by upward rank; at every assignment the strategy picks the
+ * workflow to serve next and its first task goes to the VM that would finish it first.
+ */
+public class FairSharePolicy implements WorkflowSchedulingPolicy, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Strategy {
+        // The workflow with the fewest tasks on the VMs, earlier arrivals first on ties. This evens
+        // out the slowdowns but does not shorten them: short workflows wait behind long ones
+        FAIR_SHARE,
+        // The workflow with the least slack before its deadline; workflows without one share the rest fairly
+        LEAST_SLACK
+    }
+
+    private final Strategy strategy;
+    private final Map<Integer, WorkflowInstance> instanceOfJob;
+    private final Map<String, Share> shares = new HashMap<>();
+    private int readyCount = 0;
+    private long readySequence = 0;
+
+    /**
+     * @param instanceOfJob the workflow of each namespaced job id; read as tasks become ready, so
+     *                      it may be filled after the policy is created
+     */
+    public FairSharePolicy(Strategy strategy, Map<Integer, WorkflowInstance> instanceOfJob) {
+        this.strategy = strategy;
+        this.instanceOfJob = instanceOfJob;
+    }
+
+    @Override
+    public void taskReady(Job task, SchedulingContext context) {
+        WorkflowInstance instance = instanceOf(task);
+        Share share = shares.computeIfAbsent(instance.getName(), k -> new Share(instance));
+        double rank = instance.getAnalytics().getUpwardRank(instance.toLocalId(task.getId()));
+        share.ready.add(new RankedTask(task, rank, readySequence++));
+        readyCount++;
+    }
+
+    @Override
+    public void taskCompleted(Job task, SchedulingContext context) {
+        shares.get(instanceOf(task).getName()).running--;
+    }
+
+    @Override
+    public void schedule(SchedulingContext context) {
+        double secondsPerRank = secondsPerRank(context);
+        while (readyCount > 0) {
+            Share share = nextShare(context.getClock(), secondsPerRank);
+            Job task = share.ready.peek().task;
+            Vm target = PriorityPolicy.selectVm(task, context, false);
+            if (target == null) {
+                return;
+            }
+            share.ready.poll();
+            share.running++;
+            readyCount--;
+            context.assign(task, target);
+        }
+    }
+
+    // Simulated seconds an average VM takes for one second of workflow runtime, the unit of the ranks
+    private static double secondsPerRank(SchedulingContext context) {
+        double mips = 0;
+        for (Vm vm : context.getVms()) {
+            mips += vm.getMips();
+        }
+        return mips == 0 ? 1 : SimpleExample.MI_PER_RUNTIME_SECOND * context.getVms().size() / mips;
+    }
+
+    // The workflow with ready tasks that is served next
+    private Share nextShare(double clock, double secondsPerRank) {
+        Share best = null;
+        for (Share share : shares.values()) {
+            if (share.ready.isEmpty()) {
+                continue;
+            }
+            if (best == null || compare(share, best, clock, secondsPerRank) < 0) {
+                best = share;
+            }
+        }
+        return best;
+    }
+
+    private int compare(Share a, Share b, double clock, double secondsPerRank) {
+        if (strategy == Strategy.LEAST_SLACK) {
+            int bySlack = Double.compare(a.slack(clock, secondsPerRank), b.slack(clock, secondsPerRank));
+            if (bySlack != 0) {
+                return bySlack;
+            }
+        }
+        int byRunning = Integer.compare(a.running, b.running);
+        if (byRunning != 0) {
+            return byRunning;
+        }
+        int byArrival = Double.compare(a.instance.getArrivalTime(), b.instance.getArrivalTime());
+        return byArrival != 0 ? byArrival : a.instance.getName().compareTo(b.instance.getName());
+    }
+
+    private WorkflowInstance instanceOf(Job task) {
+        WorkflowInstance instance = instanceOfJob.get(task.getId());
+        if (instance == null) {
+            throw new IllegalArgumentException("Task " + task.getId() + " belongs to no submitted workflow");
+        }
+        return instance;
+    }
+
+    @Override
+    public boolean hasReadyTasks() {
+        return readyCount > 0;
+    }
+
+    @Override
+    public String describeAssignment(Job task, Vm vm) {
+        return "Assigning Task " + task.getCloudletId() + " (Workflow: " + instanceOf(task) + ") to VM " + vm.getId();
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    // The ready and running tasks of one workflow
+    private static final class Share implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final WorkflowInstance instance;
+        private final PriorityQueue<RankedTask> ready = new PriorityQueue<>();
+        private int running = 0;
+
+        Share(WorkflowInstance instance) {
+            this.instance = instance;
+        }
+
+        // Simulated time left before the deadline once the longest remaining path has run on
+        // average VMs; infinite without a deadline
+        double slack(double clock, double secondsPerRank) {
+            if (!instance.hasDeadline()) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return instance.getDeadline() - clock - ready.peek().rank * secondsPerRank;
+        }
+    }
+
+    // Larger upward ranks first; ties keep the order in which the tasks became ready
+    private static final class RankedTask implements Comparable<RankedTask>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Job task;
+        private final double rank;
+        private final long sequence;
+
+        RankedTask(Job task, double rank, long sequence) {
+            this.task = task;
+            this.rank = rank;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(RankedTask other) {
+            int byRank = Double.compare(other.rank, rank);
+            return byRank != 0 ? byRank : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -7,6 +7,9 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class Job extends Cloudlet {
+
+    private static final long serialVersionUID = 1L;
+
     private int id;
     private String name;
     private double runtime;
@@ -0,0 +1,38 @@
+package taskscheduling;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Vm;
+
+// Lowest workflow level first
+public class LevelBasedPolicy extends PriorityPolicy {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<Integer, Integer> jobDepths = new HashMap<>();
+
+    @Override
+    public void start(SchedulingContext context) {
+        // Levels given in the workflow file take precedence over the computed depth
+        for (Job job : context.getJobs()) {
+            int level = job.getLevel();
+            jobDepths.put(job.getId(), level != -1 ? level : context.getAnalytics().getDepth(job.getId()));
+        }
+    }
+
+    @Override
+    protected long priorityOf(Job task) {
+        return jobDepths.getOrDefault(task.getCloudletId(), -1);
+    }
+
+    @Override
+    public String describeAssignment(Job task, Vm vm) {
+        return "Assigning Task " + task.getCloudletId() +
+                " (Depth: " + jobDepths.getOrDefault(task.getCloudletId(), -1) + ") to VM " + vm.getId();
+    }
+
+    public Map<Integer, Integer> getJobDepths() {
+        return jobDepths;
+    }
+}
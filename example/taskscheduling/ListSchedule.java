@@ -0,0 +1,401 @@
+package taskscheduling;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.LongToDoubleFunction;
+
+import org.cloudbus.cloudsim.Vm;
+
+/**
+ * A static list schedule of a workflow on a set of VMs, built by HEFT or PEFT.
+ * <p>
+ * File costs follow the broker's transfer model: a task reads each input its VM holds no copy of
+ * from the shared storage before it runs, and a VM holds the outputs of the tasks it ran. The
+ * execution cost of a task on a VM is its cloudlet length over the VM MIPS, plus reading the
+ * inputs no parent produces. The communication cost of an edge is reading the files the parent
+ * outputs and the child inputs, and is zero on the same VM. Both algorithms place each task, in
+ * priority order, in the earliest idle slot of a VM (insertion policy):
+ * <ul>
+ * <li>HEFT orders tasks by upward rank and takes the VM with the earliest finish time.</li>
+ * <li>PEFT orders ready tasks by the mean of their optimistic cost table (OCT) row and takes
+ * the VM that minimises the finish time plus the optimistic cost of the remaining path.</li>
+ * </ul>
+ */
+public final class ListSchedule implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Algorithm {
+        HEFT, PEFT
+    }
+
+    private final Map<Integer, Integer> indexOf = new HashMap<>();
+    private final int[] jobIds;
+    private final int[] vmOf; // VM position per task
+    private final double[] start;
+    private final double[] finish;
+    private final double[] rank;
+    private final int[] order; // task positions in scheduling order
+    private final int[] vmIds;
+    private final double makespan;
+
+    // Successors and predecessors in compressed rows, with the transfer time of each edge
+    private final int[] succStart;
+    private final int[] succ;
+    private final double[] succData;
+    private final int[] predStart;
+    private final int[] pred;
+    private final double[] predData;
+
+    private final double[][] cost; // execution time per task and VM
+    private final List<List<double[]>> slots = new ArrayList<>(); // busy {start, finish} per VM, by start
+
+    /**
+     * @param jobs the tasks to schedule, with their uses
+     * @param children the children of each job id, as built by {@link MyBroker#extractJobDependencies(List)}
+     * @param vms the VMs to schedule on
+     * @param transferTime the time to read a file of the given bytes from the shared storage, as
+     *                     {@link SchedulingContext#getFileTransferTime(long)} charges it
+     */
+    public ListSchedule(Algorithm algorithm, List<? extends Job> jobs, Map<Integer, List<Integer>> children,
+                        List<? extends Vm> vms, LongToDoubleFunction transferTime) {
+        if (vms.isEmpty()) {
+            throw new IllegalArgumentException("No VMs to schedule on");
+        }
+        int n = jobs.size();
+        int p = vms.size();
+        jobIds = new int[n];
+        for (int i = 0; i < n; i++) {
+            jobIds[i] = jobs.get(i).getId();
+            indexOf.put(jobIds[i], i);
+        }
+        // Edges, and the time to read every file a parent outputs and its child inputs
+        List<int[]> edges = new ArrayList<>();
+        List<Double> edgeData = new ArrayList<>();
+        List<Map<String, Long>> inputs = new ArrayList<>();
+        for (Job job : jobs) {
+            inputs.add(inputsOf(job));
+        }
+        if (children != null) {
+            for (int i = 0; i < n; i++) {
+                for (int childId : children.getOrDefault(jobIds[i], Collections.emptyList())) {
+                    Integer j = indexOf.get(childId);
+                    if (j == null) {
+                        continue;
+                    }
+                    Map<String, Long> childInputs = inputs.get(j);
+                    double time = 0;
+                    for (Uses uses : jobs.get(i).getUsesList()) {
+                        if (uses.isOutput() && childInputs.containsKey(uses.getFile())) {
+                            // the child reads it from its parent's VM for free, and from storage elsewhere
+                            time += transferTime.applyAsDouble(childInputs.remove(uses.getFile()));
+                        }
+                    }
+                    edges.add(new int[] {i, j});
+                    edgeData.add(time);
+                }
+            }
+        }
+
+        // The inputs left are read from storage whatever the VM
+        vmIds = new int[p];
+        cost = new double[n][p];
+        double meanInverseMips = 0;
+        for (int k = 0; k < p; k++) {
+            Vm vm = vms.get(k);
+            vmIds[k] = vm.getId();
+            meanInverseMips += 1.0 / (vm.getMips() * vm.getNumberOfPes()) / p;
+            slots.add(new ArrayList<>());
+        }
+        double[] inputTime = new double[n];
+        for (int i = 0; i < n; i++) {
+            for (long bytes : inputs.get(i).values()) {
+                inputTime[i] += transferTime.applyAsDouble(bytes);
+            }
+            for (int k = 0; k < p; k++) {
+                Vm vm = vms.get(k);
+                cost[i][k] = inputTime[i] + jobs.get(i).getCloudletLength() / (vm.getMips() * vm.getNumberOfPes());
+            }
+        }
+        succStart = new int[n + 1];
+        predStart = new int[n + 1];
+        for (int[] edge : edges) {
+            succStart[edge[0] + 1]++;
+            predStart[edge[1] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            succStart[i + 1] += succStart[i];
+            predStart[i + 1] += predStart[i];
+        }
+        succ = new int[edges.size()];
+        succData = new double[edges.size()];
+        pred = new int[edges.size()];
+        predData = new double[edges.size()];
+        int[] succFill = succStart.clone();
+        int[] predFill = predStart.clone();
+        for (int e = 0; e < edges.size(); e++) {
+            int[] edge = edges.get(e);
+            succ[succFill[edge[0]]] = edge[1];
+            succData[succFill[edge[0]]++] = edgeData.get(e);
+            pred[predFill[edge[1]]] = edge[0];
+            predData[predFill[edge[1]]++] = edgeData.get(e);
+        }
+
+        int[] topological = topologicalOrder(n);
+        int[] topologicalPosition = new int[n];
+        for (int k = 0; k < n; k++) {
+            topologicalPosition[topological[k]] = k;
+        }
+
+        rank = new double[n];
+        vmOf = new int[n];
+        start = new double[n];
+        finish = new double[n];
+        order = new int[n];
+        if (algorithm == Algorithm.HEFT) {
+            // Upward rank with mean computation and communication costs
+            for (int k = n - 1; k >= 0; k--) {
+                int i = topological[k];
+                double longest = 0;
+                for (int e = succStart[i]; e < succStart[i + 1]; e++) {
+                    longest = Math.max(longest, succData[e] + rank[succ[e]]);
+                }
+                rank[i] = inputTime[i] + jobs.get(i).getCloudletLength() * meanInverseMips + longest;
+            }
+            Integer[] byRank = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                byRank[i] = i;
+            }
+            // A parent never ranks below its children, so ties fall back to the topological order
+            Arrays.sort(byRank, (a, b) -> rank[a] != rank[b] ? Double.compare(rank[b], rank[a])
+                    : Integer.compare(topologicalPosition[a], topologicalPosition[b]));
+            for (int k = 0; k < n; k++) {
+                order[k] = byRank[k];
+                place(byRank[k], null);
+            }
+        } else {
+            double[][] oct = optimisticCostTable(topological);
+            for (int i = 0; i < n; i++) {
+                double sum = 0;
+                for (int k = 0; k < p; k++) {
+                    sum += oct[i][k];
+                }
+                rank[i] = sum / p;
+            }
+            // Ready tasks by decreasing OCT rank
+            PriorityQueue<Integer> ready = new PriorityQueue<>((a, b) -> rank[a] != rank[b]
+                    ? Double.compare(rank[b], rank[a]) : Integer.compare(topologicalPosition[a], topologicalPosition[b]));
+            int[] unscheduledParents = new int[n];
+            for (int i = 0; i < n; i++) {
+                unscheduledParents[i] = predStart[i + 1] - predStart[i];
+                if (unscheduledParents[i] == 0) {
+                    ready.add(i);
+                }
+            }
+            for (int k = 0; k < n; k++) {
+                int i = ready.poll();
+                order[k] = i;
+                place(i, oct[i]);
+                for (int e = succStart[i]; e < succStart[i + 1]; e++) {
+                    if (--unscheduledParents[succ[e]] == 0) {
+                        ready.add(succ[e]);
+                    }
+                }
+            }
+        }
+
+        double last = 0;
+        for (int i = 0; i < n; i++) {
+            last = Math.max(last, finish[i]);
+        }
+        makespan = last;
+    }
+
+    private static Map<String, Long> inputsOf(Job job) {
+        Map<String, Long> inputs = new HashMap<>();
+        for (Uses uses : job.getUsesList()) {
+            if (uses.isInput()) {
+                inputs.merge(uses.getFile(), uses.getSize(), Math::max);
+            }
+        }
+        return inputs;
+    }
+
+    private int[] topologicalOrder(int n) {
+        int[] topological = new int[n];
+        int[] remaining = new int[n];
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            remaining[i] = predStart[i + 1] - predStart[i];
+            if (remaining[i] == 0) {
+                topological[tail++] = i;
+            }
+        }
+        for (int head = 0; head < tail; head++) {
+            int i = topological[head];
+            for (int e = succStart[i]; e < succStart[i + 1]; e++) {
+                if (--remaining[succ[e]] == 0) {
+                    topological[tail++] = succ[e];
+                }
+            }
+        }
+        if (tail != n) {
+            throw new IllegalArgumentException("The workflow has a cycle");
+        }
+        return topological;
+    }
+
+    // OCT(i, k): the optimistic remaining time after task i finishes on VM k. The best successor
+    // VM is either k itself, with no communication, or the overall best one plus the
+    // communication cost.
+    private double[][] optimisticCostTable(int[] topological) {
+        int n = topological.length;
+        int p = vmIds.length;
+        double[][] oct = new double[n][p];
+        double[] best = new double[n];
+        for (int t = n - 1; t >= 0; t--) {
+            int i = topological[t];
+            for (int e = succStart[i]; e < succStart[i + 1]; e++) {
+                int j = succ[e];
+                double communication = succData[e];
+                for (int k = 0; k < p; k++) {
+                    double path = Math.min(oct[j][k] + cost[j][k], best[j] + communication);
+                    oct[i][k] = Math.max(oct[i][k], path);
+                }
+            }
+            best[i] = Double.POSITIVE_INFINITY;
+            for (int k = 0; k < p; k++) {
+                best[i] = Math.min(best[i], oct[i][k] + cost[i][k]);
+            }
+        }
+        return oct;
+    }
+
+    // Places a task on the VM with the earliest finish time, plus its optimistic cost if given.
+    // The VM reads the outputs of the parents placed elsewhere once they finish, before running it.
+    private void place(int i, double[] optimisticCost) {
+        int bestVm = -1;
+        double bestStart = 0;
+        double bestScore = Double.POSITIVE_INFINITY;
+        double bestFinish = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < vmIds.length; k++) {
+            double ready = 0;
+            double duration = cost[i][k];
+            for (int e = predStart[i]; e < predStart[i + 1]; e++) {
+                int parent = pred[e];
+                ready = Math.max(ready, finish[parent]);
+                if (vmOf[parent] != k) {
+                    duration += predData[e];
+                }
+            }
+            double earliest = earliestStart(slots.get(k), ready, duration);
+            double end = earliest + duration;
+            double score = optimisticCost == null ? end : end + optimisticCost[k];
+            if (score < bestScore || (score == bestScore && end < bestFinish)) {
+                bestVm = k;
+                bestStart = earliest;
+                bestScore = score;
+                bestFinish = end;
+            }
+        }
+
+        vmOf[i] = bestVm;
+        start[i] = bestStart;
+        finish[i] = bestFinish;
+        List<double[]> busy = slots.get(bestVm);
+        int at = 0;
+        while (at < busy.size() && busy.get(at)[0] <= bestStart) {
+            at++;
+        }
+        busy.add(at, new double[] {bestStart, bestFinish});
+    }
+
+    // The earliest start at or after ready of an idle gap that fits the duration
+    private static double earliestStart(List<double[]> busy, double ready, double duration) {
+        // Slots ending before ready can't bound a usable gap; skip them by binary search
+        int low = 0;
+        int high = busy.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (busy.get(mid)[1] <= ready) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        double candidate = ready;
+        for (int s = low; s < busy.size(); s++) {
+            double[] slot = busy.get(s);
+            if (candidate + duration <= slot[0]) {
+                return candidate;
+            }
+            candidate = Math.max(candidate, slot[1]);
+        }
+        return candidate;
+    }
+
+    public boolean contains(int jobId) {
+        return indexOf.containsKey(jobId);
+    }
+
+    public int getVmId(int jobId) {
+        return vmIds[vmOf[index(jobId)]];
+    }
+
+    public double getStartTime(int jobId) {
+        return start[index(jobId)];
+    }
+
+    public double getFinishTime(int jobId) {
+        return finish[index(jobId)];
+    }
+
+    // Upward rank for HEFT, mean OCT row for PEFT
+    public double getRank(int jobId) {
+        return rank[index(jobId)];
+    }
+
+    // Planned finish time of the last task
+    public double getMakespan() {
+        return makespan;
+    }
+
+    /**
+     * Returns the job ids planned on each VM, by planned start time. Tasks with the same start keep
+     * the scheduling order, where parents always precede their children, so a VM running its queue
+     * in this order never waits on a task queued behind another VM's waiting head.
+     */
+    public Map<Integer, ArrayDeque<Integer>> getVmQueues() {
+        Integer[] byStart = new Integer[order.length];
+        for (int k = 0; k < order.length; k++) {
+            byStart[k] = k;
+        }
+        Arrays.sort(byStart, (a, b) -> start[order[a]] != start[order[b]]
+                ? Double.compare(start[order[a]], start[order[b]]) : Integer.compare(a, b));
+
+        Map<Integer, ArrayDeque<Integer>> queues = new HashMap<>();
+        for (int vmId : vmIds) {
+            queues.put(vmId, new ArrayDeque<>());
+        }
+        for (int k : byStart) {
+            int i = order[k];
+            queues.get(vmIds[vmOf[i]]).add(jobIds[i]);
+        }
+        return queues;
+    }
+
+    private int index(int jobId) {
+        Integer i = indexOf.get(jobId);
+        if (i == null) {
+            throw new IllegalArgumentException("Unknown job: " + jobId);
+        }
+        return i;
+    }
+}
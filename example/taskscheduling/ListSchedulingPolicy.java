@@ -0,0 +1,87 @@
+package taskscheduling;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.lists.VmList;
+
+/**
+ * Runs a {@link ListSchedule} planned once the VMs exist: each VM takes its planned tasks in
+ * order, the next one as soon as it is ready and the VM needs work. The plan fixes the VM of
+ * every task, so a planned task is dispatched when its last parent or the task before it on its VM
+ * completes, not at the broker's next scheduling point.
+ */
+public class ListSchedulingPolicy implements WorkflowSchedulingPolicy, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ListSchedule.Algorithm algorithm;
+    private ListSchedule listSchedule;
+    private Map<Integer, ArrayDeque<Integer>> plannedQueues;
+    private final Map<Integer, Job> plannedReady = new HashMap<>();
+
+    public ListSchedulingPolicy(ListSchedule.Algorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    @Override
+    public void taskReady(Job task, SchedulingContext context) {
+        plannedReady.put(task.getId(), task);
+        if (listSchedule != null) {
+            dispatch(VmList.getById(context.getVms(), listSchedule.getVmId(task.getId())), context);
+        }
+    }
+
+    @Override
+    public void taskCompleted(Job task, SchedulingContext context) {
+        if (listSchedule != null) {
+            dispatch(VmList.getById(context.getVms(), task.getVmId()), context);
+        }
+    }
+
+    @Override
+    public void schedule(SchedulingContext context) {
+        if (listSchedule == null) {
+            listSchedule = new ListSchedule(algorithm, context.getJobs(), context.getDependencies(), context.getVms(),
+                    context::getFileTransferTime);
+            plannedQueues = listSchedule.getVmQueues();
+            Log.printLine(algorithm + " planned makespan: " + listSchedule.getMakespan());
+        }
+
+        for (Vm vm : context.getVms()) {
+            dispatch(vm, context);
+        }
+    }
+
+    // Assigns the ready head tasks of the planned queue of the VM while it needs work
+    private void dispatch(Vm vm, SchedulingContext context) {
+        ArrayDeque<Integer> queue = vm == null ? null : plannedQueues.get(vm.getId());
+        while (queue != null && !queue.isEmpty() && context.needsWork(vm)) {
+            Job task = plannedReady.remove(queue.peekFirst());
+            if (task == null) {
+                break; // its parents are still running
+            }
+            queue.pollFirst();
+            context.assign(task, vm);
+        }
+    }
+
+    @Override
+    public boolean hasReadyTasks() {
+        return !plannedReady.isEmpty();
+    }
+
+    @Override
+    public String describeAssignment(Job task, Vm vm) {
+        return "Assigning Task " + task.getCloudletId() +
+                " (Rank: " + listSchedule.getRank(task.getId()) + ") to VM " + vm.getId();
+    }
+
+    public ListSchedule getListSchedule() {
+        return listSchedule;
+    }
+}
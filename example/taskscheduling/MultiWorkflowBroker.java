@@ -0,0 +1,163 @@
+package taskscheduling;
+
+import java.util.*;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * A broker running several workflows on one pool of VMs. Each submitted workflow becomes a
+ * {@link WorkflowInstance} with its own id range, so the jobs of different workflows never
+ * collide; its tasks are held back until its arrival time and its makespan is measured from it.
+ */
+public class MultiWorkflowBroker extends MyBroker {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<Integer, WorkflowInstance> instanceOfJob;
+    private final List<WorkflowInstance> instances = new ArrayList<>();
+    private final Map<Integer, List<Integer>> dependencies = new HashMap<>();
+    private int nextIdOffset = 0;
+
+    // Released tasks of the workflows that have not arrived yet, and the progress of each workflow
+    private final Set<String> arrived = new HashSet<>();
+    private final Map<String, List<Job>> notArrived = new HashMap<>();
+    private final Map<String, Integer> remainingTasks = new HashMap<>();
+    private final Map<String, Double> finishTimes = new HashMap<>();
+
+    public MultiWorkflowBroker(String name, FairSharePolicy.Strategy strategy, double scheduleInterval,
+                               DispatchMode dispatchMode) throws Exception {
+        this(name, new HashMap<>(), strategy, scheduleInterval, dispatchMode);
+    }
+
+    // Runs a single-workflow policy over the tasks of all workflows, regardless of which they belong to
+    public MultiWorkflowBroker(String name, WorkflowSchedulingPolicy policy, double scheduleInterval,
+                               DispatchMode dispatchMode) throws Exception {
+        super(name, policy, scheduleInterval, dispatchMode);
+        this.instanceOfJob = new HashMap<>();
+    }
+
+    private MultiWorkflowBroker(String name, Map<Integer, WorkflowInstance> instanceOfJob,
+                                FairSharePolicy.Strategy strategy, double scheduleInterval,
+                                DispatchMode dispatchMode) throws Exception {
+        super(name, new FairSharePolicy(strategy, instanceOfJob), scheduleInterval, dispatchMode);
+        this.instanceOfJob = instanceOfJob;
+    }
+
+    public WorkflowInstance submitWorkflow(String workflow, List<Job> parsed, double arrivalTime) {
+        return submitWorkflow(workflow, parsed, arrivalTime, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Submits a parsed workflow; must be called before the simulation starts.
+     *
+     * @param workflow the workflow file, as given to {@link WorkflowParser#parseWorkflow(String)}
+     * @param parsed the parsed jobs
+     * @param arrivalTime when the tasks of the workflow may start
+     * @param relativeDeadline the time after its arrival by which the workflow should finish, or
+     *                         infinity if it has no deadline
+     */
+    public WorkflowInstance submitWorkflow(String workflow, List<Job> parsed, double arrivalTime,
+                                           double relativeDeadline) {
+        if (arrivalTime < 0) {
+            throw new IllegalArgumentException("Arrival time can't be negative: " + arrivalTime);
+        }
+        if (parsed.isEmpty()) {
+            throw new IllegalArgumentException("Workflow " + workflow + " has no jobs");
+        }
+        String name = workflow.substring(workflow.lastIndexOf('/') + 1) + "#" + instances.size();
+        WorkflowInstance instance = new WorkflowInstance(name, workflow, parsed, nextIdOffset, arrivalTime,
+                arrivalTime + relativeDeadline, getId());
+
+        int maxLocalId = 0;
+        for (Job job : parsed) {
+            maxLocalId = Math.max(maxLocalId, job.getId());
+        }
+        nextIdOffset += maxLocalId + 1;
+
+        instances.add(instance);
+        for (Job job : instance.getJobs()) {
+            instanceOfJob.put(job.getId(), instance);
+        }
+        dependencies.putAll(instance.getDependencies());
+        remainingTasks.put(name, parsed.size());
+        setJobDependencies(dependencies);
+        submitCloudletList(instance.getJobs());
+        return instance;
+    }
+
+    @Override
+    public void startEntity() {
+        for (WorkflowInstance instance : instances) {
+            if (instance.getArrivalTime() <= CloudSim.clock()) {
+                arrived.add(instance.getName());
+            } else {
+                schedule(getId(), instance.getArrivalTime() - CloudSim.clock(), CloudSimTags.WORKFLOW_ARRIVAL, instance);
+            }
+        }
+        super.startEntity();
+    }
+
+    @Override
+    protected void processOtherEvent(SimEvent ev) {
+        if (ev.getTag() != CloudSimTags.WORKFLOW_ARRIVAL) {
+            super.processOtherEvent(ev);
+            return;
+        }
+
+        WorkflowInstance instance = (WorkflowInstance) ev.getData();
+        Log.printLine(CloudSim.clock() + ": " + getName() + " - Workflow " + instance + " arrived.");
+        arrived.add(instance.getName());
+        for (Job task : notArrived.getOrDefault(instance.getName(), Collections.emptyList())) {
+            super.releaseTask(task);
+        }
+        notArrived.remove(instance.getName());
+        if (getDispatchMode() == DispatchMode.EVENT_DRIVEN) {
+            executeEventDrivenScheduling();
+        }
+    }
+
+    @Override
+    protected void releaseTask(Job task) {
+        String name = instanceOfJob.get(task.getId()).getName();
+        if (arrived.contains(name)) {
+            super.releaseTask(task);
+        } else {
+            notArrived.computeIfAbsent(name, k -> new ArrayList<>()).add(task);
+        }
+    }
+
+    @Override
+    protected boolean hasUnreleasedTasks() {
+        return super.hasUnreleasedTasks() || !notArrived.isEmpty();
+    }
+
+    @Override
+    protected void handleTaskCompletion(SimEvent ev) {
+        String name = instanceOfJob.get(((Job) ev.getData()).getId()).getName();
+        if (remainingTasks.merge(name, -1, Integer::sum) == 0) {
+            finishTimes.put(name, CloudSim.clock());
+        }
+        super.handleTaskCompletion(ev);
+    }
+
+    public List<WorkflowInstance> getWorkflows() {
+        return Collections.unmodifiableList(instances);
+    }
+
+    // When the last task of the workflow completed, or NaN if some did not
+    public double getFinishTime(WorkflowInstance instance) {
+        return finishTimes.getOrDefault(instance.getName(), Double.NaN);
+    }
+
+    // Time from the arrival of the workflow to the completion of its last task
+    public double getMakespan(WorkflowInstance instance) {
+        return getFinishTime(instance) - instance.getArrivalTime();
+    }
+
+    public boolean isDeadlineMet(WorkflowInstance instance) {
+        return getFinishTime(instance) <= instance.getDeadline();
+    }
+}
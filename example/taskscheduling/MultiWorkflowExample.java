@@ -0,0 +1,91 @@
+package taskscheduling;
+
+import java.util.*;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * Runs several workflows, arriving one after another, on one broker and reports the makespan of
+ * each, its slowdown against running alone on the same VMs, and whether it met its deadline.
+ */
+public class MultiWorkflowExample {
+
+    private static final String[] WORKFLOWS = {
+            "resources/CyberShake_500_1.xml",
+            "resources/LIGO_500_1.xml",
+            "resources/Montage_500_1.xml",
+            "resources/LIGO_500_1.xml"
+    };
+    private static final double ARRIVAL_INTERVAL = 300; // between consecutive submissions
+    private static final double DEADLINE_FACTOR = 1.5; // deadlines relative to the makespan alone
+
+    public static void main(String[] args) throws Exception {
+        Map<String, List<Job>> parsed = new HashMap<>();
+        for (String workflow : WORKFLOWS) {
+            parsed.computeIfAbsent(workflow, WorkflowParser::parseWorkflow);
+        }
+
+        // Makespan of each workflow on its own
+        Map<String, Double> alone = new HashMap<>();
+        for (String workflow : parsed.keySet()) {
+            MultiWorkflowBroker broker = run(() -> newBroker(FairSharePolicy.Strategy.FAIR_SHARE),
+                    Collections.singletonList(workflow), parsed, Collections.emptyMap());
+            alone.put(workflow, broker.getMakespan(broker.getWorkflows().get(0)));
+        }
+
+        System.out.printf("%-12s %-24s %9s %10s %10s %9s %10s %-4s%n", "Policy", "Workflow", "Arrival",
+                "Deadline", "Makespan", "Alone", "Slowdown", "Met");
+        Map<String, Double> deadlines = new HashMap<>();
+        for (String workflow : parsed.keySet()) {
+            deadlines.put(workflow, DEADLINE_FACTOR * alone.get(workflow));
+        }
+        for (FairSharePolicy.Strategy strategy : FairSharePolicy.Strategy.values()) {
+            report(strategy.name(), run(() -> newBroker(strategy), Arrays.asList(WORKFLOWS), parsed, deadlines), alone);
+        }
+        // Baseline that ignores which workflow a task belongs to
+        report("SJF", run(() -> new MultiWorkflowBroker("Broker_SJF", MyBroker.SchedulingAlgorithm.SJF.newPolicy(),
+                MyBroker.SCHEDULE_INTERVAL, MyBroker.DispatchMode.EVENT_DRIVEN), Arrays.asList(WORKFLOWS), parsed,
+                deadlines), alone);
+    }
+
+    private static MultiWorkflowBroker newBroker(FairSharePolicy.Strategy strategy) throws Exception {
+        return new MultiWorkflowBroker("Broker_" + strategy.name(), strategy, MyBroker.SCHEDULE_INTERVAL,
+                MyBroker.DispatchMode.EVENT_DRIVEN);
+    }
+
+    // Submits the workflows ARRIVAL_INTERVAL apart and runs them to completion
+    private static MultiWorkflowBroker run(Callable<MultiWorkflowBroker> brokers, List<String> workflows,
+                                           Map<String, List<Job>> parsed, Map<String, Double> deadlines)
+            throws Exception {
+        Log.disable();
+        CloudSim.init(1, Calendar.getInstance(), false);
+        SimpleExample.createDatacenter("My_Datacenter");
+
+        MultiWorkflowBroker broker = brokers.call();
+        broker.submitVmList(SimpleExample.createVMs(broker.getId(), SimpleExample.DEFAULT_VM_MIPS));
+        broker.setStorageTransferRate(SimpleExample.STORAGE_TRANSFER_RATE);
+        for (int i = 0; i < workflows.size(); i++) {
+            String workflow = workflows.get(i);
+            broker.submitWorkflow(workflow, parsed.get(workflow), i * ARRIVAL_INTERVAL,
+                    deadlines.getOrDefault(workflow, Double.POSITIVE_INFINITY));
+        }
+
+        CloudSim.startSimulation();
+        return broker;
+    }
+
+    private static void report(String policy, MultiWorkflowBroker broker, Map<String, Double> alone) {
+        for (WorkflowInstance instance : broker.getWorkflows()) {
+            double makespan = broker.getMakespan(instance);
+            System.out.printf("%-12s %-24s %9.1f %10.1f %10.2f %9.2f %10.2f %-4s%n", policy, instance.getName(),
+                    instance.getArrivalTime(), instance.getDeadline(), makespan, alone.get(instance.getWorkflow()),
+                    makespan / alone.get(instance.getWorkflow()), broker.isDeadlineMet(instance) ? "yes" : "no");
+        }
+    }
+
+    // A broker factory that may throw, as the broker constructors do
+    private interface Callable<T> {
+        T call() throws Exception;
+    }
+}
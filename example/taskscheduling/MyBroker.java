@@ -1,9 +1,13 @@
 package taskscheduling;
 
+import java.io.Serializable;
 import java.util.*;
 
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.DatacenterBroker;
+import org.cloudbus.cloudsim.File;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.ParameterException;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
@@ -13,29 +17,115 @@ import org.cloudbus.cloudsim.lists.VmList;
 
 public class MyBroker extends DatacenterBroker {
 
+    private static final long serialVersionUID = 1L;
+
     private final int datacenterId = 2;
-    private static final double SCHEDULE_INTERVAL = 600; // 10 minutes in simulated time
+    public static final double SCHEDULE_INTERVAL = 600; // 10 minutes in simulated time
+    private final double scheduleInterval;
     private boolean hasInitialized = false; // Prevent duplicate VM creation
 
     private final Set<Integer> completedJobs = new HashSet<>();
-    private final Set<Integer> runningVms = new HashSet<>();
-    private final SchedulingAlgorithm schedulingAlgorithm;
-    private final Map<Integer, Integer> jobDepths = new HashMap<>();
+    private final WorkflowSchedulingPolicy policy;
     private Map<Integer, List<Integer>> jobDependencies;
+    private double makespan = 0;
+    private WorkflowAnalytics analytics;
+    private List<Job> jobs = Collections.emptyList();
+
+    private final DispatchMode dispatchMode;
+
+    // Unfinished parents per job and the jobs still waiting for a parent
+    private final Map<Integer, Integer> pendingParents = new HashMap<>();
+    private final Map<Integer, Cloudlet> waitingTasks = new HashMap<>();
+    private int vmAcks = 0;
+
+    // Assigned, uncompleted tasks per VM, and when each busy VM is projected to finish them
+    private final Map<Integer, Integer> queuedTasks = new HashMap<>();
+    private final Map<Integer, Double> projectedFinishTimes = new HashMap<>();
+    private int runningTasks = 0;
+    private final SchedulingContext context = new BrokerContext();
+
+    // Data-aware execution: the shared storage rate in MB/s, or 0 when files are not modelled,
+    // and the VMs holding a copy of each file
+    private double storageTransferRate = 0;
+    private final Map<String, Set<Integer>> fileCopies = new HashMap<>();
 
     public enum SchedulingAlgorithm {
-        SJF, LB, STB
+        SJF, LB, STB, HEFT, PEFT;
+
+        public WorkflowSchedulingPolicy newPolicy() {
+            switch (this) {
+                case SJF:
+                    return new ShortestJobFirstPolicy();
+                case LB:
+                    return new LevelBasedPolicy();
+                case STB:
+                    return new SubsequentTasksPolicy();
+                default:
+                    return new ListSchedulingPolicy(ListSchedule.Algorithm.valueOf(name()));
+            }
+        }
+    }
+
+    // PERIODIC schedules every scheduleInterval; EVENT_DRIVEN schedules as soon as a task completes
+    public enum DispatchMode {
+        PERIODIC, EVENT_DRIVEN
     }
 
     public MyBroker(String name, SchedulingAlgorithm algorithm) throws Exception {
+        this(name, algorithm, SCHEDULE_INTERVAL);
+    }
+
+    public MyBroker(String name, SchedulingAlgorithm algorithm, double scheduleInterval) throws Exception {
+        this(name, algorithm, scheduleInterval, DispatchMode.PERIODIC);
+    }
+
+    public MyBroker(String name, SchedulingAlgorithm algorithm, DispatchMode dispatchMode) throws Exception {
+        this(name, algorithm, SCHEDULE_INTERVAL, dispatchMode);
+    }
+
+    public MyBroker(String name, SchedulingAlgorithm algorithm, double scheduleInterval, DispatchMode dispatchMode)
+            throws Exception {
+        this(name, algorithm.newPolicy(), scheduleInterval, dispatchMode);
+    }
+
+    public MyBroker(String name, WorkflowSchedulingPolicy policy, double scheduleInterval, DispatchMode dispatchMode)
+            throws Exception {
         super(name);
-        this.schedulingAlgorithm = algorithm;
+        if (scheduleInterval <= 0) {
+            throw new IllegalArgumentException("Schedule interval must be positive: " + scheduleInterval);
+        }
+        this.policy = policy;
+        this.scheduleInterval = scheduleInterval;
+        this.dispatchMode = dispatchMode;
     }
 
     public void setJobDependencies(Map<Integer, List<Integer>> dependencies) {
         this.jobDependencies = dependencies;
     }
 
+    // Shares precomputed analytics of the workflow, e.g. from WorkflowAnalytics.forWorkflow;
+    // without them the broker computes its own from the submitted jobs when a policy needs them
+    public void setWorkflowAnalytics(WorkflowAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    // Models the files of the workflow: inputs are staged into the datacenter storage, outputs
+    // are written there, and a task reads the inputs its VM holds no copy of at this rate (MB/s)
+    public void setStorageTransferRate(double storageTransferRate) {
+        if (storageTransferRate < 0) {
+            throw new IllegalArgumentException("Storage transfer rate can't be negative: " + storageTransferRate);
+        }
+        this.storageTransferRate = storageTransferRate;
+    }
+
+    public WorkflowSchedulingPolicy getPolicy() {
+        return policy;
+    }
+
+    public DispatchMode getDispatchMode() {
+        return dispatchMode;
+    }
+
 
     @Override
     public void startEntity() {
@@ -55,8 +145,81 @@ public class MyBroker extends DatacenterBroker {
             hasInitialized = true;
         }
 
+        initializeReadyTasks();
+
+        if (dispatchMode == DispatchMode.EVENT_DRIVEN) {
+            // Tasks are dispatched once the VMs are created, then whenever one completes
+            return;
+        }
+
         // Start the periodic scheduling loop
-        schedule(getId(), SCHEDULE_INTERVAL, CloudSimTags.VM_DATACENTER_EVENT);
+        schedule(getId(), scheduleInterval, CloudSimTags.VM_DATACENTER_EVENT);
+    }
+
+    // Hands the submitted cloudlets to the policy, or sets them aside until their parents complete.
+    // Both dispatch modes follow the workflow dependencies given to setJobDependencies, or the
+    // parent ids carried by the jobs themselves when none were given.
+    private void initializeReadyTasks() {
+        jobs = new ArrayList<>(getCloudletList());
+        getCloudletList().clear();
+        if (jobDependencies == null) {
+            jobDependencies = extractJobDependencies(jobs);
+        }
+        policy.start(context);
+        if (storageTransferRate > 0) {
+            stageWorkflowInputs();
+        }
+
+        for (List<Integer> children : jobDependencies.values()) {
+            for (int child : children) {
+                pendingParents.merge(child, 1, Integer::sum);
+            }
+        }
+
+        for (Job job : jobs) {
+            if (pendingParents.getOrDefault(job.getId(), 0) > 0) {
+                waitingTasks.put(job.getId(), job);
+            } else {
+                releaseTask(job);
+            }
+        }
+    }
+
+    // Stores the files read by some job and written by none in the datacenter storage
+    private void stageWorkflowInputs() {
+        Set<String> outputs = new HashSet<>();
+        for (Job job : jobs) {
+            for (Uses uses : job.getUsesList()) {
+                if (uses.isOutput()) {
+                    outputs.add(uses.getFile());
+                }
+            }
+        }
+        Set<String> staged = new HashSet<>();
+        for (Job job : jobs) {
+            for (Uses uses : job.getUsesList()) {
+                if (uses.isInput() && !outputs.contains(uses.getFile()) && staged.add(uses.getFile())) {
+                    storeFile(uses);
+                }
+            }
+        }
+    }
+
+    private void storeFile(Uses uses) {
+        if (uses.getSize() <= 0) {
+            return; // no size in the workflow, so nothing to transfer
+        }
+        try {
+            File file = new File(uses.getFile(), toMegabytes(uses.getSize()));
+            sendNow(datacenterId, CloudSimTags.VM_DATA_ADD, new Object[] {file, getId()});
+        } catch (ParameterException e) {
+            throw new IllegalArgumentException("Invalid file " + uses.getFile(), e);
+        }
+    }
+
+    // CloudSim files are sized in whole MB; partial MBs are rounded up
+    private static int toMegabytes(long bytes) {
+        return (int) Math.max(1, (bytes + 999_999) / 1_000_000);
     }
 
     private void initializeVms() {
@@ -97,276 +260,130 @@ public class MyBroker extends DatacenterBroker {
             Vm vm = VmList.getById(getVmList(), vmId);
             if (vm != null) {
                 getVmsCreatedList().add(vm); // Add successfully created VM to the tracking list
-                System.out.println(CloudSim.clock() + ": " + getName() + " - VM #" + vmId + " successfully created.");
+                Log.printLine(CloudSim.clock() + ": " + getName() + " - VM #" + vmId + " successfully created.");
             }
         } else {
-            System.out.println(CloudSim.clock() + ": " + getName() + " - VM #" + vmId + " creation failed.");
-        }
-    }
-
-
-    private void executePeriodicScheduling() {
-        System.out.println("Periodic scheduling triggered at: " + CloudSim.clock());
-
-        List<Cloudlet> readyTasks = filterReadyTasks();
-        if (readyTasks.isEmpty()) {
-            System.out.println("No tasks are ready for scheduling.");
-            return;
+            Log.printLine(CloudSim.clock() + ": " + getName() + " - VM #" + vmId + " creation failed.");
         }
 
-        List<Cloudlet> cloudletList = new ArrayList<>();
-        for (Object obj : readyTasks) {
-            if (obj instanceof Cloudlet) {
-                cloudletList.add((Cloudlet) obj);
-            }
+        vmAcks++;
+        if (dispatchMode == DispatchMode.EVENT_DRIVEN && vmAcks == getVmList().size()) {
+            executeEventDrivenScheduling();
         }
-
-        // Apply the selected scheduling algorithm
-        switch (schedulingAlgorithm) {
-            case SJF:
-                applySJFScheduling(readyTasks);
-                break;
-            case LB:
-                applyLBScheduling(getCloudletList(), jobDepths, jobDependencies);
-                break;
-            case STB:
-                applySTBScheduling(cloudletList, computeSubsequentTaskCounts(jobDependencies));
-                break;
-        }
-
-        // Schedule next execution
-        schedule(getId(), SCHEDULE_INTERVAL, CloudSimTags.VM_DATACENTER_EVENT);
     }
 
-    private void applySJFScheduling(List<Cloudlet> readyTasks) {
-
-        // Sort ready tasks by execution time
-        readyTasks.sort(Comparator.comparingLong(Cloudlet::getCloudletLength));
 
-        // Sort available VMs by processing power
-        List<Vm> availableVms = findAvailableVms();
-        availableVms.sort(Comparator.comparingDouble(Vm::getMips).reversed());
-
-
-        if (availableVms.isEmpty()) {
-            // all Vms are busy
-            System.out.println("No available VMs.");
-            return;
-        }
-
-        Queue<Vm> vmQueue = new LinkedList<>(availableVms);
-        List<Cloudlet> unscheduledCloudlets = new ArrayList<>(readyTasks); // Track unassigned tasks
+    private void executePeriodicScheduling() {
+        Log.printLine("Periodic scheduling triggered at: " + CloudSim.clock());
 
-        // Assign the shortest tasks to the fastest VMs
-        for (Cloudlet task : readyTasks) {
-            if (vmQueue.isEmpty()) {
-                System.out.println("No VM available for task " + task.getCloudletId());
-                break;
+        if (policy.hasReadyTasks()) {
+            dispatchReadyTasks();
+        } else {
+            Log.printLine("No tasks are ready for scheduling.");
+            if (!hasUnreleasedTasks()) {
+                return;
             }
-
-            Vm vm = vmQueue.poll();
-            task.setVmId(vm.getId());
-            System.out.println("Assigning task " + task.getCloudletId() + " to VM " + vm.getId());
-
-            sendNow(datacenterId, CloudSimTags.CLOUDLET_SUBMIT, task);
-            runningVms.add(vm.getId());
-            unscheduledCloudlets.remove(task);
         }
 
-        // Instead of removing all tasks, keep unassigned ones for the next cycle
-        getCloudletList().clear();
-        getCloudletList().addAll(unscheduledCloudlets);
+        // Schedule next execution
+        schedule(getId(), scheduleInterval, CloudSimTags.VM_DATACENTER_EVENT);
     }
 
-    private void applyLBScheduling(List<Cloudlet> cloudlets, Map<Integer, Integer> jobDepths, Map<Integer, List<Integer>> jobDependencies) {
-        if (cloudlets.isEmpty()) return;
-
-        // Compute job depths only if missing
-        if (jobDepths.isEmpty()) {
-            jobDepths.putAll(computeJobDepths(getCloudletList(), jobDependencies));
-        }
-
-        // Sort tasks by depth (smallest first)
-        cloudlets.sort(Comparator.comparingInt(task -> {
-            int taskId = task.getCloudletId();
-            return jobDepths.getOrDefault(taskId, -1);
-        }));
-
-        // Sort available VMs by speed (fastest first)
-        List<Vm> availableVms = findAvailableVms();
-        availableVms.sort(Comparator.comparingDouble(Vm::getMips).reversed());
-
-        if (availableVms.isEmpty()) {
-            System.out.println("No available VMs. Tasks will wait.");
+    protected void executeEventDrivenScheduling() {
+        if (!policy.hasReadyTasks() || !hasIdleVm()) {
             return;
         }
-
-        Queue<Vm> vmQueue = new LinkedList<>(availableVms);
-        List<Cloudlet> unscheduledCloudlets = new ArrayList<>(cloudlets);
-
-        // Assign lowest-depth tasks to fastest VMs
-        for (Cloudlet task : cloudlets) {
-            if (vmQueue.isEmpty()) {
-                System.out.println("No VM available for task " + task.getCloudletId());
-                break;
-            }
-
-            Vm vm = vmQueue.poll(); // Get the fastest available VM
-            task.setVmId(vm.getId());
-
-            int taskId = task.getCloudletId();
-            System.out.println("Assigning Task " + taskId +
-                    " (Depth: " + jobDepths.getOrDefault(taskId, -1) + ") to VM " + vm.getId());
-
-            sendNow(datacenterId, CloudSimTags.CLOUDLET_SUBMIT, task);
-            runningVms.add(vm.getId());
-            unscheduledCloudlets.remove(task);
-        }
-
-        // Keep unassigned tasks for the next cycle
-        getCloudletList().clear();
-        getCloudletList().addAll(unscheduledCloudlets);
+        Log.printLine("Event-driven scheduling triggered at: " + CloudSim.clock());
+        dispatchReadyTasks();
     }
 
-    private void applySTBScheduling(List<Cloudlet> cloudlets, Map<Integer, Integer> subsequentTaskCounts) {
-        if (cloudlets.isEmpty()) return;
-
-        cloudlets.sort(Comparator.comparingInt(task -> {
-            if (!(task instanceof Cloudlet)) {
-                throw new IllegalStateException("Found an invalid object in cloudlets list: " + task);
-            }
-
-            Cloudlet cloudletTask = (Cloudlet) task;  //  Explicitly cast to Cloudlet
-            return subsequentTaskCounts.getOrDefault(cloudletTask.getCloudletId(), 0);
-
-        }).reversed());
-
-
-        // Sort available VMs by speed
-        List<Vm> availableVms = findAvailableVms();
-        availableVms.sort(Comparator.comparingDouble(Vm::getMips).reversed());
-
-        if (availableVms.isEmpty()) {
-            System.out.println("No available VMs. Tasks will wait.");
+    private void dispatchReadyTasks() {
+        if (getVmsCreatedList().isEmpty()) {
+            Log.printLine("No available VMs. Tasks will wait.");
             return;
         }
 
-        Queue<Vm> vmQueue = new LinkedList<>(availableVms);
-        List<Cloudlet> unscheduledCloudlets = new ArrayList<>(cloudlets);
+        policy.schedule(context);
 
-        // Assign highest-priority tasks to fastest VMs
-        for (Cloudlet task : cloudlets) {
-            if (vmQueue.isEmpty()) {
-                System.out.println("No VM available for task " + task.getCloudletId());
-                break;
-            }
-
-            Vm vm = vmQueue.poll();
-            task.setVmId(vm.getId());
-
-            int subsequentCount = subsequentTaskCounts.getOrDefault(task.getCloudletId(), 0);
-
-            System.out.println("Assigning Task " + task.getCloudletId() +
-                    " (Subsequent Tasks: " + subsequentCount + ") to VM " + vm.getId());
-
-            sendNow(datacenterId, CloudSimTags.CLOUDLET_SUBMIT, task);
-            runningVms.add(vm.getId());
-            unscheduledCloudlets.remove(task);
+        if (policy.hasReadyTasks() && !hasIdleVm()) {
+            Log.printLine("No available VMs. Tasks will wait.");
         }
-
-        // Keep unassigned tasks for the next cycle
-        getCloudletList().clear();
-        getCloudletList().addAll(unscheduledCloudlets);
     }
 
-
-    private List<Vm> findAvailableVms() {
-        List<Vm> availableVms = new ArrayList<>();
+    private boolean hasIdleVm() {
         for (Vm vm : getVmsCreatedList()) {
-            if (!runningVms.contains(vm.getId())) {
-                availableVms.add(vm);
+            if (context.getQueueLength(vm) == 0) {
+                return true;
             }
         }
-        return availableVms;
+        return false;
     }
 
     protected void handleTaskCompletion(SimEvent ev) {
         Cloudlet cloudlet = (Cloudlet) ev.getData();
-        System.out.println("Task Completed: " + cloudlet.getCloudletId());
+        Log.printLine("Task Completed: " + cloudlet.getCloudletId());
 
         completedJobs.add(cloudlet.getCloudletId());
-        runningVms.remove(cloudlet.getVmId());
-
-        if (getCloudletList().isEmpty() && runningVms.isEmpty()) {
-            shutdownEntity();
+        int vmId = cloudlet.getVmId();
+        runningTasks--;
+        if (queuedTasks.merge(vmId, -1, Integer::sum) == 0) {
+            queuedTasks.remove(vmId);
+            projectedFinishTimes.remove(vmId);
         }
-    }
-
-    private List<Cloudlet> filterReadyTasks() {
-        List<Cloudlet> readyTasks = new ArrayList<>();
-        for (Cloudlet cloudlet : getCloudletList()) {
-            Job job = (Job) cloudlet;
-            if (areDependenciesCompleted(job)) {
-                readyTasks.add(cloudlet);
+        makespan = Math.max(makespan, CloudSim.clock());
+
+        if (storageTransferRate > 0) {
+            // Outputs stay on the VM and are written through to the shared storage
+            for (Uses uses : ((Job) cloudlet).getUsesList()) {
+                if (uses.isOutput()) {
+                    fileCopies.computeIfAbsent(uses.getFile(), k -> new HashSet<>()).add(vmId);
+                    storeFile(uses);
+                }
             }
         }
-        return readyTasks;
-    }
 
-    private boolean areDependenciesCompleted(Job job) {
-        for (int parentId : job.getParentIds()) {
-            if (!completedJobs.contains(parentId)) {
-                System.out.println("Task " + job.getId() + " is waiting for parent " + parentId);
-                return false;
-            }
+        policy.taskCompleted((Job) cloudlet, context);
+        releaseChildren((Job) cloudlet);
+        if (dispatchMode == DispatchMode.EVENT_DRIVEN) {
+            executeEventDrivenScheduling();
         }
-        return true;
-    }
-
-    public Map<Integer, Integer> getJobDepths() {
-        return jobDepths;
-    }
 
-    private Map<Integer, Integer> computeJobDepths(List<Job> jobs, Map<Integer, List<Integer>> jobDependencies) {
-        Map<Integer, Integer> jobDepths = new HashMap<>();
-
-        for (Job job : jobs) {
-            int level = job.getLevel();
-            if (level != -1) {
-                jobDepths.put(job.getId(), level);
-            } else {
-                int computedDepth = computeDepth(job.getId(), jobDependencies, jobDepths);
-                jobDepths.put(job.getId(), computedDepth);
-            }
+        if (!policy.hasReadyTasks() && !hasUnreleasedTasks() && runningTasks == 0) {
+            shutdownEntity();
         }
-
-        return jobDepths;
     }
 
-    private int computeDepth(int jobId, Map<Integer, List<Integer>> jobDependencies, Map<Integer, Integer> jobDepths) {
-        if (jobDepths.containsKey(jobId) && jobDepths.get(jobId) != -1) {
-            return jobDepths.get(jobId);
-        }
+    // Hands a task whose parents have completed to the policy
+    protected void releaseTask(Job task) {
+        policy.taskReady(task, context);
+    }
 
-        if (!jobDependencies.containsKey(jobId) || jobDependencies.get(jobId).isEmpty()) {
-            jobDepths.put(jobId, 0);
-            System.out.println("Task " + jobId + " is a root task. Assigned Depth 0.");
-            return 0;
-        }
+    // Whether some tasks have not been handed to the policy yet
+    protected boolean hasUnreleasedTasks() {
+        return !waitingTasks.isEmpty();
+    }
 
-        int maxParentDepth = 0;
-        for (int parent : jobDependencies.get(jobId)) {
-            if (!jobDepths.containsKey(parent) || jobDepths.get(parent) == -1) {
-                jobDepths.put(parent, computeDepth(parent, jobDependencies, jobDepths));
+    // Hands the children whose last unfinished parent is this job to the policy
+    private void releaseChildren(Job job) {
+        for (int child : jobDependencies.getOrDefault(job.getId(), Collections.emptyList())) {
+            int remaining = pendingParents.merge(child, -1, Integer::sum);
+            if (remaining == 0) {
+                Cloudlet ready = waitingTasks.remove(child);
+                if (ready != null) {
+                    releaseTask((Job) ready);
+                }
             }
-            maxParentDepth = Math.max(maxParentDepth, jobDepths.get(parent));
         }
+    }
 
-        int depth = maxParentDepth + 1;
-        jobDepths.put(jobId, depth);
-        return depth;
+    // Time at which the last task completed
+    public double getMakespan() {
+        return makespan;
     }
 
+    public int getCompletedJobCount() {
+        return completedJobs.size();
+    }
 
     public Map<Integer, List<Integer>> extractJobDependencies(List<Job> jobs) {
         Map<Integer, List<Integer>> dependencies = new HashMap<>();
@@ -384,39 +401,111 @@ public class MyBroker extends DatacenterBroker {
         return dependencies;
     }
 
-    private Map<Integer, Integer> computeSubsequentTaskCounts(Map<Integer, List<Integer>> dependencies) {
-        Map<Integer, Integer> subsequentTaskCounts = new HashMap<>();
+    // The broker state exposed to the policy
+    private final class BrokerContext implements SchedulingContext, Serializable {
+
+        private static final long serialVersionUID = 1L;
 
-        // Initialize all tasks with 0 subsequent tasks
-        for (int jobId : dependencies.keySet()) {
-            subsequentTaskCounts.put(jobId, 0);
+        @Override
+        public double getClock() {
+            return CloudSim.clock();
         }
 
-        // Use a recursive function to compute total descendant tasks
-        for (int jobId : dependencies.keySet()) {
-            subsequentTaskCounts.put(jobId, countDescendants(jobId, dependencies, new HashSet<>()));
+        @Override
+        public double getHorizon() {
+            return dispatchMode == DispatchMode.PERIODIC ? CloudSim.clock() + scheduleInterval : CloudSim.clock();
         }
 
-        return subsequentTaskCounts;
-    }
+        @Override
+        public List<Job> getJobs() {
+            return jobs;
+        }
 
-    private int countDescendants(int jobId, Map<Integer, List<Integer>> dependencies, Set<Integer> visited) {
-        if (!dependencies.containsKey(jobId) || dependencies.get(jobId).isEmpty()) {
-            return 0; // No children → No subsequent tasks
+        @Override
+        public Map<Integer, List<Integer>> getDependencies() {
+            return jobDependencies;
         }
 
-        if (visited.contains(jobId)) {
-            return 0; // Prevent infinite loops in cyclic graphs
+        @Override
+        public WorkflowAnalytics getAnalytics() {
+            if (analytics == null) {
+                analytics = new WorkflowAnalytics(jobs, jobDependencies);
+            }
+            return analytics;
+        }
+
+        @Override
+        public List<Vm> getVms() {
+            return getVmsCreatedList();
+        }
+
+        @Override
+        public double getProjectedFinishTime(Vm vm) {
+            return Math.max(CloudSim.clock(), projectedFinishTimes.getOrDefault(vm.getId(), 0.0));
+        }
+
+        @Override
+        public int getQueueLength(Vm vm) {
+            return queuedTasks.getOrDefault(vm.getId(), 0);
+        }
+
+        @Override
+        public double getInputTransferTime(Job task, Vm vm) {
+            if (storageTransferRate == 0) {
+                return 0;
+            }
+            double transfer = 0;
+            for (Uses uses : task.getUsesList()) {
+                if (uses.isInput() && !isHeldBy(uses.getFile(), vm)) {
+                    transfer += getFileTransferTime(uses.getSize());
+                }
+            }
+            return transfer;
         }
 
-        visited.add(jobId);
+        @Override
+        public double getFileTransferTime(long bytes) {
+            if (storageTransferRate == 0 || bytes <= 0) {
+                return 0;
+            }
+            return toMegabytes(bytes) / storageTransferRate;
+        }
 
-        int count = 0;
-        for (int childJob : dependencies.get(jobId)) {
-            count += 1 + countDescendants(childJob, dependencies, visited);
+        private boolean isHeldBy(String file, Vm vm) {
+            Set<Integer> holders = fileCopies.get(file);
+            return holders != null && holders.contains(vm.getId());
         }
 
-        return count;
+        @Override
+        public void assign(Job task, Vm vm) {
+            if (VmList.getById(getVmsCreatedList(), vm.getId()) == null) {
+                throw new IllegalArgumentException("VM #" + vm.getId() + " is not created");
+            }
+            double transfer = getInputTransferTime(task, vm);
+            if (storageTransferRate > 0) {
+                // The datacenter charges the storage transfer of the inputs the VM does not hold;
+                // the VM keeps a copy of them for its later tasks
+                task.getRequiredFiles().clear();
+                for (Uses uses : task.getUsesList()) {
+                    if (uses.isInput() && uses.getSize() > 0 && !isHeldBy(uses.getFile(), vm)) {
+                        task.addRequiredFile(uses.getFile());
+                        fileCopies.computeIfAbsent(uses.getFile(), k -> new HashSet<>()).add(vm.getId());
+                    }
+                }
+            }
+
+            // The VM shares its capacity among its tasks, so it finishes the whole queue when it
+            // would have finished the tasks one after another
+            double finish = getProjectedFinishTime(vm) + transfer
+                    + task.getCloudletLength() / (vm.getMips() * vm.getNumberOfPes());
+            projectedFinishTimes.put(vm.getId(), finish);
+            queuedTasks.merge(vm.getId(), 1, Integer::sum);
+            runningTasks++;
+
+            task.setVmId(vm.getId());
+            Log.printLine(policy.describeAssignment(task, vm));
+            sendNow(datacenterId, CloudSimTags.CLOUDLET_SUBMIT, task);
+        }
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,89 @@
+package taskscheduling;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Datacenter;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * Runs the example workflows once sequentially and once with the datacenter in a second logical
+ * process, and checks that both runs return every cloudlet in the same order, on the same VM and
+ * at the same times, with the same makespan and number of events. Exits with status 1 otherwise.
+ */
+public class ParallelExample {
+
+    private static final String[] WORKFLOWS = {
+            "resources/CyberShake_500_1.xml",
+            "resources/LIGO_500_1.xml",
+            "resources/Montage_500_1.xml"
+    };
+
+    public static void main(String[] args) throws Exception {
+        boolean equivalent = true;
+        System.out.printf("%-32s %-5s %-12s %12s %12s %10s %10s %-10s%n", "Workflow", "Alg", "Dispatch",
+                "Sequential", "Parallel", "Events", "Events", "Trace");
+        for (String workflow : WORKFLOWS) {
+            for (MyBroker.SchedulingAlgorithm algorithm : MyBroker.SchedulingAlgorithm.values()) {
+                for (MyBroker.DispatchMode mode : MyBroker.DispatchMode.values()) {
+                    Run sequential = run(workflow, algorithm, mode, false);
+                    Run parallel = run(workflow, algorithm, mode, true);
+                    boolean same = sequential.trace.equals(parallel.trace)
+                            && sequential.makespan == parallel.makespan && sequential.events == parallel.events;
+                    equivalent &= same;
+                    System.out.printf("%-32s %-5s %-12s %12.2f %12.2f %10d %10d %-10s%n", workflow, algorithm, mode,
+                            sequential.makespan, parallel.makespan, sequential.events, parallel.events,
+                            same ? "same" : "DIFFERENT");
+                }
+            }
+        }
+        if (!equivalent) {
+            System.exit(1);
+        }
+    }
+
+    // One run of a workflow, with the broker and the datacenter in separate logical processes if parallel
+    private static Run run(String workflow, MyBroker.SchedulingAlgorithm algorithm, MyBroker.DispatchMode mode,
+                           boolean parallel) throws Exception {
+        Log.disable();
+        CloudSim.init(1, Calendar.getInstance(), false);
+        Datacenter datacenter = SimpleExample.createDatacenter("My_Datacenter");
+
+        MyBroker broker = new MyBroker("Broker_" + algorithm.name(), algorithm, MyBroker.SCHEDULE_INTERVAL, mode);
+        broker.submitVmList(SimpleExample.createVMs(broker.getId(), SimpleExample.DEFAULT_VM_MIPS));
+
+        List<Job> jobs = WorkflowParser.parseWorkflow(workflow);
+        broker.setJobDependencies(broker.extractJobDependencies(jobs));
+        broker.setWorkflowAnalytics(WorkflowAnalytics.forWorkflow(workflow, jobs));
+        broker.setStorageTransferRate(SimpleExample.STORAGE_TRANSFER_RATE);
+        broker.submitCloudletList(SimpleExample.createCloudlets(jobs, broker.getId()));
+
+        if (parallel) {
+            CloudSim.setLogicalProcess(datacenter.getId(), 1);
+        }
+        CloudSim.startSimulation();
+
+        // The cloudlets as the broker received them: id, VM, start and finish time
+        List<String> trace = new ArrayList<>();
+        for (Cloudlet cloudlet : broker.getCloudletReceivedList()) {
+            trace.add(cloudlet.getCloudletId() + "@" + cloudlet.getVmId() + ":" + cloudlet.getExecStartTime() + "-"
+                    + cloudlet.getFinishTime());
+        }
+        return new Run(broker.getMakespan(), CloudSim.getNumProcessedEvents(), trace);
+    }
+
+    private static final class Run {
+        final double makespan;
+        final long events;
+        final List<String> trace;
+
+        Run(double makespan, long events, List<String> trace) {
+            this.makespan = makespan;
+            this.events = events;
+            this.trace = trace;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package taskscheduling;
+
+import java.io.Serializable;
+import java.util.PriorityQueue;
+
+import org.cloudbus.cloudsim.Vm;
+
+/**
+ * A policy that orders ready tasks by a fixed priority and gives the next one to the VM that
+ * would finish it first, preferring faster VMs on ties, for as long as some VM needs work. A
+ * locality-aware policy also counts the time the VM needs to read the inputs of the task.
+ */
+public abstract class PriorityPolicy implements WorkflowSchedulingPolicy, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Ordered by priority and then by the order in which the tasks became ready; updated only
+    // when a task becomes ready or is assigned
+    private final PriorityQueue<ReadyTask> readyQueue = new PriorityQueue<>();
+    private long readySequence = 0;
+    private boolean localityAware = false;
+
+    // Smaller values are assigned first
+    protected abstract long priorityOf(Job task);
+
+    public void setLocalityAware(boolean localityAware) {
+        this.localityAware = localityAware;
+    }
+
+    public boolean isLocalityAware() {
+        return localityAware;
+    }
+
+    @Override
+    public void taskReady(Job task, SchedulingContext context) {
+        readyQueue.add(new ReadyTask(task, priorityOf(task), readySequence++));
+    }
+
+    @Override
+    public void schedule(SchedulingContext context) {
+        while (!readyQueue.isEmpty()) {
+            Job task = readyQueue.peek().task;
+            Vm target = selectVm(task, context, localityAware);
+            if (target == null) {
+                return;
+            }
+            readyQueue.poll();
+            context.assign(task, target);
+        }
+    }
+
+    // The VM needing work that would finish the task first, once it has finished its queue and run
+    // the task, preferring faster VMs on ties, or null if no VM needs work
+    static Vm selectVm(Job task, SchedulingContext context, boolean localityAware) {
+        Vm target = null;
+        double targetFinish = 0;
+        for (Vm vm : context.getVms()) {
+            if (!context.needsWork(vm)) {
+                continue;
+            }
+            double finish = context.getProjectedFinishTime(vm)
+                    + task.getCloudletLength() / (vm.getMips() * vm.getNumberOfPes());
+            if (localityAware) {
+                finish += context.getInputTransferTime(task, vm);
+            }
+            if (target == null || finish < targetFinish
+                    || (finish == targetFinish && vm.getMips() > target.getMips())) {
+                target = vm;
+                targetFinish = finish;
+            }
+        }
+        return target;
+    }
+
+    @Override
+    public boolean hasReadyTasks() {
+        return !readyQueue.isEmpty();
+    }
+
+    // A ready task with its priority; ties keep the order in which the tasks became ready
+    private static final class ReadyTask implements Comparable<ReadyTask>, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Job task;
+        private final long priority;
+        private final long sequence;
+
+        ReadyTask(Job task, long priority, long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(ReadyTask other) {
+            int byPriority = Long.compare(priority, other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
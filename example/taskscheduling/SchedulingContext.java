@@ -0,0 +1,52 @@
+package taskscheduling;
+
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Vm;
+
+/**
+ * The broker state a {@link WorkflowSchedulingPolicy} schedules against.
+ */
+public interface SchedulingContext {
+
+    double getClock();
+
+    /**
+     * Returns the time of the next scheduling point. VMs whose projected finish time is before it
+     * would otherwise go idle; in event-driven dispatch it is the current clock, so only idle VMs
+     * need work.
+     */
+    double getHorizon();
+
+    // All tasks of the workflow
+    List<Job> getJobs();
+
+    // The children of each job id
+    Map<Integer, List<Integer>> getDependencies();
+
+    WorkflowAnalytics getAnalytics();
+
+    // The created VMs
+    List<Vm> getVms();
+
+    // When the VM will have finished the tasks assigned to it, or the clock if it is idle
+    double getProjectedFinishTime(Vm vm);
+
+    // The number of tasks assigned to the VM that have not completed
+    int getQueueLength(Vm vm);
+
+    // Whether the VM should be given a task: it is idle, or it would go idle before the horizon
+    default boolean needsWork(Vm vm) {
+        return getQueueLength(vm) == 0 || getProjectedFinishTime(vm) < getHorizon();
+    }
+
+    // The time to read the inputs of the task the VM holds no copy of; 0 if files are not modelled
+    double getInputTransferTime(Job task, Vm vm);
+
+    // The time to read a file of this many bytes from the shared storage; 0 if files are not modelled
+    double getFileTransferTime(long bytes);
+
+    // Submits a ready task to a created VM
+    void assign(Job task, Vm vm);
+}
@@ -0,0 +1,19 @@
+package taskscheduling;
+
+import org.cloudbus.cloudsim.Vm;
+
+// Shortest cloudlet length first
+public class ShortestJobFirstPolicy extends PriorityPolicy {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected long priorityOf(Job task) {
+        return task.getCloudletLength();
+    }
+
+    @Override
+    public String describeAssignment(Job task, Vm vm) {
+        return "Assigning task " + task.getCloudletId() + " to VM " + vm.getId();
+    }
+}
@@ -13,7 +13,7 @@ public class SimpleExample {
 
     @SuppressWarnings("unused")
 
-    private static List<Cloudlet> createCloudlets(List<Job> jobs, int brokerId) {
+    static List<Cloudlet> createCloudlets(List<Job> jobs, int brokerId) {
         List<Cloudlet> cloudletList = new ArrayList<>();
 
         if (jobs == null || jobs.isEmpty()) {
@@ -22,25 +22,50 @@ public class SimpleExample {
 
         int id = 0; // Cloudlet ID counter
         for (Job job : jobs) {
-            long length = (long) (job.getRuntime() * 1000); // Convert job runtime to CloudSim MI (Million Instructions)
-            int pesNumber = 1; // Number of CPU cores required
-            long fileSize = 300; // Arbitrary file size
-            long outputSize = 300; // Arbitrary output size
-            UtilizationModel utilizationModel = new UtilizationModelFull();
-
-            // Create Cloudlet from Job details
-            Job cloudlet = new Job(job.getId(), job.getName(), job.getRuntime(), job.getLevel(), id, length, pesNumber, fileSize, outputSize,
-                    utilizationModel);
-            cloudlet.setUserId(brokerId); // Assign Cloudlet to Broker
+            Job cloudlet = toCloudlet(job, job.getId(), id, brokerId);
+            for (Uses uses : job.getUsesList()) {
+                cloudlet.addUses(uses); // File sizes, used by the data-aware algorithms
+            }
             cloudletList.add(cloudlet);
             id++;
         }
         return cloudletList;
     }
 
+    // A cloudlet running the job, without its uses. Its parent and child ids are shifted by as
+    // much as its own id, so they stay consistent when a whole workflow is renumbered.
+    static Job toCloudlet(Job job, int jobId, int cloudletId, int brokerId) {
+        long length = (long) (job.getRuntime() * MI_PER_RUNTIME_SECOND); // Convert job runtime to CloudSim MI
+        int pesNumber = 1; // Number of CPU cores required
+        long fileSize = 300; // Arbitrary file size
+        long outputSize = 300; // Arbitrary output size
+        UtilizationModel utilizationModel = new UtilizationModelFull();
+
+        // Create Cloudlet from Job details
+        Job cloudlet = new Job(jobId, job.getName(), job.getRuntime(), job.getLevel(), cloudletId, length, pesNumber,
+                fileSize, outputSize, utilizationModel);
+        cloudlet.setUserId(brokerId); // Assign Cloudlet to Broker
+
+        int idOffset = jobId - job.getId();
+        for (int parentId : job.getParentIds()) {
+            cloudlet.addParentId(parentId + idOffset);
+        }
+        for (int childId : job.getChildIds()) {
+            cloudlet.addChildId(childId + idOffset);
+        }
+        return cloudlet;
+    }
+
+    static final int MI_PER_RUNTIME_SECOND = 1000; // Million Instructions per second of workflow runtime
+    static final int[] DEFAULT_VM_MIPS = {800, 1200, 1600}; // 3 different VM types
+    static final int STORAGE_TRANSFER_RATE = 133; // MB/s of the datacenter's shared storage
+
     private static List<Vm> createVMs(int brokerId) {
+        return createVMs(brokerId, DEFAULT_VM_MIPS);
+    }
+
+    static List<Vm> createVMs(int brokerId, int[] lengths) {
         List<Vm> vmList = new ArrayList<>();
-        int[] lengths = {800, 1200, 1600}; // 3 different VM types
         int numReplicas = 4; // 4 replicas of each VM type
         int id = 0; // Unique ID for each VM
 
@@ -52,7 +77,7 @@ public class SimpleExample {
                 int pesNumber = 1; // Number of CPU cores
                 String vmm = "Xen";
 
-                Vm vm = new Vm(id, brokerId, length, pesNumber, ram, bw, size, vmm, new CloudletSchedulerTimeShared());
+                Vm vm = new Vm(id, brokerId, length, pesNumber, ram, bw, size, vmm, new CloudletSchedulerProcessorSharing());
                 vmList.add(vm);
                 id++;
             }
@@ -105,6 +130,8 @@ public class SimpleExample {
                     // Extract job dependencies
                     Map<Integer, List<Integer>> jobDependencies = broker.extractJobDependencies(jobs);
                     broker.setJobDependencies(jobDependencies);
+                    broker.setWorkflowAnalytics(WorkflowAnalytics.forWorkflow(workflow, jobs));
+                    broker.setStorageTransferRate(STORAGE_TRANSFER_RATE);
 
                     broker.submitCloudletList(cloudlets);
 
@@ -128,7 +155,7 @@ public class SimpleExample {
     }
 
 
-    private static Datacenter createDatacenter(String name) {
+    static Datacenter createDatacenter(String name) {
         List hostList = new ArrayList<>();
         List peList = new ArrayList<>();
 
@@ -157,7 +184,7 @@ public class SimpleExample {
         double costPerMem = 0.05;
         double costPerStorage = 0.001;
         double costPerBw = 0.0;
-        LinkedList storageList = new LinkedList<>();
+        LinkedList<Storage> storageList = new LinkedList<>();
 
         DatacenterCharacteristics characteristics = new DatacenterCharacteristics(
                 arch, os, vmm, hostList, time_zone, cost, costPerMem,
@@ -165,6 +192,11 @@ public class SimpleExample {
 
         Datacenter datacenter = null;
         try {
+            // Shared storage holding the workflow files; tasks read their inputs from it
+            HarddriveStorage sharedStorage = new HarddriveStorage("Shared_Storage", 10000000);
+            sharedStorage.setMaxTransferRate(STORAGE_TRANSFER_RATE);
+            storageList.add(sharedStorage);
+
             datacenter = new Datacenter(name, characteristics, new VmAllocationPolicySimple(hostList), storageList, 0);
         } catch (Exception e) {
             e.printStackTrace();
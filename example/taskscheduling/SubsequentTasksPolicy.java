@@ -0,0 +1,32 @@
+package taskscheduling;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Vm;
+
+// Most subsequent (descendant) tasks first
+public class SubsequentTasksPolicy extends PriorityPolicy {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Map<Integer, Integer> subsequentTaskCounts = new HashMap<>();
+
+    @Override
+    public void start(SchedulingContext context) {
+        for (Job job : context.getJobs()) {
+            subsequentTaskCounts.put(job.getId(), context.getAnalytics().getDescendantCount(job.getId()));
+        }
+    }
+
+    @Override
+    protected long priorityOf(Job task) {
+        return -subsequentTaskCounts.getOrDefault(task.getCloudletId(), 0);
+    }
+
+    @Override
+    public String describeAssignment(Job task, Vm vm) {
+        return "Assigning Task " + task.getCloudletId() +
+                " (Subsequent Tasks: " + subsequentTaskCounts.getOrDefault(task.getCloudletId(), 0) + ") to VM " + vm.getId();
+    }
+}
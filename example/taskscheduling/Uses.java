@@ -1,12 +1,25 @@
 package taskscheduling;
 
-public class Uses {
+import java.io.Serializable;
+
+public class Uses implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
     private String file;
-    private String type; // "input" or "output"
+    private String type; // "data" or "executable"
+    private String link; // "input" or "output"
+    private long size; // bytes, or -1 if the workflow does not give it
 
     public Uses(String file, String type) {
+        this(file, type, null, -1);
+    }
+
+    public Uses(String file, String type, String link, long size) {
         this.file = file;
         this.type = type;
+        this.link = link;
+        this.size = size;
     }
 
     public String getFile() {
@@ -16,4 +29,20 @@ public class Uses {
     public String getType() {
         return type;
     }
+
+    public String getLink() {
+        return link;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public boolean isInput() {
+        return "input".equals(link);
+    }
+
+    public boolean isOutput() {
+        return "output".equals(link);
+    }
 }
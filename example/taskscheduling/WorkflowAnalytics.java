@@ -0,0 +1,235 @@
+package taskscheduling;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Structural metrics of a workflow DAG, computed once: topological order, depth, exact
+ * descendant counts, upward and downward rank, and the critical path.
+ * <p>
+ * Task weights are the job runtimes and edges carry no communication cost, so the ranks are
+ * the longest runtime paths from a job to an exit job (upward) and from an entry job to it
+ * (downward). Instances are immutable; {@link #forWorkflow(String, List)} caches them per
+ * workflow file so every algorithm, run and worker thread shares one.
+ */
+public class WorkflowAnalytics implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Map<String, WorkflowAnalytics> CACHE = new ConcurrentHashMap<>();
+
+    private final int[] ids;
+    private final Map<Integer, Integer> indexOf = new HashMap<>();
+    private final int[] topologicalOrder;
+    private final int[] depth;
+    private final int[] descendantCount;
+    private final double[] upwardRank;
+    private final double[] downwardRank;
+    private final List<Integer> criticalPath;
+    private final double criticalPathLength;
+
+    /**
+     * @param jobs the jobs of the workflow
+     * @param children the children of each job id, as built by {@link MyBroker#extractJobDependencies(List)};
+     *                 edges to unknown jobs are ignored
+     */
+    public WorkflowAnalytics(List<? extends Job> jobs, Map<Integer, List<Integer>> children) {
+        int n = jobs.size();
+        ids = new int[n];
+        double[] weight = new double[n];
+        for (int i = 0; i < n; i++) {
+            Job job = jobs.get(i);
+            ids[i] = job.getId();
+            weight[i] = job.getRuntime();
+            indexOf.put(job.getId(), i);
+        }
+
+        // Adjacency in compressed rows: successors of i are succ[succStart[i] .. succStart[i + 1])
+        int[] succStart = new int[n + 1];
+        int[] inDegree = new int[n];
+        List<int[]> edges = new ArrayList<>();
+        if (children != null) {
+            for (Map.Entry<Integer, List<Integer>> entry : children.entrySet()) {
+                Integer from = indexOf.get(entry.getKey());
+                if (from == null) {
+                    continue;
+                }
+                for (int childId : entry.getValue()) {
+                    Integer to = indexOf.get(childId);
+                    if (to != null) {
+                        edges.add(new int[] {from, to});
+                        succStart[from + 1]++;
+                        inDegree[to]++;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            succStart[i + 1] += succStart[i];
+        }
+        int[] succ = new int[edges.size()];
+        int[] fill = succStart.clone();
+        for (int[] edge : edges) {
+            succ[fill[edge[0]]++] = edge[1];
+        }
+
+        // Kahn's algorithm, taking entry jobs in list order
+        topologicalOrder = new int[n];
+        int[] remaining = inDegree.clone();
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            if (remaining[i] == 0) {
+                topologicalOrder[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int i = topologicalOrder[head++];
+            for (int e = succStart[i]; e < succStart[i + 1]; e++) {
+                if (--remaining[succ[e]] == 0) {
+                    topologicalOrder[tail++] = succ[e];
+                }
+            }
+        }
+        if (tail != n) {
+            throw new IllegalArgumentException("The workflow has a cycle: only " + tail + " of " + n
+                    + " jobs can be ordered.");
+        }
+
+        // Forward pass: depth and downward rank
+        depth = new int[n];
+        downwardRank = new double[n];
+        for (int k = 0; k < n; k++) {
+            int i = topologicalOrder[k];
+            for (int e = succStart[i]; e < succStart[i + 1]; e++) {
+                int j = succ[e];
+                depth[j] = Math.max(depth[j], depth[i] + 1);
+                downwardRank[j] = Math.max(downwardRank[j], downwardRank[i] + weight[i]);
+            }
+        }
+
+        // Backward pass: upward rank and descendant sets. A job's set is dropped once all its
+        // parents have merged it, so only the sets of the current frontier are kept in memory.
+        upwardRank = new double[n];
+        descendantCount = new int[n];
+        int[] next = new int[n];
+        Arrays.fill(next, -1);
+        BitSet[] descendants = new BitSet[n];
+        int[] pendingParents = inDegree.clone();
+        for (int k = n - 1; k >= 0; k--) {
+            int i = topologicalOrder[k];
+            BitSet set = new BitSet();
+            double best = 0;
+            for (int e = succStart[i]; e < succStart[i + 1]; e++) {
+                int j = succ[e];
+                set.set(j);
+                set.or(descendants[j]);
+                if (next[i] < 0 || upwardRank[j] > best) {
+                    best = upwardRank[j];
+                    next[i] = j;
+                }
+                if (--pendingParents[j] == 0) {
+                    descendants[j] = null;
+                }
+            }
+            upwardRank[i] = weight[i] + best;
+            descendantCount[i] = set.cardinality();
+            descendants[i] = inDegree[i] > 0 ? set : null;
+        }
+
+        // The critical path starts at the entry job with the largest upward rank
+        int start = -1;
+        for (int i = 0; i < n; i++) {
+            if (inDegree[i] == 0 && (start < 0 || upwardRank[i] > upwardRank[start])) {
+                start = i;
+            }
+        }
+        List<Integer> path = new ArrayList<>();
+        for (int i = start; i >= 0; i = next[i]) {
+            path.add(ids[i]);
+        }
+        criticalPath = Collections.unmodifiableList(path);
+        criticalPathLength = start < 0 ? 0 : upwardRank[start];
+    }
+
+    /**
+     * Returns the analytics of a workflow file, computing them from its parsed jobs on first use.
+     *
+     * @param workflow the workflow file, as given to {@link WorkflowParser#parseWorkflow(String)}
+     * @param jobs the parsed jobs, with their child ids
+     */
+    public static WorkflowAnalytics forWorkflow(String workflow, List<Job> jobs) {
+        return CACHE.computeIfAbsent(workflow, k -> new WorkflowAnalytics(jobs, childrenOf(jobs)));
+    }
+
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    private static Map<Integer, List<Integer>> childrenOf(List<Job> jobs) {
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        for (Job job : jobs) {
+            children.put(job.getId(), job.getChildIds());
+        }
+        return children;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean contains(int jobId) {
+        return indexOf.containsKey(jobId);
+    }
+
+    // Job ids, parents before children
+    public List<Integer> getTopologicalOrder() {
+        List<Integer> order = new ArrayList<>(ids.length);
+        for (int i : topologicalOrder) {
+            order.add(ids[i]);
+        }
+        return order;
+    }
+
+    // Length of the longest path from an entry job, in edges; entry jobs have depth 0
+    public int getDepth(int jobId) {
+        return depth[index(jobId)];
+    }
+
+    // Number of distinct jobs reachable from this one, each counted once
+    public int getDescendantCount(int jobId) {
+        return descendantCount[index(jobId)];
+    }
+
+    public double getUpwardRank(int jobId) {
+        return upwardRank[index(jobId)];
+    }
+
+    public double getDownwardRank(int jobId) {
+        return downwardRank[index(jobId)];
+    }
+
+    // Job ids from an entry job to an exit job along the largest upward ranks
+    public List<Integer> getCriticalPath() {
+        return criticalPath;
+    }
+
+    public double getCriticalPathLength() {
+        return criticalPathLength;
+    }
+
+    private int index(int jobId) {
+        Integer i = indexOf.get(jobId);
+        if (i == null) {
+            throw new IllegalArgumentException("Unknown job: " + jobId);
+        }
+        return i;
+    }
+}
@@ -0,0 +1,495 @@
+package taskscheduling;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
+import org.cloudbus.cloudsim.distributions.LognormalDistr;
+
+/**
+ * Generates workflows shaped like the Pegasus Montage, LIGO Inspiral, CyberShake and SIPHT
+ * workflows at any size, reproducibly from a seed, for stress runs beyond the shipped 500-job
+ * files.
+ * <p>
+ * Runtimes and file sizes are lognormal per job type. Montage, LIGO and CyberShake use the means
+ * and runtime variation of the shipped DAX files; SIPHT, which does not ship, follows its
+ * published profile. The workflow is kept in primitive arrays while it is built and is handed
+ * over either as parsed jobs ({@link #toJobs()}) or compiled straight into a
+ * {@link CompiledWorkflow} file ({@link #compile(File)}); no XML is produced.
+ */
+public final class WorkflowGenerator {
+
+    public enum Shape {
+        MONTAGE, LIGO, CYBERSHAKE, SIPHT
+    }
+
+    // The smallest workflow every shape can be built at
+    public static final int MIN_JOBS = 20;
+
+    private static final double FILE_SIZE_VARIATION = 0.25;
+
+    private final JobType[] types;
+    private final Random random;
+
+    // Per job: its type, runtime (s), output size and staged input size (bytes, 0 if none)
+    private int count = 0;
+    private int[] typeOf;
+    private double[] runtimes;
+    private long[] outputSizes;
+    private long[] inputSizes;
+
+    // Edges in insertion order, then as compressed rows once the workflow is complete
+    private int edgeCount = 0;
+    private int[] edgeParents = new int[16];
+    private int[] edgeChildren = new int[16];
+    private int[] childStart;
+    private int[] childIds;
+    private int[] parentStart;
+    private int[] parentIds;
+
+    private WorkflowGenerator(Shape shape, int jobs, long seed) {
+        random = new Random(seed);
+        types = typesOf(shape);
+        for (JobType type : types) {
+            type.createDistributions(random);
+        }
+        typeOf = new int[jobs];
+        runtimes = new double[jobs];
+        outputSizes = new long[jobs];
+        inputSizes = new long[jobs];
+    }
+
+    /**
+     * Generates a workflow with exactly the given number of jobs.
+     *
+     * @throws IllegalArgumentException if jobs is below {@link #MIN_JOBS}
+     */
+    public static WorkflowGenerator generate(Shape shape, int jobs, long seed) {
+        if (jobs < MIN_JOBS) {
+            throw new IllegalArgumentException("A generated workflow needs at least " + MIN_JOBS + " jobs: " + jobs);
+        }
+        WorkflowGenerator generator = new WorkflowGenerator(shape, jobs, seed);
+        switch (shape) {
+            case MONTAGE:
+                generator.buildMontage(jobs);
+                break;
+            case LIGO:
+                generator.buildLigo(jobs);
+                break;
+            case CYBERSHAKE:
+                generator.buildCyberShake(jobs);
+                break;
+            default:
+                generator.buildSipht(jobs);
+                break;
+        }
+        generator.buildRows();
+        return generator;
+    }
+
+    // mProjectPP per image, mDiffFit per overlapping pair, a global fit and background model,
+    // mBackground per image, then mosaic assembly
+    private void buildMontage(int jobs) {
+        int images = Math.max(2, (jobs - 6) / 6);
+        int diffs = jobs - 6 - 2 * images;
+        int width = Math.max(1, (int) Math.sqrt(images));
+        int[] offsets = {1, width, width + 1, Math.max(1, width - 1)};
+
+        int projections = count;
+        for (int i = 0; i < images; i++) {
+            add(0);
+        }
+        int firstDiff = count;
+        for (int k = 0; k < diffs; k++) {
+            int i = k % images;
+            int j = (i + offsets[(k / images) % offsets.length]) % images;
+            if (j == i) {
+                j = (i + 1) % images;
+            }
+            int diff = add(1);
+            edge(projections + i, diff);
+            edge(projections + j, diff);
+        }
+        int concat = add(2);
+        for (int k = 0; k < diffs; k++) {
+            edge(firstDiff + k, concat);
+        }
+        int model = add(3);
+        edge(concat, model);
+        int firstBackground = count;
+        for (int i = 0; i < images; i++) {
+            int background = add(4);
+            edge(model, background);
+            edge(projections + i, background);
+        }
+        int table = add(5);
+        int mosaic = add(6);
+        for (int i = 0; i < images; i++) {
+            edge(firstBackground + i, table);
+            edge(firstBackground + i, mosaic);
+        }
+        edge(table, mosaic);
+        int shrink = add(7);
+        edge(mosaic, shrink);
+        edge(shrink, add(8));
+    }
+
+    // Independent groups: TmpltBank -> Inspiral -> Thinca -> TrigBank -> Inspiral -> Thinca
+    private void buildLigo(int jobs) {
+        while (count < jobs) {
+            int remaining = jobs - count;
+            int first = 3 + random.nextInt(6);
+            int second = 3 + random.nextInt(6);
+            int extra = 0;
+            if (remaining - (2 * (first + second) + 2) < 6) {
+                // The last group takes the rest; an odd rest gets an Inspiral without a TmpltBank
+                extra = remaining % 2;
+                int pairs = (remaining - 2 - extra) / 2;
+                first = (pairs + 1) / 2;
+                second = pairs - first;
+            }
+
+            int[] inspirals = new int[first + extra];
+            for (int i = 0; i < first; i++) {
+                int bank = add(0);
+                inspirals[i] = add(1);
+                edge(bank, inspirals[i]);
+            }
+            if (extra == 1) {
+                inspirals[first] = add(1);
+            }
+            int thinca = add(2);
+            for (int inspiral : inspirals) {
+                edge(inspiral, thinca);
+            }
+            int[] secondInspirals = new int[second];
+            for (int i = 0; i < second; i++) {
+                int trigger = add(3);
+                edge(thinca, trigger);
+                secondInspirals[i] = add(1);
+                edge(trigger, secondInspirals[i]);
+            }
+            int secondThinca = add(2);
+            for (int inspiral : secondInspirals) {
+                edge(inspiral, secondThinca);
+            }
+        }
+    }
+
+    // ExtractSGT per site, SeismogramSynthesis and PeakValCalcOkaya per rupture variation, then
+    // two zips collecting them
+    private void buildCyberShake(int jobs) {
+        int sites = Math.max(1, jobs / 125);
+        if ((jobs - 2 - sites) % 2 != 0) {
+            sites++;
+        }
+        int variations = (jobs - 2 - sites) / 2;
+
+        int firstSite = count;
+        for (int i = 0; i < sites; i++) {
+            add(0);
+        }
+        int[] syntheses = new int[variations];
+        int[] peaks = new int[variations];
+        for (int v = 0; v < variations; v++) {
+            syntheses[v] = add(1);
+            edge(firstSite + (int) ((long) v * sites / variations), syntheses[v]);
+            peaks[v] = add(2);
+            edge(syntheses[v], peaks[v]);
+        }
+        int seismograms = add(3);
+        int peakValues = add(4);
+        for (int v = 0; v < variations; v++) {
+            edge(syntheses[v], seismograms);
+            edge(peaks[v], peakValues);
+        }
+    }
+
+    // Independent units, one per genome: Patser jobs and their concatenation, the four sRNA
+    // predictors, SRNA, its five follow-up searches, and SRNA_annotate
+    private void buildSipht(int jobs) {
+        while (count < jobs) {
+            int remaining = jobs - count;
+            int patsers = 10 + random.nextInt(21);
+            if (remaining - (patsers + 12) < 13) {
+                patsers = remaining - 12;
+            }
+
+            int[] patserIds = new int[patsers];
+            for (int i = 0; i < patsers; i++) {
+                patserIds[i] = add(0);
+            }
+            int concat = add(1);
+            for (int patser : patserIds) {
+                edge(patser, concat);
+            }
+            int[] predictors = {add(2), add(3), add(4), add(5)};
+            int srna = add(6);
+            for (int predictor : predictors) {
+                edge(predictor, srna);
+            }
+            int[] searches = {add(7), add(8), add(9), add(10), add(11)};
+            int annotate = add(12);
+            for (int search : searches) {
+                edge(srna, search);
+                edge(search, annotate);
+            }
+            edge(concat, annotate);
+        }
+    }
+
+    private int add(int type) {
+        int id = count++;
+        JobType jobType = types[type];
+        typeOf[id] = type;
+        runtimes[id] = jobType.runtime.sample() / 1000;
+        outputSizes[id] = Math.max(1, Math.round(jobType.outputSize.sample()));
+        inputSizes[id] = jobType.inputSize == null ? 0 : Math.max(1, Math.round(jobType.inputSize.sample()));
+        return id;
+    }
+
+    private void edge(int parent, int child) {
+        if (edgeCount == edgeParents.length) {
+            edgeParents = Arrays.copyOf(edgeParents, 2 * edgeCount);
+            edgeChildren = Arrays.copyOf(edgeChildren, 2 * edgeCount);
+        }
+        edgeParents[edgeCount] = parent;
+        edgeChildren[edgeCount] = child;
+        edgeCount++;
+    }
+
+    private void buildRows() {
+        childStart = new int[count + 1];
+        parentStart = new int[count + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            childStart[edgeParents[e] + 1]++;
+            parentStart[edgeChildren[e] + 1]++;
+        }
+        for (int i = 0; i < count; i++) {
+            childStart[i + 1] += childStart[i];
+            parentStart[i + 1] += parentStart[i];
+        }
+        childIds = new int[edgeCount];
+        parentIds = new int[edgeCount];
+        int[] childFill = childStart.clone();
+        int[] parentFill = parentStart.clone();
+        for (int e = 0; e < edgeCount; e++) {
+            childIds[childFill[edgeParents[e]]++] = edgeChildren[e];
+            parentIds[parentFill[edgeChildren[e]]++] = edgeParents[e];
+        }
+        edgeParents = null;
+        edgeChildren = null;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    // The jobs as WorkflowParser would return them
+    public List<Job> toJobs() {
+        Columns columns = new Columns();
+        List<Job> jobs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Job job = WorkflowParser.newJob(i, columns.getName(i), runtimes[i], -1);
+            for (int k = 0; k < columns.getUsesCount(i); k++) {
+                job.addUses(columns.getUses(i, k));
+            }
+            for (int e = childStart[i]; e < childStart[i + 1]; e++) {
+                job.addChildId(childIds[e]);
+            }
+            for (int e = parentStart[i]; e < parentStart[i + 1]; e++) {
+                job.addParentId(parentIds[e]);
+            }
+            jobs.add(job);
+        }
+        return jobs;
+    }
+
+    // Writes the workflow as a compiled workflow, which WorkflowParser.parseWorkflow maps directly
+    public void compile(File file) throws IOException {
+        CompiledWorkflow.compile(new Columns(), file, 0, 0); // no source file to go stale
+    }
+
+    /**
+     * Writes a generated workflow to a compiled workflow file.
+     * <p>
+     * Usage: {@code WorkflowGenerator <MONTAGE|LIGO|CYBERSHAKE|SIPHT> <jobs> <seed> <output file>}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: WorkflowGenerator <MONTAGE|LIGO|CYBERSHAKE|SIPHT> <jobs> <seed> <output file>");
+            System.exit(1);
+        }
+        long realStartTime = System.nanoTime();
+        WorkflowGenerator generator = generate(Shape.valueOf(args[0].toUpperCase()), Integer.parseInt(args[1]),
+                Long.parseLong(args[2]));
+        generator.compile(new File(args[3]));
+        System.out.printf("Generated %d jobs and %d edges into %s in %.2f seconds.%n", generator.size(),
+                generator.getEdgeCount(), args[3], (System.nanoTime() - realStartTime) / 1e9);
+    }
+
+    // Each job reads its staged input, if any, and the outputs of its parents, and writes one file
+    private final class Columns implements CompiledWorkflow.Source {
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public int getId(int index) {
+            return index;
+        }
+
+        @Override
+        public String getName(int index) {
+            return types[typeOf[index]].name;
+        }
+
+        @Override
+        public double getRuntime(int index) {
+            return runtimes[index];
+        }
+
+        @Override
+        public int getLevel(int index) {
+            return -1;
+        }
+
+        @Override
+        public int getChildCount(int index) {
+            return childStart[index + 1] - childStart[index];
+        }
+
+        @Override
+        public int getChildId(int index, int k) {
+            return childIds[childStart[index] + k];
+        }
+
+        @Override
+        public int getParentCount(int index) {
+            return parentStart[index + 1] - parentStart[index];
+        }
+
+        @Override
+        public int getParentId(int index, int k) {
+            return parentIds[parentStart[index] + k];
+        }
+
+        @Override
+        public int getUsesCount(int index) {
+            return (inputSizes[index] > 0 ? 1 : 0) + getParentCount(index) + 1;
+        }
+
+        @Override
+        public Uses getUses(int index, int k) {
+            if (inputSizes[index] > 0) {
+                if (k == 0) {
+                    return new Uses(getName(index) + "_" + index + ".in", "data", "input", inputSizes[index]);
+                }
+                k--;
+            }
+            if (k < getParentCount(index)) {
+                int parent = getParentId(index, k);
+                return new Uses(outputOf(parent), "data", "input", outputSizes[parent]);
+            }
+            return new Uses(outputOf(index), "data", "output", outputSizes[index]);
+        }
+
+        private String outputOf(int index) {
+            return getName(index) + "_" + index + ".out";
+        }
+    }
+
+    private static JobType[] typesOf(Shape shape) {
+        switch (shape) {
+            case MONTAGE:
+                return new JobType[] {
+                        new JobType("mProjectPP", 13.59, 0.02, 4160706, 2111192),
+                        new JobType("mDiffFit", 10.59, 0.05, 141967, 304),
+                        new JobType("mConcatFit", 26.40, 0.1, 69284, 8996),
+                        new JobType("mBgModel", 48.67, 0.1, 4360, 13739),
+                        new JobType("mBackground", 10.76, 0.02, 4161128, 0),
+                        new JobType("mImgTbl", 31.83, 0.1, 32755, 13739),
+                        new JobType("mAdd", 49.45, 0.1, 212363255, 304),
+                        new JobType("mShrink", 15.64, 0.1, 8497929, 0),
+                        new JobType("mJPEG", 1.18, 0.1, 684970, 0)
+                };
+            case LIGO:
+                return new JobType[] {
+                        new JobType("TmpltBank", 18.11, 0.02, 986033, 10127573),
+                        new JobType("Inspiral", 465.50, 0.29, 309386, 8586444),
+                        new JobType("Thinca", 5.39, 0.04, 35203, 0),
+                        new JobType("TrigBank", 5.10, 0.06, 12781, 0)
+                };
+            case CYBERSHAKE:
+                return new JobType[] {
+                        new JobType("ExtractSGT", 99.18, 0.29, 197146128, 13211283494L),
+                        new JobType("SeismogramSynthesis", 43.39, 0.28, 24000, 3762086),
+                        new JobType("PeakValCalcOkaya", 1.07, 0.30, 216, 0),
+                        new JobType("ZipSeis", 2.67, 0.1, 610177, 0),
+                        new JobType("ZipPSA", 2.59, 0.1, 7207, 0)
+                };
+            default:
+                return new JobType[] {
+                        new JobType("Patser", 0.96, 0.3, 1500, 2000000),
+                        new JobType("Patser_concate", 0.03, 0.3, 27000, 0),
+                        new JobType("Transterm", 32.41, 0.3, 300000, 6000000),
+                        new JobType("Findterm", 594.94, 0.3, 380000, 6000000),
+                        new JobType("RNAMotif", 25.69, 0.3, 7000, 6000000),
+                        new JobType("Blast", 3311.12, 0.3, 1700000, 6000000),
+                        new JobType("SRNA", 12.44, 0.3, 10000, 0),
+                        new JobType("FFN_parse", 0.73, 0.3, 300000, 0),
+                        new JobType("Blast_synteny", 3.37, 0.3, 3000, 0),
+                        new JobType("Blast_candidate", 0.60, 0.3, 1000, 0),
+                        new JobType("Blast_QRNA", 440.88, 0.3, 480000, 0),
+                        new JobType("Blast_paralogues", 0.68, 0.3, 1000, 0),
+                        new JobType("SRNA_annotate", 0.14, 0.3, 14000, 0)
+                };
+        }
+    }
+
+    // Mean runtime (s) and its coefficient of variation, mean output size and mean staged input
+    // size (bytes, 0 for none) of a job type
+    private static final class JobType {
+        private final String name;
+        private final double meanRuntime;
+        private final double runtimeVariation;
+        private final double meanOutputSize;
+        private final double meanInputSize;
+        private ContinuousDistribution runtime;
+        private ContinuousDistribution outputSize;
+        private ContinuousDistribution inputSize;
+
+        JobType(String name, double meanRuntime, double runtimeVariation, double meanOutputSize,
+                double meanInputSize) {
+            this.name = name;
+            this.meanRuntime = meanRuntime;
+            this.runtimeVariation = runtimeVariation;
+            this.meanOutputSize = meanOutputSize;
+            this.meanInputSize = meanInputSize;
+        }
+
+        // Draws from the generator's random source, so a seed fixes every sample
+        void createDistributions(Random random) {
+            // LognormalDistr needs a positive log-mean, so sub-second runtimes are drawn in ms
+            runtime = lognormal(random, 1000 * meanRuntime, runtimeVariation);
+            outputSize = lognormal(random, meanOutputSize, FILE_SIZE_VARIATION);
+            inputSize = meanInputSize > 0 ? lognormal(random, meanInputSize, FILE_SIZE_VARIATION) : null;
+        }
+
+        // LognormalDistr takes the parameters of the underlying normal distribution
+        private static ContinuousDistribution lognormal(Random random, double mean, double variation) {
+            double sigma = Math.sqrt(Math.log(1 + variation * variation));
+            return new LognormalDistr(random, Math.log(mean) - sigma * sigma / 2, sigma);
+        }
+    }
+}
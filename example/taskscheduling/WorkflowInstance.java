@@ -0,0 +1,111 @@
+package taskscheduling;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One submission of a workflow to a {@link MultiWorkflowBroker}. Its jobs are copies of the parsed
+ * jobs whose ids, and cloudlet ids, are shifted by the id offset of the instance, so several
+ * workflows, or several instances of one workflow, never share an id. File names are prefixed
+ * with the instance name for the same reason.
+ */
+public class WorkflowInstance implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String name;
+    private final String workflow;
+    private final int idOffset;
+    private final double arrivalTime;
+    private final double deadline;
+    private final List<Job> jobs;
+    private final Map<Integer, List<Integer>> dependencies = new HashMap<>();
+    private final WorkflowAnalytics analytics;
+
+    /**
+     * @param name the unique name of the instance
+     * @param workflow the workflow file, as given to {@link WorkflowParser#parseWorkflow(String)}
+     * @param parsed the parsed jobs of the workflow, with local ids
+     * @param idOffset added to every local id
+     * @param arrivalTime when the workflow is submitted
+     * @param deadline the time by which the workflow should finish, or infinity if it has none
+     * @param brokerId the broker the cloudlets belong to
+     */
+    WorkflowInstance(String name, String workflow, List<Job> parsed, int idOffset, double arrivalTime,
+                     double deadline, int brokerId) {
+        this.name = name;
+        this.workflow = workflow;
+        this.idOffset = idOffset;
+        this.arrivalTime = arrivalTime;
+        this.deadline = deadline;
+        this.analytics = WorkflowAnalytics.forWorkflow(workflow, parsed);
+
+        List<Job> copies = new ArrayList<>(parsed.size());
+        for (Job job : parsed) {
+            int id = toGlobalId(job.getId());
+            Job copy = SimpleExample.toCloudlet(job, id, id, brokerId);
+            for (Uses uses : job.getUsesList()) {
+                copy.addUses(new Uses(name + "/" + uses.getFile(), uses.getType(), uses.getLink(), uses.getSize()));
+            }
+            dependencies.put(id, new ArrayList<>(copy.getChildIds()));
+            copies.add(copy);
+        }
+        this.jobs = Collections.unmodifiableList(copies);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getWorkflow() {
+        return workflow;
+    }
+
+    public double getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public double getDeadline() {
+        return deadline;
+    }
+
+    public boolean hasDeadline() {
+        return !Double.isInfinite(deadline);
+    }
+
+    // The namespaced jobs, ready to be submitted as cloudlets
+    public List<Job> getJobs() {
+        return jobs;
+    }
+
+    // The children of each namespaced job id
+    public Map<Integer, List<Integer>> getDependencies() {
+        return dependencies;
+    }
+
+    // The analytics of the parsed workflow, indexed by local ids
+    public WorkflowAnalytics getAnalytics() {
+        return analytics;
+    }
+
+    public int getIdOffset() {
+        return idOffset;
+    }
+
+    public int toGlobalId(int localId) {
+        return idOffset + localId;
+    }
+
+    public int toLocalId(int globalId) {
+        return globalId - idOffset;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
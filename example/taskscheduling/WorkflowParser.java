@@ -2,130 +2,374 @@ package taskscheduling;
 
 import org.cloudbus.cloudsim.UtilizationModel;
 import org.cloudbus.cloudsim.UtilizationModelFull;
-import org.w3c.dom.*;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.net.URI;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
 
+/**
+ * Reads Pegasus DAX workflows in a single streaming pass. Jobs are built as their elements are
+ * read and each {@code <child>}/{@code <parent>} edge is resolved through an id index, so neither
+ * the document tree nor a scan of the job list per edge is needed. Gzip-compressed files are
+ * detected by content.
+ * <p>
+ * With a cache directory set, each workflow is also compiled into a {@link CompiledWorkflow}
+ * there, named after the full path of the source, and later loads map that file instead of
+ * parsing, as long as the source keeps the size and modification time recorded in it. Compiled
+ * workflow files, such as those written by {@link WorkflowGenerator}, are mapped directly, and
+ * mapped again once they are written again.
+ */
 public class WorkflowParser {
-    private static String getResourcePath(String resourceFile) {
-        try {
-            // Get the resource as a URL
-            ClassLoader classLoader = WorkflowParser.class.getClassLoader();
-            URL resource = classLoader.getResource(resourceFile);
 
-            if (resource == null) {
-                System.err.println("Error: Resource file not found: " + resourceFile);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    // Compiled workflows mapped so far, by file, so concurrent runs share one mapping; a file
+    // written again since it was mapped is mapped again
+    private static final Map<File, CompiledWorkflow> COMPILED = new ConcurrentHashMap<>();
+
+    private static volatile File cacheDirectory;
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    // Opens a workflow from the classpath, or else from the file system, unzipping it if needed
+    private static InputStream openWorkflow(String workflow) throws IOException {
+        InputStream in = WorkflowParser.class.getClassLoader().getResourceAsStream(workflow);
+        if (in == null) {
+            File file = new File(workflow);
+            if (!file.isFile()) {
                 return null;
             }
+            in = new FileInputStream(file);
+        }
 
-            // If it's a normal file in the file system, return the absolute path
-            File file = new File(resource.toURI());
-            if (file.exists()) {
-                return file.getAbsolutePath();
+        in = new BufferedInputStream(in, BUFFER_SIZE);
+        in.mark(2);
+        int magic = in.read() | (in.read() << 8);
+        in.reset();
+        if (magic == GZIPInputStream.GZIP_MAGIC) {
+            in = new BufferedInputStream(new GZIPInputStream(in, BUFFER_SIZE), BUFFER_SIZE);
+        }
+        return in;
+    }
+
+    // Enables the compiled workflow cache in the given directory, or disables it with null
+    public static void setCacheDirectory(File directory) {
+        cacheDirectory = directory;
+    }
+
+    public static List<Job> parseWorkflow(String filePath) {
+        // Compiled workflows, e.g. written by WorkflowGenerator, are mapped instead of parsed
+        File file = new File(filePath);
+        try {
+            if (file.isFile() && CompiledWorkflow.isCompiled(file)) {
+                CompiledWorkflow compiled = COMPILED.get(file);
+                if (compiled == null || !compiled.isCurrent(file)) {
+                    compiled = CompiledWorkflow.open(file);
+                    COMPILED.put(file, compiled);
+                }
+                return compiled.getJobs();
             }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
 
-            // If running from a JAR, extract the file to a temp directory
-            InputStream inputStream = classLoader.getResourceAsStream(resourceFile);
-            if (inputStream != null) {
-                Path tempFile = Files.createTempFile("workflow_", ".xml");
-                Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
-                return tempFile.toAbsolutePath().toString();
+        File directory = cacheDirectory;
+        if (directory != null) {
+            try {
+                List<Job> jobs = loadCompiled(filePath, directory);
+                if (jobs != null) {
+                    return jobs;
+                }
+            } catch (IOException e) {
+                System.err.println("Warning: workflow cache unavailable for " + filePath + ": " + e.getMessage());
             }
+        }
+
+        List<Job> jobList = new ArrayList<>();
 
+        try (InputStream in = openWorkflow(filePath)) {
+            if (in == null) {
+                System.err.println("Error: Resource file not found: " + filePath);
+                return jobList;
+            }
+            parse(in, jobList);
         } catch (Exception e) {
             e.printStackTrace();
         }
 
-        return null;
+        return jobList;
     }
 
-    public static List<Job> parseWorkflow(String filePath) {
-        List<Job> jobList = new ArrayList<>();
+    // Maps the compiled form of a workflow, compiling it first if it is missing or stale.
+    // Returns null if the workflow does not exist.
+    private static List<Job> loadCompiled(String workflow, File directory) throws IOException {
+        URL source = WorkflowParser.class.getClassLoader().getResource(workflow);
+        if (source == null) {
+            File file = new File(workflow);
+            if (!file.isFile()) {
+                return null;
+            }
+            source = file.toURI().toURL();
+        }
+        long length;
+        long modified;
+        if ("file".equals(source.getProtocol())) {
+            File file = new File(URI.create(source.toString()));
+            length = file.length();
+            modified = file.lastModified();
+        } else {
+            URLConnection connection = source.openConnection();
+            length = connection.getContentLengthLong();
+            modified = connection.getLastModified();
+            connection.getInputStream().close();
+        }
+
+        File cacheFile = new File(directory, cacheFileName(workflow, source));
+        CompiledWorkflow compiled = COMPILED.get(cacheFile);
+        if ((compiled == null || !compiled.isCurrent(cacheFile)) && cacheFile.isFile()) {
+            try {
+                compiled = CompiledWorkflow.open(cacheFile);
+            } catch (IOException e) {
+                compiled = null; // unreadable, compiled again below
+            }
+        }
+        if (compiled != null && compiled.getSourceLength() == length && compiled.getSourceModified() == modified) {
+            COMPILED.put(cacheFile, compiled);
+            return compiled.getJobs();
+        }
 
+        List<Job> jobs = new ArrayList<>();
+        try (InputStream in = openWorkflow(workflow)) {
+            parse(in, jobs);
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+
+        // Written aside and moved into place, so concurrent readers never see a partial file
+        Files.createDirectories(directory.toPath());
+        File temp = File.createTempFile(cacheFile.getName(), ".tmp", directory);
         try {
-            DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-            Document document = dBuilder.parse(getResourcePath(filePath));
-            document.getDocumentElement().normalize();
-
-            // Parse Jobs
-            NodeList jobNodes = document.getElementsByTagName("job");
-            for (int i = 0; i < jobNodes.getLength(); i++) {
-                Element jobElement = (Element) jobNodes.item(i);
-                Job job = parseJob(jobElement);
-                jobList.add(job);
+            CompiledWorkflow.compile(jobs, temp, length, modified);
+            Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        COMPILED.put(cacheFile, CompiledWorkflow.open(cacheFile));
+        return jobs;
+    }
+
+    // The workflow's file name, kept readable, then a hash of the full source path, so
+    // workflows with the same name in other directories, or names that only differ in
+    // characters not allowed here, never share a cache file
+    private static String cacheFileName(String workflow, URL source) {
+        String name = new File(workflow).getName().replaceAll("[^A-Za-z0-9._-]", "_");
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            byte[] digest = sha.digest(source.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder(16);
+            for (int i = 0; i < 8; i++) {
+                hash.append(String.format("%02x", digest[i]));
             }
+            return name + "-" + hash + ".bin";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // required on every JVM
+        }
+    }
 
-            // Parse Parent-Child Relationships
-            parseDependencies(document, jobList);
+    private static void parse(InputStream in, List<Job> jobList) throws XMLStreamException {
+        XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+        IdIndex index = new IdIndex();
+        Job job = null; // the job whose <uses> are being read
+        int childId = -1; // the child whose <parent> refs are being read
+        Job child = null;
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    String element = reader.getLocalName();
+                    if (element.equals("job")) {
+                        job = null;
+                    } else if (element.equals("child")) {
+                        child = null;
+                    }
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                switch (reader.getLocalName()) {
+                    case "job":
+                        job = parseJob(reader);
+                        index.put(job.getId(), jobList.size());
+                        jobList.add(job);
+                        break;
+                    case "uses":
+                        if (job != null) {
+                            job.addUses(parseUses(reader));
+                        }
+                        break;
+                    case "child":
+                        childId = parseId(reader.getAttributeValue(null, "ref"));
+                        child = jobAt(jobList, index.get(childId));
+                        break;
+                    case "parent":
+                        // Edges to jobs missing from the workflow are kept on the side that exists
+                        int parentId = parseId(reader.getAttributeValue(null, "ref"));
+                        Job parent = jobAt(jobList, index.get(parentId));
+                        if (parent != null) {
+                            parent.addChildId(childId);
+                        }
+                        if (child != null) {
+                            child.addParentId(parentId);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        } finally {
+            reader.close();
         }
+    }
 
-        return jobList;
+    private static Job jobAt(List<Job> jobList, int position) {
+        return position < 0 ? null : jobList.get(position);
     }
 
-    private static Job parseJob(Element jobElement) {
-        String id = jobElement.getAttribute("id");
-        String name = jobElement.getAttribute("name");
-        double runtime = Double.parseDouble(jobElement.getAttribute("runtime"));
-        int level = jobElement.hasAttribute("level") ? Integer.parseInt(jobElement.getAttribute("level")) : -1;
+    private static Job parseJob(XMLStreamReader reader) {
+        int id = parseId(reader.getAttributeValue(null, "id"));
+        String name = reader.getAttributeValue(null, "name");
+        double runtime = Double.parseDouble(reader.getAttributeValue(null, "runtime"));
+        String levelValue = reader.getAttributeValue(null, "level");
+        int level = levelValue != null ? Integer.parseInt(levelValue) : -1;
+        return newJob(id, name, runtime, level);
+    }
 
+    // A job with the CloudSim parameters derived from its DAX attributes
+    static Job newJob(int id, String name, double runtime, int level) {
         long length = (long) (runtime * 1000); // Convert job runtime to CloudSim MI (Million Instructions)
         int pesNumber = 1; // Number of CPU cores required
         long fileSize = 300; // Arbitrary file size
         long outputSize = 300; // Arbitrary output size
         UtilizationModel utilizationModel = new UtilizationModelFull();
 
-        Job job = new Job(Integer.parseInt(id.replaceAll("\\D+", "")), name, runtime, level,
-                Integer.parseInt(id.replaceAll("\\D+", "")), length, pesNumber, fileSize, outputSize, utilizationModel);
+        return new Job(id, name, runtime, level, id, length, pesNumber, fileSize, outputSize, utilizationModel);
+    }
+
+    private static Uses parseUses(XMLStreamReader reader) {
+        String file = reader.getAttributeValue(null, "file");
+        String type = reader.getAttributeValue(null, "type");
+        String link = reader.getAttributeValue(null, "link");
+        String size = reader.getAttributeValue(null, "size");
+        return new Uses(file, type, link, size != null ? parseSize(size) : -1);
+    }
 
-        // Parse Uses (Input/Output Files)
-        NodeList usesNodes = jobElement.getElementsByTagName("uses");
-        for (int i = 0; i < usesNodes.getLength(); i++) {
-            Element usesElement = (Element) usesNodes.item(i);
-            String file = usesElement.getAttribute("file");
-            String type = usesElement.getAttribute("type"); // "input" or "output"
-            job.addUses(new Uses(file, type));
+    // Some generators write sizes in floating point notation
+    private static long parseSize(String size) {
+        try {
+            return Long.parseLong(size);
+        } catch (NumberFormatException e) {
+            return (long) Double.parseDouble(size);
         }
+    }
 
-        return job;
+    // The digits of an id such as "ID00042", read as one number
+    private static int parseId(String id) {
+        if (id == null) {
+            throw new NumberFormatException("Missing job id");
+        }
+        int value = 0;
+        boolean hasDigits = false;
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = Math.addExact(Math.multiplyExact(value, 10), c - '0');
+                hasDigits = true;
+            }
+        }
+        if (!hasDigits) {
+            throw new NumberFormatException("No digits in job id: " + id);
+        }
+        return value;
     }
 
-    private static void parseDependencies(Document document, List<Job> jobs) {
-        NodeList childNodes = document.getElementsByTagName("child");
-
-        for (int i = 0; i < childNodes.getLength(); i++) {
-            Element childElement = (Element) childNodes.item(i);
-            String childIdRaw = childElement.getAttribute("ref");
-            int childId = Integer.parseInt(childIdRaw.replaceAll("\\D+", ""));
-
-            NodeList parentNodes = childElement.getElementsByTagName("parent");
-            List<Integer> parents = new ArrayList<>();
-            for (int j = 0; j < parentNodes.getLength(); j++) {
-                Element parentElement = (Element) parentNodes.item(j);
-                String parentIdRaw = parentElement.getAttribute("ref");
-                int parentId = Integer.parseInt(parentIdRaw.replaceAll("\\D+", ""));
-                parents.add(parentId);
-
-                // Add relationships
-                for (Job job : jobs) {
-                    if (job.getId() == parentId) {
-                        job.addChildId(childId);
-                    }
-                    if (job.getId() == childId) {
-                        job.addParentId(parentId);
-                    }
+    // Open-addressing map from job id to position in the job list, without boxing
+    private static final class IdIndex {
+        private int[] keys = new int[1024];
+        private int[] values = new int[1024];
+        private boolean[] used = new boolean[1024];
+        private int size;
+
+        void put(int key, int value) {
+            if (2 * (size + 1) > keys.length) {
+                grow();
+            }
+            int slot = slot(key);
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        // The position of the job, or -1 if there is none
+        int get(int key) {
+            int slot = slot(key);
+            return used[slot] ? values[slot] : -1;
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int hash = key * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            boolean[] oldUsed = used;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    put(oldKeys[i], oldValues[i]);
                 }
             }
         }
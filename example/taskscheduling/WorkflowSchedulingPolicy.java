@@ -0,0 +1,35 @@
+package taskscheduling;
+
+import org.cloudbus.cloudsim.Vm;
+
+/**
+ * Decides which ready tasks of a workflow run on which VMs. {@link MyBroker} tracks the workflow
+ * dependencies and hands each task to the policy once its parents have completed; at every
+ * scheduling point the policy assigns some of its ready tasks through the {@link SchedulingContext}.
+ * <p>
+ * A VM may be given several tasks: they queue on the VM's cloudlet scheduler, and the context
+ * projects when each VM will have finished its queue. Policies are stateful and serve one broker.
+ */
+public interface WorkflowSchedulingPolicy {
+
+    // Called once, before the first task is ready; the VMs may not be created yet
+    default void start(SchedulingContext context) {
+    }
+
+    // A task whose parents have all completed
+    void taskReady(Job task, SchedulingContext context);
+
+    // A task assigned by this policy has completed
+    default void taskCompleted(Job task, SchedulingContext context) {
+    }
+
+    // Assigns ready tasks with SchedulingContext.assign
+    void schedule(SchedulingContext context);
+
+    // Whether some ready tasks are not assigned yet
+    boolean hasReadyTasks();
+
+    default String describeAssignment(Job task, Vm vm) {
+        return "Assigning Task " + task.getCloudletId() + " to VM " + vm.getId();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.junit.Test;
+
+/**
+ * Checks which waiting cloudlets the EASY and conservative policies let start ahead of a wide
+ * cloudlet blocked behind a narrow one, on a VM of four PEs.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class CloudletSchedulerBackfillingTest {
+
+	/** The cloudlets of a run, in order of submission. */
+	private Cloudlet narrow, wide, widest, longRunning, shortRunning;
+
+	private CloudletSchedulerBackfilling scheduler;
+
+	// From 0.1: the narrow cloudlet takes 2 PEs until 10.1, so the wide one (3 PEs) can only
+	// start then, and the widest one (4 PEs) after it. The long one (1 PE, 25 s) fits beside
+	// the wide one but not beside the widest; the short one (1 PE, 5 s) ends before 10.1.
+	private void run(int policy) throws Exception {
+		SchedulerFixture fixture = new SchedulerFixture();
+		fixture.createDatacenter(1, 4);
+		scheduler = new CloudletSchedulerBackfilling(policy);
+		Vm vm = fixture.addVm(4, scheduler);
+		narrow = fixture.addCloudlet(10000, 2, vm);
+		wide = fixture.addCloudlet(5000, 3, vm);
+		widest = fixture.addCloudlet(2000, 4, vm);
+		longRunning = fixture.addCloudlet(25000, 1, vm);
+		shortRunning = fixture.addCloudlet(5000, 1, vm);
+		assertEquals(5, fixture.run().size());
+	}
+
+	@Test
+	public void testEasy() throws Exception {
+		run(CloudletSchedulerBackfilling.EASY);
+
+		// only the wide cloudlet is protected, so the long one starts at once and delays the widest
+		assertEquals(0.1, narrow.getExecStartTime(), 0.001);
+		assertEquals(10.1, wide.getExecStartTime(), 0.001);
+		assertEquals(25.1, widest.getExecStartTime(), 0.001);
+		assertEquals(0.1, longRunning.getExecStartTime(), 0.001);
+		assertEquals(0.1, shortRunning.getExecStartTime(), 0.001);
+		assertEquals(2, scheduler.getBackfilledCloudlets());
+		assertEquals(27.1, widest.getFinishTime(), 0.001);
+	}
+
+	@Test
+	public void testConservative() throws Exception {
+		run(CloudletSchedulerBackfilling.CONSERVATIVE);
+
+		// the widest cloudlet is protected as well, so the long one waits until it finishes
+		assertEquals(0.1, narrow.getExecStartTime(), 0.001);
+		assertEquals(10.1, wide.getExecStartTime(), 0.001);
+		assertEquals(15.1, widest.getExecStartTime(), 0.001);
+		assertEquals(17.1, longRunning.getExecStartTime(), 0.001);
+		assertEquals(0.1, shortRunning.getExecStartTime(), 0.001);
+		assertEquals(1, scheduler.getBackfilledCloudlets());
+		assertEquals(42.1, longRunning.getFinishTime(), 0.001);
+	}
+
+	@Test
+	public void testMigrationReleasesReservations() {
+		CloudSim.init(1, Calendar.getInstance(), false);
+		CloudletSchedulerBackfilling scheduler = new CloudletSchedulerBackfilling(
+				CloudletSchedulerBackfilling.CONSERVATIVE);
+		List<Double> mipsShare = Arrays.asList(1000.0, 1000.0, 1000.0, 1000.0);
+		scheduler.updateVmProcessing(0, mipsShare);
+		Cloudlet running = cloudlet(0, 10000, 4);
+		Cloudlet waiting = cloudlet(1, 1000, 4);
+		scheduler.cloudletSubmit(running);
+		scheduler.cloudletSubmit(waiting);
+		assertEquals(Cloudlet.QUEUED, scheduler.getCloudletStatus(1));
+
+		// the waiting cloudlet starts at once on the PEs of the migrated one
+		assertSame(running, scheduler.migrateCloudlet());
+		scheduler.updateVmProcessing(0, mipsShare);
+		assertEquals(Cloudlet.INEXEC, scheduler.getCloudletStatus(1));
+	}
+
+	private static Cloudlet cloudlet(int id, long length, int pes) {
+		UtilizationModel full = new UtilizationModelFull();
+		Cloudlet cloudlet = new Cloudlet(id, length, pes, 300, 300, full, full, full);
+		cloudlet.setUserId(0);
+		return cloudlet;
+	}
+
+}
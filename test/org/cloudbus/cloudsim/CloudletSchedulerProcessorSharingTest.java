@@ -0,0 +1,93 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.junit.Test;
+
+/**
+ * Checks that the virtual-time scheduler finishes cloudlets when the time-shared scheduler does.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class CloudletSchedulerProcessorSharingTest {
+
+	@Test
+	public void testEqualShares() throws Exception {
+		SchedulerFixture fixture = new SchedulerFixture();
+		fixture.createDatacenter(1, 1);
+		Vm vm = fixture.addVm(1, new CloudletSchedulerProcessorSharing());
+		Cloudlet[] cloudlets = new Cloudlet[3];
+		for (int i = 0; i < cloudlets.length; i++) {
+			cloudlets[i] = fixture.addCloudlet(1000 * (i + 1), 1, vm);
+		}
+		fixture.run();
+
+		// from 0.1, three cloudlets get 333 MIPS each, then two get 500 MIPS, then one all of it
+		assertEquals(3.1, cloudlets[0].getFinishTime(), 0.01);
+		assertEquals(5.1, cloudlets[1].getFinishTime(), 0.01);
+		assertEquals(6.1, cloudlets[2].getFinishTime(), 0.01);
+	}
+
+	@Test
+	public void testPauseResumeAndCancel() throws Exception {
+		SchedulerFixture fixture = new SchedulerFixture();
+		Datacenter datacenter = fixture.createDatacenter(1, 1);
+		Vm vm = fixture.addVm(1, new CloudletSchedulerProcessorSharing());
+		Cloudlet paused = fixture.addCloudlet(2000, 1, vm);
+		Cloudlet other = fixture.addCloudlet(2000, 1, vm);
+		Cloudlet cancelled = fixture.addCloudlet(9000, 1, vm);
+		fixture.request(datacenter, 0.7, CloudSimTags.CLOUDLET_CANCEL, cancelled);
+		fixture.request(datacenter, 1, CloudSimTags.CLOUDLET_PAUSE, paused);
+		fixture.request(datacenter, 3, CloudSimTags.CLOUDLET_RESUME, paused);
+		fixture.run();
+
+		// 200 MI each by 0.7, then 150 MI each by 1, which leaves 1650 MI to the other two
+		assertEquals(Cloudlet.CANCELED, cancelled.getCloudletStatus());
+		assertEquals(2.65, other.getFinishTime(), 0.01);
+		assertEquals(4.65, paused.getFinishTime(), 0.01);
+	}
+
+	@Test
+	public void testSameRunAsTimeShared() throws Exception {
+		List<Cloudlet> shared = runWorkload(false);
+		List<Cloudlet> virtual = runWorkload(true);
+		assertEquals(40, virtual.size());
+
+		double[] finishTimes = new double[40];
+		for (Cloudlet cloudlet : shared) {
+			finishTimes[cloudlet.getCloudletId()] = cloudlet.getFinishTime();
+		}
+		for (Cloudlet cloudlet : virtual) {
+			assertEquals(finishTimes[cloudlet.getCloudletId()], cloudlet.getFinishTime(), 0.15);
+		}
+	}
+
+	// Cloudlets of one and two PEs sharing VMs of two PEs, so that the PEs are oversubscribed
+	private static List<Cloudlet> runWorkload(boolean virtualTime) throws Exception {
+		SchedulerFixture fixture = new SchedulerFixture();
+		fixture.createDatacenter(2, 4);
+		Vm[] vms = new Vm[4];
+		for (int i = 0; i < vms.length; i++) {
+			vms[i] = fixture.addVm(2, virtualTime ? new CloudletSchedulerProcessorSharing()
+					: new CloudletSchedulerTimeShared());
+		}
+		Random random = new Random(11);
+		for (int i = 0; i < 40; i++) {
+			fixture.addCloudlet(1000 + 250 * random.nextInt(40), 1 + random.nextInt(2), vms[i % vms.length]);
+		}
+		return fixture.run();
+	}
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.junit.Test;
+
+/**
+ * Checks that the space-shared scheduler moves cloudlets between its indexed lists in the order
+ * of the linear lists it used before.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class CloudletSchedulerSpaceSharedTest {
+
+	@Test
+	public void testWaitingCloudlets() throws Exception {
+		SchedulerFixture fixture = new SchedulerFixture();
+		Datacenter datacenter = fixture.createDatacenter(1, 2);
+		Vm vm = fixture.addVm(2, new CloudletSchedulerSpaceShared());
+		Cloudlet a = fixture.addCloudlet(3000, 1, vm);
+		Cloudlet b = fixture.addCloudlet(1000, 1, vm);
+		Cloudlet wide = fixture.addCloudlet(1000, 2, vm);
+		Cloudlet d = fixture.addCloudlet(1000, 1, vm);
+		Cloudlet paused = fixture.addCloudlet(1000, 1, vm);
+		fixture.request(datacenter, 0.5, CloudSimTags.CLOUDLET_PAUSE, paused);
+		List<Cloudlet> returned = fixture.run();
+
+		// a PE freed at 1.1 goes to the first waiting cloudlet it fits, d; the wide one waits for
+		// the two PEs, and the paused one left the waiting list, so the PE freed at 2.1 stays idle
+		assertEquals(Arrays.asList("1 1.1000", "3 2.1000", "0 3.1000", "2 4.1000"),
+				SchedulerFixture.finishTimes(returned));
+		assertEquals(Cloudlet.PAUSED, paused.getCloudletStatus());
+		assertEquals(0.1, a.getExecStartTime(), 0.001);
+		assertEquals(0.1, b.getExecStartTime(), 0.001);
+		assertEquals(3.1, wide.getExecStartTime(), 0.001);
+		assertEquals(1.1, d.getExecStartTime(), 0.001);
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks that a datacenter updating its hosts on a pool of threads returns the same cloudlets, at
+ * the same times and in the same order, as a datacenter updating them serially.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class ParallelHostUpdateTest {
+
+	private static ForkJoinPool pool;
+
+	/** Whether a VM was updated by a thread of the pool. */
+	private static final AtomicBoolean updatedOnPool = new AtomicBoolean();
+
+	/** A time-shared scheduler recording the threads it is updated on. */
+	private static final class RecordingScheduler extends CloudletSchedulerTimeShared {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+			if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+				updatedOnPool.set(true);
+			}
+			return super.updateVmProcessing(currentTime, mipsShare);
+		}
+	}
+
+	@BeforeClass
+	public static void setUpClass() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void tearDownClass() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testSameRunWithCompletionIndex() throws Exception {
+		updatedOnPool.set(false);
+		List<String> serial = SchedulerFixture.finishTimes(runWorkload(false, true));
+		assertEquals(240, serial.size());
+		assertFalse(updatedOnPool.get());
+		assertEquals(serial, SchedulerFixture.finishTimes(runWorkload(true, true)));
+		assertTrue(updatedOnPool.get());
+	}
+
+	@Test
+	public void testSameRunWithFullScan() throws Exception {
+		updatedOnPool.set(false);
+		List<String> serial = SchedulerFixture.finishTimes(runWorkload(false, false));
+		assertEquals(240, serial.size());
+		assertFalse(updatedOnPool.get());
+		assertEquals(serial, SchedulerFixture.finishTimes(runWorkload(true, false)));
+		assertTrue(updatedOnPool.get());
+	}
+
+	// Time-shared, virtual-time and space-shared VMs spread over 16 hosts
+	private static List<Cloudlet> runWorkload(boolean parallel, final boolean indexed) throws Exception {
+		SchedulerFixture fixture = new SchedulerFixture();
+		List<Host> hosts = SchedulerFixture.createHosts(16, 4);
+		Datacenter datacenter = new Datacenter("Datacenter", SchedulerFixture.createCharacteristics(hosts),
+				new VmAllocationPolicySimple(hosts), new LinkedList<Storage>(), 0) {
+
+			@Override
+			protected boolean isCompletionIndexEnabled() {
+				return indexed;
+			}
+		};
+		if (parallel) {
+			datacenter.setHostUpdatePool(pool);
+		}
+
+		Vm[] vms = new Vm[32];
+		for (int i = 0; i < vms.length; i++) {
+			CloudletScheduler scheduler;
+			if (i % 3 == 0) {
+				scheduler = new RecordingScheduler();
+			} else if (i % 3 == 1) {
+				scheduler = new CloudletSchedulerProcessorSharing();
+			} else {
+				scheduler = new CloudletSchedulerSpaceShared();
+			}
+			vms[i] = fixture.addVm(2, scheduler);
+		}
+		Random random = new Random(13);
+		for (int i = 0; i < 240; i++) {
+			fixture.addCloudlet(1000 + 100 * random.nextInt(100), 1 + random.nextInt(2), vms[random
+					.nextInt(vms.length)]);
+		}
+		return fixture.run();
+	}
+
+}
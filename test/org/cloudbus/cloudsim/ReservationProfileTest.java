@@ -0,0 +1,104 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks the reservation profile against the PEs reserved in each second of a short horizon.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class ReservationProfileTest {
+
+	private static final int CAPACITY = 4;
+
+	private static final int HORIZON = 40;
+
+	/** The PEs reserved in each second, so that all reservations fall on whole seconds. */
+	private final int[] usage = new int[HORIZON + 10];
+
+	private boolean fitsBySecond(int start, int end, int pes) {
+		for (int t = start; t < end; t++) {
+			if (usage[t] + pes > CAPACITY) {
+				return false;
+			}
+		}
+		return pes <= CAPACITY;
+	}
+
+	@Test
+	public void testSameAsUsageBySecond() {
+		Random random = new Random(5);
+		for (int round = 0; round < 50; round++) {
+			ReservationProfile profile = new ReservationProfile(CAPACITY);
+			Arrays.fill(usage, 0);
+			for (int i = 0; i < 25; i++) {
+				int start = random.nextInt(HORIZON - 10);
+				int end = start + 1 + random.nextInt(10);
+				int pes = 1 + random.nextInt(CAPACITY);
+				assertEquals(fitsBySecond(start, end, pes), profile.fits(start, end, pes));
+				if (profile.fits(start, end, pes)) {
+					profile.reserve(start, end, pes);
+					for (int t = start; t < end; t++) {
+						usage[t] += pes;
+					}
+				}
+				checkSearches(profile, random.nextInt(HORIZON), 1 + random.nextInt(8), 1
+						+ random.nextInt(CAPACITY));
+			}
+		}
+	}
+
+	private void checkSearches(ReservationProfile profile, int from, int duration, int pes) {
+		int earliest = from;
+		while (!fitsBySecond(earliest, earliest + duration, pes)) {
+			earliest++;
+		}
+		assertEquals(earliest, profile.findEarliestStart(from, duration, pes), 0);
+
+		double freeUntil = Double.MAX_VALUE;
+		for (int t = from; t < usage.length; t++) {
+			if (usage[t] + pes > CAPACITY) {
+				freeUntil = t;
+				break;
+			}
+		}
+		assertEquals(freeUntil, profile.getFreeUntil(from, pes), 0);
+	}
+
+	@Test
+	public void testWiderThanTheVm() {
+		ReservationProfile profile = new ReservationProfile(CAPACITY);
+		assertFalse(profile.fits(0, 1, CAPACITY + 1));
+		assertEquals(Double.MAX_VALUE, profile.findEarliestStart(0, 1, CAPACITY + 1), 0);
+		assertEquals(3, profile.getFreeUntil(3, CAPACITY + 1), 0);
+	}
+
+	@Test
+	public void testReservationsEndingAtAStart() {
+		ReservationProfile profile = new ReservationProfile(CAPACITY);
+		profile.reserve(0, 10, CAPACITY);
+		profile.reserve(10, 15, 3);
+		// the ends are exclusive
+		assertTrue(profile.fits(15, 20, CAPACITY));
+		assertTrue(profile.fits(10, 20, 1));
+		assertEquals(10, profile.findEarliestStart(2, 20, 1), 0);
+		assertEquals(15, profile.findEarliestStart(2, 1, 2), 0);
+		assertEquals(2, profile.size());
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+
+/**
+ * A small simulation for the tests of the datacenter and of the cloudlet schedulers: hosts with
+ * PEs of {@link #PE_MIPS} MIPS, and a broker running cloudlets bound to its VMs.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+class SchedulerFixture {
+
+	/** The MIPS of every PE, so that a cloudlet of n MI runs for n / 1000 seconds on a PE. */
+	static final int PE_MIPS = 1000;
+
+	private final DatacenterBroker broker;
+
+	private final List<Vm> vms = new ArrayList<Vm>();
+
+	private final List<Cloudlet> cloudlets = new ArrayList<Cloudlet>();
+
+	/**
+	 * Initialises a new simulation with a broker.
+	 */
+	SchedulerFixture() throws Exception {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+		broker = new DatacenterBroker("Broker");
+	}
+
+	/**
+	 * Creates hosts sharing their PEs among their VMs.
+	 *
+	 * @param count the number of hosts
+	 * @param pes the number of PEs of each host
+	 * @return the hosts
+	 */
+	static List<Host> createHosts(int count, int pes) {
+		List<Host> hosts = new ArrayList<Host>();
+		for (int id = 0; id < count; id++) {
+			List<Pe> peList = new ArrayList<Pe>();
+			for (int pe = 0; pe < pes; pe++) {
+				peList.add(new Pe(pe, new PeProvisionerSimple(PE_MIPS)));
+			}
+			hosts.add(new Host(id, new RamProvisionerSimple(20480), new BwProvisionerSimple(100000),
+					1000000, peList, new VmSchedulerTimeShared(peList)));
+		}
+		return hosts;
+	}
+
+	/**
+	 * Creates the characteristics of a datacenter with the given hosts.
+	 *
+	 * @param hosts the hosts
+	 * @return the characteristics
+	 */
+	static DatacenterCharacteristics createCharacteristics(List<Host> hosts) {
+		return new DatacenterCharacteristics("x86", "Linux", "Xen", hosts, 10.0, 3.0, 0.05, 0.001, 0.0);
+	}
+
+	/**
+	 * Creates a datacenter.
+	 *
+	 * @param hosts the number of hosts
+	 * @param pes the number of PEs of each host
+	 * @return the datacenter
+	 */
+	Datacenter createDatacenter(int hosts, int pes) throws Exception {
+		List<Host> hostList = createHosts(hosts, pes);
+		return new Datacenter("Datacenter", createCharacteristics(hostList), new VmAllocationPolicySimple(
+				hostList), new LinkedList<Storage>(), 0);
+	}
+
+	/**
+	 * Adds a VM of the broker.
+	 *
+	 * @param pes the number of PEs of the VM
+	 * @param scheduler the cloudlet scheduler of the VM
+	 * @return the VM
+	 */
+	Vm addVm(int pes, CloudletScheduler scheduler) {
+		Vm vm = new Vm(vms.size(), broker.getId(), PE_MIPS, pes, 512, 1000, 10000, "Xen", scheduler);
+		vms.add(vm);
+		return vm;
+	}
+
+	/**
+	 * Adds a cloudlet of the broker, bound to a VM.
+	 *
+	 * @param length the length of the cloudlet, in MI per PE
+	 * @param pes the number of PEs of the cloudlet
+	 * @param vm the VM
+	 * @return the cloudlet
+	 */
+	Cloudlet addCloudlet(long length, int pes, Vm vm) {
+		UtilizationModel full = new UtilizationModelFull();
+		Cloudlet cloudlet = new Cloudlet(cloudlets.size(), length, pes, 300, 300, full, full, full);
+		cloudlet.setUserId(broker.getId());
+		cloudlet.setVmId(vm.getId());
+		cloudlets.add(cloudlet);
+		return cloudlet;
+	}
+
+	/**
+	 * Sends a pause, resume or cancel request for a cloudlet to a datacenter.
+	 *
+	 * @param datacenter the datacenter running the cloudlet
+	 * @param delay the time of the request
+	 * @param tag {@link CloudSimTags#CLOUDLET_PAUSE}, {@link CloudSimTags#CLOUDLET_RESUME} or
+	 *            {@link CloudSimTags#CLOUDLET_CANCEL}
+	 * @param cloudlet the cloudlet
+	 */
+	void request(Datacenter datacenter, double delay, int tag, Cloudlet cloudlet) {
+		CloudSim.send(broker.getId(), datacenter.getId(), delay, tag, new int[] {
+				cloudlet.getCloudletId(), broker.getId(), cloudlet.getVmId() });
+	}
+
+	/**
+	 * Runs the simulation.
+	 *
+	 * @return the cloudlets returned to the broker, in the order they were returned
+	 */
+	List<Cloudlet> run() {
+		broker.submitVmList(vms);
+		broker.submitCloudletList(cloudlets);
+		CloudSim.startSimulation();
+		return broker.getCloudletReceivedList();
+	}
+
+	/**
+	 * Describes when each returned cloudlet finished, for comparing two runs.
+	 *
+	 * @param returned the cloudlets returned by {@link #run()}
+	 * @return a line with the id and the finish time of each cloudlet
+	 */
+	static List<String> finishTimes(List<Cloudlet> returned) {
+		List<String> lines = new ArrayList<String>();
+		for (Cloudlet cloudlet : returned) {
+			lines.add(cloudlet.getCloudletId() + " " + String.format("%.4f", cloudlet.getFinishTime()));
+		}
+		return lines;
+	}
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.junit.Test;
+
+/**
+ * Checks the order of the VM completion index, that a datacenter using it returns cloudlets at the
+ * times of a datacenter scanning all its hosts at each event, and that it brings a VM up to date
+ * before pausing one of its cloudlets.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class VmCompletionIndexTest {
+
+	private static Vm vm(int id) {
+		return new Vm(id, 0, 1000, 1, 512, 1000, 10000, "Xen", new CloudletSchedulerTimeShared());
+	}
+
+	@Test
+	public void testDueVms() {
+		VmCompletionIndex index = new VmCompletionIndex();
+		Vm[] vms = new Vm[40];
+		for (int i = 0; i < vms.length; i++) {
+			vms[i] = vm(i);
+			// spread over the heap, which grows past its initial capacity
+			index.update(vms[i], 100 + (i * 7) % 40);
+		}
+		assertEquals(100, index.getNextCompletionTime(), 0);
+
+		// the VMs due by 102 are taken out, the others keep their time
+		List<Vm> due = index.pollDue(102);
+		assertEquals(3, due.size());
+		assertTrue(due.containsAll(Arrays.asList(vms[0], vms[23], vms[6])));
+		assertEquals(103, index.getNextCompletionTime(), 0);
+
+		// a later time moves a VM down, an earlier time up
+		index.update(vms[11], 150); // was 137
+		index.update(vms[5], 101); // was 135
+		assertEquals(101, index.getNextCompletionTime(), 0);
+		index.remove(vms[5]);
+		assertEquals(103, index.getNextCompletionTime(), 0);
+
+		// the remaining VMs come out in time order; VM i was due at 100 + 7 * i % 40
+		for (int time = 103; time < 140; time++) {
+			int i = 23 * (time - 100) % 40;
+			List<Vm> expected = i == 5 || i == 11 ? Collections.<Vm> emptyList() : Arrays.asList(vms[i]);
+			assertEquals(expected, index.pollDue(time));
+		}
+		assertEquals(Arrays.asList(vms[11]), index.pollDue(150));
+		assertEquals(Double.MAX_VALUE, index.getNextCompletionTime(), 0);
+	}
+
+	@Test
+	public void testChangedAndUpdatedVms() {
+		VmCompletionIndex index = new VmCompletionIndex();
+		Vm early = vm(0);
+		Vm late = vm(1);
+		Vm idle = vm(2);
+		index.update(early, 5);
+		index.update(late, 50);
+		index.update(idle, Double.MAX_VALUE); // nothing to finish
+		assertEquals(Arrays.asList(early, late, idle), index.pollUpdated());
+		assertEquals(Collections.<Vm> emptyList(), index.pollUpdated());
+
+		// changed VMs come first, each VM once
+		index.markChanged(idle);
+		index.markChanged(early);
+		assertEquals(Arrays.asList(idle, early), index.getActiveVms().subList(0, 2));
+		assertEquals(Arrays.asList(idle, early), index.pollDue(5));
+		assertEquals(Collections.<Vm> emptyList(), index.pollDue(5));
+		assertEquals(50, index.getNextCompletionTime(), 0);
+
+		// a VM updated with no cloudlet left leaves the heap
+		index.update(late, 0);
+		assertEquals(Double.MAX_VALUE, index.getNextCompletionTime(), 0);
+		assertEquals(Arrays.asList(late), index.pollUpdated());
+	}
+
+	@Test
+	public void testSameRunAsFullScan() throws Exception {
+		List<Cloudlet> indexed = runWorkload(false);
+		List<Cloudlet> scanned = runWorkload(true);
+		assertEquals(60, indexed.size());
+		assertEquals(60, scanned.size());
+
+		// the full scan truncates the remaining lengths at every event, and may need one more
+		// event, at least 0.11 s later, to return a cloudlet with a fraction of an MI left
+		double[] finishTimes = new double[60];
+		for (Cloudlet cloudlet : scanned) {
+			finishTimes[cloudlet.getCloudletId()] = cloudlet.getFinishTime();
+		}
+		for (Cloudlet cloudlet : indexed) {
+			assertEquals(finishTimes[cloudlet.getCloudletId()], cloudlet.getFinishTime(), 0.15);
+		}
+	}
+
+	@Test
+	public void testPausedCloudlet() throws Exception {
+		SchedulerFixture fixture = new SchedulerFixture();
+		Datacenter datacenter = fixture.createDatacenter(1, 1);
+		Vm vm = fixture.addVm(1, new CloudletSchedulerTimeShared());
+		Cloudlet paused = fixture.addCloudlet(2000, 1, vm);
+		Cloudlet other = fixture.addCloudlet(2000, 1, vm);
+		fixture.request(datacenter, 1, CloudSimTags.CLOUDLET_PAUSE, paused);
+		fixture.request(datacenter, 3, CloudSimTags.CLOUDLET_RESUME, paused);
+		fixture.run();
+
+		// both start at 0.1 and run at 500 MIPS until 1, which leaves 1550 MI each; the other then
+		// runs alone at 1000 MIPS, and the paused one from 3
+		assertEquals(2.55, other.getFinishTime(), 0.01);
+		assertEquals(4.55, paused.getFinishTime(), 0.01);
+	}
+
+	// Time- and space-shared VMs on three hosts, finishing cloudlets at different times
+	private static List<Cloudlet> runWorkload(boolean fullScan) throws Exception {
+		SchedulerFixture fixture = new SchedulerFixture();
+		List<Host> hosts = SchedulerFixture.createHosts(3, 4);
+		if (fullScan) {
+			new Datacenter("Datacenter", SchedulerFixture.createCharacteristics(hosts),
+					new VmAllocationPolicySimple(hosts), new LinkedList<Storage>(), 0) {
+
+				@Override
+				protected boolean isCompletionIndexEnabled() {
+					return false;
+				}
+			};
+		} else {
+			new Datacenter("Datacenter", SchedulerFixture.createCharacteristics(hosts),
+					new VmAllocationPolicySimple(hosts), new LinkedList<Storage>(), 0);
+		}
+
+		Vm[] vms = new Vm[6];
+		for (int i = 0; i < vms.length; i++) {
+			vms[i] = fixture.addVm(2, i % 2 == 0 ? new CloudletSchedulerTimeShared()
+					: new CloudletSchedulerSpaceShared());
+		}
+		Random random = new Random(7);
+		for (int i = 0; i < 60; i++) {
+			fixture.addCloudlet(1000 + 500 * random.nextInt(30), 1 + random.nextInt(2), vms[i % vms.length]);
+		}
+		return fixture.run();
+	}
+
+}
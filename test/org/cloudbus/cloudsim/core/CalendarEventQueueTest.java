@@ -0,0 +1,112 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the calendar queue delivers events in the same order as the tree queue, including
+ * events with the same time, while it grows, shrinks and re-estimates its bucket width.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class CalendarEventQueueTest {
+
+	private static SimEvent event(double time, int id) {
+		return new SimEvent(SimEvent.SEND, time, 1, 2, id % 7, Integer.valueOf(id));
+	}
+
+	private static int idOf(SimEvent event) {
+		return (Integer) event.getData();
+	}
+
+	@Test
+	public void testSameOrderAsTreeQueue() {
+		FutureQueue calendar = new FutureQueue(new CalendarEventQueue());
+		FutureQueue tree = new FutureQueue(new TreeEventQueue());
+		Random random = new Random(7);
+		for (int id = 0; id < 5000; id++) {
+			// a few distinct times, so that most events tie with others
+			double time = random.nextBoolean() ? random.nextInt(50) : random.nextDouble() * 1000;
+			calendar.addEvent(event(time, id));
+			tree.addEvent(event(time, id));
+		}
+
+		double previous = -1;
+		while (tree.size() > 0) {
+			SimEvent expected = tree.pollFirst();
+			SimEvent actual = calendar.pollFirst();
+			assertEquals(idOf(expected), idOf(actual));
+			assertTrue(actual.eventTime() >= previous);
+			previous = actual.eventTime();
+		}
+		assertEquals(0, calendar.size());
+		assertNull(calendar.pollFirst());
+	}
+
+	@Test
+	public void testHoldModelKeepsOrder() {
+		// each step takes the first event and schedules a later one, as a running simulation does
+		FutureQueue calendar = new FutureQueue(new CalendarEventQueue(0.001));
+		FutureQueue tree = new FutureQueue(new TreeEventQueue());
+		Random random = new Random(11);
+		int id = 0;
+		for (; id < 1000; id++) {
+			double time = random.nextDouble() * 10;
+			calendar.addEvent(event(time, id));
+			tree.addEvent(event(time, id));
+		}
+		for (int step = 0; step < 20000; step++) {
+			SimEvent expected = tree.pollFirst();
+			SimEvent actual = calendar.pollFirst();
+			assertEquals(idOf(expected), idOf(actual));
+
+			// the queue drains in the second half, so that it also shrinks
+			int added = step < 10000 ? 1 + random.nextInt(2) : random.nextInt(2);
+			for (int k = 0; k < added && tree.size() + k < 100000; k++, id++) {
+				double time = actual.eventTime() + random.nextDouble() * 100;
+				calendar.addEvent(event(time, id));
+				tree.addEvent(event(time, id));
+			}
+			if (tree.size() == 0) {
+				break;
+			}
+		}
+		assertEquals(tree.size(), calendar.size());
+	}
+
+	@Test
+	public void testRemove() {
+		FutureQueue calendar = new FutureQueue(new CalendarEventQueue());
+		List<SimEvent> events = new ArrayList<SimEvent>();
+		for (int id = 0; id < 100; id++) {
+			SimEvent event = event(id / 10, id);
+			events.add(event);
+			calendar.addEvent(event);
+		}
+		for (int id = 0; id < 100; id += 2) {
+			assertTrue(calendar.remove(events.get(id)));
+			assertFalse(calendar.remove(events.get(id)));
+		}
+		for (int id = 1; id < 100; id += 2) {
+			assertEquals(id, idOf(calendar.pollFirst()));
+		}
+		assertEquals(0, calendar.size());
+	}
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Calendar;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that a simulation restored from a checkpoint carries on exactly as the original run.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class CheckpointTest {
+
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("checkpoint", ".gz");
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+		CloudSim.setEventPooling(false);
+		CloudSim.setSimulation(null);
+	}
+
+	@Test
+	public void testRestoredRunCarriesOn() throws Exception {
+		checkRestoredRun();
+	}
+
+	@Test
+	public void testRestoredRunWithPooling() throws Exception {
+		// the event pools are not saved, and are created empty again on restore
+		CloudSim.setEventPooling(true);
+		checkRestoredRun();
+	}
+
+	private void checkRestoredRun() throws Exception {
+		TraceEntity[] entities = TraceEntity.createPingPong();
+		assertTrue(CloudSim.getSimulation().checkpointSimulation(3, file.getPath()));
+		CloudSim.startSimulation();
+		assertEquals(ReadyDispatchTest.TRACE_A, entities[0].getTrace());
+		assertTrue(file.length() > 0);
+
+		Simulation restored = Simulation.restoreCheckpoint(file.getPath());
+		TraceEntity a = (TraceEntity) restored.getEntity("A");
+		TraceEntity b = (TraceEntity) restored.getEntity("B");
+		assertNotSame(entities[0], a);
+		assertEquals(3.0, restored.clock(), 0);
+		// every event up to the checkpoint time has been processed
+		assertEquals(ReadyDispatchTest.TRACE_A.subList(0, 7), a.getTrace());
+		assertEquals(ReadyDispatchTest.TRACE_B.subList(0, 5), b.getTrace());
+
+		assertEquals(7.0, restored.startSimulation(), 0);
+		assertEquals(ReadyDispatchTest.TRACE_A, a.getTrace());
+		assertEquals(ReadyDispatchTest.TRACE_B, b.getTrace());
+		assertEquals(24, restored.getNumProcessedEvents());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testParallelRunCanNotBeCheckpointed() {
+		TraceEntity[] entities = TraceEntity.createPingPong();
+		CloudSim.setLogicalProcess(entities[1].getId(), 1);
+		CloudSim.setParallelism(2);
+		CloudSim.getSimulation().checkpointSimulation(3, file.getPath());
+		CloudSim.startSimulation();
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotACheckpoint() throws Exception {
+		Simulation.restoreCheckpoint(file.getPath());
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the deferred queue keeps the events of each destination apart, in time order and,
+ * for the same time, in arrival order.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class DeferredQueueTest {
+
+	private DeferredQueue queue;
+
+	private static SimEvent event(double time, int dest, int id) {
+		return new SimEvent(SimEvent.SEND, time, 0, dest, 0, Integer.valueOf(id));
+	}
+
+	private static int idOf(SimEvent event) {
+		return (Integer) event.getData();
+	}
+
+	@Before
+	public void setUp() {
+		queue = new DeferredQueue();
+		// destinations 3 and 5 interleaved, partly out of time order
+		queue.addEvent(event(2, 3, 0));
+		queue.addEvent(event(1, 5, 1));
+		queue.addEvent(event(1, 3, 2));
+		queue.addEvent(event(2, 3, 3));
+		queue.addEvent(event(0, 5, 4));
+		queue.addEvent(event(1, 3, 5));
+	}
+
+	@Test
+	public void testEventsByDestination() {
+		assertEquals(6, queue.size());
+		assertEquals(4, queue.size(3));
+		assertEquals(2, queue.size(5));
+		assertEquals(0, queue.size(4));
+		assertEquals(0, queue.size(100));
+
+		// same times keep their arrival order
+		assertIds(queue.iterator(3), 2, 5, 0, 3);
+		assertIds(queue.iterator(5), 4, 1);
+		assertFalse(queue.iterator(4).hasNext());
+	}
+
+	@Test
+	public void testPoll() {
+		assertEquals(2, idOf(queue.first(3)));
+		assertEquals(2, idOf(queue.pollFirst(3)));
+		assertEquals(5, idOf(queue.pollFirst(3)));
+		assertEquals(4, queue.size());
+		assertNull(queue.pollFirst(4));
+
+		List<SimEvent> events = new ArrayList<SimEvent>();
+		assertEquals(2, queue.pollAll(5, events));
+		assertEquals(4, idOf(events.get(0)));
+		assertEquals(1, idOf(events.get(1)));
+		assertEquals(0, queue.size(5));
+		assertEquals(2, queue.size());
+	}
+
+	@Test
+	public void testRemoveThroughIterator() {
+		Iterator<SimEvent> iterator = queue.iterator(3);
+		while (iterator.hasNext()) {
+			if (idOf(iterator.next()) % 2 == 0) {
+				iterator.remove();
+			}
+		}
+		assertEquals(4, queue.size());
+		assertIds(queue.iterator(3), 5, 3);
+		assertIds(queue.iterator(5), 4, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNullDestination() {
+		queue.addEvent(event(0, -1, 6));
+	}
+
+	private static void assertIds(Iterator<SimEvent> iterator, int... ids) {
+		for (int id : ids) {
+			assertEquals(id, idOf(iterator.next()));
+		}
+		assertFalse(iterator.hasNext());
+	}
+
+}
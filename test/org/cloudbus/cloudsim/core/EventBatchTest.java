@@ -0,0 +1,103 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.junit.Test;
+
+/**
+ * Checks that the events with the same time are taken from either queue engine in one batch, in
+ * queue order, and that entities processing events in batches see the same events.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class EventBatchTest {
+
+	/** A B entity that processes its events in batches and records the batch sizes. */
+	private static final class BatchEntity extends TraceEntity {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Integer> batchSizes = new ArrayList<Integer>();
+
+		BatchEntity(String name) {
+			super(name, 1.0, 0);
+			setBatchProcessing(true);
+		}
+
+		@Override
+		public void processEvents(List<SimEvent> events) {
+			batchSizes.add(events.size());
+			super.processEvents(events);
+		}
+	}
+
+	@Test
+	public void testBatchFromTreeQueue() {
+		checkBatches(new FutureQueue(new TreeEventQueue()));
+	}
+
+	@Test
+	public void testBatchFromCalendarQueue() {
+		checkBatches(new FutureQueue(new CalendarEventQueue()));
+	}
+
+	private static void checkBatches(FutureQueue queue) {
+		List<SimEvent> batch = new ArrayList<SimEvent>();
+		assertEquals(0, queue.pollFirstBatch(batch));
+
+		SimEvent[] events = new SimEvent[6];
+		double[] times = { 2, 1, 2, 1, 3, 1 };
+		for (int i = 0; i < events.length; i++) {
+			events[i] = new SimEvent(SimEvent.SEND, times[i], 1, 2, 7, null);
+			queue.addEvent(events[i]);
+		}
+		SimEvent first = new SimEvent(SimEvent.SEND, 1, 1, 2, 7, null);
+		queue.addEventFirst(first);
+
+		batch.add(events[4]); // the batch is appended
+		assertEquals(4, queue.pollFirstBatch(batch));
+		assertEquals(Arrays.asList(events[4], first, events[1], events[3], events[5]), batch);
+		assertEquals(3, queue.size());
+
+		// the polled events left the (source, tag) index as well
+		assertEquals(3, queue.removeAll(1, new PredicateType(7)).size());
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testBatchProcessingEntity() {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+		TraceEntity a = new TraceEntity("A", 1.0, 3);
+		BatchEntity b = new BatchEntity("B");
+		new TraceEntity("Idle", 1.0, 0);
+		a.setPeer(0, b.getId());
+		a.setPeer(1, b.getId());
+		a.setPeer(2, a.getId());
+		for (int tag = 0; tag < 3; tag++) {
+			b.setPeer(tag, a.getId());
+		}
+		CloudSim.startSimulation();
+
+		assertEquals(ReadyDispatchTest.TRACE_A, a.getTrace());
+		assertEquals(ReadyDispatchTest.TRACE_B, b.getTrace());
+		// the events received at 1 and at 4 arrive together
+		assertEquals(Arrays.asList(1, 3, 1, 3), b.batchSizes);
+	}
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that pooled events are delivered in the same order as fresh ones, are actually reused,
+ * and that the debug guard catches an entity that retains an event.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class EventPoolingTest {
+
+	/** A B entity that keeps a reference to every event it receives. */
+	private static final class RetainingEntity extends TraceEntity {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<SimEvent> retained = new ArrayList<SimEvent>();
+
+		RetainingEntity(String name) {
+			super(name, 1.0, 0);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			retained.add(ev);
+			super.processEvent(ev);
+		}
+	}
+
+	@Before
+	public void setUp() {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+	}
+
+	@After
+	public void tearDown() {
+		// the settings outlive init() in the context of this thread
+		CloudSim.setEventPooling(false);
+		CloudSim.setEventPoolingDebug(false);
+	}
+
+	@Test
+	public void testSameTraceWithPooling() {
+		CloudSim.setEventPooling(true);
+		TraceEntity[] entities = TraceEntity.createPingPong();
+		CloudSim.startSimulation();
+
+		assertEquals(ReadyDispatchTest.TRACE_A, entities[0].getTrace());
+		assertEquals(ReadyDispatchTest.TRACE_B, entities[1].getTrace());
+	}
+
+	@Test
+	public void testEventsAreReused() {
+		CloudSim.setEventPooling(true);
+		RetainingEntity b = createPingPongWith(50);
+		CloudSim.startSimulation();
+
+		// a dozen events at most are pending at any time
+		IdentityHashMap<SimEvent, Boolean> distinct = new IdentityHashMap<SimEvent, Boolean>();
+		for (SimEvent ev : b.retained) {
+			distinct.put(ev, Boolean.TRUE);
+		}
+		assertEquals(104, b.retained.size());
+		assertTrue(distinct.size() <= 12);
+	}
+
+	@Test
+	public void testRetainedEventIsCaughtInDebugMode() {
+		CloudSim.setEventPooling(true);
+		CloudSim.setEventPoolingDebug(true);
+		RetainingEntity b = createPingPongWith(3);
+		CloudSim.startSimulation();
+
+		// the trace is unchanged, but every retained event is poisoned
+		assertEquals(ReadyDispatchTest.TRACE_B, b.getTrace());
+		for (SimEvent ev : b.retained) {
+			try {
+				ev.getTag();
+				fail("A recycled event was read");
+			} catch (IllegalStateException e) {
+				// expected
+			}
+		}
+	}
+
+	// The ping-pong workload, with the given hops and a retaining entity as B
+	private static RetainingEntity createPingPongWith(int hops) {
+		TraceEntity a = new TraceEntity("A", 1.0, hops);
+		RetainingEntity b = new RetainingEntity("B");
+		new TraceEntity("Idle", 1.0, 0);
+		a.setPeer(0, b.getId());
+		a.setPeer(1, b.getId());
+		a.setPeer(2, a.getId());
+		for (int tag = 0; tag < 3; tag++) {
+			b.setPeer(tag, a.getId());
+		}
+		return b;
+	}
+
+}
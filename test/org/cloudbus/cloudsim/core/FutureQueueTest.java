@@ -0,0 +1,196 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks the (source, tag) index of the future queue, the order of the events added first and
+ * the cancellation handles.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class FutureQueueTest {
+
+	private static SimEvent event(double time, int src, int tag, int id) {
+		return new SimEvent(SimEvent.SEND, time, src, 9, tag, Integer.valueOf(id));
+	}
+
+	private static int idOf(SimEvent event) {
+		return (Integer) event.getData();
+	}
+
+	@After
+	public void tearDown() {
+		CloudSim.setEventPooling(false);
+	}
+
+	@Test
+	public void testRemoveByTag() {
+		FutureQueue queue = new FutureQueue();
+		queue.addEvent(event(1, 3, 7, 0));
+		queue.addEvent(event(2, 4, 7, 1)); // another source
+		queue.addEvent(event(0, 3, 8, 2));
+		queue.addEvent(event(3, 3, 7, 3));
+		queue.addEvent(event(0.5, 3, 7, 4));
+
+		// the earliest match, whatever the order of addition
+		assertEquals(4, idOf(queue.removeFirst(3, new PredicateType(7))));
+		assertEquals(4, queue.size());
+
+		List<SimEvent> removed = queue.removeAll(3, new PredicateType(7));
+		assertEquals(2, removed.size());
+		assertEquals(new HashSet<Integer>(Arrays.asList(0, 3)), ids(removed));
+		assertNull(queue.removeFirst(3, new PredicateType(7)));
+		assertEquals(2, queue.size());
+		assertEquals(2, idOf(queue.pollFirst()));
+		assertEquals(1, idOf(queue.pollFirst()));
+	}
+
+	@Test
+	public void testRepeatedTagsRemoveEachEventOnce() {
+		FutureQueue queue = new FutureQueue();
+		for (int id = 0; id < 4; id++) {
+			queue.addEvent(event(id, 3, 7 + id % 2, id));
+		}
+
+		List<SimEvent> removed = queue.removeAll(3, new PredicateType(new int[] { 7, 8, 7, 8 }));
+		assertEquals(4, removed.size());
+		assertEquals(new HashSet<Integer>(Arrays.asList(0, 1, 2, 3)), ids(removed));
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	public void testEventsAddedFirst() {
+		FutureQueue queue = new FutureQueue();
+		SimEvent later = event(1, 3, 7, 0);
+		SimEvent first = event(1, 3, 7, 1);
+		SimEvent secondFirst = event(1, 3, 7, 2);
+		queue.addEvent(later);
+		queue.addEventFirst(first);
+		queue.addEventFirst(secondFirst);
+		queue.addEvent(event(0, 3, 7, 3));
+
+		// real, distinct serials, so that handles and the index tell the events apart
+		assertTrue(first.getSerial() > later.getSerial());
+		assertTrue(secondFirst.getSerial() > first.getSerial());
+
+		// the events added first come before the others with the same time, in their own order
+		assertEquals(3, idOf(queue.pollFirst()));
+		assertSame(first, queue.pollFirst());
+		assertSame(secondFirst, queue.pollFirst());
+		assertSame(later, queue.pollFirst());
+	}
+
+	@Test
+	public void testCancellationHandles() {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+		CloudSim.setEventPooling(true);
+		TraceEntity a = new TraceEntity("A", 1.0, 0);
+		TraceEntity b = new TraceEntity("B", 1.0, 0);
+		for (int tag = 0; tag < 3; tag++) {
+			b.setPeer(tag, a.getId());
+		}
+
+		EventHandle cancelled = CloudSim.sendCancellable(a.getId(), b.getId(), 0.5, 2, Integer.valueOf(0));
+		EventHandle delivered = CloudSim.sendCancellable(a.getId(), b.getId(), 1, 0, Integer.valueOf(0));
+		// B answers this one at 2 with a pooled event, possibly the one delivered at 1
+		CloudSim.sendCancellable(a.getId(), b.getId(), 2, 1, Integer.valueOf(1));
+		assertTrue(cancelled.isPending());
+		assertTrue(cancelled.cancel());
+		assertFalse(cancelled.isPending());
+		assertFalse(cancelled.cancel());
+
+		CloudSim.startSimulation();
+		assertEquals(Arrays.asList("1.0 0 A 0", "2.0 1 A 1"), b.getTrace());
+		assertEquals(Arrays.asList("4.0 1 B 0"), a.getTrace());
+		assertFalse(delivered.isPending());
+		assertFalse(delivered.cancel());
+	}
+
+	@Test
+	public void testHandleOfReusedEvent() {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+		CloudSim.setEventPooling(true);
+		TraceEntity a = new TraceEntity("A", 1.0, 0);
+		TraceEntity b = new TraceEntity("B", 1.0, 0);
+		for (int tag = 0; tag < 3; tag++) {
+			b.setPeer(tag, a.getId());
+		}
+		EventHandle delivered = CloudSim.sendCancellable(a.getId(), b.getId(), 1, 0, Integer.valueOf(0));
+		// B answers this one at 2, reusing the event delivered at 1, for delivery at 4
+		CloudSim.send(a.getId(), b.getId(), 2, 1, Integer.valueOf(1));
+		CancellingEntity canceller = new CancellingEntity(delivered);
+		CloudSim.startSimulation();
+
+		// the stale handle did not cancel the answer
+		assertTrue(canceller.reused);
+		assertFalse(canceller.cancelled);
+		assertEquals(Arrays.asList("4.0 1 B 0"), a.getTrace());
+	}
+
+	/** Cancels an event through a handle at time 3. */
+	private static final class CancellingEntity extends SimEntity {
+
+		private static final long serialVersionUID = 1L;
+
+		private final EventHandle handle;
+
+		/** Whether the event of the handle was pending again, for another send, at time 3. */
+		boolean reused;
+
+		boolean cancelled;
+
+		CancellingEntity(EventHandle handle) {
+			super("Canceller");
+			this.handle = handle;
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), 3, 0);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			reused = handle.getEvent().queued;
+			cancelled = handle.cancel();
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+	}
+
+	private static Set<Integer> ids(List<SimEvent> events) {
+		Set<Integer> ids = new HashSet<Integer>();
+		for (SimEvent event : events) {
+			ids.add(idOf(event));
+		}
+		return ids;
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that logical processes advanced on several threads deliver the events of the sequential
+ * kernel in the same order, and that the data of the events crossing two processes is copied.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class ParallelSimulationTest {
+
+	/** Sends a list at start-up, then changes it; records the list it receives. */
+	private static final class ListEntity extends SimEntity {
+
+		private static final long serialVersionUID = 1L;
+
+		private int peer = -1;
+
+		private Object payload;
+
+		private final ArrayList<String> sent = new ArrayList<String>(Arrays.asList("sent"));
+
+		private Object received;
+
+		ListEntity(String name) {
+			super(name);
+		}
+
+		@Override
+		public void startEntity() {
+			if (peer >= 0) {
+				schedule(peer, 1, 0, payload != null ? payload : sent);
+				sent.add("changed after the send");
+			}
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			received = ev.getData();
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+	}
+
+	@Before
+	public void setUp() {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+	}
+
+	@Test
+	public void testSameTraceAsSequential() {
+		TraceEntity[] entities = TraceEntity.createPingPong();
+		CloudSim.setLogicalProcess(entities[1].getId(), 1);
+		CloudSim.setLogicalProcess(entities[2].getId(), 2);
+		CloudSim.setParallelism(3);
+
+		assertEquals(7.0, CloudSim.startSimulation(), 0);
+		assertEquals(ReadyDispatchTest.TRACE_A, entities[0].getTrace());
+		assertEquals(ReadyDispatchTest.TRACE_B, entities[1].getTrace());
+		assertEquals(24, CloudSim.getNumProcessedEvents());
+	}
+
+	@Test
+	public void testDataIsCopiedAcrossProcesses() {
+		ListEntity sender = new ListEntity("Sender");
+		ListEntity receiver = new ListEntity("Receiver");
+		sender.peer = receiver.getId();
+		CloudSim.setLogicalProcess(receiver.getId(), 1);
+		CloudSim.startSimulation();
+
+		// a snapshot taken when the event was sent
+		assertNotSame(sender.sent, receiver.received);
+		assertEquals(Arrays.asList("sent"), receiver.received);
+	}
+
+	@Test
+	public void testDataIsSharedWithinAProcess() {
+		ListEntity sender = new ListEntity("Sender");
+		ListEntity receiver = new ListEntity("Receiver");
+		sender.peer = receiver.getId();
+		CloudSim.startSimulation();
+
+		assertSame(sender.sent, receiver.received);
+	}
+
+	@Test
+	public void testEntitiesAreNotCopied() {
+		ListEntity sender = new ListEntity("Sender");
+		ListEntity receiver = new ListEntity("Receiver");
+		sender.peer = receiver.getId();
+		List<Object> payload = new ArrayList<Object>();
+		payload.add(sender);
+		sender.payload = payload;
+		CloudSim.setLogicalProcess(receiver.getId(), 1);
+		CloudSim.startSimulation();
+
+		assertNotSame(payload, receiver.received);
+		assertSame(sender, ((List<?>) receiver.received).get(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testDataThatCanNotBeCopied() {
+		ListEntity sender = new ListEntity("Sender");
+		ListEntity receiver = new ListEntity("Receiver");
+		sender.peer = receiver.getId();
+		sender.payload = new Object();
+		CloudSim.setLogicalProcess(receiver.getId(), 1);
+		CloudSim.startSimulation();
+	}
+
+}
@@ -0,0 +1,69 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that running only the entities made ready by a tick delivers the events in the same
+ * order as scanning every entity on every tick, and leaves idle entities alone.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class ReadyDispatchTest {
+
+	/** The events A receives, as recorded with the kernel that scanned every entity. */
+	static final List<String> TRACE_A = Arrays.asList(
+			"1.0 2 A 3", "2.0 2 A 3", "2.0 0 B 2", "3.0 2 A 2", "3.0 0 B 2", "3.0 1 B 2", "3.0 1 B 2",
+			"4.0 2 A 2", "4.0 2 A 1", "5.0 0 B 0", "5.0 2 A 1", "6.0 2 A 0", "6.0 0 B 0", "6.0 1 B 0",
+			"6.0 1 B 0", "7.0 2 A 0");
+
+	/** The events B receives, as recorded with the kernel that scanned every entity. */
+	static final List<String> TRACE_B = Arrays.asList(
+			"0.0 0 A 3", "1.0 0 A 3", "1.0 1 A 3", "1.0 1 A 3", "3.0 0 A 1", "4.0 0 A 1", "4.0 1 A 1",
+			"4.0 1 A 1");
+
+	@Before
+	public void setUp() {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+	}
+
+	@Test
+	public void testSameTraceAsFullScan() {
+		TraceEntity[] entities = TraceEntity.createPingPong();
+		assertEquals(7.0, CloudSim.startSimulation(), 0);
+
+		assertEquals(TRACE_A, entities[0].getTrace());
+		assertEquals(TRACE_B, entities[1].getTrace());
+		assertEquals(24, CloudSim.getNumProcessedEvents());
+	}
+
+	@Test
+	public void testIdleEntitiesAreNotRun() {
+		TraceEntity[] entities = TraceEntity.createPingPong();
+		CloudSim.startSimulation();
+
+		// the first tick and the end of the simulation run every entity, the other ticks only
+		// the receivers of events
+		assertEquals(2, entities[2].getRuns());
+		assertTrue(entities[2].getTrace().isEmpty());
+		assertTrue(entities[1].getRuns() < entities[0].getRuns());
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudbus.cloudsim.Log;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks that simulations bound to different threads, or created one after the other on the same
+ * thread, keep their own entities, clock and event queues.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class SimulationContextTest {
+
+	@After
+	public void tearDown() {
+		CloudSim.setSimulation(null);
+	}
+
+	@Test
+	public void testConcurrentSimulations() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<TraceEntity[]>> runs = new ArrayList<Future<TraceEntity[]>>();
+			for (int i = 0; i < 16; i++) {
+				runs.add(pool.submit(new Callable<TraceEntity[]>() {
+
+					@Override
+					public TraceEntity[] call() {
+						Log.disable();
+						CloudSim.init(1, Calendar.getInstance(), false);
+						TraceEntity[] entities = TraceEntity.createPingPong();
+						CloudSim.startSimulation();
+						return entities;
+					}
+				}));
+			}
+			for (Future<TraceEntity[]> run : runs) {
+				TraceEntity[] entities = run.get();
+				assertEquals(ReadyDispatchTest.TRACE_A, entities[0].getTrace());
+				assertEquals(ReadyDispatchTest.TRACE_B, entities[1].getTrace());
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testSimulationsOnOneThread() {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+		Simulation first = CloudSim.getSimulation();
+		TraceEntity[] firstEntities = TraceEntity.createPingPong();
+
+		// a second simulation is set up before the first one runs
+		Simulation second = new Simulation();
+		CloudSim.setSimulation(second);
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+		TraceEntity[] secondEntities = TraceEntity.createPingPong();
+		assertSame(second, secondEntities[0].getSimulation());
+		assertSame(first, firstEntities[0].getSimulation());
+		assertNotSame(firstEntities[0], second.getEntity(firstEntities[0].getId()));
+
+		assertEquals(7.0, second.startSimulation(), 0);
+		assertEquals(ReadyDispatchTest.TRACE_A, secondEntities[0].getTrace());
+		assertEquals(24, second.getNumProcessedEvents());
+		assertEquals(0, first.getNumProcessedEvents());
+		assertEquals(0.0, first.clock(), 0);
+
+		assertEquals(7.0, first.startSimulation(), 0);
+		assertEquals(ReadyDispatchTest.TRACE_A, firstEntities[0].getTrace());
+		assertEquals(ReadyDispatchTest.TRACE_B, firstEntities[1].getTrace());
+	}
+
+}
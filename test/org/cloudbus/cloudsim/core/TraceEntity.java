@@ -0,0 +1,133 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A test entity that records every event it receives and answers it, after a fixed delay, until
+ * the hop count carried by the event runs out. Several bursts sent at start-up with a delay that
+ * divides the clock evenly give many events with the same time, so that the trace depends on the
+ * kernel's tie-breaking order.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+class TraceEntity extends SimEntity {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The entities to answer, by tag. */
+	private final int[] peers;
+
+	/** The delay of the answers. */
+	private final double delay;
+
+	/** The hop count of the events sent at start-up, or 0 to send none. */
+	private final int hops;
+
+	/** The events received: clock, tag, source name and hops left. */
+	private final List<String> trace = new ArrayList<String>();
+
+	/** The number of times the kernel ran this entity. */
+	private int runs;
+
+	/**
+	 * Creates an entity.
+	 *
+	 * @param name the entity name
+	 * @param delay the delay of the answers
+	 * @param hops the hop count of the events sent at start-up, or 0 to send none
+	 */
+	TraceEntity(String name, double delay, int hops) {
+		super(name);
+		this.delay = delay;
+		this.hops = hops;
+		peers = new int[3];
+	}
+
+	/**
+	 * Creates, in the current simulation, an entity A that answers itself on tag 2 and an entity B
+	 * on tags 0 and 1, an entity B that answers A, and an idle entity that nobody sends to. A
+	 * sends two events of each tag at start-up, each answered for 3 hops, with answer delays of 1
+	 * and 2, hence 24 events and many ties.
+	 *
+	 * @return A, B and the idle entity
+	 */
+	static TraceEntity[] createPingPong() {
+		TraceEntity a = new TraceEntity("A", 1.0, 3);
+		TraceEntity b = new TraceEntity("B", 1.0, 0);
+		TraceEntity idle = new TraceEntity("Idle", 1.0, 0);
+		a.setPeer(0, b.getId());
+		a.setPeer(1, b.getId());
+		a.setPeer(2, a.getId());
+		for (int tag = 0; tag < 3; tag++) {
+			b.setPeer(tag, a.getId());
+		}
+		return new TraceEntity[] { a, b, idle };
+	}
+
+	/**
+	 * Sets the entity to answer the events of a tag, from 0 to 2, and to send them to at start-up.
+	 *
+	 * @param tag the tag
+	 * @param peer the entity id
+	 */
+	void setPeer(int tag, int peer) {
+		peers[tag] = peer;
+	}
+
+	@Override
+	public void startEntity() {
+		if (hops > 0) {
+			for (int tag = 0; tag < peers.length; tag++) {
+				schedule(peers[tag], tag * delay, tag, Integer.valueOf(hops));
+				schedule(peers[tag], delay, tag, Integer.valueOf(hops));
+			}
+		}
+	}
+
+	@Override
+	public void processEvent(SimEvent ev) {
+		int left = (Integer) ev.getData();
+		trace.add(CloudSim.clock() + " " + ev.getTag() + " " + CloudSim.getEntityName(ev.getSource()) + " " + left);
+		if (left > 0) {
+			schedule(peers[ev.getTag()], delay * (1 + left % 2), ev.getTag(), Integer.valueOf(left - 1));
+		}
+	}
+
+	@Override
+	public void shutdownEntity() {
+	}
+
+	@Override
+	public void run() {
+		runs++;
+		super.run();
+	}
+
+	/**
+	 * Gets the events received: clock, tag, source name and hops left.
+	 *
+	 * @return the trace
+	 */
+	List<String> getTrace() {
+		return trace;
+	}
+
+	/**
+	 * Gets the number of times the kernel ran this entity.
+	 *
+	 * @return the number of runs
+	 */
+	int getRuns() {
+		return runs;
+	}
+
+}
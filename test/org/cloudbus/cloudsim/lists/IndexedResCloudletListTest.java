@@ -0,0 +1,174 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.lists;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.ResCloudlet;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the indexed cloudlet list behaves as a linked list, and that its index finds the
+ * cloudlet a linear search would find.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class IndexedResCloudletListTest {
+
+	@Before
+	public void setUp() {
+		Log.disable();
+		CloudSim.init(1, Calendar.getInstance(), false);
+	}
+
+	private static ResCloudlet rcl(int id) {
+		UtilizationModelFull full = new UtilizationModelFull();
+		Cloudlet cloudlet = new Cloudlet(id, 1000, 1, 300, 300, full, full, full);
+		cloudlet.setUserId(0);
+		return new ResCloudlet(cloudlet);
+	}
+
+	@Test
+	public void testSameAsLinkedList() {
+		IndexedResCloudletList<ResCloudlet> list = new IndexedResCloudletList<ResCloudlet>();
+		List<ResCloudlet> expected = new LinkedList<ResCloudlet>();
+		Random random = new Random(3);
+		for (int step = 0; step < 5000; step++) {
+			// few ids, so that some cloudlets share one, and enough to grow the index
+			ResCloudlet rcl = rcl(random.nextInt(60));
+			switch (random.nextInt(6)) {
+				case 0:
+				case 1:
+					list.add(rcl);
+					expected.add(rcl);
+					break;
+				case 2:
+					if (!expected.isEmpty()) {
+						ResCloudlet removed = expected.get(random.nextInt(expected.size()));
+						assertTrue(list.remove(removed));
+						expected.remove(removed);
+					}
+					assertFalse(list.remove(rcl));
+					break;
+				case 3:
+					int index = random.nextInt(expected.size() + 1);
+					list.add(index, rcl);
+					expected.add(index, rcl);
+					break;
+				case 4:
+					// edit through the iterators: remove, replace or insert after each match
+					ListIterator<ResCloudlet> it = list.listIterator();
+					ListIterator<ResCloudlet> expectedIt = expected.listIterator();
+					int id = rcl.getCloudletId();
+					while (it.hasNext()) {
+						ResCloudlet next = it.next();
+						assertSame(expectedIt.next(), next);
+						if (next.getCloudletId() == id) {
+							it.remove();
+							expectedIt.remove();
+						} else if (next.getCloudletId() == id + 1) {
+							it.set(rcl);
+							expectedIt.set(rcl);
+						} else if (next.getCloudletId() == id + 2) {
+							it.add(rcl);
+							expectedIt.add(rcl);
+						}
+					}
+					break;
+				default:
+					if (random.nextInt(50) == 0) {
+						list.clear();
+						expected.clear();
+					}
+			}
+			assertEquals(expected, list);
+			for (int id = 0; id < 60; id += 7) {
+				assertSame(linearSearch(expected, id), list.getById(id));
+				assertSame(linearSearch(expected, id), ResCloudletList.getByIdAndUserId(list, id, 0));
+			}
+		}
+	}
+
+	@Test
+	public void testMoveBetweenLists() {
+		IndexedResCloudletList<ResCloudlet> waiting = new IndexedResCloudletList<ResCloudlet>();
+		IndexedResCloudletList<ResCloudlet> exec = new IndexedResCloudletList<ResCloudlet>();
+		ResCloudlet[] cloudlets = new ResCloudlet[40];
+		for (int i = 0; i < cloudlets.length; i++) {
+			cloudlets[i] = rcl(i);
+			waiting.add(cloudlets[i]);
+		}
+		for (int i = 0; i < cloudlets.length; i += 2) {
+			assertTrue(ResCloudletList.move(waiting, exec, cloudlets[i]));
+		}
+		assertFalse(ResCloudletList.move(waiting, exec, cloudlets[0]));
+
+		assertEquals(20, waiting.size());
+		assertEquals(20, exec.size());
+		assertNull(waiting.getById(10));
+		assertSame(cloudlets[10], exec.getById(10));
+		assertSame(cloudlets[11], ResCloudletList.getById(waiting, 11));
+		assertNull(ResCloudletList.getByIdAndUserId(waiting, 11, 1)); // another user
+		assertEquals(5, ResCloudletList.getPositionById(exec, 10));
+	}
+
+	@Test
+	public void testSerialization() throws Exception {
+		IndexedResCloudletList<ResCloudlet> list = new IndexedResCloudletList<ResCloudlet>();
+		for (int i = 0; i < 20; i++) {
+			list.add(rcl(i % 15));
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(list);
+		out.close();
+		@SuppressWarnings("unchecked")
+		IndexedResCloudletList<ResCloudlet> copy = (IndexedResCloudletList<ResCloudlet>) new ObjectInputStream(
+				new ByteArrayInputStream(bytes.toByteArray())).readObject();
+
+		assertEquals(20, copy.size());
+		for (int i = 0; i < 20; i++) {
+			assertEquals(list.get(i).getCloudletId(), copy.get(i).getCloudletId());
+		}
+		// the index is rebuilt, and still refers to the first of two cloudlets with an id
+		assertSame(copy.get(3), copy.getById(3));
+		copy.remove(copy.get(3));
+		assertSame(copy.get(17), copy.getById(3));
+	}
+
+	private static ResCloudlet linearSearch(List<ResCloudlet> list, int id) {
+		for (ResCloudlet rcl : list) {
+			if (rcl.getCloudletId() == id) {
+				return rcl;
+			}
+		}
+		return null;
+	}
+
+}
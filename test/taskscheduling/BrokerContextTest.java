@@ -0,0 +1,129 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.junit.Test;
+
+/**
+ * Checks the broker state a policy sees: in periodic dispatch a busy VM is given more tasks for
+ * as long as it would go idle before the next scheduling point, and its projected finish time
+ * falls back to the clock once its queue has completed.
+ */
+public class BrokerContextTest {
+
+    // SJF, recording the queue and projected finish time of the only VM after every call
+    private static final class RecordingPolicy extends ShortestJobFirstPolicy {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<double[]> scheduled = new ArrayList<>();
+        private final List<double[]> completed = new ArrayList<>();
+
+        @Override
+        public void schedule(SchedulingContext context) {
+            super.schedule(context);
+            scheduled.add(state(context));
+        }
+
+        @Override
+        public void taskCompleted(Job task, SchedulingContext context) {
+            super.taskCompleted(task, context);
+            completed.add(state(context));
+        }
+
+        // The clock, queue length and projected finish time of the VM
+        private static double[] state(SchedulingContext context) {
+            Vm vm = context.getVms().get(0);
+            return new double[] {context.getClock(), context.getQueueLength(vm), context.getProjectedFinishTime(vm)};
+        }
+    }
+
+    // a (1 s) forks to b, c, d, e and f (3 s each) on one VM of 1000 MIPS
+    private static List<Job> fork() {
+        List<Job> jobs = new ArrayList<>();
+        Job a = BrokerFixture.job(0, 1);
+        jobs.add(a);
+        for (int id = 1; id <= 5; id++) {
+            Job child = BrokerFixture.job(id, 3);
+            BrokerFixture.edge(a, child);
+            jobs.add(child);
+        }
+        return jobs;
+    }
+
+    private static List<Job> run(RecordingPolicy policy, MyBroker.DispatchMode mode) throws Exception {
+        BrokerFixture.init();
+        MyBroker broker = new MyBroker("Broker", policy, 10, mode);
+        broker.submitVmList(BrokerFixture.vms(broker.getId(), 1000));
+        List<Job> jobs = new ArrayList<>();
+        for (Cloudlet cloudlet : SimpleExample.createCloudlets(fork(), broker.getId())) {
+            jobs.add((Job) cloudlet);
+        }
+        broker.submitCloudletList(jobs);
+        CloudSim.startSimulation();
+        assertEquals(6, broker.getCompletedJobCount());
+        return jobs;
+    }
+
+    @Test
+    public void testPeriodicQueuesUntilTheHorizon() throws Exception {
+        RecordingPolicy policy = new RecordingPolicy();
+        List<Job> jobs = run(policy, MyBroker.DispatchMode.PERIODIC);
+
+        // at 10, a is assigned; b to f are released when it completes, at 11, and wait for 20
+        assertEquals(10, policy.scheduled.get(0)[0], 0.2);
+        assertEquals(1, policy.scheduled.get(0)[1], 0);
+        assertEquals(11, policy.scheduled.get(0)[2], 0.2);
+
+        // at 20 the VM takes tasks until it would be busy past 30: b to e, projected to end at 32
+        double[] second = policy.scheduled.get(1);
+        assertEquals(20, second[0], 0.2);
+        assertEquals(4, second[1], 0);
+        assertEquals(32, second[2], 0.2);
+        for (int id = 1; id <= 4; id++) {
+            assertEquals(20, jobs.get(id).getExecStartTime(), 0.2);
+        }
+
+        // at 30 the VM is still running them but would go idle before 40, so it also takes f
+        double[] third = policy.scheduled.get(2);
+        assertEquals(30, third[0], 0.2);
+        assertEquals(5, third[1], 0);
+        assertEquals(35, third[2], 0.2);
+        assertEquals(30, jobs.get(5).getExecStartTime(), 0.2);
+        assertTrue(jobs.get(5).getExecStartTime() < jobs.get(1).getFinishTime());
+        assertEquals(35, jobs.get(5).getFinishTime(), 0.2);
+
+        // the queue shrinks as tasks complete, and an empty VM is projected to be free now
+        assertEquals(6, policy.completed.size());
+        double[] first = policy.completed.get(0);
+        assertEquals(0, first[1], 0);
+        assertEquals(first[0], first[2], 0);
+        for (int k = 1; k < 5; k++) {
+            assertEquals(5 - k, policy.completed.get(k)[1], 0);
+            assertEquals(35, policy.completed.get(k)[2], 0.2);
+        }
+        double[] last = policy.completed.get(5);
+        assertEquals(0, last[1], 0);
+        assertEquals(last[0], last[2], 0);
+    }
+
+    @Test
+    public void testEventDrivenAssignsIdleVmsOnly() throws Exception {
+        RecordingPolicy policy = new RecordingPolicy();
+        List<Job> jobs = run(policy, MyBroker.DispatchMode.EVENT_DRIVEN);
+
+        for (double[] state : policy.scheduled) {
+            assertTrue(state[1] <= 1);
+        }
+        for (int id = 2; id <= 5; id++) {
+            assertEquals(jobs.get(id - 1).getFinishTime(), jobs.get(id).getExecStartTime(), 0.2);
+        }
+    }
+}
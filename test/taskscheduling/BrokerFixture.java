@@ -0,0 +1,71 @@
+package taskscheduling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+
+import org.cloudbus.cloudsim.CloudletSchedulerProcessorSharing;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * Small workflows and the example datacenter for broker tests.
+ */
+final class BrokerFixture {
+
+    private BrokerFixture() {
+    }
+
+    // Starts a quiet simulation with the example datacenter, created first as MyBroker expects
+    static void init() {
+        Log.disable();
+        CloudSim.init(1, Calendar.getInstance(), false);
+        SimpleExample.createDatacenter("Datacenter");
+    }
+
+    // A parsed job taking the runtime on a VM of 1000 MIPS
+    static Job job(int id, double runtime) {
+        return WorkflowParser.newJob(id, "job" + id, runtime, -1);
+    }
+
+    static void edge(Job parent, Job child) {
+        parent.addChildId(child.getId());
+        child.addParentId(parent.getId());
+    }
+
+    /**
+     * a -> b, a -> c, b -> d, c -> d, taking 1, 4, 4 and 1 s on a VM of 1000 MIPS. Job a reads a
+     * staged input and each job reads the outputs of its parents; every file has the given size.
+     */
+    static List<Job> diamond(long fileSize) {
+        Job a = job(0, 1);
+        Job b = job(1, 4);
+        Job c = job(2, 4);
+        Job d = job(3, 1);
+        edge(a, b);
+        edge(a, c);
+        edge(b, d);
+        edge(c, d);
+        a.addUses(new Uses("in.dat", "data", "input", fileSize));
+        a.addUses(new Uses("a.out", "data", "output", fileSize));
+        b.addUses(new Uses("a.out", "data", "input", fileSize));
+        b.addUses(new Uses("b.out", "data", "output", fileSize));
+        c.addUses(new Uses("a.out", "data", "input", fileSize));
+        c.addUses(new Uses("c.out", "data", "output", fileSize));
+        d.addUses(new Uses("b.out", "data", "input", fileSize));
+        d.addUses(new Uses("c.out", "data", "input", fileSize));
+        return Arrays.asList(a, b, c, d);
+    }
+
+    // One single-PE VM per MIPS value, as SimpleExample creates them
+    static List<Vm> vms(int brokerId, int... mips) {
+        List<Vm> vms = new ArrayList<>();
+        for (int i = 0; i < mips.length; i++) {
+            vms.add(new Vm(i, brokerId, mips[i], 1, 512, 1000, 10000, "Xen", new CloudletSchedulerProcessorSharing()));
+        }
+        return vms;
+    }
+}
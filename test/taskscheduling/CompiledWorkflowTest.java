@@ -0,0 +1,135 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that a compiled workflow, mapped directly or through the parser's cache, reads back the
+ * jobs the StAX parser reads from the source, and that a changed source is compiled again.
+ * Workflow paths are relative to the example directory, as in {@link ExperimentRunner}.
+ */
+public class CompiledWorkflowTest {
+
+    static final String MONTAGE = "resources/Montage_500_1.xml";
+
+    // A two-job workflow; the runtime of the first job is filled in, and "10" and "20" keep the length
+    private static final String DAX = "<adag xmlns=\"http://pegasus.isi.edu/schema/DAX\">\n"
+            + "  <job id=\"ID00000\" name=\"split\" runtime=\"%s\" level=\"1\">\n"
+            + "    <uses file=\"in.dat\" link=\"input\" type=\"data\" size=\"2000000\"/>\n"
+            + "    <uses file=\"part.dat\" link=\"output\" type=\"data\" size=\"1000000\"/>\n"
+            + "  </job>\n"
+            + "  <job id=\"ID00001\" name=\"merge\" runtime=\"5\" level=\"2\">\n"
+            + "    <uses file=\"part.dat\" link=\"input\" type=\"data\" size=\"1000000\"/>\n"
+            + "  </job>\n"
+            + "  <child ref=\"ID00001\"><parent ref=\"ID00000\"/></child>\n"
+            + "</adag>\n";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        WorkflowParser.setCacheDirectory(null);
+    }
+
+    @Test
+    public void testCompiledFileReadsBackTheParsedJobs() throws IOException {
+        List<Job> parsed = WorkflowParser.parseWorkflow(MONTAGE);
+        assertEquals(500, parsed.size());
+        assertEquals(4, parsed.get(0).getUsesList().size());
+
+        File compiled = folder.newFile("montage.bin");
+        CompiledWorkflow.compile(parsed, compiled, 0, 0);
+        assertTrue(CompiledWorkflow.isCompiled(compiled));
+        assertFalse(CompiledWorkflow.isCompiled(new File(MONTAGE)));
+        assertSameJobs(parsed, WorkflowParser.parseWorkflow(compiled.getPath()));
+    }
+
+    @Test
+    public void testCacheServesTheParsedJobs() throws IOException {
+        List<Job> parsed = WorkflowParser.parseWorkflow(MONTAGE);
+
+        File cache = folder.newFolder("cache");
+        WorkflowParser.setCacheDirectory(cache);
+        assertSameJobs(parsed, WorkflowParser.parseWorkflow(MONTAGE)); // parsed and compiled
+        File[] files = cache.listFiles();
+        assertEquals(1, files.length);
+        assertTrue(CompiledWorkflow.isCompiled(files[0]));
+        assertSameJobs(parsed, WorkflowParser.parseWorkflow(MONTAGE)); // mapped
+    }
+
+    @Test
+    public void testChangedSourceIsCompiledAgain() throws IOException {
+        File source = folder.newFile("workflow.xml");
+        writeSource(source, "10", 1_000_000_000_000L);
+        WorkflowParser.setCacheDirectory(folder.newFolder("cache"));
+        assertEquals(10, WorkflowParser.parseWorkflow(source.getPath()).get(0).getRuntime(), 0);
+
+        // the same length and modification time, so the compiled jobs are served
+        writeSource(source, "20", 1_000_000_000_000L);
+        assertEquals(10, WorkflowParser.parseWorkflow(source.getPath()).get(0).getRuntime(), 0);
+
+        writeSource(source, "20", 1_000_000_002_000L);
+        List<Job> jobs = WorkflowParser.parseWorkflow(source.getPath());
+        assertEquals(20, jobs.get(0).getRuntime(), 0);
+        assertEquals(20, WorkflowParser.parseWorkflow(source.getPath()).get(0).getRuntime(), 0);
+        WorkflowParser.setCacheDirectory(null);
+        assertSameJobs(WorkflowParser.parseWorkflow(source.getPath()), jobs);
+    }
+
+    @Test
+    public void testCompiledFileWrittenAgainIsMappedAgain() throws IOException {
+        File source = folder.newFile("workflow.xml");
+        writeSource(source, "10", 1_000_000_000_000L);
+        File compiled = folder.newFile("workflow.bin");
+        CompiledWorkflow.compile(WorkflowParser.parseWorkflow(source.getPath()), compiled, 0, 0);
+        assertEquals(10, WorkflowParser.parseWorkflow(compiled.getPath()).get(0).getRuntime(), 0);
+
+        writeSource(source, "20", 1_000_000_000_000L);
+        CompiledWorkflow.compile(WorkflowParser.parseWorkflow(source.getPath()), compiled, 0, 0);
+        assertTrue(compiled.setLastModified(compiled.lastModified() + 2000));
+        assertEquals(20, WorkflowParser.parseWorkflow(compiled.getPath()).get(0).getRuntime(), 0);
+    }
+
+    private static void writeSource(File source, String runtime, long modified) throws IOException {
+        Files.write(source.toPath(), String.format(DAX, runtime).getBytes(StandardCharsets.UTF_8));
+        assertTrue(source.setLastModified(modified));
+    }
+
+    static void assertSameJobs(List<Job> expected, List<Job> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Job job = expected.get(i);
+            Job other = actual.get(i);
+            assertEquals(job.getId(), other.getId());
+            assertEquals(job.getCloudletId(), other.getCloudletId());
+            assertEquals(job.getName(), other.getName());
+            assertEquals(job.getRuntime(), other.getRuntime(), 0);
+            assertEquals(job.getCloudletLength(), other.getCloudletLength());
+            assertEquals(job.getLevel(), other.getLevel());
+            assertEquals(job.getParentIds(), other.getParentIds());
+            assertEquals(job.getChildIds(), other.getChildIds());
+            assertEquals(job.getUsesList().size(), other.getUsesList().size());
+            for (int k = 0; k < job.getUsesList().size(); k++) {
+                Uses uses = job.getUsesList().get(k);
+                Uses otherUses = other.getUsesList().get(k);
+                assertEquals(uses.getFile(), otherUses.getFile());
+                assertEquals(uses.getType(), otherUses.getType());
+                assertEquals(uses.getLink(), otherUses.getLink());
+                assertEquals(uses.getSize(), otherUses.getSize());
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.junit.Test;
+
+/**
+ * Runs a diamond workflow with its tasks pinned to two VMs and checks which inputs each task is
+ * charged for: none it or an earlier task on its VM already holds, and every other one for its
+ * size in whole MB over the storage transfer rate.
+ */
+public class DataTransferTest {
+
+    // 266 MB once rounded up, so each file takes 2 s to read from the shared storage
+    private static final long FILE_SIZE = 265_000_001;
+
+    private static final double TRANSFER = 266.0 / SimpleExample.STORAGE_TRANSFER_RATE;
+
+    // Assigns every ready task to its VM, recording the input transfer expected for it
+    private static final class PinnedPolicy implements WorkflowSchedulingPolicy {
+
+        private final Map<Integer, Integer> vmOf;
+        private final List<Job> ready = new ArrayList<>();
+        private final Map<Integer, Double> transfers = new HashMap<>();
+
+        PinnedPolicy(Map<Integer, Integer> vmOf) {
+            this.vmOf = vmOf;
+        }
+
+        @Override
+        public void taskReady(Job task, SchedulingContext context) {
+            ready.add(task);
+        }
+
+        @Override
+        public void schedule(SchedulingContext context) {
+            for (Job task : ready) {
+                Vm vm = context.getVms().get(vmOf.get(task.getId()));
+                transfers.put(task.getId(), context.getInputTransferTime(task, vm));
+                context.assign(task, vm);
+            }
+            ready.clear();
+        }
+
+        @Override
+        public boolean hasReadyTasks() {
+            return !ready.isEmpty();
+        }
+    }
+
+    private static List<Cloudlet> run(PinnedPolicy policy, double storageTransferRate) throws Exception {
+        BrokerFixture.init();
+        MyBroker broker = new MyBroker("Broker", policy, MyBroker.SCHEDULE_INTERVAL, MyBroker.DispatchMode.EVENT_DRIVEN);
+        broker.submitVmList(BrokerFixture.vms(broker.getId(), 1000, 1000));
+        broker.setStorageTransferRate(storageTransferRate);
+        List<Cloudlet> cloudlets = SimpleExample.createCloudlets(BrokerFixture.diamond(FILE_SIZE), broker.getId());
+        broker.submitCloudletList(cloudlets);
+        CloudSim.startSimulation();
+        assertEquals(4, broker.getCompletedJobCount());
+        return cloudlets;
+    }
+
+    // a, b and d on the first VM, c on the second
+    private static PinnedPolicy pinned() {
+        Map<Integer, Integer> vmOf = new HashMap<>();
+        vmOf.put(0, 0);
+        vmOf.put(1, 0);
+        vmOf.put(2, 1);
+        vmOf.put(3, 0);
+        return new PinnedPolicy(vmOf);
+    }
+
+    @Test
+    public void testRemoteInputsAreCharged() throws Exception {
+        PinnedPolicy policy = pinned();
+        List<Cloudlet> cloudlets = run(policy, SimpleExample.STORAGE_TRANSFER_RATE);
+        Cloudlet a = cloudlets.get(0);
+        Cloudlet b = cloudlets.get(1);
+        Cloudlet c = cloudlets.get(2);
+        Cloudlet d = cloudlets.get(3);
+
+        // a reads the staged input; b runs where a wrote a.out and reads nothing; c reads a.out
+        // on the other VM; d holds b.out but not c.out
+        assertEquals(Arrays.asList("in.dat"), a.getRequiredFiles());
+        assertEquals(Collections.emptyList(), b.getRequiredFiles());
+        assertEquals(Arrays.asList("a.out"), c.getRequiredFiles());
+        assertEquals(Arrays.asList("c.out"), d.getRequiredFiles());
+
+        assertEquals(TRANSFER, policy.transfers.get(0), 1e-9);
+        assertEquals(0, policy.transfers.get(1), 0);
+        assertEquals(TRANSFER, policy.transfers.get(2), 1e-9);
+        assertEquals(TRANSFER, policy.transfers.get(3), 1e-9);
+
+        // the datacenter adds the transfer to the run time of each task, to a whole MI
+        assertEquals(1 + TRANSFER, a.getFinishTime() - a.getExecStartTime(), 0.001);
+        assertEquals(4, b.getFinishTime() - b.getExecStartTime(), 0.001);
+        assertEquals(4 + TRANSFER, c.getFinishTime() - c.getExecStartTime(), 0.001);
+        assertEquals(1 + TRANSFER, d.getFinishTime() - d.getExecStartTime(), 0.001);
+        assertEquals(c.getFinishTime(), d.getExecStartTime(), 0.001);
+        assertEquals(0.1 + 3 * TRANSFER + 6, d.getFinishTime(), 0.01);
+    }
+
+    @Test
+    public void testNothingIsChargedWithoutFiles() throws Exception {
+        PinnedPolicy policy = pinned();
+        List<Cloudlet> cloudlets = run(policy, 0);
+
+        double[] runtimes = {1, 4, 4, 1};
+        for (int id = 0; id < runtimes.length; id++) {
+            Cloudlet cloudlet = cloudlets.get(id);
+            assertEquals(Collections.emptyList(), cloudlet.getRequiredFiles());
+            assertEquals(0, policy.transfers.get(id), 0);
+            assertEquals(runtimes[id], cloudlet.getFinishTime() - cloudlet.getExecStartTime(), 0.001);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Runs one workflow under every algorithm in both dispatch modes and checks that every task
+ * completes, and none starts before all its parents have finished.
+ */
+public class DispatchModeTest {
+
+    private static final String WORKFLOW = "resources/Montage_500_1.xml";
+
+    @After
+    public void tearDown() {
+        WorkflowAnalytics.clearCache();
+    }
+
+    // A shipped workflow, parsed as ExperimentRunner does, with every task recorded by id
+    private static Map<Integer, Job> run(MyBroker.SchedulingAlgorithm algorithm, MyBroker.DispatchMode mode)
+            throws Exception {
+        BrokerFixture.init();
+        MyBroker broker = new MyBroker("Broker", algorithm, 60, mode);
+        broker.submitVmList(BrokerFixture.vms(broker.getId(), 800, 1200, 1600));
+        broker.setStorageTransferRate(SimpleExample.STORAGE_TRANSFER_RATE);
+        List<Job> jobs = WorkflowParser.parseWorkflow(WORKFLOW);
+        List<Cloudlet> cloudlets = SimpleExample.createCloudlets(jobs, broker.getId());
+        broker.setJobDependencies(broker.extractJobDependencies(jobs));
+        broker.submitCloudletList(cloudlets);
+        CloudSim.startSimulation();
+
+        assertEquals(jobs.size(), broker.getCompletedJobCount());
+        Map<Integer, Job> tasks = new HashMap<>();
+        for (Cloudlet cloudlet : cloudlets) {
+            tasks.put(((Job) cloudlet).getId(), (Job) cloudlet);
+        }
+        return tasks;
+    }
+
+    private static void checkDependencies(String run, Map<Integer, Job> tasks) {
+        for (Job task : tasks.values()) {
+            assertEquals(run, Cloudlet.SUCCESS, task.getCloudletStatus());
+            for (int parentId : task.getParentIds()) {
+                Job parent = tasks.get(parentId);
+                assertTrue(run + ": task " + task.getId() + " started at " + task.getExecStartTime() + " before "
+                        + parentId + " finished at " + parent.getFinishTime(),
+                        task.getExecStartTime() >= parent.getFinishTime());
+            }
+        }
+    }
+
+    @Test
+    public void testBothModes() throws Exception {
+        for (MyBroker.SchedulingAlgorithm algorithm : MyBroker.SchedulingAlgorithm.values()) {
+            for (MyBroker.DispatchMode mode : MyBroker.DispatchMode.values()) {
+                checkDependencies(algorithm + " " + mode, run(algorithm, mode));
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks that the grid expands to one cell per combination of its dimensions, and that the
+ * runner gives every cell the same result whether the cells run on one thread or several.
+ */
+public class ExperimentGridTest {
+
+    private static final String[] WORKFLOWS = {"resources/Montage_500_1.xml", "resources/LIGO_500_1.xml"};
+
+    @After
+    public void tearDown() {
+        WorkflowAnalytics.clearCache();
+    }
+
+    private static ExperimentGrid grid(MyBroker.SchedulingAlgorithm... algorithms) {
+        ExperimentGrid grid = new ExperimentGrid();
+        for (String workflow : WORKFLOWS) {
+            grid.addWorkflow(workflow);
+        }
+        for (MyBroker.SchedulingAlgorithm algorithm : algorithms) {
+            grid.addAlgorithm(algorithm);
+        }
+        return grid.addVmMips(800, 1200, 1600)
+                .addVmMips(1000)
+                .addScheduleInterval(30)
+                .addScheduleInterval(60)
+                .addDispatchMode(MyBroker.DispatchMode.PERIODIC)
+                .addDispatchMode(MyBroker.DispatchMode.EVENT_DRIVEN);
+    }
+
+    @Test
+    public void testCellsCoverEveryCombination() {
+        MyBroker.SchedulingAlgorithm[] algorithms = MyBroker.SchedulingAlgorithm.values();
+        List<ExperimentGrid.Cell> cells = grid(algorithms).cells();
+        assertEquals(WORKFLOWS.length * algorithms.length * 2 * 2 * 2, cells.size());
+
+        // declaration order, with the last dimension varying fastest
+        ExperimentGrid.Cell first = cells.get(0);
+        assertEquals(WORKFLOWS[0], first.getWorkflow());
+        assertEquals(algorithms[0], first.getAlgorithm());
+        assertArrayEquals(new int[] {800, 1200, 1600}, first.getVmMips());
+        assertEquals(30, first.getScheduleInterval(), 0);
+        assertEquals(MyBroker.DispatchMode.PERIODIC, first.getDispatchMode());
+        assertEquals(MyBroker.DispatchMode.EVENT_DRIVEN, cells.get(1).getDispatchMode());
+        assertEquals(60, cells.get(2).getScheduleInterval(), 0);
+        assertArrayEquals(new int[] {1000}, cells.get(4).getVmMips());
+        assertEquals(algorithms[1], cells.get(8).getAlgorithm());
+        assertEquals(WORKFLOWS[1], cells.get(cells.size() - 1).getWorkflow());
+    }
+
+    @Test
+    public void testLocalityAwarenessOnlyDoublesPriorityPolicies() {
+        ExperimentGrid grid = grid(MyBroker.SchedulingAlgorithm.SJF, MyBroker.SchedulingAlgorithm.HEFT)
+                .addLocalityAware(false)
+                .addLocalityAware(true);
+        // SJF is run with both placements, HEFT only with the placement of its plan
+        assertEquals(WORKFLOWS.length * (2 + 1) * 2 * 2 * 2, grid.cells().size());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testEmptyGrid() {
+        new ExperimentGrid().addWorkflow(WORKFLOWS[0]).cells();
+    }
+
+    @Test
+    public void testThreadsDoNotChangeResults() throws Exception {
+        ExperimentGrid grid = new ExperimentGrid()
+                .addWorkflow(WORKFLOWS[0])
+                .addWorkflow(WORKFLOWS[1])
+                .addAlgorithm(MyBroker.SchedulingAlgorithm.SJF)
+                .addAlgorithm(MyBroker.SchedulingAlgorithm.HEFT)
+                .addDispatchMode(MyBroker.DispatchMode.PERIODIC)
+                .addDispatchMode(MyBroker.DispatchMode.EVENT_DRIVEN);
+        List<ExperimentRunner.Result> sequential = new ExperimentRunner(1, true).run(grid);
+        List<ExperimentRunner.Result> parallel = new ExperimentRunner(4, true).run(grid);
+
+        assertEquals(8, sequential.size());
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            ExperimentRunner.Result expected = sequential.get(i);
+            ExperimentRunner.Result actual = parallel.get(i);
+            String cell = expected.getCell().toString();
+            assertNull(cell, expected.getError());
+            assertNull(cell, actual.getError());
+            assertEquals(cell, expected.getCell().toString(), actual.getCell().toString());
+            assertEquals(cell, expected.getTotalJobs(), expected.getCompletedJobs());
+            assertEquals(cell, expected.getMakespan(), actual.getMakespan(), 0);
+            assertEquals(cell, expected.getEvents(), actual.getEvents());
+            assertEquals(cell, expected.getCompletedJobs(), actual.getCompletedJobs());
+        }
+    }
+}
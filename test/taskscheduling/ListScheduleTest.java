@@ -0,0 +1,98 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.Vm;
+import org.junit.Test;
+
+/**
+ * Checks HEFT and PEFT plans of a diamond workflow on two VMs: the plans respect the dependencies
+ * and the VM slots, and charge file transfers as the broker does.
+ */
+public class ListScheduleTest {
+
+    private static final double MEGABYTE = 1 << 20;
+
+    // a -> b, a -> c, b -> d, c -> d; b and c take 4 s, a and d 1 s on a VM of 1000 MIPS
+    private static List<Job> diamond(long fileSize) {
+        Job a = job(0, 1000, "a.out", fileSize);
+        Job b = job(1, 4000, "b.out", fileSize);
+        Job c = job(2, 4000, "c.out", fileSize);
+        Job d = job(3, 1000, null, fileSize);
+        b.addUses(new Uses("a.out", "data", "input", fileSize));
+        c.addUses(new Uses("a.out", "data", "input", fileSize));
+        d.addUses(new Uses("b.out", "data", "input", fileSize));
+        d.addUses(new Uses("c.out", "data", "input", fileSize));
+        return Arrays.asList(a, b, c, d);
+    }
+
+    private static Job job(int id, long length, String output, long fileSize) {
+        Job job = new Job(id, "job" + id, length / 1000.0, 0, id, length, 1, 300, 300, new UtilizationModelFull());
+        if (output != null) {
+            job.addUses(new Uses(output, "data", "output", fileSize));
+        }
+        return job;
+    }
+
+    private static ListSchedule plan(ListSchedule.Algorithm algorithm, long fileSize) {
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        children.put(0, Arrays.asList(1, 2));
+        children.put(1, Arrays.asList(3));
+        children.put(2, Arrays.asList(3));
+        List<Vm> vms = Arrays.asList(vm(10), vm(11));
+        // one second per megabyte read from the shared storage
+        return new ListSchedule(algorithm, diamond(fileSize), children, vms, bytes -> bytes / MEGABYTE);
+    }
+
+    private static Vm vm(int id) {
+        return new Vm(id, 0, 1000, 1, 512, 1000, 10000, "Xen", new CloudletSchedulerSpaceShared());
+    }
+
+    @Test
+    public void testSmallFilesUseBothVms() {
+        for (ListSchedule.Algorithm algorithm : ListSchedule.Algorithm.values()) {
+            ListSchedule schedule = plan(algorithm, 1 << 20);
+            checkFeasible(schedule);
+            // b and c run side by side, one of them paying 1 s to read a.out
+            assertTrue(schedule.getVmId(1) != schedule.getVmId(2));
+            assertEquals(8, schedule.getMakespan(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testLargeFilesStayOnOneVm() {
+        for (ListSchedule.Algorithm algorithm : ListSchedule.Algorithm.values()) {
+            ListSchedule schedule = plan(algorithm, 100 << 20);
+            checkFeasible(schedule);
+            // reading any output on another VM costs 100 s, more than running everything in turn
+            for (int id = 1; id < 4; id++) {
+                assertEquals(schedule.getVmId(0), schedule.getVmId(id));
+            }
+            assertEquals(10, schedule.getMakespan(), 1e-9);
+        }
+    }
+
+    // Children start after their parents, and the tasks of a VM don't overlap
+    private static void checkFeasible(ListSchedule schedule) {
+        int[][] edges = {{0, 1}, {0, 2}, {1, 3}, {2, 3}};
+        for (int[] edge : edges) {
+            assertTrue(schedule.getStartTime(edge[1]) >= schedule.getFinishTime(edge[0]) - 1e-9);
+        }
+        for (ArrayDeque<Integer> queue : schedule.getVmQueues().values()) {
+            double free = 0;
+            for (int id : queue) {
+                assertTrue(schedule.getStartTime(id) >= free - 1e-9);
+                free = schedule.getFinishTime(id);
+            }
+        }
+    }
+}
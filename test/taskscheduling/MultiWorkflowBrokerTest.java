@@ -0,0 +1,117 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Runs two instances of a diamond workflow on one broker: their ids and files are kept apart,
+ * each waits for its arrival and is timed from it, and least-slack serves the tighter deadline
+ * first.
+ */
+public class MultiWorkflowBrokerTest {
+
+    private static final String WORKFLOW = "diamond.xml";
+
+    @After
+    public void tearDown() {
+        WorkflowAnalytics.clearCache();
+    }
+
+    private static MultiWorkflowBroker newBroker(FairSharePolicy.Strategy strategy, int... mips) throws Exception {
+        BrokerFixture.init();
+        MultiWorkflowBroker broker = new MultiWorkflowBroker("Broker", strategy, MyBroker.SCHEDULE_INTERVAL,
+                MyBroker.DispatchMode.EVENT_DRIVEN);
+        broker.submitVmList(BrokerFixture.vms(broker.getId(), mips));
+        broker.setStorageTransferRate(SimpleExample.STORAGE_TRANSFER_RATE);
+        return broker;
+    }
+
+    @Test
+    public void testStaggeredInstances() throws Exception {
+        MultiWorkflowBroker broker = newBroker(FairSharePolicy.Strategy.FAIR_SHARE, 1000, 1000);
+        List<Job> parsed = BrokerFixture.diamond(1_000_000);
+        WorkflowInstance first = broker.submitWorkflow(WORKFLOW, parsed, 0, 100);
+        WorkflowInstance second = broker.submitWorkflow(WORKFLOW, parsed, 50, 5);
+        CloudSim.startSimulation();
+
+        // the second instance is shifted past the ids of the first, and its files are its own
+        assertEquals(0, first.getIdOffset());
+        assertEquals(4, second.getIdOffset());
+        Set<Integer> ids = new HashSet<>();
+        Set<Integer> cloudletIds = new HashSet<>();
+        Set<String> files = new HashSet<>();
+        for (WorkflowInstance instance : broker.getWorkflows()) {
+            Set<String> instanceFiles = new HashSet<>();
+            for (int k = 0; k < parsed.size(); k++) {
+                Job job = instance.getJobs().get(k);
+                assertEquals(instance.toGlobalId(parsed.get(k).getId()), job.getId());
+                assertTrue(ids.add(job.getId()));
+                assertTrue(cloudletIds.add(job.getCloudletId()));
+                for (Uses uses : job.getUsesList()) {
+                    assertTrue(uses.getFile(), uses.getFile().startsWith(instance.getName() + "/"));
+                    instanceFiles.add(uses.getFile());
+                }
+            }
+            assertEquals(4, instanceFiles.size());
+            assertTrue(files.addAll(instanceFiles));
+        }
+        assertEquals(8, ids.size());
+        assertEquals(Arrays.asList(5, 6), second.getJobs().get(0).getChildIds());
+        assertEquals(Arrays.asList(5, 6), second.getJobs().get(3).getParentIds());
+
+        // every task of the second instance waits for its arrival
+        for (Job job : second.getJobs()) {
+            assertTrue(job.getExecStartTime() >= 50);
+            assertEquals(Cloudlet.SUCCESS, job.getCloudletStatus());
+        }
+        assertEquals(50, second.getJobs().get(0).getExecStartTime(), 0);
+
+        // both run alone on idle VMs, so they take as long from their arrival; the first only
+        // starts once the VMs are created
+        assertEquals(56.12, broker.getFinishTime(second), 0.01);
+        assertEquals(6.12, broker.getMakespan(second), 0.01);
+        assertEquals(broker.getMakespan(second) + 0.1, broker.getMakespan(first), 0.01);
+        assertTrue(broker.isDeadlineMet(first));
+        assertFalse(broker.isDeadlineMet(second));
+        assertEquals(56.12, broker.getMakespan(), 0.01);
+    }
+
+    @Test
+    public void testLeastSlackServesTheTighterDeadlineFirst() throws Exception {
+        // one VM, so the first task to run decides which workflow goes first
+        MultiWorkflowBroker broker = newBroker(FairSharePolicy.Strategy.LEAST_SLACK, 1000);
+        List<Job> parsed = BrokerFixture.diamond(1_000_000);
+        WorkflowInstance loose = broker.submitWorkflow(WORKFLOW, parsed, 0, 100);
+        WorkflowInstance tight = broker.submitWorkflow(WORKFLOW, parsed, 0, 12);
+        CloudSim.startSimulation();
+
+        assertEquals(0.1, tight.getJobs().get(0).getExecStartTime(), 0.001);
+        assertTrue(loose.getJobs().get(0).getExecStartTime() > 1);
+        assertTrue(broker.getFinishTime(tight) < broker.getFinishTime(loose));
+        assertTrue(broker.isDeadlineMet(tight));
+        assertTrue(broker.isDeadlineMet(loose));
+    }
+
+    @Test
+    public void testFairShareServesTheFirstSubmissionFirst() throws Exception {
+        MultiWorkflowBroker broker = newBroker(FairSharePolicy.Strategy.FAIR_SHARE, 1000);
+        List<Job> parsed = BrokerFixture.diamond(1_000_000);
+        WorkflowInstance loose = broker.submitWorkflow(WORKFLOW, parsed, 0, 100);
+        WorkflowInstance tight = broker.submitWorkflow(WORKFLOW, parsed, 0, 12);
+        CloudSim.startSimulation();
+
+        assertEquals(0.1, loose.getJobs().get(0).getExecStartTime(), 0.001);
+        assertFalse(broker.isDeadlineMet(tight));
+    }
+}
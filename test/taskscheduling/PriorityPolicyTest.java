@@ -0,0 +1,181 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.CloudletSchedulerProcessorSharing;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.Vm;
+import org.junit.Test;
+
+/**
+ * Checks that the ready queue of SJF, LB and STB dispatches tasks with equal keys in the order
+ * they became ready, as the stable sort of the ready list did before it.
+ */
+public class PriorityPolicyTest {
+
+    // The order in which the tasks become ready; the first half is dispatched in two rounds
+    // before the rest becomes ready
+    private static final List<Integer> READY_ORDER = Arrays.asList(7, 2, 9, 0, 11, 4, 1, 6, 10, 3, 8, 5);
+
+    // Lengths and levels repeat, so most keys are shared; 0 and 3 have two children, 1 and 2 one
+    private static List<Job> jobs() {
+        List<Job> jobs = new ArrayList<>();
+        for (int id = 0; id < 12; id++) {
+            long length = 1000 * (1 + id % 3);
+            jobs.add(new Job(id, "job" + id, length / 1000.0, 1 + id % 2, id, length, 1, 300, 300,
+                    new UtilizationModelFull()));
+        }
+        BrokerFixture.edge(jobs.get(0), jobs.get(6));
+        BrokerFixture.edge(jobs.get(0), jobs.get(7));
+        BrokerFixture.edge(jobs.get(1), jobs.get(8));
+        BrokerFixture.edge(jobs.get(2), jobs.get(9));
+        BrokerFixture.edge(jobs.get(3), jobs.get(10));
+        BrokerFixture.edge(jobs.get(3), jobs.get(11));
+        return jobs;
+    }
+
+    // One VM that takes a limited number of tasks per round and records them
+    private static final class RecordingContext implements SchedulingContext {
+
+        private final List<Job> jobs;
+        private final Map<Integer, List<Integer>> dependencies = new HashMap<>();
+        private final List<Vm> vms = Collections.singletonList(new Vm(0, 0, 1000, 1, 512, 1000, 10000, "Xen",
+                new CloudletSchedulerProcessorSharing()));
+        private final List<Integer> assigned = new ArrayList<>();
+        private int capacity;
+
+        RecordingContext(List<Job> jobs) {
+            this.jobs = jobs;
+            for (Job job : jobs) {
+                dependencies.put(job.getId(), job.getChildIds());
+            }
+        }
+
+        @Override
+        public double getClock() {
+            return 0;
+        }
+
+        @Override
+        public double getHorizon() {
+            return 0;
+        }
+
+        @Override
+        public List<Job> getJobs() {
+            return jobs;
+        }
+
+        @Override
+        public Map<Integer, List<Integer>> getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public WorkflowAnalytics getAnalytics() {
+            return new WorkflowAnalytics(jobs, dependencies);
+        }
+
+        @Override
+        public List<Vm> getVms() {
+            return vms;
+        }
+
+        @Override
+        public double getProjectedFinishTime(Vm vm) {
+            return 0;
+        }
+
+        @Override
+        public int getQueueLength(Vm vm) {
+            return 0;
+        }
+
+        @Override
+        public boolean needsWork(Vm vm) {
+            return capacity > 0;
+        }
+
+        @Override
+        public double getInputTransferTime(Job task, Vm vm) {
+            return 0;
+        }
+
+        @Override
+        public double getFileTransferTime(long bytes) {
+            return 0;
+        }
+
+        @Override
+        public void assign(Job task, Vm vm) {
+            assigned.add(task.getId());
+            capacity--;
+        }
+    }
+
+    // Dispatches 2 and then 3 of the first 6 ready tasks, then all the rest
+    private static List<Integer> dispatch(PriorityPolicy policy) {
+        List<Job> jobs = jobs();
+        RecordingContext context = new RecordingContext(jobs);
+        policy.start(context);
+        for (int id : READY_ORDER.subList(0, 6)) {
+            policy.taskReady(jobs.get(id), context);
+        }
+        context.capacity = 2;
+        policy.schedule(context);
+        context.capacity = 3;
+        policy.schedule(context);
+        for (int id : READY_ORDER.subList(6, 12)) {
+            policy.taskReady(jobs.get(id), context);
+        }
+        context.capacity = Integer.MAX_VALUE;
+        policy.schedule(context);
+        return context.assigned;
+    }
+
+    // The order a stable sort of the ready list gave in each round
+    private static List<Integer> sortedOrder(Comparator<Integer> byKey) {
+        List<Integer> order = new ArrayList<>();
+        List<Integer> ready = new ArrayList<>(READY_ORDER.subList(0, 6));
+        for (int round = 0; round < 3; round++) {
+            if (round == 2) {
+                ready.addAll(READY_ORDER.subList(6, 12));
+            }
+            ready.sort(byKey);
+            int count = round == 0 ? 2 : round == 1 ? 3 : ready.size();
+            order.addAll(ready.subList(0, count));
+            ready.subList(0, count).clear();
+        }
+        return order;
+    }
+
+    @Test
+    public void testShortestJobFirst() {
+        List<Job> jobs = jobs();
+        List<Integer> expected = sortedOrder(Comparator.comparingLong(id -> jobs.get(id).getCloudletLength()));
+        assertEquals(Arrays.asList(9, 0, 7, 4, 2, 6, 3, 1, 10, 11, 8, 5), expected);
+        assertEquals(expected, dispatch(new ShortestJobFirstPolicy()));
+    }
+
+    @Test
+    public void testLevelBased() {
+        List<Job> jobs = jobs();
+        List<Integer> expected = sortedOrder(Comparator.comparingInt(id -> jobs.get(id).getLevel()));
+        assertEquals(expected, dispatch(new LevelBasedPolicy()));
+    }
+
+    @Test
+    public void testSubsequentTasks() {
+        List<Job> jobs = jobs();
+        List<Integer> expected = sortedOrder(Comparator.comparingInt(id -> -jobs.get(id).getChildIds().size()));
+        assertEquals(expected, dispatch(new SubsequentTasksPolicy()));
+    }
+}
@@ -0,0 +1,134 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Checks the analytics of a small fork-join workflow against values worked out by hand.
+ */
+public class WorkflowAnalyticsTest {
+
+    // 0 forks to 1, 2 and 3; 1 and 2 join in 4 (a diamond), 3 and the second entry job 7 in 5,
+    // and 4 and 5 in 6. Job 7 also names a child that is not in the workflow.
+    private static final double[] RUNTIMES = {2, 3, 5, 4, 1, 6, 2, 1};
+
+    private static List<Job> jobs() {
+        List<Job> jobs = new ArrayList<>();
+        for (int id = 0; id < RUNTIMES.length; id++) {
+            jobs.add(new Job(id, "job" + id, RUNTIMES[id], -1, id, (long) (RUNTIMES[id] * 1000), 1, 300, 300,
+                    new UtilizationModelFull()));
+        }
+        edge(jobs, 0, 1);
+        edge(jobs, 0, 2);
+        edge(jobs, 0, 3);
+        edge(jobs, 1, 4);
+        edge(jobs, 2, 4);
+        edge(jobs, 3, 5);
+        edge(jobs, 7, 5);
+        edge(jobs, 4, 6);
+        edge(jobs, 5, 6);
+        jobs.get(7).addChildId(99);
+        return jobs;
+    }
+
+    private static void edge(List<Job> jobs, int parent, int child) {
+        jobs.get(parent).addChildId(child);
+        jobs.get(child).addParentId(parent);
+    }
+
+    private static Map<Integer, List<Integer>> children(List<Job> jobs) {
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        for (Job job : jobs) {
+            children.put(job.getId(), job.getChildIds());
+        }
+        return children;
+    }
+
+    @After
+    public void tearDown() {
+        WorkflowAnalytics.clearCache();
+    }
+
+    @Test
+    public void testOrderAndDepth() {
+        List<Job> jobs = jobs();
+        WorkflowAnalytics analytics = new WorkflowAnalytics(jobs, children(jobs));
+        assertEquals(8, analytics.size());
+        assertTrue(analytics.contains(7));
+        assertFalse(analytics.contains(99));
+
+        // entry jobs in list order, then each job once its last parent is ordered
+        assertEquals(Arrays.asList(0, 7, 1, 2, 3, 4, 5, 6), analytics.getTopologicalOrder());
+        int[] depths = {0, 1, 1, 1, 2, 2, 3, 0};
+        for (int id = 0; id < depths.length; id++) {
+            assertEquals("depth of " + id, depths[id], analytics.getDepth(id));
+        }
+    }
+
+    @Test
+    public void testRanks() {
+        List<Job> jobs = jobs();
+        WorkflowAnalytics analytics = new WorkflowAnalytics(jobs, children(jobs));
+
+        // the longest runtime path from the job to an exit job, and from an entry job to it
+        double[] upward = {14, 6, 8, 12, 3, 8, 2, 9};
+        double[] downward = {0, 2, 2, 2, 7, 6, 12, 0};
+        for (int id = 0; id < upward.length; id++) {
+            assertEquals("upward rank of " + id, upward[id], analytics.getUpwardRank(id), 0);
+            assertEquals("downward rank of " + id, downward[id], analytics.getDownwardRank(id), 0);
+        }
+    }
+
+    @Test
+    public void testDescendantsAreCountedOnce() {
+        List<Job> jobs = jobs();
+        WorkflowAnalytics analytics = new WorkflowAnalytics(jobs, children(jobs));
+
+        // 6 is reached from 0 along three paths, 4 along two
+        int[] descendants = {6, 2, 2, 2, 1, 1, 0, 2};
+        for (int id = 0; id < descendants.length; id++) {
+            assertEquals("descendants of " + id, descendants[id], analytics.getDescendantCount(id));
+        }
+    }
+
+    @Test
+    public void testCriticalPath() {
+        List<Job> jobs = jobs();
+        WorkflowAnalytics analytics = new WorkflowAnalytics(jobs, children(jobs));
+
+        assertEquals(Arrays.asList(0, 3, 5, 6), analytics.getCriticalPath());
+        assertEquals(14, analytics.getCriticalPathLength(), 0);
+        assertEquals(analytics.getDownwardRank(6) + RUNTIMES[6], analytics.getCriticalPathLength(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCycle() {
+        List<Job> jobs = jobs();
+        edge(jobs, 6, 1);
+        new WorkflowAnalytics(jobs, children(jobs));
+    }
+
+    @Test
+    public void testSharedPerWorkflow() {
+        WorkflowAnalytics analytics = WorkflowAnalytics.forWorkflow("fork-join.xml", jobs());
+        assertSame(analytics, WorkflowAnalytics.forWorkflow("fork-join.xml", jobs()));
+        assertEquals(Arrays.asList(0, 3, 5, 6), analytics.getCriticalPath());
+        assertNotSame(analytics, WorkflowAnalytics.forWorkflow("other.xml", jobs()));
+
+        WorkflowAnalytics.clearCache();
+        assertNotSame(analytics, WorkflowAnalytics.forWorkflow("fork-join.xml", jobs()));
+    }
+}
@@ -0,0 +1,123 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that generated workflows of every shape have exactly the requested number of jobs, form
+ * a DAG whose only entry jobs are those of the shape's entry types, are reproducible from their
+ * seed, and read back unchanged from their compiled file.
+ */
+public class WorkflowGeneratorTest {
+
+    // The minimum, odd sizes that leave uneven last LIGO groups and SIPHT units, and a large size
+    private static final int[] SIZES = {WorkflowGenerator.MIN_JOBS, 21, 33, 97, 501, 20_001};
+
+    private static final long[] SEEDS = {1, 42};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static Set<String> entryTypes(WorkflowGenerator.Shape shape) {
+        switch (shape) {
+            case MONTAGE:
+                return Collections.singleton("mProjectPP");
+            case LIGO:
+                return Collections.singleton("TmpltBank");
+            case CYBERSHAKE:
+                return Collections.singleton("ExtractSGT");
+            default:
+                return new HashSet<>(Arrays.asList("Patser", "Transterm", "Findterm", "RNAMotif", "Blast"));
+        }
+    }
+
+    @Test
+    public void testMontage() throws IOException {
+        checkShape(WorkflowGenerator.Shape.MONTAGE);
+    }
+
+    @Test
+    public void testLigo() throws IOException {
+        checkShape(WorkflowGenerator.Shape.LIGO);
+    }
+
+    @Test
+    public void testCyberShake() throws IOException {
+        checkShape(WorkflowGenerator.Shape.CYBERSHAKE);
+    }
+
+    @Test
+    public void testSipht() throws IOException {
+        checkShape(WorkflowGenerator.Shape.SIPHT);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooSmall() {
+        WorkflowGenerator.generate(WorkflowGenerator.Shape.MONTAGE, WorkflowGenerator.MIN_JOBS - 1, 1);
+    }
+
+    private void checkShape(WorkflowGenerator.Shape shape) throws IOException {
+        for (int size : SIZES) {
+            for (long seed : SEEDS) {
+                String run = shape + " " + size + " seed " + seed;
+                WorkflowGenerator generator = WorkflowGenerator.generate(shape, size, seed);
+                assertEquals(run, size, generator.size());
+                List<Job> jobs = generator.toJobs();
+                checkStructure(run, shape, jobs, generator.getEdgeCount());
+
+                CompiledWorkflowTest.assertSameJobs(jobs, WorkflowGenerator.generate(shape, size, seed).toJobs());
+
+                File file = folder.newFile(shape + "-" + size + "-" + seed + ".bin");
+                generator.compile(file);
+                CompiledWorkflowTest.assertSameJobs(jobs, WorkflowParser.parseWorkflow(file.getPath()));
+            }
+        }
+    }
+
+    private static void checkStructure(String run, WorkflowGenerator.Shape shape, List<Job> jobs, int edgeCount) {
+        Map<Integer, List<Integer>> children = new HashMap<>();
+        int edges = 0;
+        for (int i = 0; i < jobs.size(); i++) {
+            Job job = jobs.get(i);
+            assertEquals(run, i, job.getId());
+            children.put(job.getId(), job.getChildIds());
+            edges += job.getChildIds().size();
+            for (int child : job.getChildIds()) {
+                assertTrue(run + ": edge " + i + " -> " + child, jobs.get(child).getParentIds().contains(i));
+            }
+        }
+        assertEquals(run, edgeCount, edges);
+
+        // throws if the edges form a cycle
+        WorkflowAnalytics analytics = new WorkflowAnalytics(jobs, children);
+        assertEquals(run, jobs.size(), analytics.getTopologicalOrder().size());
+
+        // only a LIGO workflow of odd size has an entry job of another type: the Inspiral that
+        // takes the odd job of its last group
+        Set<String> entryTypes = entryTypes(shape);
+        int otherEntries = 0;
+        for (Job job : jobs) {
+            boolean entryType = entryTypes.contains(job.getName());
+            if (job.getParentIds().isEmpty() != entryType) {
+                assertTrue(run + ": job " + job.getId() + " " + job.getName(), job.getParentIds().isEmpty()
+                        && shape == WorkflowGenerator.Shape.LIGO && job.getName().equals("Inspiral"));
+                otherEntries++;
+            }
+        }
+        assertEquals(run, shape == WorkflowGenerator.Shape.LIGO ? jobs.size() % 2 : 0, otherEntries);
+    }
+}
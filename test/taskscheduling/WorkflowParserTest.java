@@ -0,0 +1,132 @@
+package taskscheduling;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the jobs, edges and file uses the streaming parser reads from a small workflow, plain
+ * and gzipped, including ids with other prefixes and edges to jobs missing from the workflow.
+ */
+public class WorkflowParserTest {
+
+    // j_12 also has a parent that is not in the workflow, and ID00099 is a child that is not
+    private static final String DAX = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<adag xmlns=\"http://pegasus.isi.edu/schema/DAX\" version=\"2.1\">\n"
+            + "  <job id=\"ID00000\" namespace=\"Test\" name=\"split\" runtime=\"1.5\" level=\"1\">\n"
+            + "    <uses file=\"in.dat\" link=\"input\" type=\"data\" size=\"1.0E6\"/>\n"
+            + "    <uses file=\"part.dat\" link=\"output\" type=\"data\" size=\"2048\"/>\n"
+            + "  </job>\n"
+            + "  <job id=\"j_12\" namespace=\"Test\" name=\"merge\" runtime=\"20\">\n"
+            + "    <uses file=\"part.dat\" link=\"input\" type=\"data\" size=\"2048\"/>\n"
+            + "    <uses file=\"merge.cfg\" link=\"input\" type=\"executable\"/>\n"
+            + "  </job>\n"
+            + "  <child ref=\"j_12\">\n"
+            + "    <parent ref=\"ID00000\"/>\n"
+            + "    <parent ref=\"ID00042\"/>\n"
+            + "  </child>\n"
+            + "  <child ref=\"ID00099\">\n"
+            + "    <parent ref=\"j_12\"/>\n"
+            + "  </child>\n"
+            + "</adag>\n";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testPlainWorkflow() throws IOException {
+        File file = folder.newFile("workflow.xml");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(DAX.getBytes(StandardCharsets.UTF_8));
+        }
+        checkJobs(WorkflowParser.parseWorkflow(file.getPath()));
+    }
+
+    @Test
+    public void testGzippedWorkflow() throws IOException {
+        // no .gz suffix: the format is told by the content
+        File file = folder.newFile("workflow.dax");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(file))) {
+            out.write(DAX.getBytes(StandardCharsets.UTF_8));
+        }
+        checkJobs(WorkflowParser.parseWorkflow(file.getPath()));
+    }
+
+    private static void checkJobs(List<Job> jobs) {
+        assertEquals(2, jobs.size());
+
+        Job split = jobs.get(0);
+        assertEquals(0, split.getId());
+        assertEquals(0, split.getCloudletId());
+        assertEquals("split", split.getName());
+        assertEquals(1.5, split.getRuntime(), 0);
+        assertEquals(1500, split.getCloudletLength());
+        assertEquals(1, split.getLevel());
+        assertEquals(Collections.emptyList(), split.getParentIds());
+        assertEquals(Arrays.asList(12), split.getChildIds());
+        assertEquals(2, split.getUsesList().size());
+        checkUses(split.getUsesList().get(0), "in.dat", "data", "input", 1000000);
+        checkUses(split.getUsesList().get(1), "part.dat", "data", "output", 2048);
+
+        // the edges to the missing jobs are kept on the side that exists
+        Job merge = jobs.get(1);
+        assertEquals(12, merge.getId());
+        assertEquals("merge", merge.getName());
+        assertEquals(20000, merge.getCloudletLength());
+        assertEquals(-1, merge.getLevel());
+        assertEquals(Arrays.asList(0, 42), merge.getParentIds());
+        assertEquals(Arrays.asList(99), merge.getChildIds());
+        assertEquals(2, merge.getUsesList().size());
+        checkUses(merge.getUsesList().get(0), "part.dat", "data", "input", 2048);
+        checkUses(merge.getUsesList().get(1), "merge.cfg", "executable", "input", -1);
+    }
+
+    private static void checkUses(Uses uses, String file, String type, String link, long size) {
+        assertEquals(file, uses.getFile());
+        assertEquals(type, uses.getType());
+        assertEquals(link, uses.getLink());
+        assertEquals(size, uses.getSize());
+        assertTrue(uses.isInput() != uses.isOutput());
+    }
+
+    @Test
+    public void testChainLargerThanTheInitialIndex() throws IOException {
+        // Children are listed before their parents and ids are sparse, so every edge goes through
+        // the id index after it has grown
+        int count = 1500;
+        StringBuilder dax = new StringBuilder("<adag>\n");
+        for (int i = count - 1; i >= 0; i--) {
+            dax.append("  <job id=\"ID").append(7 * i).append("\" name=\"t\" runtime=\"1\"/>\n");
+        }
+        for (int i = 1; i < count; i++) {
+            dax.append("  <child ref=\"ID").append(7 * i).append("\"><parent ref=\"ID").append(7 * (i - 1))
+                    .append("\"/></child>\n");
+        }
+        dax.append("</adag>\n");
+        File file = folder.newFile("chain.xml");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(dax.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<Job> jobs = WorkflowParser.parseWorkflow(file.getPath());
+        assertEquals(count, jobs.size());
+        for (Job job : jobs) {
+            int i = job.getId() / 7;
+            assertEquals(i == 0 ? Collections.emptyList() : Arrays.asList(7 * (i - 1)), job.getParentIds());
+            assertEquals(i == count - 1 ? Collections.emptyList() : Arrays.asList(7 * (i + 1)), job.getChildIds());
+        }
+    }
+}